@@ -0,0 +1,46 @@
+
+/*
+ * Copyright (C) 2017 Archie L. Cobbs. All rights reserved.
+ */
+
+package org.dellroad.linode.apiv4.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the JMH {@linkplain GCProfiler GC profiler} enabled, so that allocation rates
+ * ({@code gc.alloc.rate.norm}, in bytes per operation) are reported alongside timings.
+ *
+ * <p>
+ * Accepts the same command line options as {@link org.openjdk.jmh.Main}; for example, to run only the
+ * JSON benchmarks and save the results:
+ * <blockquote><pre>
+ * java -jar target/benchmarks.jar JsonBenchmark -rf json -rff results.json
+ * </pre></blockquote>
+ */
+public final class Benchmarks {
+
+    private Benchmarks() {
+    }
+
+    /**
+     * Main entry point.
+     *
+     * @param args JMH command line arguments
+     * @throws Exception if an error occurs
+     */
+    public static void main(String[] args) throws Exception {
+        final CommandLineOptions commandLineOptions = new CommandLineOptions(args);
+        if (commandLineOptions.shouldHelp() || commandLineOptions.shouldList() || commandLineOptions.shouldListProfilers()) {
+            org.openjdk.jmh.Main.main(args);
+            return;
+        }
+        new Runner(new OptionsBuilder()
+          .parent(commandLineOptions)
+          .addProfiler(GCProfiler.class)
+          .build()).run();
+    }
+}
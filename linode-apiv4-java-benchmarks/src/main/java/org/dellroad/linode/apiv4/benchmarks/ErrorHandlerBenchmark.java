@@ -0,0 +1,104 @@
+
+/*
+ * Copyright (C) 2017 Archie L. Cobbs. All rights reserved.
+ */
+
+package org.dellroad.linode.apiv4.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.dellroad.linode.apiv4.spring.LinodeApiErrorHandler;
+import org.dellroad.linode.apiv4.spring.LinodeApiException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.ClientHttpResponse;
+
+/**
+ * Measures decoding of API error responses by {@link LinodeApiErrorHandler}, which happens on every
+ * failed request including each rate limited (HTTP 429) retry.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ErrorHandlerBenchmark {
+
+    private static final byte[] ERROR_PAYLOAD = ("{\"errors\":[{\"reason\":\"Too many requests\"},"
+      + "{\"field\":\"label\",\"reason\":\"Label must be between 3 and 32 characters\"}]}").getBytes(StandardCharsets.UTF_8);
+
+    private final LinodeApiErrorHandler errorHandler = new LinodeApiErrorHandler();
+
+    @Benchmark
+    public LinodeApiException handleError() throws IOException {
+        try {
+            this.errorHandler.handleError(new Response(HttpStatus.TOO_MANY_REQUESTS, ERROR_PAYLOAD));
+        } catch (LinodeApiException e) {
+            return e;
+        }
+        throw new RuntimeException("expected exception");
+    }
+
+// Response
+
+    /**
+     * Canned JSON error response.
+     */
+    static class Response implements ClientHttpResponse {
+
+        private final HttpStatus status;
+        private final byte[] body;
+        private final HttpHeaders headers = new HttpHeaders();
+
+        Response(HttpStatus status, byte[] body) {
+            this.status = status;
+            this.body = body;
+            this.headers.setContentType(MediaType.APPLICATION_JSON_UTF8);
+            this.headers.setContentLength(body.length);
+        }
+
+        @Override
+        public HttpStatus getStatusCode() {
+            return this.status;
+        }
+
+        @Override
+        public int getRawStatusCode() {
+            return this.status.value();
+        }
+
+        @Override
+        public String getStatusText() {
+            return this.status.getReasonPhrase();
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return this.headers;
+        }
+
+        @Override
+        public InputStream getBody() {
+            return new ByteArrayInputStream(this.body);
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,68 @@
+
+/*
+ * Copyright (C) 2017 Archie L. Cobbs. All rights reserved.
+ */
+
+package org.dellroad.linode.apiv4.benchmarks;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import org.dellroad.linode.apiv4.Constants;
+import org.dellroad.linode.apiv4.filter.Filter;
+import org.dellroad.linode.apiv4.filter.FilterBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures building and encoding {@value Constants#FILTER_HEADER} filters, and formatting timestamps.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FilterBenchmark {
+
+    private final Date date = new Date(1514764800000L);
+    private final Filter filter = this.buildFilter();
+
+    /**
+     * Build a typical worker pool query filter.
+     *
+     * @return filter
+     */
+    @Benchmark
+    public Filter buildFilter() {
+        final FilterBuilder fb = new FilterBuilder();
+        return fb.where(fb.and(
+            fb.equal("group", "workers"),
+            fb.or(fb.equal("region", "us-east"), fb.equal("region", "us-central")),
+            fb.greaterThanOrEqual("id", 1000)))
+          .orderBy("created", false)
+          .build();
+    }
+
+    @Benchmark
+    public String buildFilterAndToJson() {
+        return this.buildFilter().toJson();
+    }
+
+    @Benchmark
+    public String toJson() {
+        return this.filter.toJson();
+    }
+
+    @Benchmark
+    public String formatDate() {
+        return Constants.toString(this.date);
+    }
+}
@@ -0,0 +1,85 @@
+
+/*
+ * Copyright (C) 2017 Archie L. Cobbs. All rights reserved.
+ */
+
+package org.dellroad.linode.apiv4.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.dellroad.linode.apiv4.core.LinodeApiJson;
+import org.dellroad.linode.apiv4.model.Images;
+import org.dellroad.linode.apiv4.model.Linodes;
+import org.dellroad.linode.apiv4.model.Stats;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures deserialization of API responses using the shared {@link LinodeApiJson} configuration.
+ *
+ * <p>
+ * Paginated responses are measured at the API's default page size (100) and maximum page size (500).
+ * Statistics are measured for a full day of samples.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonBenchmark {
+
+    private final ObjectMapper objectMapper = LinodeApiJson.getObjectMapper();
+
+    private byte[] stats;
+
+    @Setup
+    public void setup() {
+        this.stats = Payloads.stats();
+    }
+
+    @Benchmark
+    public Linodes readLinodes(Pages pages) throws IOException {
+        return this.objectMapper.readValue(pages.linodes, Linodes.class);
+    }
+
+    @Benchmark
+    public Images readImages(Pages pages) throws IOException {
+        return this.objectMapper.readValue(pages.images, Images.class);
+    }
+
+    @Benchmark
+    public Stats readStats() throws IOException {
+        return this.objectMapper.readValue(this.stats, Stats.class);
+    }
+
+// Pages
+
+    @State(Scope.Benchmark)
+    public static class Pages {
+
+        @Param({ "100", "500" })
+        private int pageSize;
+
+        private byte[] linodes;
+        private byte[] images;
+
+        @Setup
+        public void setup() {
+            this.linodes = Payloads.linodes(this.pageSize);
+            this.images = Payloads.images(this.pageSize);
+        }
+    }
+}
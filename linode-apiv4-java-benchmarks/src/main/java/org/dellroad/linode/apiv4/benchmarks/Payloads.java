@@ -0,0 +1,162 @@
+
+/*
+ * Copyright (C) 2017 Archie L. Cobbs. All rights reserved.
+ */
+
+package org.dellroad.linode.apiv4.benchmarks;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.Random;
+
+import org.dellroad.linode.apiv4.core.LinodeApiJson;
+
+/**
+ * Generates JSON response payloads shaped like those returned by the real Linode API.
+ *
+ * <p>
+ * Payloads include fields the model classes do not map, as real responses do, so that deserialization
+ * benchmarks also measure the cost of skipping unknown properties.
+ */
+final class Payloads {
+
+    /**
+     * Number of samples in each {@link org.dellroad.linode.apiv4.model.Stats} series (24 hours at five minute intervals).
+     */
+    static final int STATS_SAMPLES = 288;
+
+    private static final String TIMESTAMP = "2018-01-01T00:01:01";
+    private static final String[] REGIONS = { "us-east", "us-central", "us-west", "eu-west", "eu-central", "ap-south" };
+    private static final String[] STATUSES = { "running", "running", "running", "offline", "booting" };
+
+    private Payloads() {
+    }
+
+    /**
+     * Build a page of Linodes.
+     *
+     * @param count number of Linodes in the page
+     * @return JSON payload
+     */
+    static byte[] linodes(int count) {
+        final ObjectMapper mapper = LinodeApiJson.getObjectMapper();
+        final ObjectNode page = Payloads.page(mapper, count);
+        final ArrayNode data = (ArrayNode)page.get("data");
+        for (int i = 0; i < count; i++) {
+            final int id = 1000000 + i;
+            final ObjectNode linode = data.addObject();
+            linode.put("id", id);
+            linode.put("label", "linode" + id);
+            linode.put("group", "web");
+            linode.put("status", STATUSES[i % STATUSES.length]);
+            linode.put("created", TIMESTAMP);
+            linode.put("updated", TIMESTAMP);
+            linode.put("type", "g6-standard-" + (1 << (i % 4)));
+            linode.putArray("ipv4")
+              .add("203.0." + (i >> 8 & 0xff) + "." + (i & 0xff))
+              .add("192.168." + (i >> 8 & 0xff) + "." + (i & 0xff));
+            linode.put("ipv6", "2600:3c03::f03c:91ff:fe" + Integer.toHexString(id >> 16 & 0xff)
+              + ":" + Integer.toHexString(id & 0xffff) + "/64");
+            linode.put("image", "linode/debian9");
+            linode.put("region", REGIONS[i % REGIONS.length]);
+            linode.put("hypervisor", "kvm");
+            linode.put("watchdog_enabled", true);
+            linode.putArray("tags").add("production").add("web");
+            final ObjectNode specs = linode.putObject("specs");
+            specs.put("disk", 81920);
+            specs.put("memory", 4096);
+            specs.put("vcpus", 2);
+            specs.put("transfer", 4000);
+            final ObjectNode alerts = linode.putObject("alerts");
+            alerts.put("cpu", 180);
+            alerts.put("io", 10000);
+            alerts.put("network_in", 10);
+            alerts.put("network_out", 10);
+            alerts.put("transfer_quota", 80);
+            final ObjectNode backups = linode.putObject("backups");
+            backups.put("enabled", true);
+            final ObjectNode schedule = backups.putObject("schedule");
+            schedule.put("day", "Saturday");
+            schedule.put("window", "W22");
+        }
+        return Payloads.toBytes(mapper, page);
+    }
+
+    /**
+     * Build a page of images.
+     *
+     * @param count number of images in the page
+     * @return JSON payload
+     */
+    static byte[] images(int count) {
+        final ObjectMapper mapper = LinodeApiJson.getObjectMapper();
+        final ObjectNode page = Payloads.page(mapper, count);
+        final ArrayNode data = (ArrayNode)page.get("data");
+        for (int i = 0; i < count; i++) {
+            final boolean vendor = i % 3 == 0;
+            final ObjectNode image = data.addObject();
+            image.put("id", vendor ? "linode/distro" + i : "private/" + (2000000 + i));
+            image.put("label", vendor ? "Distribution " + i : "Golden image " + i);
+            image.put("description", vendor ? null : "Snapshot of web server taken before upgrade " + i);
+            image.put("created", TIMESTAMP);
+            image.put("updated", TIMESTAMP);
+            image.put("is_public", vendor);
+            image.put("deprecated", false);
+            image.put("type", vendor ? "manual" : "automatic");
+            image.put("size", 1100 + i);
+            image.put("created_by", vendor ? "linode" : "someuser");
+            image.put("vendor", vendor ? "Debian" : null);
+            image.putNull("expiry");
+        }
+        return Payloads.toBytes(mapper, page);
+    }
+
+    /**
+     * Build a full day of Linode statistics.
+     *
+     * @return JSON payload
+     */
+    static byte[] stats() {
+        final ObjectMapper mapper = LinodeApiJson.getObjectMapper();
+        final Random random = new Random(0);
+        final ObjectNode stats = mapper.createObjectNode();
+        stats.put("title", "linode1000000 - day (5 min avg)");
+        final ObjectNode data = stats.putObject("data");
+        Payloads.series(data.putArray("cpu"), random);
+        final ObjectNode io = data.putObject("io");
+        Payloads.series(io.putArray("io"), random);
+        Payloads.series(io.putArray("swap"), random);
+        for (String name : new String[] { "netv4", "netv6" }) {
+            final ObjectNode net = data.putObject(name);
+            for (String direction : new String[] { "in", "out", "private_in", "private_out" })
+                Payloads.series(net.putArray(direction), random);
+        }
+        return Payloads.toBytes(mapper, stats);
+    }
+
+    private static ObjectNode page(ObjectMapper mapper, int count) {
+        final ObjectNode page = mapper.createObjectNode();
+        page.putArray("data");
+        page.put("page", 1);
+        page.put("pages", 1);
+        page.put("results", count);
+        return page;
+    }
+
+    private static void series(ArrayNode array, Random random) {
+        final long start = 1514764800000L;
+        for (int i = 0; i < STATS_SAMPLES; i++)
+            array.addArray().add(start + i * 300000L).add(Math.round(random.nextDouble() * 10000.0) / 100.0);
+    }
+
+    private static byte[] toBytes(ObjectMapper mapper, ObjectNode node) {
+        try {
+            return mapper.writeValueAsBytes(node);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("unexpected exception", e);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+
+/*
+ * Copyright (C) 2017 Archie L. Cobbs. All rights reserved.
+ */
+
+package org.dellroad.linode.apiv4.benchmarks;
+
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+import org.dellroad.linode.apiv4.spring.AbstractLinodeApiRequestSender;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.web.util.DefaultUriTemplateHandler;
+
+/**
+ * Measures request URL construction.
+ *
+ * <p>
+ * {@link #expandWithSpring} is the baseline: it builds the template with {@code buildTemplateURL()} and then
+ * expands it the way {@link org.springframework.web.client.RestTemplate} does on every request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UrlBenchmark {
+
+    private static final String PATH = "linode/instances/{linodeId}/disks/{diskId}";
+
+    private final Sender sender = new Sender();
+    private final DefaultUriTemplateHandler uriTemplateHandler = new DefaultUriTemplateHandler();
+    private final Object[] templateParameters = new Object[] { 1234567, 7654321 };
+
+    @Benchmark
+    public String buildTemplateURL() {
+        return this.sender.buildTemplateURL(PATH);
+    }
+
+    @Benchmark
+    public String buildTemplateURLWithQuery() {
+        return this.sender.buildTemplateURL(PATH, "page", 3);
+    }
+
+    @Benchmark
+    public URI buildURI() {
+        return this.sender.buildURI(PATH, this.templateParameters, "page", 3);
+    }
+
+    @Benchmark
+    public URI expandWithSpring() {
+        return this.uriTemplateHandler.expand(this.sender.buildTemplateURL(PATH, "page", 3), this.templateParameters);
+    }
+
+// Sender
+
+    /**
+     * Exposes the URL building methods of {@link AbstractLinodeApiRequestSender}.
+     */
+    static class Sender extends AbstractLinodeApiRequestSender {
+
+        @Override
+        public String buildTemplateURL(String pathTemplate, Object... queryParams) {
+            return super.buildTemplateURL(pathTemplate, queryParams);
+        }
+
+        @Override
+        public URI buildURI(String pathTemplate, Object[] templateParameters, Object... queryParams) {
+            return super.buildURI(pathTemplate, templateParameters, queryParams);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+
+/*
+ * Copyright (C) 2017 Archie L. Cobbs. All rights reserved.
+ */
+
+/**
+ * <a href="https://openjdk.java.net/projects/code-tools/jmh/">JMH</a> benchmarks for the per-request CPU
+ * and allocation hot paths of the Linode API client.
+ *
+ * <p>
+ * Benchmarks:
+ * <ul>
+ *  <li>{@link org.dellroad.linode.apiv4.benchmarks.JsonBenchmark} - deserialization of Linode and image pages
+ *      and of statistics</li>
+ *  <li>{@link org.dellroad.linode.apiv4.benchmarks.UrlBenchmark} - request URL construction</li>
+ *  <li>{@link org.dellroad.linode.apiv4.benchmarks.FilterBenchmark} - filter construction and encoding,
+ *      and timestamp formatting</li>
+ *  <li>{@link org.dellroad.linode.apiv4.benchmarks.ErrorHandlerBenchmark} - error response decoding</li>
+ * </ul>
+ *
+ * <p>
+ * Build with {@code mvn package} and run {@code java -jar linode-apiv4-java-benchmarks/target/benchmarks.jar};
+ * see {@link org.dellroad.linode.apiv4.benchmarks.Benchmarks}.
+ */
+package org.dellroad.linode.apiv4.benchmarks;
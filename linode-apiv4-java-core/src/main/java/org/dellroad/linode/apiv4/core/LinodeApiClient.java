@@ -0,0 +1,1458 @@
+
+/*
+ * Copyright (C) 2017 Archie L. Cobbs. All rights reserved.
+ */
+
+package org.dellroad.linode.apiv4.core;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import org.dellroad.linode.apiv4.Constants;
+import org.dellroad.linode.apiv4.filter.Filter;
+import org.dellroad.linode.apiv4.model.BackupInfo;
+import org.dellroad.linode.apiv4.model.Config;
+import org.dellroad.linode.apiv4.model.Configs;
+import org.dellroad.linode.apiv4.model.Disk;
+import org.dellroad.linode.apiv4.model.Disks;
+import org.dellroad.linode.apiv4.model.Errors;
+import org.dellroad.linode.apiv4.model.IP;
+import org.dellroad.linode.apiv4.model.IPInfo;
+import org.dellroad.linode.apiv4.model.IPv4;
+import org.dellroad.linode.apiv4.model.Image;
+import org.dellroad.linode.apiv4.model.Images;
+import org.dellroad.linode.apiv4.model.Kernel;
+import org.dellroad.linode.apiv4.model.Kernels;
+import org.dellroad.linode.apiv4.model.Linode;
+import org.dellroad.linode.apiv4.model.LinodeSummaries;
+import org.dellroad.linode.apiv4.model.LinodeSummary;
+import org.dellroad.linode.apiv4.model.Linodes;
+import org.dellroad.linode.apiv4.model.Paginated;
+import org.dellroad.linode.apiv4.model.Region;
+import org.dellroad.linode.apiv4.model.Regions;
+import org.dellroad.linode.apiv4.model.StackScript;
+import org.dellroad.linode.apiv4.model.StackScripts;
+import org.dellroad.linode.apiv4.model.Stats;
+import org.dellroad.linode.apiv4.model.Type;
+import org.dellroad.linode.apiv4.model.Types;
+import org.dellroad.linode.apiv4.model.Volume;
+import org.dellroad.linode.apiv4.model.Volumes;
+import org.dellroad.linode.apiv4.request.CloneLinodeRequest;
+import org.dellroad.linode.apiv4.request.CreateConfigRequest;
+import org.dellroad.linode.apiv4.request.CreateDiskRequest;
+import org.dellroad.linode.apiv4.request.CreateImageRequest;
+import org.dellroad.linode.apiv4.request.CreateLinodeRequest;
+import org.dellroad.linode.apiv4.request.CreateVolumeRequest;
+import org.dellroad.linode.apiv4.request.RescueLinodeRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Lightweight, Spring-free client for the Linode REST APIv4.
+ *
+ * <p>
+ * This class provides the same API endpoints as {@code LinodeApiRequestSender} in {@code linode-apiv4-java-spring},
+ * but depends only on Jackson and SLF4J. Requests are sent using the JDK's {@link HttpURLConnection}, which keeps
+ * connections alive and reuses them automatically, and JSON is handled by the {@linkplain LinodeApiJson#getObjectMapper
+ * shared} {@link ObjectMapper}. There is no application context, REST template, or HTTP client library to initialize,
+ * so this class is well suited to command line tools and short-lived batch jobs where startup time matters.
+ *
+ * <p>
+ * Instances are created using a {@link Builder}:
+ * <blockquote><pre>
+ * LinodeApiClient client = LinodeApiClient.builder()
+ *   .authorizationToken(token)
+ *   .build();
+ * List&lt;Linode&gt; linodes = client.getLinodes(0, null);
+ * </pre></blockquote>
+ *
+ * <p>
+ * Aggregating queries load their pages sequentially. Errors are reported by throwing a {@link LinodeApiClientException}.
+ * Instances are immutable and thread safe.
+ */
+public class LinodeApiClient {
+
+    /**
+     * Default connect timeout in milliseconds ({@value #DEFAULT_CONNECT_TIMEOUT}).
+     */
+    public static final int DEFAULT_CONNECT_TIMEOUT = 30000;
+
+    /**
+     * Default read timeout in milliseconds ({@value #DEFAULT_READ_TIMEOUT}).
+     */
+    public static final int DEFAULT_READ_TIMEOUT = 30000;
+
+    protected final Logger log = LoggerFactory.getLogger(this.getClass());
+
+    private final UrlTemplates urlTemplates;
+    private final Supplier<String> authorizationTokenSupplier;
+    private final int connectTimeout;
+    private final int readTimeout;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Constructor.
+     *
+     * @param builder builder containing configuration
+     * @throws IllegalArgumentException if {@code builder} is null
+     */
+    protected LinodeApiClient(Builder builder) {
+        if (builder == null)
+            throw new IllegalArgumentException("null builder");
+        this.urlTemplates = new UrlTemplates(builder.baseURI);
+        this.authorizationTokenSupplier = builder.authorizationTokenSupplier;
+        this.connectTimeout = builder.connectTimeout;
+        this.readTimeout = builder.readTimeout;
+        this.objectMapper = builder.objectMapper;
+    }
+
+    /**
+     * Create a new {@link Builder}.
+     *
+     * @return new builder with default settings
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+// Properties
+
+    public URI getBaseURI() {
+        return this.urlTemplates.getBaseURI();
+    }
+
+    public int getConnectTimeout() {
+        return this.connectTimeout;
+    }
+
+    public int getReadTimeout() {
+        return this.readTimeout;
+    }
+
+    public ObjectMapper getObjectMapper() {
+        return this.objectMapper;
+    }
+
+// Linodes
+
+    /**
+     * Get all Linode instances.
+     *
+     * @param maxResults limit on the number of results returned, or zero for no limit
+     * @param filter filter for returned values, or null for no filter
+     * @return mutable list of all Linodes matching {@code filter}
+     * @throws LinodeApiClientException if an error occurs
+     * @throws IllegalArgumentException if {@code maxResults} is negative
+     */
+    public List<Linode> getLinodes(int maxResults, Filter filter) {
+        return this.getAll(Linodes.class, maxResults, filter, "linode/instances");
+    }
+
+    /**
+     * Get one page of Linode instances.
+     *
+     * @param filter filter for returned values, or null for no filter
+     * @param page page number (the first page is number one)
+     * @return one page of Linodes
+     * @throws LinodeApiClientException if an error occurs
+     * @throws IllegalArgumentException if {@code page} is less than one
+     */
+    public Linodes getLinodesPage(Filter filter, int page) {
+        return this.getPage(Linodes.class, filter, page, "linode/instances");
+    }
+
+    /**
+     * Get summaries of all Linode instances.
+     *
+     * <p>
+     * This is a much cheaper alternative to {@link #getLinodes getLinodes()} when only the properties
+     * in {@link LinodeSummary} are needed, e.g., for status polling.
+     *
+     * @param maxResults limit on the number of results returned, or zero for no limit
+     * @param filter filter for returned values, or null for no filter
+     * @return mutable list of summaries of all Linodes matching {@code filter}
+     * @throws LinodeApiClientException if an error occurs
+     * @throws IllegalArgumentException if {@code maxResults} is negative
+     */
+    public List<LinodeSummary> getLinodeSummaries(int maxResults, Filter filter) {
+        return this.getAll(LinodeSummaries.class, maxResults, filter, "linode/instances");
+    }
+
+    /**
+     * Get a particular Linode instance.
+     *
+     * @param linodeId Linode ID
+     * @return specified Linode
+     * @throws LinodeApiClientException if an error occurs
+     */
+    public Linode getLinode(int linodeId) {
+        return this.get(Linode.class, "linode/instances/{id}", linodeId);
+    }
+
+    /**
+     * Create a new Linode instance.
+     *
+     * @param request create info
+     * @return new Linode
+     * @throws LinodeApiClientException if an error occurs
+     * @throws IllegalArgumentException if {@code request} is null
+     */
+    public Linode createLinode(CreateLinodeRequest request) {
+        if (request == null)
+            throw new IllegalArgumentException("null request");
+        return this.postFor(Linode.class, request, "linode/instances");
+    }
+
+    /**
+     * Update a Linode instance.
+     *
+     * @param request update info
+     * @throws LinodeApiClientException if an error occurs
+     * @throws IllegalArgumentException if {@code request} is null
+     * @throws IllegalArgumentException if {@code request} has invalid ID
+     */
+    public void updateLinode(Linode request) {
+        if (request == null)
+            throw new IllegalArgumentException("null request");
+        if (request.getId() <= 0)
+            throw new IllegalArgumentException("invalid linode ID");
+        this.put(request, "linode/instances/{id}", request.getId());
+    }
+
+    /**
+     * Delete a Linode instance.
+     *
+     * @param linodeId linode ID
+     * @throws LinodeApiClientException if an error occurs
+     */
+    public void deleteLinode(int linodeId) {
+        this.delete("linode/instances/{id}", linodeId);
+    }
+
+// Linodes: Boot
+
+    /**
+     * Boot a Linode instance.
+     *
+     * @param linodeId Linode ID
+     * @throws LinodeApiClientException if an error occurs
+     */
+    public void bootLinode(int linodeId) {
+        this.boot(linodeId, -1);
+    }
+
+    /**
+     * Boot a Linode instance.
+     *
+     * @param linodeId Linode ID
+     * @param configId Configuration ID, or -1 for none
+     * @throws LinodeApiClientException if an error occurs
+     */
+    public void boot(int linodeId, int configId) {
+        final Map<String, Object> query = configId != -1 ?
+          LinodeApiClient.params("config_id", configId) : LinodeApiClient.params();
+        this.post(query, "linode/instances/{id}/boot", linodeId);
+    }
+
+// Linodes: Clone
+
+    /**
+     * Clone a Linode instance.
+     *
+     * @param linodeId Linode ID of the instance to clone
+     * @param request clone request
+     * @return new Linode
+     * @throws LinodeApiClientException if an error occurs
+     */
+    public Linode cloneLinode(int linodeId, CloneLinodeRequest request) {
+        if (request == null)
+            throw new IllegalArgumentException("null request");
+        return this.postFor(Linode.class, request, "linode/instances/{id}/clone", linodeId);
+    }
+
+// Linodes: KVMify
+
+    /**
+     * Convert a Linode instance to KVM.
+     *
+     * @param linodeId Linode ID of the instance to KVM'ify
+     * @throws LinodeApiClientException if an error occurs
+     */
+    public void kvmifyLinode(int linodeId) {
+        this.post("", "linode/instances/{id}/kvmify", linodeId);
+    }
+
+// Linodes: Mutate
+
+    /**
+     * Upgrade a Linode to its next generation.
+     *
+     * @param linodeId Linode ID of the instance to upgrade
+     * @throws LinodeApiClientException if an error occurs
+     */
+    public void mutateLinode(int linodeId) {
+        this.post("", "linode/instances/{id}/mutate", linodeId);
+    }
+
+// Linodes: Reboot
+
+    /**
+     * Reboot a Linode instance.
+     *
+     * @param linodeId Linode ID
+     * @throws LinodeApiClientException if an error occurs
+     */
+    public void rebootLinode(int linodeId) {
+        this.rebootLinode(linodeId, -1);
+    }
+
+    /**
+     * Reboot a Linode instance.
+     *
+     * @param linodeId Linode ID
+     * @param configId Configuration ID, or -1 for none
+     * @throws LinodeApiClientException if an error occurs
+     */
+    public void rebootLinode(int linodeId, int configId) {
+        final Map<String, Object> query = configId != -1 ?
+          LinodeApiClient.params("config_id", configId) : LinodeApiClient.params();
+        this.post(query, "linode/instances/{id}/reboot", linodeId);
+    }
+
+// Linodes: Rescue
+
+    /**
+     * Reboot a Linode instance in rescue mode.
+     *
+     * @param linodeId Linode ID of the instance to clone
+     * @param request rescue request
+     * @throws LinodeApiClientException if an error occurs
+     */
+    public void rescueLinode(int linodeId, RescueLinodeRequest request) {
+        if (request == null)
+            throw new IllegalArgumentException("null request");
+        this.post(request, "linode/instances/{id}/rescue", linodeId);
+    }
+
+// Linodes: Resize
+
+    /**
+     * Resize a Linode instance.
+     *
+     * @param linodeId Linode ID
+     * @param typeId new type ID
+     * @throws LinodeApiClientException if an error occurs
+     */
+    public void resizeLinode(int linodeId, String typeId) {
+        this.post(LinodeApiClient.params("type", typeId), "linode/instances/{id}/resize", linodeId);
+    }
+
+// Linodes: Shutdown
+
+    /**
+     * Shutdown a Linode.
+     *
+     * @param linodeId Linode ID of the instance
+     * @throws LinodeApiClientException if an error occurs
+     */
+    public void shutdownLinode(int linodeId) {
+        this.post("", "linode/instances/{id}/shutdown", linodeId);
+    }
+
+// Linodes: Volumes
+
+    /**
+     * Get all volumes attached to a Linode instance.
+     *
+     * @param maxResults limit on the number of results returned, or zero for no limit
+     * @param filter filter for returned values, or null for no filter
+     * @param linodeId Linode ID
+     * @return mutable list of all volumes associated with the specified Linode matching {@code filter}
+     * @throws LinodeApiClientException if an error occurs
+     * @throws IllegalArgumentException if {@code maxResults} is negative
+     */
+    public List<Volume> getLinodeVolumes(int maxResults, Filter filter, int linodeId) {
+        return this.getAll(Volumes.class, maxResults, filter, "linode/instances/{id}/volumes", linodeId);
+    }
+
+    /**
+     * Get one page of the volumes attached to a Linode instance.
+     *
+     * @param filter filter for returned values, or null for no filter
+     * @param page page number (the first page is number one)
+     * @param linodeId Linode ID
+     * @return one page of volumes
+     * @throws LinodeApiClientException if an error occurs
+     * @throws IllegalArgumentException if {@code page} is less than one
+     */
+    public Volumes getLinodeVolumesPage(Filter filter, int page, int linodeId) {
+        return this.getPage(Volumes.class, filter, page, "linode/instances/{id}/volumes", linodeId);
+    }
+
+// Linodes: Backups
+
+    /**
+     * Get backup info about a Linode instance.
+     *
+     * @param linodeId Linode ID
+     * @return backup info for instance
+     * @throws LinodeApiClientException if an error occurs
+     */
+    public BackupInfo getLinodeBackupInfo(int linodeId) {
+        return this.get(BackupInfo.class, "linode/instances/{id}/backups", linodeId);
+    }
+
+// Linodes: Configs
+
+    /**
+     * Get all configs associated with a Linode instance.
+     *
+     * @param maxResults limit on the number of results returned, or zero for no limit
+     * @param filter filter for returned values, or null for no filter
+     * @param linodeId Linode ID
+     * @return mutable list of all configs associated with the specified Linode matching {@code filter}
+     * @throws LinodeApiClientException if an error occurs
+     * @throws IllegalArgumentException if {@code maxResults} is negative
+     */
+    public List<Config> getLinodeConfigs(int maxResults, Filter filter, int linodeId) {
+        return this.getAll(Configs.class, maxResults, filter, "linode/instances/{id}/configs", linodeId);
+    }
+
+    /**
+     * Get one page of the configurations associated with a Linode instance.
+     *
+     * @param filter filter for returned values, or null for no filter
+     * @param page page number (the first page is number one)
+     * @param linodeId Linode ID
+     * @return one page of configs for instance
+     * @throws LinodeApiClientException if an error occurs
+     * @throws IllegalArgumentException if {@code page} is less than one
+     */
+    public Configs getLinodeConfigsPage(Filter filter, int page, int linodeId) {
+        return this.getPage(Configs.class, filter, page, "linode/instances/{id}/configs", linodeId);
+    }
+
+    /**
+     * Get a particular Linode config.
+     *
+     * @param linodeId Linode ID
+     * @param configId Config ID
+     * @return requested config
+     * @throws LinodeApiClientException if an error occurs
+     */
+    public Config getLinodeConfig(int linodeId, int configId) {
+        return this.get(Config.class, "linode/instances/{id}/configs/{cid}", linodeId, configId);
+    }
+
+    /**
+     * Create a new Linode config.
+     *
+     * @param linodeId Linode ID
+     * @param request config info
+     * @return new config
+     * @throws LinodeApiClientException if an error occurs
+     * @throws IllegalArgumentException if {@code request} is null
+     */
+    public Config createLinodeConfig(int linodeId, CreateConfigRequest request) {
+        if (request == null)
+            throw new IllegalArgumentException("null request");
+        return this.postFor(Config.class, request, "linode/instances/{id}/configs", linodeId);
+    }
+
+    /**
+     * Update a Linode config.
+     *
+     * @param linodeId Linode ID
+     * @param request update info (with config ID set)
+     * @throws LinodeApiClientException if an error occurs
+     * @throws IllegalArgumentException if {@code request} is null
+     */
+    public void updateLinodeConfig(int linodeId, Config request) {
+        if (request == null)
+            throw new IllegalArgumentException("null request");
+        this.put(request, "linode/instances/{id}/config/{cid}", linodeId, request.getId());
+    }
+
+    /**
+     * Delete a Linode config.
+     *
+     * @param linodeId linode ID
+     * @param configId config ID
+     * @throws LinodeApiClientException if an error occurs
+     */
+    public void deleteLinodeConfig(int linodeId, int configId) {
+        this.delete("linode/instances/{id}/config/{cid}", linodeId, configId);
+    }
+
+// Linodes: Disks
+
+    /**
+     * Get all disks associated with a Linode instance.
+     *
+     * @param maxResults limit on the number of results returned, or zero for no limit
+     * @param filter filter for returned values, or null for no filter
+     * @param linodeId Linode ID
+     * @return mutable list of all disks associated with the specified Linode matching {@code filter}
+     * @throws LinodeApiClientException if an error occurs
+     * @throws IllegalArgumentException if {@code maxResults} is negative
+     */
+    public List<Disk> getLinodeDisks(int maxResults, Filter filter, int linodeId) {
+        return this.getAll(Disks.class, maxResults, filter, "linode/instances/{id}/disks", linodeId);
+    }
+
+    /**
+     * Get one page of the disks associated with a Linode instance.
+     *
+     * @param filter filter for returned values, or null for no filter
+     * @param page page number (the first page is number one)
+     * @param linodeId Linode ID
+     * @return linode disks info
+     * @throws LinodeApiClientException if an error occurs
+     * @throws IllegalArgumentException if {@code page} is less than one
+     */
+    public Disks getLinodeDisksPage(Filter filter, int page, int linodeId) {
+        return this.getPage(Disks.class, filter, page, "linode/instances/{id}/disks", linodeId);
+    }
+
+    /**
+     * Get the specified disk.
+     *
+     * @param linodeId Linode ID
+     * @param diskId disk ID
+     * @return linode disk info
+     * @throws LinodeApiClientException if an error occurs
+     */
+    public Disk getLinodeDisk(int linodeId, int diskId) {
+        return this.get(Disk.class, "linode/instances/{id}/disks/{did}", linodeId, diskId);
+    }
+
+    /**
+     * Create a new Linode disk.
+     *
+     * @param linodeId Linode ID
+     * @param request disk info
+     * @return new disk
+     * @throws LinodeApiClientException if an error occurs
+     * @throws IllegalArgumentException if {@code request} is null
+     */
+    public Disk createLinodeDisk(int linodeId, CreateDiskRequest request) {
+        if (request == null)
+            throw new IllegalArgumentException("null request");
+        return this.postFor(Disk.class, request, "linode/instances/{id}/disks", linodeId);
+    }
+
+    /**
+     * Clone a Linode disk.
+     *
+     * @param linodeId Linode ID
+     * @param diskId disk ID
+     * @return new disk
+     * @throws LinodeApiClientException if an error occurs
+     */
+    public Disk cloneLinodeDisk(int linodeId, int diskId) {
+        return this.postFor(Disk.class, "", "linode/instances/{id}/disks/{did}/clone", linodeId, diskId);
+    }
+
+    /**
+     * Update a Linode disk.
+     *
+     * @param linodeId Linode ID
+     * @param diskId disk ID
+     * @param label new label
+     * @throws LinodeApiClientException if an error occurs
+     * @throws IllegalArgumentException if {@code label} is null
+     */
+    public void updateLinodeDisk(int linodeId, int diskId, String label) {
+        if (label == null)
+            throw new IllegalArgumentException("null label");
+        this.put(LinodeApiClient.params("label", label), "linode/instances/{id}/disks/{did}", linodeId, diskId);
+    }
+
+    /**
+     * Delete a Linode disk.
+     *
+     * @param linodeId Linode ID
+     * @param diskId disk ID
+     * @throws LinodeApiClientException if an error occurs
+     */
+    public void deleteLinodeDisk(int linodeId, int diskId) {
+        this.delete("linode/instances/{id}/disks/{cid}", linodeId, diskId);
+    }
+
+    /**
+     * Reset root password on a Linode disk.
+     *
+     * @param linodeId Linode ID
+     * @param diskId disk ID
+     * @param password new root password
+     * @throws LinodeApiClientException if an error occurs
+     * @throws IllegalArgumentException if {@code password} is null
+     */
+    public void updateLinodeDiskPassword(int linodeId, int diskId, String password) {
+        if (password == null)
+            throw new IllegalArgumentException("null password");
+        this.post(LinodeApiClient.params("password", password),
+          "linode/instances/{id}/disks/{did}/password", linodeId, diskId);
+    }
+
+    /**
+     * Resize a Linode disk.
+     *
+     * @param linodeId Linode ID
+     * @param diskId disk ID
+     * @param size new size in MB
+     * @throws LinodeApiClientException if an error occurs
+     */
+    public void updateLinodeDisk(int linodeId, int diskId, int size) {
+        this.put(LinodeApiClient.params("size", size), "linode/instances/{id}/disks/{did}/resize", linodeId, diskId);
+    }
+
+// IPs
+
+    /**
+     * Get IP info.
+     *
+     * @param linodeId Linode ID
+     * @return IP info for linode
+     * @throws LinodeApiClientException if an error occurs
+     */
+    public IPInfo getIPInfo(int linodeId) {
+        return this.get(IPInfo.class, "linode/instances/{id}/ips", linodeId);
+    }
+
+    /**
+     * Allocate a new IPv4 address.
+     *
+     * @param linodeId Linode ID
+     * @param type type of address
+     * @return newly allocated address
+     * @throws LinodeApiClientException if an error occurs
+     * @throws IllegalArgumentException if {@code type} is null
+     */
+    public IPInfo allocateIP(int linodeId, IP.Type type) {
+        if (type == null)
+            throw new IllegalArgumentException("null type");
+        return this.postFor(IPInfo.class, LinodeApiClient.params("type", type), "linode/instances/{id}/ips", linodeId);
+    }
+
+    /**
+     * Get info about a specific IPv4 address.
+     *
+     * @param linodeId Linode ID
+     * @param address IP address
+     * @return address info
+     * @throws LinodeApiClientException if an error occurs
+     * @throws IllegalArgumentException if {@code address} is null
+     */
+    public IPv4 getIP(int linodeId, String address) {
+        if (address == null)
+            throw new IllegalArgumentException("null address");
+        return this.get(IPv4.class, "linode/instances/{id}/ips/{addr}", linodeId, address);
+    }
+
+    /**
+     * Update info about a specific IPv4 address.
+     *
+     * @param linodeId Linode ID
+     * @param address IP address
+     * @param info updated info
+     * @throws LinodeApiClientException if an error occurs
+     * @throws IllegalArgumentException if {@code info} is null
+     */
+    public void updateIP(int linodeId, String address, IP info) {
+        if (info == null)
+            throw new IllegalArgumentException("null info");
+        this.put(info, "linode/instances/{id}/ips/{addr}", linodeId, address);
+    }
+
+    /**
+     * Delete a specific IPv4 address.
+     *
+     * @param linodeId Linode ID
+     * @param address IP address
+     * @throws LinodeApiClientException if an error occurs
+     */
+    public void deleteIP(int linodeId, String address) {
+        this.delete("linode/instances/{id}/ips/{addr}", linodeId, address);
+    }
+
+// Kernels
+
+    /**
+     * Get all kernels.
+     *
+     * @param maxResults limit on the number of results returned, or zero for no limit
+     * @param filter filter for returned values, or null for no filter
+     * @return mutable list of all kernels matching {@code filter}
+     * @throws LinodeApiClientException if an error occurs
+     * @throws IllegalArgumentException if {@code maxResults} is negative
+     */
+    public List<Kernel> getKernels(int maxResults, Filter filter) {
+        return this.getAll(Kernels.class, maxResults, filter, "linode/kernels");
+    }
+
+    /**
+     * Get one page of kernels.
+     *
+     * @param filter filter for returned values, or null for no filter
+     * @param page page number (the first page is number one)
+     * @return one page of kernel
+     * @throws LinodeApiClientException if an error occurs
+     * @throws IllegalArgumentException if {@code page} is less than one
+     */
+    public Kernels getKernelsPage(Filter filter, int page) {
+        return this.getPage(Kernels.class, filter, page, "linode/kernels");
+    }
+
+    /**
+     * Get a specific kernel.
+     *
+     * @param kernelId kernel ID
+     * @return specified kernel
+     * @throws LinodeApiClientException if an error occurs
+     * @throws IllegalArgumentException if {@code kernelId} is null
+     */
+    public Kernel getKernel(String kernelId) {
+        if (kernelId == null)
+            throw new IllegalArgumentException("null kernelId");
+        return this.get(Kernel.class, "linode/kernels/{id}", kernelId);
+    }
+
+// StackScripts
+
+    /**
+     * Get all StackScripts.
+     *
+     * @param maxResults limit on the number of results returned, or zero for no limit
+     * @param filter filter for returned values, or null for no filter
+     * @return mutable list of all StackScripts matching {@code filter}
+     * @throws LinodeApiClientException if an error occurs
+     * @throws IllegalArgumentException if {@code maxResults} is negative
+     */
+    public List<StackScript> getStackScripts(int maxResults, Filter filter) {
+        return this.getAll(StackScripts.class, maxResults, filter, "linode/stackscripts");
+    }
+
+    /**
+     * Get one page of StackScripts.
+     *
+     * @param filter filter for returned values, or null for no filter
+     * @param page page number (the first page is number one)
+     * @return one page of StackScripts
+     * @throws LinodeApiClientException if an error occurs
+     * @throws IllegalArgumentException if {@code page} is less than one
+     */
+    public StackScripts getStackScriptsPage(Filter filter, int page) {
+        return this.getPage(StackScripts.class, filter, page, "linode/stackscripts");
+    }
+
+    /**
+     * Get a specific StackScript.
+     *
+     * @param scriptId script ID
+     * @return specified StackScript
+     * @throws LinodeApiClientException if an error occurs
+     */
+    public StackScript getStackScript(int scriptId) {
+        return this.get(StackScript.class, "linode/stackscripts/{sid}", scriptId);
+    }
+
+// Stats
+
+    /**
+     * Get stats for the past 24 hours.
+     *
+     * @param linodeId Linode ID
+     * @return instance stats for the past 24 hours
+     * @throws LinodeApiClientException if an error occurs
+     */
+    public Stats getStats(int linodeId) {
+        return this.get(Stats.class, "linode/instances/{id}/stats", linodeId);
+    }
+
+    /**
+     * Get stats for the specified month.
+     *
+     * @param linodeId Linode ID
+     * @param month month
+     * @return instance stats for the specified month
+     * @throws LinodeApiClientException if an error occurs
+     * @throws IllegalArgumentException if {@code month} is null
+     */
+    public Stats getStats(int linodeId, YearMonth month) {
+        if (month == null)
+            throw new IllegalArgumentException("null month");
+        return this.get(Stats.class,
+          "linode/instances/{id}/stats/{year}/{month}", linodeId, month.getYear(), month.getMonthValue());
+    }
+
+// Types
+
+    /**
+     * Get all Linode types.
+     *
+     * @param maxResults limit on the number of results returned, or zero for no limit
+     * @param filter filter for returned values, or null for no filter
+     * @return mutable list of all Linode types matching {@code filter}
+     * @throws LinodeApiClientException if an error occurs
+     * @throws IllegalArgumentException if {@code maxResults} is negative
+     */
+    public List<Type> getTypes(int maxResults, Filter filter) {
+        return this.getAll(Types.class, maxResults, filter, "linode/types");
+    }
+
+    /**
+     * Get one page of Linode types.
+     *
+     * @param filter filter for returned values, or null for no filter
+     * @param page page number (the first page is number one)
+     * @return one page of instance types
+     * @throws LinodeApiClientException if an error occurs
+     * @throws IllegalArgumentException if {@code page} is less than one
+     */
+    public Types getTypesPage(Filter filter, int page) {
+        return this.getPage(Types.class, filter, page, "linode/types");
+    }
+
+    /**
+     * Get a specific Linode type.
+     *
+     * @param typeId type ID
+     * @return specified instance type
+     * @throws LinodeApiClientException if an error occurs
+     * @throws IllegalArgumentException if {@code typeId} is null
+     */
+    public Type getType(String typeId) {
+        if (typeId == null)
+            throw new IllegalArgumentException("null typeId");
+        return this.get(Type.class, "linode/types/{tid}", typeId);
+    }
+
+// Volumes
+
+    /**
+     * Get all volumes.
+     *
+     * @param maxResults limit on the number of results returned, or zero for no limit
+     * @param filter filter for returned values, or null for no filter
+     * @return mutable list of all volumes matching {@code filter}
+     * @throws LinodeApiClientException if an error occurs
+     * @throws IllegalArgumentException if {@code maxResults} is negative
+     */
+    public List<Volume> getVolumes(int maxResults, Filter filter) {
+        return this.getAll(Volumes.class, maxResults, filter, "volumes");
+    }
+
+    /**
+     * Get one page of volumes.
+     *
+     * @param filter filter for returned values, or null for no filter
+     * @param page page number (the first page is number one)
+     * @return one page of volumes
+     * @throws LinodeApiClientException if an error occurs
+     * @throws IllegalArgumentException if {@code page} is less than one
+     */
+    public Volumes getVolumesPage(Filter filter, int page) {
+        return this.getPage(Volumes.class, filter, page, "volumes");
+    }
+
+    /**
+     * Create a new volume.
+     *
+     * @param request volume info
+     * @return new volume
+     * @throws LinodeApiClientException if an error occurs
+     * @throws IllegalArgumentException if {@code request} is null
+     */
+    public Volume createVolume(CreateVolumeRequest request) {
+        if (request == null)
+            throw new IllegalArgumentException("null request");
+        return this.postFor(Volume.class, request, "volumes");
+    }
+
+    /**
+     * Get a specific volume.
+     *
+     * @param volumeId volume ID
+     * @return specified volume
+     * @throws LinodeApiClientException if an error occurs
+     */
+    public Volume getVolume(int volumeId) {
+        return this.get(Volume.class, "volumes/{vid}", volumeId);
+    }
+
+    /**
+     * Delete a specific volume.
+     *
+     * @param volumeId volume ID
+     * @throws LinodeApiClientException if an error occurs
+     */
+    public void deleteVolume(int volumeId) {
+        this.delete("volumes/{vid}", volumeId);
+    }
+
+    /**
+     * Attach a volume to a Linode.
+     *
+     * @param linodeId Linode ID
+     * @param volumeId volume ID
+     * @param configId config ID (optional)
+     * @throws LinodeApiClientException if an error occurs
+     */
+    public void attachVolume(int linodeId, int volumeId, Integer configId) {
+        this.post(LinodeApiClient.params("linode_id", linodeId, "config_id", configId), "volumes/{vid}/attach", volumeId);
+    }
+
+    /**
+     * Detach a volume from its Linode.
+     *
+     * @param volumeId volume ID
+     * @throws LinodeApiClientException if an error occurs
+     */
+    public void detachVolume(int volumeId) {
+        this.post(LinodeApiClient.params(), "volumes/{vid}/detach", volumeId);
+    }
+
+    /**
+     * Clone a volume.
+     *
+     * @param volumeId volume ID
+     * @param label unique label for new volume
+     * @return new volume
+     * @throws LinodeApiClientException if an error occurs
+     * @throws IllegalArgumentException if {@code label} is null
+     */
+    public Volume cloneVolume(int volumeId, String label) {
+        return this.postFor(Volume.class, LinodeApiClient.params("label", label), "volumes/{vid}", volumeId);
+    }
+
+// Regions
+
+    /**
+     * Get all Linode regions.
+     *
+     * @param maxResults limit on the number of results returned, or zero for no limit
+     * @param filter filter for returned values, or null for no filter
+     * @return mutable list of all regions matching {@code filter}
+     * @throws LinodeApiClientException if an error occurs
+     * @throws IllegalArgumentException if {@code maxResults} is negative
+     */
+    public List<Region> getRegions(int maxResults, Filter filter) {
+        return this.getAll(Regions.class, maxResults, filter, "regions");
+    }
+
+    /**
+     * Get one page of Linode regions.
+     *
+     * @param filter filter for returned values, or null for no filter
+     * @param page page number (the first page is number one)
+     * @return one page of regions
+     * @throws LinodeApiClientException if an error occurs
+     * @throws IllegalArgumentException if {@code page} is less than one
+     */
+    public Regions getRegionsPage(Filter filter, int page) {
+        return this.getPage(Regions.class, filter, page, "regions");
+    }
+
+    /**
+     * Get a Linode region.
+     *
+     * @param regionId region ID
+     * @return specified region
+     * @throws LinodeApiClientException if an error occurs
+     * @throws IllegalArgumentException if {@code regionId} is null
+     */
+    public Region getRegion(String regionId) {
+        if (regionId == null)
+            throw new IllegalArgumentException("null regionId");
+        return this.get(Region.class, "regions/{id}", regionId);
+    }
+
+// Images
+
+    /**
+     * Get all images.
+     *
+     * @param maxResults limit on the number of results returned, or zero for no limit
+     * @param filter filter for returned values, or null for no filter
+     * @return mutable list of all images matching {@code filter}
+     * @throws LinodeApiClientException if an error occurs
+     * @throws IllegalArgumentException if {@code maxResults} is negative
+     */
+    public List<Image> getImages(int maxResults, Filter filter) {
+        return this.getAll(Images.class, maxResults, filter, "images");
+    }
+
+    /**
+     * Get one page of images.
+     *
+     * @param filter filter for returned values, or null for no filter
+     * @param page page number (the first page is number one)
+     * @return one page of images
+     * @throws LinodeApiClientException if an error occurs
+     * @throws IllegalArgumentException if {@code page} is less than one
+     */
+    public Images getImagesPage(Filter filter, int page) {
+        return this.getPage(Images.class, filter, page, "images");
+    }
+
+    /**
+     * Get an image.
+     *
+     * @param imageId image ID
+     * @return specified image
+     * @throws LinodeApiClientException if an error occurs
+     * @throws IllegalArgumentException if {@code kernelId} is null
+     */
+    public Image getImage(String imageId) {
+        if (imageId == null)
+            throw new IllegalArgumentException("null imageId");
+        return this.get(Image.class, "images/{id}", imageId);
+    }
+
+    /**
+     * Create an image.
+     *
+     * @param diskId disk ID
+     * @param request image info
+     * @return newly created image
+     * @throws LinodeApiClientException if an error occurs
+     * @throws IllegalArgumentException if {@code request} is null
+     */
+    public Image createImage(int diskId, CreateImageRequest request) {
+        if (request == null)
+            throw new IllegalArgumentException("null request");
+        return this.postFor(Image.class, request, "images");
+    }
+
+    /**
+     * Delete an image.
+     *
+     * @param imageId image ID
+     * @throws LinodeApiClientException if an error occurs
+     */
+    public void deleteImage(int imageId) {
+        this.delete("linode/images/{id}", imageId);
+    }
+
+// Internal methods
+
+    /**
+     * Query a resource via GET.
+     *
+     * @param responseType response type
+     * @param pathTemplate resource URI path (relative)
+     * @param templateParameters parameter values for parameters in {@code pathTemplate}
+     * @param <R> response type
+     * @return response from query
+     * @throws LinodeApiClientException if an error occurs
+     * @throws IllegalArgumentException if {@code responseType} or {@code pathTemplate} is null
+     */
+    protected <R> R get(Class<R> responseType, String pathTemplate, Object... templateParameters) {
+
+        // Sanity check
+        if (responseType == null)
+            throw new IllegalArgumentException("null responseType");
+        if (pathTemplate == null)
+            throw new IllegalArgumentException("null pathTemplate");
+
+        // Perform query
+        return this.send("GET", this.urlTemplates.expand(pathTemplate, templateParameters), null, null, responseType);
+    }
+
+    /**
+     * POST to a resource.
+     *
+     * @param request request object
+     * @param pathTemplate resource URI path (relative)
+     * @param templateParameters parameter values for parameters in {@code pathTemplate}
+     * @throws LinodeApiClientException if an error occurs
+     * @throws IllegalArgumentException if any parameter is null
+     */
+    protected void post(Object request, String pathTemplate, Object... templateParameters) {
+
+        // Sanity check
+        if (request == null)
+            throw new IllegalArgumentException("null request");
+        if (pathTemplate == null)
+            throw new IllegalArgumentException("null pathTemplate");
+
+        // Perform query
+        this.send("POST", this.urlTemplates.expand(pathTemplate, templateParameters), null, request, null);
+    }
+
+    /**
+     * POST to a resource expecting response.
+     *
+     * @param responseType response type
+     * @param request request object
+     * @param pathTemplate resource URI path (relative)
+     * @param templateParameters parameter values for parameters in {@code pathTemplate}
+     * @param <R> response type
+     * @return returned response
+     * @throws LinodeApiClientException if an error occurs
+     * @throws IllegalArgumentException if any parameter is null
+     */
+    protected <R> R postFor(Class<R> responseType, Object request, String pathTemplate, Object... templateParameters) {
+
+        // Sanity check
+        if (responseType == null)
+            throw new IllegalArgumentException("null responseType");
+        if (request == null)
+            throw new IllegalArgumentException("null request");
+        if (pathTemplate == null)
+            throw new IllegalArgumentException("null pathTemplate");
+
+        // Perform query
+        return this.send("POST", this.urlTemplates.expand(pathTemplate, templateParameters), null, request, responseType);
+    }
+
+    /**
+     * PUT a resource.
+     *
+     * @param request request object
+     * @param pathTemplate resource URI path (relative)
+     * @param templateParameters parameter values for parameters in {@code pathTemplate}
+     * @throws LinodeApiClientException if an error occurs
+     * @throws IllegalArgumentException if any parameter is null
+     */
+    protected void put(Object request, String pathTemplate, Object... templateParameters) {
+
+        // Sanity check
+        if (request == null)
+            throw new IllegalArgumentException("null request");
+        if (pathTemplate == null)
+            throw new IllegalArgumentException("null pathTemplate");
+
+        // Perform query
+        this.send("PUT", this.urlTemplates.expand(pathTemplate, templateParameters), null, request, null);
+    }
+
+    /**
+     * DELETE a resource.
+     *
+     * @param pathTemplate resource URI path (relative)
+     * @param templateParameters parameter values for parameters in {@code pathTemplate}
+     * @throws LinodeApiClientException if an error occurs
+     * @throws IllegalArgumentException if any parameter is null
+     */
+    protected void delete(String pathTemplate, Object... templateParameters) {
+
+        // Sanity check
+        if (pathTemplate == null)
+            throw new IllegalArgumentException("null pathTemplate");
+
+        // Perform query
+        this.send("DELETE", this.urlTemplates.expand(pathTemplate, templateParameters), null, null, null);
+    }
+
+    /**
+     * Get all instances of the specified type, by querying for and aggreating however many pages there are.
+     *
+     * <p>
+     * Pages are loaded sequentially, and no pages are requested beyond those needed to produce {@code maxResults} results.
+     *
+     * @param responseType paginated response type
+     * @param maxResults limit on the number of results returned, or zero for no limit
+     * @param filter filter for returned values, or null for no filter
+     * @param pathTemplate resource URI path (relative)
+     * @param templateParameters parameter values for parameters in {@code pathTemplate}
+     * @param <T> item type
+     * @param <P> paginated response type
+     * @return combined results from all pages
+     * @throws LinodeApiClientException if an error occurs
+     * @throws IllegalArgumentException if {@code responseType}, {@code pathTemplate}, or {@code templateParameters} is null
+     * @throws IllegalArgumentException if {@code maxResults} is negative
+     */
+    protected <T, P extends Paginated<T>> List<T> getAll(Class<P> responseType,
+      int maxResults, Filter filter, String pathTemplate, Object... templateParameters) {
+
+        // Sanity check
+        if (responseType == null)
+            throw new IllegalArgumentException("null responseType");
+        if (pathTemplate == null)
+            throw new IllegalArgumentException("null pathTemplate");
+        if (templateParameters == null)
+            throw new IllegalArgumentException("null templateParameters");
+        if (maxResults < 0)
+            throw new IllegalArgumentException("maxResults < 0");
+        if (maxResults == 0)
+            maxResults = Integer.MAX_VALUE;
+
+        // Load the first page to find out how many pages there are
+        final P firstPage = this.getPage(responseType, filter, 1, pathTemplate, templateParameters);
+        final ArrayList<T> list = new ArrayList<>(firstPage.getData());
+        final int pageSize = firstPage.getData().size();
+        final int numPages = pageSize == 0 ? 1 :
+          Math.min(firstPage.getPages(), (int)Math.min(Integer.MAX_VALUE, ((long)maxResults + pageSize - 1) / pageSize));
+
+        // Load the remaining pages
+        for (int page = 2; page <= numPages; page++)
+            list.addAll(this.getPage(responseType, filter, page, pathTemplate, templateParameters).getData());
+
+        // Done
+        if (list.size() > maxResults)
+            list.subList(maxResults, list.size()).clear();
+        return list;
+    }
+
+    /**
+     * Get one page of instances of the specified type.
+     *
+     * @param responseType paginated response type
+     * @param filter filter for returned values, or null for no filter
+     * @param page page number (the first page is number one)
+     * @param pathTemplate resource URI path (relative)
+     * @param templateParameters parameter values for parameters in {@code pathTemplate}
+     * @param <T> item type
+     * @param <P> paginated response type
+     * @return one page of results
+     * @throws LinodeApiClientException if an error occurs
+     * @throws IllegalArgumentException if {@code page} is less than one
+     * @throws IllegalArgumentException if {@code responseType}, {@code pathTemplate}, or {@code templateParameters} is null
+     */
+    protected <T, P extends Paginated<T>> P getPage(Class<P> responseType, Filter filter,
+      int page, String pathTemplate, Object... templateParameters) {
+
+        // Sanity check
+        if (responseType == null)
+            throw new IllegalArgumentException("null responseType");
+        if (pathTemplate == null)
+            throw new IllegalArgumentException("null pathTemplate");
+        if (templateParameters == null)
+            throw new IllegalArgumentException("null templateParameters");
+        if (page < 1)
+            throw new IllegalArgumentException("page < 1");
+
+        // Perform query
+        final URI uri = this.urlTemplates.expand(pathTemplate, templateParameters, "page", page);
+        return this.send("GET", uri, filter != null ? filter.toJson() : null, null, responseType);
+    }
+
+    /**
+     * Talk to Linode.
+     *
+     * @param method HTTP method
+     * @param uri request URI
+     * @param filterJson filter JSON to send in the {@value Constants#FILTER_HEADER} header, or null for none
+     * @param request request object to send as JSON, or null for none
+     * @param responseType response type, or null to ignore the response
+     * @param <R> response type
+     * @return decoded response, never null unless {@code responseType} is null
+     * @throws LinodeApiClientException if an error occurs
+     */
+    protected <R> R send(String method, URI uri, String filterJson, Object request, Class<R> responseType) {
+        try {
+
+            // Prepare request
+            final HttpURLConnection connection = (HttpURLConnection)uri.toURL().openConnection();
+            connection.setRequestMethod(method);
+            connection.setConnectTimeout(this.connectTimeout);
+            connection.setReadTimeout(this.readTimeout);
+            connection.setUseCaches(false);
+            connection.setRequestProperty("Accept", "application/json");
+            final String token = this.authorizationTokenSupplier != null ? this.authorizationTokenSupplier.get() : null;
+            if (token != null)
+                connection.setRequestProperty("Authorization", "Bearer " + token);
+            if (filterJson != null)
+                connection.setRequestProperty(Constants.FILTER_HEADER, filterJson);
+
+            // Send request payload, if any
+            if (request != null) {
+                final byte[] payload = this.objectMapper.writeValueAsBytes(request);
+                connection.setDoOutput(true);
+                connection.setFixedLengthStreamingMode(payload.length);
+                connection.setRequestProperty("Content-Type", "application/json");
+                try (OutputStream output = connection.getOutputStream()) {
+                    output.write(payload);
+                }
+            }
+
+            // Check for error
+            final int statusCode = connection.getResponseCode();
+            if (statusCode / 100 != 2)
+                throw this.buildException(connection, statusCode);
+
+            // Decode response; always read it fully so the connection can be reused
+            try (InputStream input = connection.getInputStream()) {
+                if (responseType == null) {
+                    final byte[] buf = new byte[1024];
+                    while (input.read(buf) != -1)
+                        continue;
+                    return null;
+                }
+                final R response = this.objectMapper.readValue(input, responseType);
+                if (response == null) {
+                    this.log.error("rec'd null response from Linode API request");
+                    throw new LinodeApiClientException("rec'd null response from Linode API request");
+                }
+                return response;
+            }
+        } catch (IOException e) {
+            this.log.error("error sending Linode API request: " + e);
+            throw new LinodeApiClientException("error sending Linode API request", e);
+        }
+    }
+
+    private LinodeApiClientException buildException(HttpURLConnection connection, int statusCode) throws IOException {
+
+        // Parse JSON error payload, if possible
+        Errors errors = null;
+        final String contentType = connection.getContentType();
+        try (InputStream input = connection.getErrorStream()) {
+            if (input != null && contentType != null && contentType.toLowerCase().contains("json")) {
+                try {
+                    errors = this.objectMapper.readValue(input, Errors.class);
+                } catch (IOException e) {
+                    this.log.warn("failed to parse JSON error payload", e);
+                }
+            }
+        }
+
+        // Build exception
+        final String message = LinodeApiJson.getErrorMessage(errors, statusCode + " " + connection.getResponseMessage());
+        final LinodeApiClientException e = new LinodeApiClientException(message);
+        e.setErrors(errors);
+        e.setStatusCode(statusCode);
+        return e;
+    }
+
+    /**
+     * Build a generic request with name/value pairs as parameters. Null values are omitted.
+     */
+    private static Map<String, Object> params(Object... nameValues) {
+        final LinkedHashMap<String, Object> map = new LinkedHashMap<>();
+        for (int i = 0; i < nameValues.length - 1; i += 2) {
+            final String name = (String)nameValues[i];
+            final Object value = nameValues[i + 1];
+            if (value == null)
+                continue;
+            if (value instanceof String || value instanceof Number || value instanceof Boolean)
+                map.put(name, value);
+            else if (value instanceof Enum)
+                map.put(name, value.toString());
+            else if (value instanceof Date)
+                map.put(name, Constants.toString((Date)value));
+            else
+                throw new IllegalArgumentException("illegal JSON request value of type " + value.getClass().getName());
+        }
+        return map;
+    }
+
+// Builder
+
+    /**
+     * Builder for {@link LinodeApiClient} instances.
+     */
+    public static class Builder {
+
+        private URI baseURI = Constants.BASE_URI;
+        private Supplier<String> authorizationTokenSupplier;
+        private int connectTimeout = DEFAULT_CONNECT_TIMEOUT;
+        private int readTimeout = DEFAULT_READ_TIMEOUT;
+        private ObjectMapper objectMapper = LinodeApiJson.getObjectMapper();
+
+        protected Builder() {
+        }
+
+        /**
+         * Configure the base URI of the API. Default is {@link Constants#BASE_URI}.
+         *
+         * @param baseURI API base URI
+         * @return this instance
+         * @throws IllegalArgumentException if {@code baseURI} is null
+         */
+        public Builder baseURI(URI baseURI) {
+            if (baseURI == null)
+                throw new IllegalArgumentException("null baseURI");
+            this.baseURI = baseURI;
+            return this;
+        }
+
+        /**
+         * Configure a fixed authorization token.
+         *
+         * @param token authorization token, or null for none
+         * @return this instance
+         */
+        public Builder authorizationToken(String token) {
+            this.authorizationTokenSupplier = token != null ? () -> token : null;
+            return this;
+        }
+
+        /**
+         * Configure a supplier of the authorization token, which is invoked for every request.
+         *
+         * @param tokenSupplier authorization token supplier, or null for none
+         * @return this instance
+         */
+        public Builder authorizationTokenSupplier(Supplier<String> tokenSupplier) {
+            this.authorizationTokenSupplier = tokenSupplier;
+            return this;
+        }
+
+        /**
+         * Configure the connect timeout. Default is {@value #DEFAULT_CONNECT_TIMEOUT}ms.
+         *
+         * @param connectTimeout timeout in milliseconds, or zero for infinite
+         * @return this instance
+         * @throws IllegalArgumentException if {@code connectTimeout} is negative
+         */
+        public Builder connectTimeout(int connectTimeout) {
+            if (connectTimeout < 0)
+                throw new IllegalArgumentException("connectTimeout < 0");
+            this.connectTimeout = connectTimeout;
+            return this;
+        }
+
+        /**
+         * Configure the read timeout. Default is {@value #DEFAULT_READ_TIMEOUT}ms.
+         *
+         * @param readTimeout timeout in milliseconds, or zero for infinite
+         * @return this instance
+         * @throws IllegalArgumentException if {@code readTimeout} is negative
+         */
+        public Builder readTimeout(int readTimeout) {
+            if (readTimeout < 0)
+                throw new IllegalArgumentException("readTimeout < 0");
+            this.readTimeout = readTimeout;
+            return this;
+        }
+
+        /**
+         * Configure the {@link ObjectMapper} used to encode requests and decode responses.
+         * Default is the {@linkplain LinodeApiJson#getObjectMapper shared instance}.
+         *
+         * @param objectMapper JSON object mapper
+         * @return this instance
+         * @throws IllegalArgumentException if {@code objectMapper} is null
+         */
+        public Builder objectMapper(ObjectMapper objectMapper) {
+            if (objectMapper == null)
+                throw new IllegalArgumentException("null objectMapper");
+            this.objectMapper = objectMapper;
+            return this;
+        }
+
+        /**
+         * Create a new {@link LinodeApiClient} using this builder's configuration.
+         *
+         * @return new client
+         */
+        public LinodeApiClient build() {
+            return new LinodeApiClient(this);
+        }
+    }
+}
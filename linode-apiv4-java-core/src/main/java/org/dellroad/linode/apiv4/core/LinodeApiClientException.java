@@ -0,0 +1,50 @@
+
+/*
+ * Copyright (C) 2017 Archie L. Cobbs. All rights reserved.
+ */
+
+package org.dellroad.linode.apiv4.core;
+
+import org.dellroad.linode.apiv4.model.Errors;
+
+/**
+ * Thrown by {@link LinodeApiClient} when an error occurs while communicating with the Linode API.
+ */
+@SuppressWarnings("serial")
+public class LinodeApiClientException extends RuntimeException {
+
+    private Errors errors;
+    private int statusCode;
+
+    public LinodeApiClientException(String message) {
+        super(message);
+    }
+
+    public LinodeApiClientException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    /**
+     * Get the {@link Errors} returned from the API, if any.
+     *
+     * @return errors detailed in the HTTP response, if any, otherwise null
+     */
+    public Errors getErrors() {
+        return this.errors;
+    }
+    public void setErrors(final Errors errors) {
+        this.errors = errors;
+    }
+
+    /**
+     * Get the HTTP status code returned from the API, if any.
+     *
+     * @return HTTP response status code, or zero if no HTTP response was received
+     */
+    public int getStatusCode() {
+        return this.statusCode;
+    }
+    public void setStatusCode(final int statusCode) {
+        this.statusCode = statusCode;
+    }
+}
@@ -0,0 +1,70 @@
+
+/*
+ * Copyright (C) 2017 Archie L. Cobbs. All rights reserved.
+ */
+
+package org.dellroad.linode.apiv4.core;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.dellroad.linode.apiv4.model.Errors;
+
+/**
+ * JSON encoding and decoding of Linode API payloads.
+ *
+ * <p>
+ * Unknown properties in responses are ignored, so that additions to the API do not break existing clients,
+ * and null properties are omitted from requests.
+ *
+ * <p>
+ * Creating and warming up an {@link ObjectMapper} is relatively expensive, so the {@linkplain #getObjectMapper shared
+ * instance} should be used whenever possible; it must not be reconfigured.
+ */
+public final class LinodeApiJson {
+
+    private static final ObjectMapper OBJECT_MAPPER = LinodeApiJson.newObjectMapper();
+
+    private LinodeApiJson() {
+    }
+
+    /**
+     * Get the shared {@link ObjectMapper} configured for the Linode API.
+     *
+     * @return shared object mapper
+     */
+    public static ObjectMapper getObjectMapper() {
+        return OBJECT_MAPPER;
+    }
+
+    /**
+     * Create a new {@link ObjectMapper} configured for the Linode API.
+     *
+     * @return new object mapper
+     */
+    public static ObjectMapper newObjectMapper() {
+        final ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        objectMapper.setSerializationInclusion(JsonInclude.Include.NON_NULL);
+        return objectMapper;
+    }
+
+    /**
+     * Build an error message from the error payload in an API error response.
+     *
+     * @param errors error payload, or null if none was decoded
+     * @param defaultMessage message to use if {@code errors} does not contain a reason
+     * @return error message
+     */
+    public static String getErrorMessage(Errors errors, String defaultMessage) {
+        if (errors == null || errors.getErrors() == null || errors.getErrors().length == 0)
+            return defaultMessage;
+        final Errors.Error firstError = errors.getErrors()[0];
+        if (firstError.getReason() == null)
+            return defaultMessage;
+        if (firstError.getField() != null)
+            return "field `" + firstError.getField() + "': " + firstError.getReason();
+        return firstError.getReason();
+    }
+}
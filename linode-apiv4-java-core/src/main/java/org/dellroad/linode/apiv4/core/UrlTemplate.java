@@ -0,0 +1,180 @@
+
+/*
+ * Copyright (C) 2017 Archie L. Cobbs. All rights reserved.
+ */
+
+package org.dellroad.linode.apiv4.core;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+
+/**
+ * A pre-parsed URL template, as cached by {@link UrlTemplates}.
+ *
+ * <p>
+ * The template is split into literal (already escaped) portions and {@code {name}} variables once, up front,
+ * so that expanding it just appends strings, without any regular expression matching or re-parsing of the template.
+ * Variable values are bound positionally and escaped the same way that Spring's {@code RestTemplate}
+ * escapes them by default: in the path, {@code /} and the other legal path characters are left alone; in the query,
+ * {@code =} and {@code &} are escaped as well.
+ *
+ * <p>
+ * Instances are immutable.
+ */
+public final class UrlTemplate {
+
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    private final String template;
+    private final String[] literals;                    // always one more than the number of variables
+    private final boolean[] inQuery;                    // whether each variable is in the query portion
+    private final boolean hasQuery;
+
+    private UrlTemplate(String template, String[] literals, boolean[] inQuery, boolean hasQuery) {
+        this.template = template;
+        this.literals = literals;
+        this.inQuery = inQuery;
+        this.hasQuery = hasQuery;
+    }
+
+    /**
+     * Parse the given URL template.
+     *
+     * @param template URL template containing {@code {name}} variables
+     * @return parsed template
+     * @throws IllegalArgumentException if {@code template} is null
+     */
+    public static UrlTemplate parse(String template) {
+        if (template == null)
+            throw new IllegalArgumentException("null template");
+        final ArrayList<String> literals = new ArrayList<>();
+        final ArrayList<Boolean> inQuery = new ArrayList<>();
+        boolean query = false;
+        int start = 0;
+        for (int i = 0; i < template.length(); i++) {
+            final char ch = template.charAt(i);
+            if (ch == '?')
+                query = true;
+            else if (ch == '{') {
+                final int end = template.indexOf('}', i + 1);
+                if (end == -1)
+                    break;
+                literals.add(template.substring(start, i));
+                inQuery.add(query);
+                start = end + 1;
+                i = end;
+            }
+        }
+        literals.add(template.substring(start));
+        final boolean[] inQueryArray = new boolean[inQuery.size()];
+        for (int i = 0; i < inQueryArray.length; i++)
+            inQueryArray[i] = inQuery.get(i);
+        return new UrlTemplate(template, literals.toArray(new String[literals.size()]), inQueryArray, query);
+    }
+
+    /**
+     * Get the original template.
+     *
+     * @return URL template
+     */
+    public String getTemplate() {
+        return this.template;
+    }
+
+    /**
+     * Get the number of variables in this template.
+     *
+     * @return number of variables
+     */
+    public int getNumVariables() {
+        return this.inQuery.length;
+    }
+
+    /**
+     * Expand this template.
+     *
+     * @param values variable values, in order of appearance; null values expand to the empty string
+     * @param queryParams additional query parameters in name, value pairs
+     * @return expanded URI
+     * @throws IllegalArgumentException if there are not enough {@code values}
+     */
+    public URI expand(Object[] values, Object... queryParams) {
+        final int numVariables = this.inQuery.length;
+        if (numVariables > 0 && (values == null || values.length < numVariables))
+            throw new IllegalArgumentException("not enough variable values available to expand \"" + this.template + "\"");
+        final StringBuilder buf = new StringBuilder(this.template.length() + 16 * (numVariables + queryParams.length));
+        buf.append(this.literals[0]);
+        for (int i = 0; i < numVariables; i++) {
+            UrlTemplate.encode(buf, values[i], this.inQuery[i]);
+            buf.append(this.literals[i + 1]);
+        }
+        boolean query = this.hasQuery;
+        for (int i = 0; i < queryParams.length - 1; i += 2) {
+            buf.append(query ? '&' : '?');
+            query = true;
+            UrlTemplate.encode(buf, queryParams[i], true);
+            buf.append('=');
+            UrlTemplate.encode(buf, queryParams[i + 1], true);
+        }
+        return URI.create(buf.toString());
+    }
+
+// Internal methods
+
+    private static void encode(StringBuilder buf, Object value, boolean query) {
+        if (value == null)
+            return;
+        final String string = value.toString();
+
+        // Fast path: nothing to escape
+        final int length = string.length();
+        int i = 0;
+        while (i < length && UrlTemplate.isAllowed(string.charAt(i), query))
+            i++;
+        if (i == length) {
+            buf.append(string);
+            return;
+        }
+
+        // Slow path
+        buf.append(string, 0, i);
+        for (byte b : string.substring(i).getBytes(StandardCharsets.UTF_8)) {
+            if (b >= 0 && UrlTemplate.isAllowed((char)b, query))
+                buf.append((char)b);
+            else
+                buf.append('%').append(HEX[(b >> 4) & 0x0f]).append(HEX[b & 0x0f]);
+        }
+    }
+
+    private static boolean isAllowed(char ch, boolean query) {
+        if ((ch >= 'a' && ch <= 'z') || (ch >= 'A' && ch <= 'Z') || (ch >= '0' && ch <= '9'))
+            return true;
+        switch (ch) {
+        case '-':
+        case '.':
+        case '_':
+        case '~':
+        case '!':
+        case '$':
+        case '\'':
+        case '(':
+        case ')':
+        case '*':
+        case '+':
+        case ',':
+        case ';':
+        case ':':
+        case '@':
+        case '/':
+            return true;
+        case '&':
+        case '=':
+            return !query;
+        case '?':
+            return query;
+        default:
+            return false;
+        }
+    }
+}
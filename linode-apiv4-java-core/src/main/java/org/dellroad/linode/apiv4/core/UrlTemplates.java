@@ -0,0 +1,150 @@
+
+/*
+ * Copyright (C) 2017 Archie L. Cobbs. All rights reserved.
+ */
+
+package org.dellroad.linode.apiv4.core;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URLEncoder;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resolves API path templates against a base URI and caches the resulting {@link UrlTemplate}s.
+ *
+ * <p>
+ * Path templates are relative URIs such as {@code linode/instances/{id}/disks}, optionally with a query string.
+ * Each distinct path template is parsed only once; expanding it afterward just appends strings.
+ *
+ * <p>
+ * Instances are thread safe.
+ */
+public class UrlTemplates {
+
+    private static final int MAX_CACHED_URL_TEMPLATES = 1000;
+
+    private final URI baseURI;
+    private final ConcurrentHashMap<String, UrlTemplate> cache = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor.
+     *
+     * @param baseURI base URI against which path templates are resolved
+     * @throws IllegalArgumentException if {@code baseURI} is null
+     */
+    public UrlTemplates(URI baseURI) {
+        if (baseURI == null)
+            throw new IllegalArgumentException("null baseURI");
+        this.baseURI = baseURI;
+    }
+
+    /**
+     * Get the base URI against which path templates are resolved.
+     *
+     * @return base URI
+     */
+    public URI getBaseURI() {
+        return this.baseURI;
+    }
+
+    /**
+     * Get the parsed URL template corresponding to the given path template.
+     *
+     * @param pathTemplate path template
+     * @return parsed URL template
+     * @throws IllegalArgumentException if {@code pathTemplate} is null
+     */
+    public UrlTemplate get(String pathTemplate) {
+        if (pathTemplate == null)
+            throw new IllegalArgumentException("null pathTemplate");
+        final UrlTemplate urlTemplate = this.cache.get(pathTemplate);
+        if (urlTemplate != null)
+            return urlTemplate;
+        final UrlTemplate newUrlTemplate = UrlTemplate.parse(this.resolve(pathTemplate));
+        if (this.cache.size() >= MAX_CACHED_URL_TEMPLATES)
+            return newUrlTemplate;
+        final UrlTemplate previous = this.cache.putIfAbsent(pathTemplate, newUrlTemplate);
+        return previous != null ? previous : newUrlTemplate;
+    }
+
+    /**
+     * Build a complete URI by combining the base URI with a path template, template parameters, and optional
+     * additional query parameters.
+     *
+     * @param pathTemplate path template
+     * @param templateParameters parameter values for parameters in {@code pathTemplate}
+     * @param queryParams additional query parameters in name, value pairs
+     * @return complete URI
+     * @throws IllegalArgumentException if {@code pathTemplate} or {@code queryParams} is null
+     * @throws IllegalArgumentException if there are not enough {@code templateParameters}
+     */
+    public URI expand(String pathTemplate, Object[] templateParameters, Object... queryParams) {
+        if (queryParams == null)
+            throw new IllegalArgumentException("null queryParams");
+        return this.get(pathTemplate).expand(templateParameters, queryParams);
+    }
+
+    /**
+     * Build an unexpanded URL template by combining the base URI with a path template and optional additional
+     * query parameters. The result is not cached.
+     *
+     * @param pathTemplate path template
+     * @param queryParams additional query parameters in name, value pairs
+     * @return complete URL template
+     * @throws IllegalArgumentException if either parameter is null
+     */
+    public String resolve(String pathTemplate, Object... queryParams) {
+
+        // Sanity check
+        if (pathTemplate == null)
+            throw new IllegalArgumentException("null pathTemplate");
+        if (queryParams == null)
+            throw new IllegalArgumentException("null queryParams");
+
+        // Split off query portion
+        final String pathPortion;
+        String queryPortion;
+        final int questionMark = pathTemplate.lastIndexOf('?');
+        if (questionMark == -1) {
+            pathPortion = pathTemplate;
+            queryPortion = null;
+        } else {
+            pathPortion = pathTemplate.substring(0, questionMark);
+            queryPortion = pathTemplate.substring(questionMark + 1);
+        }
+
+        // Tack on additional query parameters, if any
+        if (queryParams.length > 0) {
+            final StringBuilder buf = new StringBuilder();
+            if (queryPortion != null)
+                buf.append('?').append(queryPortion);
+            int i = 0;
+            while (i < queryParams.length - 1) {
+                if (buf.length() > 0)
+                    buf.append('&');
+                try {
+                    buf.append(URLEncoder.encode(String.valueOf(queryParams[i++]), "UTF-8"));
+                    buf.append('=');
+                    buf.append(URLEncoder.encode(String.valueOf(queryParams[i++]), "UTF-8"));
+                } catch (UnsupportedEncodingException e) {
+                    throw new RuntimeException("unexpected exception", e);
+                }
+            }
+            queryPortion = buf.toString();
+        }
+
+        // Build URI
+        URI pathTemplateURI;
+        try {
+            pathTemplateURI = new URI(null, null, pathPortion, queryPortion, null);
+        } catch (URISyntaxException e) {
+            throw new IllegalArgumentException("unexpected exception", e);
+        }
+        final URI escapedURI = this.baseURI.resolve(pathTemplateURI);
+
+        // Un-escape template fields
+        return escapedURI.toString().replaceAll("%7B(\\w+)%7D", "{$1}");
+    }
+}
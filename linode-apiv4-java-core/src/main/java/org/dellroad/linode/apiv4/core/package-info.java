@@ -0,0 +1,24 @@
+
+/*
+ * Copyright (C) 2017 Archie L. Cobbs. All rights reserved.
+ */
+
+/**
+ * Lightweight client for the Linode APIv4 that has no dependencies beyond Jackson and SLF4J.
+ *
+ * <p>
+ * Key classes:
+ * <ul>
+ *  <li>{@link org.dellroad.linode.apiv4.core.LinodeApiClient} - sends API requests using the JDK's built-in HTTP client;
+ *      instances are created using a {@link org.dellroad.linode.apiv4.core.LinodeApiClient.Builder}</li>
+ *  <li>{@link org.dellroad.linode.apiv4.core.LinodeApiJson} - the shared Jackson configuration for API payloads</li>
+ *  <li>{@link org.dellroad.linode.apiv4.core.UrlTemplates} - fast, cached expansion of API URL templates</li>
+ *  <li>{@link org.dellroad.linode.apiv4.core.LinodeApiClientException} - thrown if there is an error, including
+ *      a decode of the JSON error payload (if any)</li>
+ * </ul>
+ *
+ * <p>
+ * The {@code linode-apiv4-java-spring} module builds on these classes; prefer it when Spring integration,
+ * non-blocking requests, rate limiting, retries, or metrics are needed.
+ */
+package org.dellroad.linode.apiv4.core;
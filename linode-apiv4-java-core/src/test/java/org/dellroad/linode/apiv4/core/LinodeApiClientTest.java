@@ -0,0 +1,130 @@
+
+/*
+ * Copyright (C) 2017 Archie L. Cobbs. All rights reserved.
+ */
+
+package org.dellroad.linode.apiv4.core;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.dellroad.linode.apiv4.filter.FilterBuilder;
+import org.dellroad.linode.apiv4.model.Region;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+public class LinodeApiClientTest {
+
+    private final List<String> requests = new CopyOnWriteArrayList<>();
+
+    private HttpServer server;
+    private LinodeApiClient client;
+
+    @BeforeClass
+    public void startServer() throws Exception {
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        this.server.createContext("/v4/", this::handle);
+        this.server.start();
+        this.client = LinodeApiClient.builder()
+          .baseURI(URI.create("http://127.0.0.1:" + this.server.getAddress().getPort() + "/v4/"))
+          .authorizationToken("secret")
+          .build();
+    }
+
+    @AfterClass
+    public void stopServer() {
+        this.server.stop(0);
+    }
+
+    @Test
+    public void testGetAll() throws Exception {
+
+        // All pages
+        this.requests.clear();
+        final FilterBuilder fb = new FilterBuilder();
+        final List<Region> regions = this.client.getRegions(0, fb.where(fb.equal("country", "us")).build());
+        assert regions.size() == 5 : "got " + regions.size() + " regions";
+        assert regions.get(4).getId().equals("region5");
+        assert this.requests.size() == 3 : "requests " + this.requests;
+        assert this.requests.get(0).equals("GET /v4/regions?page=1 Bearer secret {\"country\":\"us\"}") : this.requests.get(0);
+
+        // Limited results
+        this.requests.clear();
+        assert this.client.getRegions(3, null).size() == 3;
+        assert this.requests.size() == 2 : "requests " + this.requests;
+    }
+
+    @Test
+    public void testPost() throws Exception {
+        this.requests.clear();
+        this.client.resizeLinode(123, "g6-standard-2");
+        assert this.requests.size() == 1;
+        final String request = this.requests.get(0);
+        assert request.equals("POST /v4/linode/instances/123/resize Bearer secret {\"type\":\"g6-standard-2\"}") : request;
+    }
+
+    @Test
+    public void testError() throws Exception {
+        try {
+            this.client.getRegion("bogus");
+            assert false : "expected exception";
+        } catch (LinodeApiClientException e) {
+            assert e.getStatusCode() == 404;
+            assert e.getMessage().equals("Not found") : e.getMessage();
+            assert e.getErrors() != null;
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        final String path = exchange.getRequestURI().getPath();
+        final String query = exchange.getRequestURI().getQuery();
+        String detail = exchange.getRequestHeaders().getFirst("X-Filter");
+        if (detail == null)
+            detail = this.read(exchange.getRequestBody());
+        this.requests.add(exchange.getRequestMethod() + " " + path + (query != null ? "?" + query : "")
+          + " " + exchange.getRequestHeaders().getFirst("Authorization") + " " + detail);
+        switch (path) {
+        case "/v4/regions":
+            final int page = Integer.parseInt(query.substring(query.indexOf('=') + 1));
+            final StringBuilder data = new StringBuilder();
+            for (int i = 2 * page - 1; i <= Math.min(2 * page, 5); i++)
+                data.append(data.length() > 0 ? "," : "").append("{\"id\":\"region" + i + "\",\"unknown\":true}");
+            this.respond(exchange, 200, "{\"data\":[" + data + "],\"page\":" + page + ",\"pages\":3,\"results\":5}");
+            break;
+        case "/v4/linode/instances/123/resize":
+            this.respond(exchange, 200, "{}");
+            break;
+        default:
+            this.respond(exchange, 404, "{\"errors\":[{\"reason\":\"Not found\"}]}");
+            break;
+        }
+    }
+
+    private void respond(HttpExchange exchange, int status, String json) throws IOException {
+        final byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write(body);
+        }
+    }
+
+    private String read(InputStream input) throws IOException {
+        final ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        final byte[] chunk = new byte[1024];
+        for (int r = input.read(chunk); r != -1; r = input.read(chunk))
+            buf.write(chunk, 0, r);
+        return new String(buf.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,75 @@
+
+/*
+ * Copyright (C) 2017 Archie L. Cobbs. All rights reserved.
+ */
+
+package org.dellroad.linode.apiv4.mock;
+
+import java.util.Random;
+
+/**
+ * Distribution of simulated response latencies for a {@link MockLinodeApiServer}.
+ */
+@FunctionalInterface
+public interface LatencyModel {
+
+    /**
+     * No added latency.
+     */
+    LatencyModel NONE = random -> 0;
+
+    /**
+     * Choose the latency of the next response.
+     *
+     * @param random source of randomness
+     * @return latency in microseconds, zero or greater
+     */
+    long nextLatency(Random random);
+
+    /**
+     * Create a model where every response has the same latency.
+     *
+     * @param millis latency in milliseconds
+     * @return latency model
+     * @throws IllegalArgumentException if {@code millis} is negative
+     */
+    static LatencyModel constant(double millis) {
+        if (!(millis >= 0))
+            throw new IllegalArgumentException("invalid latency");
+        final long micros = Math.round(millis * 1000.0);
+        return random -> micros;
+    }
+
+    /**
+     * Create a model where latencies are uniformly distributed.
+     *
+     * @param minMillis minimum latency in milliseconds
+     * @param maxMillis maximum latency in milliseconds
+     * @return latency model
+     * @throws IllegalArgumentException if {@code minMillis} is negative or greater than {@code maxMillis}
+     */
+    static LatencyModel uniform(double minMillis, double maxMillis) {
+        if (!(minMillis >= 0 && minMillis <= maxMillis))
+            throw new IllegalArgumentException("invalid latency range");
+        return random -> Math.round((minMillis + random.nextDouble() * (maxMillis - minMillis)) * 1000.0);
+    }
+
+    /**
+     * Create a model where latencies have a log-normal distribution.
+     *
+     * <p>
+     * This is a reasonable approximation of real API latencies: most responses are close to the median,
+     * but there is a long tail of slow responses whose length is determined by {@code sigma}; for example,
+     * with {@code sigma} equal to 1.0, the 99th percentile is about ten times the median.
+     *
+     * @param medianMillis median latency in milliseconds
+     * @param sigma standard deviation of the natural logarithm of the latency
+     * @return latency model
+     * @throws IllegalArgumentException if either parameter is negative
+     */
+    static LatencyModel logNormal(double medianMillis, double sigma) {
+        if (!(medianMillis >= 0 && sigma >= 0))
+            throw new IllegalArgumentException("invalid latency distribution");
+        return random -> Math.round(medianMillis * Math.exp(sigma * random.nextGaussian()) * 1000.0);
+    }
+}
@@ -0,0 +1,145 @@
+
+/*
+ * Copyright (C) 2017 Archie L. Cobbs. All rights reserved.
+ */
+
+package org.dellroad.linode.apiv4.mock;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.dellroad.linode.apiv4.Constants;
+
+/**
+ * Evaluates {@value Constants#FILTER_HEADER} filters against JSON entities the way the Linode API does.
+ *
+ * <p>
+ * Supports attribute equality, the {@value Constants#FILTER_AND} and {@value Constants#FILTER_OR} combinators,
+ * the comparison operators, and ordering via {@value Constants#FILTER_ORDER_BY} and {@value Constants#FILTER_ORDER}.
+ */
+final class MockFilter {
+
+    private MockFilter() {
+    }
+
+    /**
+     * Determine whether the given entity matches the given filter.
+     *
+     * @param filter filter, or null for none
+     * @param entity JSON entity
+     * @return true if {@code entity} matches
+     */
+    static boolean matches(JsonNode filter, JsonNode entity) {
+        if (filter == null)
+            return true;
+        if (!filter.isObject())
+            throw new IllegalArgumentException("filter must be a JSON object");
+        for (Iterator<Map.Entry<String, JsonNode>> i = filter.fields(); i.hasNext(); ) {
+            final Map.Entry<String, JsonNode> entry = i.next();
+            final String name = entry.getKey();
+            final JsonNode condition = entry.getValue();
+            switch (name) {
+            case Constants.FILTER_AND:
+                for (JsonNode child : condition) {
+                    if (!MockFilter.matches(child, entity))
+                        return false;
+                }
+                break;
+            case Constants.FILTER_OR:
+                boolean any = false;
+                for (JsonNode child : condition) {
+                    if (MockFilter.matches(child, entity)) {
+                        any = true;
+                        break;
+                    }
+                }
+                if (!any)
+                    return false;
+                break;
+            case Constants.FILTER_ORDER_BY:
+            case Constants.FILTER_ORDER:
+                break;
+            default:
+                if (!MockFilter.matchesAttribute(entity.get(name), condition))
+                    return false;
+                break;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Get the ordering specified by the given filter, if any.
+     *
+     * @param filter filter, or null for none
+     * @return entity ordering, or null if {@code filter} does not specify one
+     */
+    static Comparator<JsonNode> ordering(JsonNode filter) {
+        if (filter == null || !filter.has(Constants.FILTER_ORDER_BY))
+            return null;
+        final String attribute = filter.get(Constants.FILTER_ORDER_BY).asText();
+        final Comparator<JsonNode> comparator
+          = (entity1, entity2) -> MockFilter.compare(entity1.get(attribute), entity2.get(attribute));
+        return filter.has(Constants.FILTER_ORDER)
+          && filter.get(Constants.FILTER_ORDER).asText().equals(Constants.FILTER_ORDER_DESC) ? comparator.reversed() : comparator;
+    }
+
+    private static boolean matchesAttribute(JsonNode value, JsonNode condition) {
+        if (!condition.isObject())
+            return MockFilter.isEqual(value, condition);
+        for (Iterator<Map.Entry<String, JsonNode>> i = condition.fields(); i.hasNext(); ) {
+            final Map.Entry<String, JsonNode> entry = i.next();
+            final JsonNode operand = entry.getValue();
+            final boolean result;
+            switch (entry.getKey()) {
+            case Constants.FILTER_NEQ:
+                result = !MockFilter.isEqual(value, operand);
+                break;
+            case Constants.FILTER_GT:
+                result = value != null && MockFilter.compare(value, operand) > 0;
+                break;
+            case Constants.FILTER_GTE:
+                result = value != null && MockFilter.compare(value, operand) >= 0;
+                break;
+            case Constants.FILTER_LT:
+                result = value != null && MockFilter.compare(value, operand) < 0;
+                break;
+            case Constants.FILTER_LTE:
+                result = value != null && MockFilter.compare(value, operand) <= 0;
+                break;
+            case Constants.FILTER_CONTAINS:
+                result = value != null && value.asText().contains(operand.asText());
+                break;
+            default:
+                throw new IllegalArgumentException("unsupported filter operator \"" + entry.getKey() + "\"");
+            }
+            if (!result)
+                return false;
+        }
+        return true;
+    }
+
+    private static boolean isEqual(JsonNode value, JsonNode operand) {
+        if (value == null || value.isNull())
+            return operand.isNull();
+        if (value.isArray()) {
+            for (JsonNode element : value) {
+                if (MockFilter.isEqual(element, operand))
+                    return true;
+            }
+            return false;
+        }
+        return MockFilter.compare(value, operand) == 0;
+    }
+
+    private static int compare(JsonNode value1, JsonNode value2) {
+        if (value1 == null || value2 == null)
+            return value1 == null ? (value2 == null ? 0 : -1) : 1;
+        if (value1.isNumber() && value2.isNumber())
+            return Double.compare(value1.asDouble(), value2.asDouble());
+        return value1.asText().compareTo(value2.asText());
+    }
+}
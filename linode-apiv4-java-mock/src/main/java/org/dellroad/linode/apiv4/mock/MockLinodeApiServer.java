@@ -0,0 +1,957 @@
+
+/*
+ * Copyright (C) 2017 Archie L. Cobbs. All rights reserved.
+ */
+
+package org.dellroad.linode.apiv4.mock;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.annotation.concurrent.GuardedBy;
+
+import org.dellroad.linode.apiv4.Constants;
+import org.dellroad.linode.apiv4.core.LinodeApiJson;
+import org.dellroad.linode.apiv4.model.Errors;
+import org.dellroad.linode.apiv4.model.Image;
+import org.dellroad.linode.apiv4.model.Kernel;
+import org.dellroad.linode.apiv4.model.Linode;
+import org.dellroad.linode.apiv4.model.Region;
+import org.dellroad.linode.apiv4.model.Type;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * In-process stand-in for the Linode REST APIv4, for tests and benchmarks that must not depend on the live API.
+ *
+ * <p>
+ * The server listens on the loopback interface and implements the endpoints used by the request senders:
+ * <ul>
+ *  <li>Linode instances: list (with pagination and {@value Constants#FILTER_HEADER} filters), get, create, update,
+ *      delete, boot, reboot, and shutdown; each instance's disks, configs, and volumes are empty lists</li>
+ *  <li>Regions, types, kernels, and images: a small fixed catalog</li>
+ * </ul>
+ * Instances move through the same status transitions as real ones, over {@linkplain #setProvisionTime configurable}
+ * time periods; e.g., a newly created instance is {@code provisioning} and later becomes {@code running}.
+ * Errors are reported with the same JSON payload as the real API.
+ *
+ * <p>
+ * To make performance characteristics measurable, the server can simulate:
+ * <ul>
+ *  <li>Response {@linkplain #setLatency latency}, drawn from a {@link LatencyModel}; delayed responses do not
+ *      tie up server threads, so thousands of requests may be outstanding at once</li>
+ *  <li>Rate limiting with the real API's {@code X-RateLimit-*} headers, via {@link #setRateLimit setRateLimit()}</li>
+ *  <li>Randomly injected {@linkplain #setRateLimitErrorRate HTTP 429} and {@linkplain #setServerErrorRate HTTP 5xx}
+ *      errors</li>
+ *  <li>Accounts of any size, via {@link #addLinodes addLinodes()}</li>
+ * </ul>
+ *
+ * <p>
+ * Typical usage:
+ * <blockquote><pre>
+ * try (MockLinodeApiServer server = new MockLinodeApiServer()) {
+ *     server.setLatency(LatencyModel.logNormal(50, 0.5));
+ *     server.addLinodes(1000);
+ *     server.start();
+ *     sender.setBaseURI(server.getBaseURI());
+ *     ...
+ * }
+ * </pre></blockquote>
+ *
+ * <p>
+ * Instances are thread safe.
+ */
+public class MockLinodeApiServer implements Closeable {
+
+    /**
+     * Default number of results per page ({@value #DEFAULT_PAGE_SIZE}).
+     */
+    public static final int DEFAULT_PAGE_SIZE = 100;
+
+    /**
+     * Maximum number of results per page a client may request ({@value #MAX_PAGE_SIZE}).
+     */
+    public static final int MAX_PAGE_SIZE = 500;
+
+    /**
+     * Default time in milliseconds for a new Linode to finish provisioning ({@value #DEFAULT_PROVISION_TIME}).
+     */
+    public static final long DEFAULT_PROVISION_TIME = 2000;
+
+    /**
+     * Default time in milliseconds for a Linode to boot, reboot, or shut down ({@value #DEFAULT_BOOT_TIME}).
+     */
+    public static final long DEFAULT_BOOT_TIME = 1000;
+
+    private static final String BASE_PATH = "/v4/";
+    private static final int BACKLOG = 1024;
+    private static final int[] SERVER_ERRORS = { 500, 502, 503, 504 };
+    private static final Pattern LINODE_PATTERN = Pattern.compile("linode/instances/([0-9]+)(/([a-z]+))?");
+    private static final Pattern CATALOG_ITEM_PATTERN = Pattern.compile("(regions|linode/types|linode/kernels|images)/(.+)");
+
+    protected final Logger log = LoggerFactory.getLogger(this.getClass());
+
+    private final ObjectMapper objectMapper = LinodeApiJson.getObjectMapper();
+    private final Random random;
+    private final Map<String, List<JsonNode>> catalog = new HashMap<>();
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong injectedErrorCount = new AtomicLong();
+
+    @GuardedBy("this")
+    private final TreeMap<Integer, Instance> linodes = new TreeMap<>();
+    @GuardedBy("this")
+    private int nextLinodeId = 1000;
+    @GuardedBy("this")
+    private long rateLimitWindowStart;
+    @GuardedBy("this")
+    private int rateLimitWindowCount;
+    @GuardedBy("this")
+    private HttpServer server;
+    @GuardedBy("this")
+    private ExecutorService executor;
+    @GuardedBy("this")
+    private ScheduledExecutorService scheduler;
+
+    private volatile LatencyModel latency = LatencyModel.NONE;
+    private volatile double rateLimitErrorRate;
+    private volatile double serverErrorRate;
+    private volatile int rateLimit;
+    private volatile String authorizationToken;
+    private volatile long provisionTime = DEFAULT_PROVISION_TIME;
+    private volatile long bootTime = DEFAULT_BOOT_TIME;
+
+    /**
+     * Default constructor.
+     */
+    public MockLinodeApiServer() {
+        this(new Random());
+    }
+
+    /**
+     * Constructor taking a random seed, for reproducible latencies and error injection.
+     *
+     * @param seed random seed
+     */
+    public MockLinodeApiServer(long seed) {
+        this(new Random(seed));
+    }
+
+    private MockLinodeApiServer(Random random) {
+        this.random = random;
+        this.buildCatalog();
+    }
+
+// Lifecycle
+
+    /**
+     * Start this server on an ephemeral loopback port.
+     *
+     * <p>
+     * Does nothing if already started.
+     *
+     * @throws IOException if the server socket cannot be created
+     */
+    public synchronized void start() throws IOException {
+        if (this.server != null)
+            return;
+        this.executor = Executors.newCachedThreadPool(MockLinodeApiServer::newThread);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(MockLinodeApiServer::newThread);
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), BACKLOG);
+        this.server.setExecutor(this.executor);
+        this.server.createContext(BASE_PATH, this::handle);
+        this.server.start();
+        this.log.info("started mock Linode API server at " + this.getBaseURI());
+    }
+
+    /**
+     * Stop this server.
+     *
+     * <p>
+     * Does nothing if not started.
+     */
+    public synchronized void stop() {
+        if (this.server == null)
+            return;
+        this.server.stop(0);
+        this.scheduler.shutdownNow();
+        this.executor.shutdownNow();
+        this.server = null;
+        this.scheduler = null;
+        this.executor = null;
+    }
+
+    /**
+     * Stop this server. Equivalent to {@link #stop}.
+     */
+    @Override
+    public void close() {
+        this.stop();
+    }
+
+    /**
+     * Get the base URI of this server's API, for use with
+     * {@link org.dellroad.linode.apiv4.core.LinodeApiClient.Builder#baseURI LinodeApiClient.Builder.baseURI()}
+     * or a request sender's {@code setBaseURI()}.
+     *
+     * @return base API URI
+     * @throws IllegalStateException if this server is not started
+     */
+    public synchronized URI getBaseURI() {
+        if (this.server == null)
+            throw new IllegalStateException("not started");
+        final InetSocketAddress address = this.server.getAddress();
+        return URI.create("http://" + address.getAddress().getHostAddress() + ":" + address.getPort() + BASE_PATH);
+    }
+
+// Properties
+
+    public LatencyModel getLatency() {
+        return this.latency;
+    }
+
+    /**
+     * Configure the simulated response latency. Default is {@link LatencyModel#NONE}.
+     *
+     * @param latency latency model
+     * @throws IllegalArgumentException if {@code latency} is null
+     */
+    public void setLatency(LatencyModel latency) {
+        if (latency == null)
+            throw new IllegalArgumentException("null latency");
+        this.latency = latency;
+    }
+
+    public double getRateLimitErrorRate() {
+        return this.rateLimitErrorRate;
+    }
+
+    /**
+     * Configure the fraction of requests that randomly fail with HTTP 429, independent of any {@linkplain #setRateLimit
+     * rate limit}. Default is zero.
+     *
+     * @param rate error rate from 0.0 to 1.0
+     * @throws IllegalArgumentException if {@code rate} is out of range
+     */
+    public void setRateLimitErrorRate(double rate) {
+        if (!(rate >= 0.0 && rate <= 1.0))
+            throw new IllegalArgumentException("invalid rate");
+        this.rateLimitErrorRate = rate;
+    }
+
+    public double getServerErrorRate() {
+        return this.serverErrorRate;
+    }
+
+    /**
+     * Configure the fraction of requests that randomly fail with HTTP 500, 502, 503, or 504. Default is zero.
+     *
+     * @param rate error rate from 0.0 to 1.0
+     * @throws IllegalArgumentException if {@code rate} is out of range
+     */
+    public void setServerErrorRate(double rate) {
+        if (!(rate >= 0.0 && rate <= 1.0))
+            throw new IllegalArgumentException("invalid rate");
+        this.serverErrorRate = rate;
+    }
+
+    public int getRateLimit() {
+        return this.rateLimit;
+    }
+
+    /**
+     * Configure a rate limit, enforced the way the real API does it.
+     *
+     * <p>
+     * When set, every response includes {@code X-RateLimit-Limit}, {@code X-RateLimit-Remaining}, and
+     * {@code X-RateLimit-Reset} headers, and requests beyond the limit in any one-second window fail with HTTP 429
+     * and a {@code Retry-After} header. Default is zero (no limit).
+     *
+     * @param rateLimit maximum requests per second, or zero for no limit
+     * @throws IllegalArgumentException if {@code rateLimit} is negative
+     */
+    public void setRateLimit(int rateLimit) {
+        if (rateLimit < 0)
+            throw new IllegalArgumentException("rateLimit < 0");
+        this.rateLimit = rateLimit;
+    }
+
+    public String getAuthorizationToken() {
+        return this.authorizationToken;
+    }
+
+    /**
+     * Configure the authorization token that requests must present. Default is null, which accepts any request.
+     *
+     * @param authorizationToken required token, or null to not require authorization
+     */
+    public void setAuthorizationToken(String authorizationToken) {
+        this.authorizationToken = authorizationToken;
+    }
+
+    public long getProvisionTime() {
+        return this.provisionTime;
+    }
+
+    /**
+     * Configure how long new Linodes remain in the {@code provisioning} state.
+     * Default is {@value #DEFAULT_PROVISION_TIME}ms.
+     *
+     * @param provisionTime provisioning time in milliseconds
+     * @throws IllegalArgumentException if {@code provisionTime} is negative
+     */
+    public void setProvisionTime(long provisionTime) {
+        if (provisionTime < 0)
+            throw new IllegalArgumentException("provisionTime < 0");
+        this.provisionTime = provisionTime;
+    }
+
+    public long getBootTime() {
+        return this.bootTime;
+    }
+
+    /**
+     * Configure how long Linodes remain in the {@code booting}, {@code rebooting}, and {@code shutting_down} states.
+     * Default is {@value #DEFAULT_BOOT_TIME}ms.
+     *
+     * @param bootTime transition time in milliseconds
+     * @throws IllegalArgumentException if {@code bootTime} is negative
+     */
+    public void setBootTime(long bootTime) {
+        if (bootTime < 0)
+            throw new IllegalArgumentException("bootTime < 0");
+        this.bootTime = bootTime;
+    }
+
+// Account
+
+    /**
+     * Add running Linodes to the simulated account.
+     *
+     * <p>
+     * The new Linodes are spread across the catalog's regions and types, and labeled {@code mock-<id>}.
+     *
+     * @param count number of Linodes to add
+     * @return IDs of the new Linodes
+     * @throws IllegalArgumentException if {@code count} is negative
+     */
+    public synchronized List<Integer> addLinodes(int count) {
+        if (count < 0)
+            throw new IllegalArgumentException("count < 0");
+        final List<JsonNode> regions = this.catalog.get("regions");
+        final List<JsonNode> types = this.catalog.get("linode/types");
+        final ArrayList<Integer> ids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            final Instance instance = this.newInstance(null, regions.get(i % regions.size()).get("id").asText(),
+              types.get(i % types.size()).get("id").asText(), "linode/debian9");
+            instance.linode.setStatus(Linode.Status.RUNNING);
+            ids.add(instance.linode.getId());
+        }
+        return ids;
+    }
+
+    /**
+     * Get the number of Linodes in the simulated account.
+     *
+     * @return number of Linodes
+     */
+    public synchronized int getNumLinodes() {
+        return this.linodes.size();
+    }
+
+    /**
+     * Get the current status of a Linode in the simulated account.
+     *
+     * @param linodeId Linode ID
+     * @return Linode status, or null if no such Linode exists
+     */
+    public synchronized Linode.Status getLinodeStatus(int linodeId) {
+        final Instance instance = this.linodes.get(linodeId);
+        if (instance == null)
+            return null;
+        instance.advance(System.nanoTime());
+        return instance.linode.getStatus();
+    }
+
+    /**
+     * Remove all Linodes from the simulated account.
+     */
+    public synchronized void clear() {
+        this.linodes.clear();
+    }
+
+// Statistics
+
+    /**
+     * Get the total number of requests received.
+     *
+     * @return number of requests
+     */
+    public long getRequestCount() {
+        return this.requestCount.get();
+    }
+
+    /**
+     * Get the number of requests that failed due to randomly injected errors or the {@linkplain #setRateLimit rate limit}.
+     *
+     * @return number of injected errors
+     */
+    public long getInjectedErrorCount() {
+        return this.injectedErrorCount.get();
+    }
+
+// Request handling
+
+    private void handle(HttpExchange exchange) {
+        this.requestCount.incrementAndGet();
+
+        // Process request
+        Response response;
+        try {
+            response = this.process(exchange);
+        } catch (ApiError e) {
+            response = this.errorResponse(e.statusCode, e.getMessage(), e.field);
+            if (e.headers != null)
+                response.headers.putAll(e.headers);
+        } catch (RuntimeException e) {
+            this.log.error("error processing mock request " + exchange.getRequestURI(), e);
+            response = this.errorResponse(500, e.toString());
+        }
+
+        // Send response, after the simulated latency
+        final Response finalResponse = response;
+        final long delay = this.latency.nextLatency(this.random);
+        if (delay <= 0) {
+            this.send(exchange, finalResponse);
+            return;
+        }
+        final ScheduledExecutorService currentScheduler;
+        synchronized (this) {
+            currentScheduler = this.scheduler;
+        }
+        if (currentScheduler == null) {
+            exchange.close();
+            return;
+        }
+        currentScheduler.schedule(() -> this.send(exchange, finalResponse), delay, TimeUnit.MICROSECONDS);
+    }
+
+    private void send(HttpExchange exchange, Response response) {
+        try {
+            for (Map.Entry<String, String> header : response.headers.entrySet())
+                exchange.getResponseHeaders().set(header.getKey(), header.getValue());
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(response.statusCode, response.body.length);
+            try (OutputStream output = exchange.getResponseBody()) {
+                output.write(response.body);
+            }
+        } catch (IOException e) {
+            this.log.debug("error sending mock response: " + e);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private Response process(HttpExchange exchange) {
+
+        // Check authorization
+        final String token = this.authorizationToken;
+        if (token != null && !("Bearer " + token).equals(exchange.getRequestHeaders().getFirst("Authorization")))
+            throw new ApiError(401, "Invalid Token");
+
+        // Apply rate limit and injected faults
+        final Map<String, String> headers = new LinkedHashMap<>();
+        this.applyRateLimit(headers);
+        final double dice = this.random.nextDouble();
+        if (dice < this.rateLimitErrorRate) {
+            this.injectedErrorCount.incrementAndGet();
+            final Response response = this.errorResponse(429, "Too Many Requests");
+            response.headers.put("Retry-After", "1");
+            return response;
+        }
+        if (dice < this.rateLimitErrorRate + this.serverErrorRate) {
+            this.injectedErrorCount.incrementAndGet();
+            return this.errorResponse(SERVER_ERRORS[this.random.nextInt(SERVER_ERRORS.length)], "Service Unavailable");
+        }
+
+        // Parse request
+        final String method = exchange.getRequestMethod();
+        final String path = exchange.getRequestURI().getPath().substring(BASE_PATH.length()).replaceAll("/+$", "");
+        final Map<String, String> params = MockLinodeApiServer.parseForm(exchange.getRequestURI().getRawQuery());
+        final JsonNode filter = this.parseFilter(exchange.getRequestHeaders().getFirst(Constants.FILTER_HEADER));
+        final JsonNode body = this.parseBody(exchange);
+
+        // Dispatch
+        final JsonNode result = this.dispatch(method, path, params, filter, body);
+        final Response response = new Response(200, this.toBytes(result));
+        response.headers.putAll(headers);
+        return response;
+    }
+
+    private JsonNode dispatch(String method, String path, Map<String, String> params, JsonNode filter, JsonNode body) {
+
+        // Linode list
+        if (path.equals("linode/instances")) {
+            switch (method) {
+            case "GET":
+                return this.page(this.listLinodes(), params, filter);
+            case "POST":
+                return this.createLinode(body);
+            default:
+                throw new ApiError(405, "Method Not Allowed");
+            }
+        }
+
+        // Individual Linode
+        final Matcher linodeMatcher = LINODE_PATTERN.matcher(path);
+        if (linodeMatcher.matches()) {
+            final int linodeId = Integer.parseInt(linodeMatcher.group(1));
+            final String action = linodeMatcher.group(3);
+            return this.linodeRequest(method, linodeId, action, params, filter, body);
+        }
+
+        // Catalog
+        if (method.equals("GET")) {
+            final List<JsonNode> list = this.catalog.get(path);
+            if (list != null)
+                return this.page(list, params, filter);
+            final Matcher itemMatcher = CATALOG_ITEM_PATTERN.matcher(path);
+            if (itemMatcher.matches()) {
+                for (JsonNode item : this.catalog.get(itemMatcher.group(1))) {
+                    if (item.get("id").asText().equals(itemMatcher.group(2)))
+                        return item;
+                }
+            }
+        }
+        throw new ApiError(404, "Not found");
+    }
+
+    private synchronized JsonNode linodeRequest(String method, int linodeId, String action,
+      Map<String, String> params, JsonNode filter, JsonNode body) {
+        final Instance instance = this.linodes.get(linodeId);
+        if (instance == null)
+            throw new ApiError(404, "Not found");
+        final long now = System.nanoTime();
+        instance.advance(now);
+        final Linode linode = instance.linode;
+
+        // Operations on the Linode itself
+        if (action == null) {
+            switch (method) {
+            case "GET":
+                return this.objectMapper.valueToTree(linode);
+            case "PUT":
+                if (body.hasNonNull("label"))
+                    linode.setLabel(body.get("label").asText());
+                if (body.hasNonNull("group"))
+                    linode.setGroup(body.get("group").asText());
+                linode.setUpdated(new Date());
+                return this.objectMapper.valueToTree(linode);
+            case "DELETE":
+                this.linodes.remove(linodeId);
+                return this.objectMapper.createObjectNode();
+            default:
+                throw new ApiError(405, "Method Not Allowed");
+            }
+        }
+
+        // Sub-resources
+        switch (method + " " + action) {
+        case "GET disks":
+        case "GET configs":
+        case "GET volumes":
+            return this.page(new ArrayList<>(), params, filter);
+        case "POST boot":
+            this.checkStatus(linode, Linode.Status.OFFLINE);
+            instance.transition(Linode.Status.BOOTING, Linode.Status.RUNNING, this.bootTime, now);
+            return this.objectMapper.createObjectNode();
+        case "POST reboot":
+            this.checkStatus(linode, Linode.Status.RUNNING);
+            instance.transition(Linode.Status.REBOOTING, Linode.Status.RUNNING, this.bootTime, now);
+            return this.objectMapper.createObjectNode();
+        case "POST shutdown":
+            this.checkStatus(linode, Linode.Status.RUNNING);
+            instance.transition(Linode.Status.SHUTTING_DOWN, Linode.Status.OFFLINE, this.bootTime, now);
+            return this.objectMapper.createObjectNode();
+        default:
+            throw new ApiError(404, "Not found");
+        }
+    }
+
+    private synchronized List<JsonNode> listLinodes() {
+        final long now = System.nanoTime();
+        final ArrayList<JsonNode> list = new ArrayList<>(this.linodes.size());
+        for (Instance instance : this.linodes.values()) {
+            instance.advance(now);
+            list.add(this.objectMapper.valueToTree(instance.linode));
+        }
+        return list;
+    }
+
+    private synchronized JsonNode createLinode(JsonNode body) {
+        if (!body.hasNonNull("region"))
+            throw new ApiError(400, "region is required", "region");
+        if (!body.hasNonNull("type"))
+            throw new ApiError(400, "type is required", "type");
+        final String image = body.hasNonNull("image") ? body.get("image").asText() : null;
+        final Instance instance = this.newInstance(body.hasNonNull("label") ? body.get("label").asText() : null,
+          body.get("region").asText(), body.get("type").asText(), image);
+        if (body.hasNonNull("group"))
+            instance.linode.setGroup(body.get("group").asText());
+        final boolean booted = body.has("booted") ? body.get("booted").asBoolean() : image != null;
+        instance.transition(Linode.Status.PROVISIONING,
+          booted ? Linode.Status.RUNNING : Linode.Status.OFFLINE, this.provisionTime, System.nanoTime());
+        return this.objectMapper.valueToTree(instance.linode);
+    }
+
+    @GuardedBy("this")
+    private Instance newInstance(String label, String regionId, String typeId, String imageId) {
+        final int id = this.nextLinodeId++;
+        final Linode linode = new Linode();
+        linode.setId(id);
+        linode.setLabel(label != null ? label : "mock-" + id);
+        linode.setRegionId(regionId);
+        linode.setTypeId(typeId);
+        linode.setImageId(imageId);
+        linode.setHypervisor(Linode.Hypervisor.KVM);
+        linode.setIpv4(new String[] { "10." + ((id >> 16) & 0xff) + "." + ((id >> 8) & 0xff) + "." + (id & 0xff) });
+        linode.setIpv6("2600:3c00::" + Integer.toHexString(id) + "/64");
+        final Date now = new Date();
+        linode.setCreated(now);
+        linode.setUpdated(now);
+        final Instance instance = new Instance(linode);
+        this.linodes.put(id, instance);
+        return instance;
+    }
+
+    private void checkStatus(Linode linode, Linode.Status required) {
+        if (linode.getStatus() != required)
+            throw new ApiError(400, "Linode is " + linode.getStatus() + " but must be " + required);
+    }
+
+    /**
+     * Filter, order, and paginate a list of entities.
+     */
+    private JsonNode page(List<JsonNode> entities, Map<String, String> params, JsonNode filter) {
+
+        // Filter and order
+        final ArrayList<JsonNode> list = new ArrayList<>(entities.size());
+        try {
+            for (JsonNode entity : entities) {
+                if (MockFilter.matches(filter, entity))
+                    list.add(entity);
+            }
+        } catch (IllegalArgumentException e) {
+            throw new ApiError(400, e.getMessage(), Constants.FILTER_HEADER);
+        }
+        final Comparator<JsonNode> ordering = MockFilter.ordering(filter);
+        if (ordering != null)
+            list.sort(ordering);
+
+        // Paginate
+        final int page = this.intParam(params, "page", 1, 1, Integer.MAX_VALUE);
+        final int pageSize = this.intParam(params, "page_size", DEFAULT_PAGE_SIZE, 25, MAX_PAGE_SIZE);
+        final int pages = Math.max(1, (list.size() + pageSize - 1) / pageSize);
+        final ObjectNode result = this.objectMapper.createObjectNode();
+        final ArrayNode data = result.putArray("data");
+        final long start = (long)(page - 1) * pageSize;
+        for (long i = start; i < Math.min(start + pageSize, list.size()); i++)
+            data.add(list.get((int)i));
+        result.put("page", page);
+        result.put("pages", pages);
+        result.put("results", list.size());
+        return result;
+    }
+
+    private int intParam(Map<String, String> params, String name, int defaultValue, int min, int max) {
+        final String value = params.get(name);
+        if (value == null)
+            return defaultValue;
+        final int result;
+        try {
+            result = Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new ApiError(400, "invalid " + name, name);
+        }
+        if (result < min || result > max)
+            throw new ApiError(400, name + " must be between " + min + " and " + max, name);
+        return result;
+    }
+
+    private synchronized void applyRateLimit(Map<String, String> headers) {
+        final int limit = this.rateLimit;
+        if (limit <= 0)
+            return;
+        final long now = System.currentTimeMillis();
+        if (now - this.rateLimitWindowStart >= 1000) {
+            this.rateLimitWindowStart = now;
+            this.rateLimitWindowCount = 0;
+        }
+        final long reset = (this.rateLimitWindowStart + 1000 + 999) / 1000;
+        headers.put("X-RateLimit-Limit", String.valueOf(limit));
+        headers.put("X-RateLimit-Reset", String.valueOf(reset));
+        if (this.rateLimitWindowCount >= limit) {
+            this.injectedErrorCount.incrementAndGet();
+            headers.put("X-RateLimit-Remaining", "0");
+            headers.put("Retry-After", String.valueOf(Math.max(1, reset - now / 1000)));
+            throw new ApiError(429, "Too Many Requests", null, headers);
+        }
+        this.rateLimitWindowCount++;
+        headers.put("X-RateLimit-Remaining", String.valueOf(limit - this.rateLimitWindowCount));
+    }
+
+// Parsing
+
+    private JsonNode parseFilter(String json) {
+        if (json == null)
+            return null;
+        try {
+            return this.objectMapper.readTree(json);
+        } catch (IOException e) {
+            throw new ApiError(400, "invalid filter: " + e.getMessage(), Constants.FILTER_HEADER);
+        }
+    }
+
+    private JsonNode parseBody(HttpExchange exchange) {
+        final byte[] bytes;
+        try (InputStream input = exchange.getRequestBody()) {
+            final ByteArrayOutputStream buf = new ByteArrayOutputStream();
+            final byte[] chunk = new byte[1024];
+            for (int r = input.read(chunk); r != -1; r = input.read(chunk))
+                buf.write(chunk, 0, r);
+            bytes = buf.toByteArray();
+        } catch (IOException e) {
+            throw new ApiError(400, "error reading request: " + e);
+        }
+        if (bytes.length == 0)
+            return this.objectMapper.createObjectNode();
+
+        // Requests with name/value parameters may be form-encoded
+        final String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+        if (contentType != null && contentType.startsWith("application/x-www-form-urlencoded")) {
+            final ObjectNode node = this.objectMapper.createObjectNode();
+            for (Map.Entry<String, String> entry : MockLinodeApiServer.parseForm(
+              new String(bytes, StandardCharsets.UTF_8)).entrySet())
+                node.put(entry.getKey(), entry.getValue());
+            return node;
+        }
+        try {
+            return this.objectMapper.readTree(bytes);
+        } catch (IOException e) {
+            throw new ApiError(400, "invalid JSON request: " + e.getMessage());
+        }
+    }
+
+    private static Map<String, String> parseForm(String form) {
+        final HashMap<String, String> map = new HashMap<>();
+        if (form == null || form.isEmpty())
+            return map;
+        for (String pair : form.split("&")) {
+            final int eq = pair.indexOf('=');
+            try {
+                map.put(URLDecoder.decode(eq != -1 ? pair.substring(0, eq) : pair, "UTF-8"),
+                  eq != -1 ? URLDecoder.decode(pair.substring(eq + 1), "UTF-8") : "");
+            } catch (UnsupportedEncodingException e) {
+                throw new RuntimeException("unexpected exception", e);
+            }
+        }
+        return map;
+    }
+
+    private Response errorResponse(int statusCode, String reason) {
+        return this.errorResponse(statusCode, reason, null);
+    }
+
+    private Response errorResponse(int statusCode, String reason, String field) {
+        final Errors.Error error = new Errors.Error();
+        error.setReason(reason);
+        error.setField(field);
+        final Errors errors = new Errors();
+        errors.setErrors(new Errors.Error[] { error });
+        return new Response(statusCode, this.toBytes(this.objectMapper.valueToTree(errors)));
+    }
+
+    private byte[] toBytes(JsonNode node) {
+        try {
+            return this.objectMapper.writeValueAsBytes(node);
+        } catch (IOException e) {
+            throw new RuntimeException("unexpected exception", e);
+        }
+    }
+
+// Catalog
+
+    private void buildCatalog() {
+
+        // Regions
+        final ArrayList<JsonNode> regions = new ArrayList<>();
+        for (String[] info : new String[][] {
+          { "us-east", "us" }, { "us-central", "us" }, { "us-west", "us" }, { "us-southeast", "us" },
+          { "eu-west", "uk" }, { "eu-central", "de" }, { "ap-south", "sg" }, { "ap-northeast", "jp" } }) {
+            final Region region = new Region();
+            region.setId(info[0]);
+            region.setCountry(info[1]);
+            regions.add(this.objectMapper.valueToTree(region));
+        }
+        this.catalog.put("regions", regions);
+
+        // Types
+        final ArrayList<JsonNode> types = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            final Type type = new Type();
+            type.setId(i == 0 ? "g6-nanode-1" : "g6-standard-" + (1 << (i - 1)));
+            type.setLabel(i == 0 ? "Nanode 1GB" : "Linode " + (2 << i) + "GB");
+            type.setLinodeClass(i == 0 ? Type.Class.NANODE : Type.Class.STANDARD);
+            type.setVcpus(1 << Math.max(0, i - 1));
+            type.setMemory(1024 << i);
+            type.setDisk(25600 << i);
+            type.setTransfer(1000 << i);
+            type.setNetworkOut(1000 << i);
+            final Type.Price price = new Type.Price();
+            price.setMonthly(5 << i);
+            price.setHourly(price.getMonthly() / 720.0f);
+            type.setPrice(price);
+            types.add(this.objectMapper.valueToTree(type));
+        }
+        this.catalog.put("linode/types", types);
+
+        // Kernels
+        final ArrayList<JsonNode> kernels = new ArrayList<>();
+        for (Kernel.Architecture architecture : Kernel.Architecture.values()) {
+            final Kernel kernel = new Kernel();
+            kernel.setId("linode/latest-" + architecture.getWordSize() + "bit");
+            kernel.setLabel("Latest " + architecture.getWordSize() + " bit");
+            kernel.setVersion("4.15.8");
+            kernel.setArchitecture(architecture);
+            kernel.setKvm(true);
+            kernel.setPvops(true);
+            kernels.add(this.objectMapper.valueToTree(kernel));
+        }
+        this.catalog.put("linode/kernels", kernels);
+
+        // Images
+        final ArrayList<JsonNode> images = new ArrayList<>();
+        for (String[] info : new String[][] {
+          { "linode/debian9", "Debian 9", "Debian" }, { "linode/ubuntu18.04", "Ubuntu 18.04 LTS", "Ubuntu" },
+          { "linode/centos7", "CentOS 7", "CentOS" } }) {
+            final Image image = new Image();
+            image.setId(info[0]);
+            image.setLabel(info[1]);
+            image.setVendor(info[2]);
+            image.setType(Image.Type.MANUAL);
+            image.setPublic(true);
+            image.setSize(1500);
+            image.setCreatedBy("linode");
+            images.add(this.objectMapper.valueToTree(image));
+        }
+        this.catalog.put("images", images);
+    }
+
+    private static Thread newThread(Runnable action) {
+        final Thread thread = new Thread(action, "MockLinodeApiServer");
+        thread.setDaemon(true);
+        return thread;
+    }
+
+// Instance
+
+    /**
+     * A simulated Linode, with a pending status transition, if any.
+     */
+    private static class Instance {
+
+        final Linode linode;
+
+        Linode.Status nextStatus;
+        long transitionTime;
+
+        Instance(Linode linode) {
+            this.linode = linode;
+        }
+
+        void transition(Linode.Status interimStatus, Linode.Status nextStatus, long delay, long now) {
+            this.linode.setStatus(interimStatus);
+            this.nextStatus = nextStatus;
+            this.transitionTime = now + TimeUnit.MILLISECONDS.toNanos(delay);
+            this.advance(now);
+        }
+
+        void advance(long now) {
+            if (this.nextStatus != null && now - this.transitionTime >= 0) {
+                this.linode.setStatus(this.nextStatus);
+                this.linode.setUpdated(new Date());
+                this.nextStatus = null;
+            }
+        }
+    }
+
+// Response
+
+    private static class Response {
+
+        final int statusCode;
+        final byte[] body;
+        final Map<String, String> headers = new LinkedHashMap<>();
+
+        Response(int statusCode, byte[] body) {
+            this.statusCode = statusCode;
+            this.body = body;
+        }
+    }
+
+// ApiError
+
+    @SuppressWarnings("serial")
+    private static class ApiError extends RuntimeException {
+
+        final int statusCode;
+        final String field;
+        final Map<String, String> headers;
+
+        ApiError(int statusCode, String reason) {
+            this(statusCode, reason, null);
+        }
+
+        ApiError(int statusCode, String reason, String field) {
+            this(statusCode, reason, field, null);
+        }
+
+        ApiError(int statusCode, String reason, String field, Map<String, String> headers) {
+            super(reason);
+            this.statusCode = statusCode;
+            this.field = field;
+            this.headers = headers;
+        }
+    }
+}
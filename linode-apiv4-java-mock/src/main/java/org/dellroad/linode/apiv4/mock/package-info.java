@@ -0,0 +1,21 @@
+
+/*
+ * Copyright (C) 2017 Archie L. Cobbs. All rights reserved.
+ */
+
+/**
+ * In-process mock Linode APIv4 server for tests and benchmarks.
+ *
+ * <p>
+ * Key classes:
+ * <ul>
+ *  <li>{@link org.dellroad.linode.apiv4.mock.MockLinodeApiServer} - serves a simulated account over HTTP on the
+ *      loopback interface, with optional latency, rate limiting, and error injection</li>
+ *  <li>{@link org.dellroad.linode.apiv4.mock.LatencyModel} - distributions of simulated response latency</li>
+ * </ul>
+ *
+ * <p>
+ * This module depends only on the JDK's built-in HTTP server, Jackson, and SLF4J; it is normally used
+ * with {@code test} scope.
+ */
+package org.dellroad.linode.apiv4.mock;
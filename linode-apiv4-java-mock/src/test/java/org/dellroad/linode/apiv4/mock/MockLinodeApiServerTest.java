@@ -0,0 +1,158 @@
+
+/*
+ * Copyright (C) 2017 Archie L. Cobbs. All rights reserved.
+ */
+
+package org.dellroad.linode.apiv4.mock;
+
+import java.util.List;
+
+import org.dellroad.linode.apiv4.core.LinodeApiClient;
+import org.dellroad.linode.apiv4.core.LinodeApiClientException;
+import org.dellroad.linode.apiv4.filter.FilterBuilder;
+import org.dellroad.linode.apiv4.model.Linode;
+import org.dellroad.linode.apiv4.model.Linodes;
+import org.dellroad.linode.apiv4.request.CreateLinodeRequest;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class MockLinodeApiServerTest {
+
+    private MockLinodeApiServer server;
+    private LinodeApiClient client;
+
+    @BeforeClass
+    public void startServer() throws Exception {
+        this.server = new MockLinodeApiServer(1234);
+        this.server.setAuthorizationToken("secret");
+        this.server.start();
+        this.client = LinodeApiClient.builder()
+          .baseURI(this.server.getBaseURI())
+          .authorizationToken("secret")
+          .build();
+    }
+
+    @AfterClass
+    public void stopServer() {
+        this.server.stop();
+    }
+
+    @BeforeMethod
+    public void reset() {
+        this.server.clear();
+        this.server.setLatency(LatencyModel.NONE);
+        this.server.setRateLimit(0);
+        this.server.setRateLimitErrorRate(0.0);
+        this.server.setServerErrorRate(0.0);
+    }
+
+    @Test
+    public void testPagination() throws Exception {
+        this.server.addLinodes(250);
+
+        // Pages
+        final Linodes page = this.client.getLinodesPage(null, 3);
+        assert page.getPage() == 3;
+        assert page.getPages() == 3;
+        assert page.getResults() == 250;
+        assert page.getData().size() == 50;
+
+        // All pages, with filter and ordering
+        final FilterBuilder fb = new FilterBuilder();
+        final List<Linode> linodes = this.client.getLinodes(0,
+          fb.where(fb.equal("region", "us-east")).orderBy("id", false).build());
+        assert linodes.size() == 32 : "got " + linodes.size();
+        for (int i = 1; i < linodes.size(); i++)
+            assert linodes.get(i - 1).getId() > linodes.get(i).getId();
+        assert linodes.stream().allMatch(linode -> linode.getRegionId().equals("us-east"));
+    }
+
+    @Test
+    public void testTransitions() throws Exception {
+        this.server.setProvisionTime(100);
+        this.server.setBootTime(100);
+        final CreateLinodeRequest request = new CreateLinodeRequest();
+        request.setRegionId("us-east");
+        request.setTypeId("g6-nanode-1");
+        request.setBooted(true);
+        final Linode linode = this.client.createLinode(request);
+        assert linode.getStatus() == Linode.Status.PROVISIONING : "status " + linode.getStatus();
+        this.waitForStatus(linode.getId(), Linode.Status.RUNNING);
+
+        // Shutdown and boot
+        this.client.shutdownLinode(linode.getId());
+        assert this.client.getLinode(linode.getId()).getStatus() == Linode.Status.SHUTTING_DOWN;
+        this.waitForStatus(linode.getId(), Linode.Status.OFFLINE);
+        this.client.bootLinode(linode.getId());
+        this.waitForStatus(linode.getId(), Linode.Status.RUNNING);
+
+        // Delete
+        this.client.deleteLinode(linode.getId());
+        assert this.server.getNumLinodes() == 0;
+    }
+
+    @Test
+    public void testErrors() throws Exception {
+
+        // Not found
+        try {
+            this.client.getLinode(99999);
+            assert false : "expected exception";
+        } catch (LinodeApiClientException e) {
+            assert e.getStatusCode() == 404 : "status " + e.getStatusCode();
+            assert e.getMessage().equals("Not found") : e.getMessage();
+        }
+
+        // Authorization
+        final LinodeApiClient badClient = LinodeApiClient.builder()
+          .baseURI(this.server.getBaseURI())
+          .authorizationToken("wrong")
+          .build();
+        try {
+            badClient.getRegions(0, null);
+            assert false : "expected exception";
+        } catch (LinodeApiClientException e) {
+            assert e.getStatusCode() == 401 : "status " + e.getStatusCode();
+        }
+
+        // Injected errors
+        this.server.setServerErrorRate(1.0);
+        try {
+            this.client.getRegions(0, null);
+            assert false : "expected exception";
+        } catch (LinodeApiClientException e) {
+            assert e.getStatusCode() >= 500 : "status " + e.getStatusCode();
+        }
+
+        // Rate limit
+        this.server.setServerErrorRate(0.0);
+        this.server.setRateLimit(3);
+        int failures = 0;
+        for (int i = 0; i < 5; i++) {
+            try {
+                this.client.getTypes(0, null);
+            } catch (LinodeApiClientException e) {
+                assert e.getStatusCode() == 429 : "status " + e.getStatusCode();
+                failures++;
+            }
+        }
+        assert failures >= 1 : "failures " + failures;
+    }
+
+    @Test
+    public void testLatency() throws Exception {
+        this.server.setLatency(LatencyModel.constant(50));
+        final long startTime = System.nanoTime();
+        this.client.getRegions(0, null);
+        final long elapsed = (System.nanoTime() - startTime) / 1000000L;
+        assert elapsed >= 50 : "elapsed " + elapsed + "ms";
+    }
+
+    private void waitForStatus(int linodeId, Linode.Status status) throws InterruptedException {
+        for (int i = 0; i < 100 && this.client.getLinode(linodeId).getStatus() != status; i++)
+            Thread.sleep(20);
+        assert this.client.getLinode(linodeId).getStatus() == status;
+    }
+}
@@ -7,6 +7,7 @@ package org.dellroad.linode.apiv4.filter;
 
 import com.fasterxml.jackson.annotation.JsonAnyGetter;
 
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -16,12 +17,15 @@ import java.util.Map;
  * Instances are created via a {@link FilterBuilder}.
  *
  * <p>
- * Instances are immutable.
+ * Instances are immutable. The JSON encoding of a filter, as sent in the {@code X-Filter} header, is computed once
+ * on first use and cached; two filters are equal if and only if their JSON encodings are equal.
  */
 public class Filter {
 
     private final Map<String, Object> map;
 
+    private volatile String json;
+
     Filter(Map<String, Object> map) {
         this.map = map;
     }
@@ -30,4 +34,124 @@ public class Filter {
     Map<String, Object> getProperties() {
         return this.map;
     }
+
+    /**
+     * Get the JSON encoding of this filter.
+     *
+     * <p>
+     * The encoding is canonical, in that it depends only on how the filter was built.
+     *
+     * @return JSON encoding of this filter
+     */
+    public String toJson() {
+        String result = this.json;
+        if (result == null) {
+            final StringBuilder buf = new StringBuilder();
+            Filter.appendJson(buf, this.map);
+            this.json = result = buf.toString();
+        }
+        return result;
+    }
+
+// Object
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == this)
+            return true;
+        if (obj == null || obj.getClass() != this.getClass())
+            return false;
+        final Filter that = (Filter)obj;
+        return this.toJson().equals(that.toJson());
+    }
+
+    @Override
+    public int hashCode() {
+        return this.toJson().hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return this.toJson();
+    }
+
+// Internal methods
+
+    static void appendJson(StringBuilder buf, Object value) {
+        if (value == null)
+            buf.append("null");
+        else if (value instanceof String)
+            Filter.appendString(buf, (String)value);
+        else if (value instanceof Boolean)
+            buf.append(value);
+        else if (value instanceof Double) {
+            final double d = (Double)value;
+            if (Double.isNaN(d) || Double.isInfinite(d))
+                Filter.appendString(buf, value.toString());
+            else
+                buf.append(d);
+        } else if (value instanceof Number)
+            buf.append(value);
+        else if (value instanceof FilterBuilder.Condition)
+            Filter.appendJson(buf, ((FilterBuilder.Condition)value).getPair());
+        else if (value instanceof Map) {
+            buf.append('{');
+            boolean first = true;
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>)value).entrySet()) {
+                if (!first)
+                    buf.append(',');
+                Filter.appendString(buf, String.valueOf(entry.getKey()));
+                buf.append(':');
+                Filter.appendJson(buf, entry.getValue());
+                first = false;
+            }
+            buf.append('}');
+        } else if (value instanceof List) {
+            buf.append('[');
+            boolean first = true;
+            for (Object item : (List<?>)value) {
+                if (!first)
+                    buf.append(',');
+                Filter.appendJson(buf, item);
+                first = false;
+            }
+            buf.append(']');
+        } else
+            Filter.appendString(buf, value.toString());
+    }
+
+    private static void appendString(StringBuilder buf, String string) {
+        buf.append('"');
+        for (int i = 0; i < string.length(); i++) {
+            final char ch = string.charAt(i);
+            switch (ch) {
+            case '"':
+            case '\\':
+                buf.append('\\').append(ch);
+                break;
+            case '\n':
+                buf.append("\\n");
+                break;
+            case '\r':
+                buf.append("\\r");
+                break;
+            case '\t':
+                buf.append("\\t");
+                break;
+            case '\b':
+                buf.append("\\b");
+                break;
+            case '\f':
+                buf.append("\\f");
+                break;
+            default:
+                if (ch < 0x20)
+                    buf.append(String.format("\\u%04X", (int)ch));
+                else
+                    buf.append(ch);
+                break;
+            }
+        }
+        buf.append('"');
+    }
 }
@@ -7,10 +7,11 @@ package org.dellroad.linode.apiv4.filter;
 
 import com.fasterxml.jackson.annotation.JsonAnyGetter;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -34,17 +35,17 @@ public class FilterBuilder {
 
     public Condition and(List<Condition> conditions) {
         FilterBuilder.checkConditions(conditions);
-        return new Condition(Constants.FILTER_AND, Collections.unmodifiableList(conditions));
+        return new Condition(Constants.FILTER_AND, Collections.unmodifiableList(new ArrayList<>(conditions)));
     }
 
     public Condition or(Condition... conditions) {
         FilterBuilder.checkConditions(conditions);
-        return this.and(Arrays.asList(conditions));
+        return this.or(Arrays.asList(conditions));
     }
 
     public Condition or(List<Condition> conditions) {
         FilterBuilder.checkConditions(conditions);
-        return new Condition(Constants.FILTER_OR, Collections.unmodifiableList(conditions));
+        return new Condition(Constants.FILTER_OR, Collections.unmodifiableList(new ArrayList<>(conditions)));
     }
 
 // Comparison
@@ -71,6 +72,10 @@ public class FilterBuilder {
         return new Condition(attribute, value);
     }
 
+    public Condition equal(String attribute, long value) {
+        return new Condition(attribute, value);
+    }
+
     public Condition equal(String attribute, double value) {
         return new Condition(attribute, value);
     }
@@ -91,6 +96,10 @@ public class FilterBuilder {
         return new Condition(Constants.FILTER_NEQ, attribute, value);
     }
 
+    public Condition notEqual(String attribute, long value) {
+        return new Condition(Constants.FILTER_NEQ, attribute, value);
+    }
+
     public Condition notEqual(String attribute, double value) {
         return new Condition(Constants.FILTER_NEQ, attribute, value);
     }
@@ -163,17 +172,21 @@ public class FilterBuilder {
     /**
      * Build a filter based on the current configuration.
      *
+     * <p>
+     * The returned filter's properties are ordered deterministically, so equivalent filters
+     * have identical {@linkplain Filter#toJson JSON encodings}.
+     *
      * @return query filter
      */
     public Filter build() {
-        final HashMap<String, Object> map = new HashMap<>(3);
+        final LinkedHashMap<String, Object> map = new LinkedHashMap<>(4);
         if (this.condition != null)
             map.putAll(this.condition.getPair());
         if (this.orderBy != null) {
             map.put(Constants.FILTER_ORDER_BY, this.orderBy);
             map.put(Constants.FILTER_ORDER, this.ascending ? Constants.FILTER_ORDER_ASC : Constants.FILTER_ORDER_DESC);
         }
-        return new Filter(map);
+        return new Filter(Collections.unmodifiableMap(map));
     }
 
 // Internal methods
@@ -0,0 +1,19 @@
+
+/*
+ * Copyright (C) 2017 Archie L. Cobbs. All rights reserved.
+ */
+
+package org.dellroad.linode.apiv4.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+/**
+ * Paginated {@link LinodeSummary} list.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class LinodeSummaries extends Paginated<LinodeSummary> {
+
+    public LinodeSummaries() {
+        super(LinodeSummary.class);
+    }
+}
@@ -0,0 +1,66 @@
+
+/*
+ * Copyright (C) 2017 Archie L. Cobbs. All rights reserved.
+ */
+
+package org.dellroad.linode.apiv4.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Compact view of a {@link Linode} instance containing only its identity, placement, addresses, and status.
+ *
+ * <p>
+ * Decoding a Linode into this class is much cheaper than decoding into a {@link Linode}: all other properties,
+ * including nested objects such as alerts, backups, and specs, are skipped by the JSON parser without being
+ * materialized. This makes it suitable for polling the status of large numbers of Linodes.
+ *
+ * @see <a href="https://developers.linode.com/v4/reference/linode">Linodes</a>
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class LinodeSummary extends AbstractIntIdLabeled {
+
+    private String regionId;
+    private String group;
+    private String[] ipv4;
+    private String typeId;
+    private Linode.Status status;
+
+    @JsonProperty("region")
+    public String getRegionId() {
+        return this.regionId;
+    }
+    public void setRegionId(final String regionId) {
+        this.regionId = regionId;
+    }
+
+    public String getGroup() {
+        return this.group;
+    }
+    public void setGroup(final String group) {
+        this.group = group;
+    }
+
+    public String[] getIpv4() {
+        return this.ipv4;
+    }
+    public void setIpv4(final String[] ipv4) {
+        this.ipv4 = ipv4;
+    }
+
+    @JsonProperty("type")
+    public String getTypeId() {
+        return this.typeId;
+    }
+    public void setTypeId(final String typeId) {
+        this.typeId = typeId;
+    }
+
+    public Linode.Status getStatus() {
+        return this.status;
+    }
+    public void setStatus(final Linode.Status status) {
+        this.status = status;
+    }
+}
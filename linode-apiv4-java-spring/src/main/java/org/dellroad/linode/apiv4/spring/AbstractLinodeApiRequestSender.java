@@ -0,0 +1,210 @@
+
+/*
+ * Copyright (C) 2017 Archie L. Cobbs. All rights reserved.
+ */
+
+package org.dellroad.linode.apiv4.spring;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.net.URI;
+
+import org.dellroad.linode.apiv4.Constants;
+import org.dellroad.linode.apiv4.core.LinodeApiJson;
+import org.dellroad.linode.apiv4.core.UrlTemplates;
+import org.dellroad.linode.apiv4.filter.Filter;
+import org.dellroad.linode.apiv4.model.Paginated;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpMethod;
+
+/**
+ * Support superclass for Linode REST APIv4 request senders.
+ *
+ * <p>
+ * Contains the functionality common to {@link LinodeApiRequestSender} and {@link AsyncLinodeApiRequestSender},
+ * which is independent of how requests are actually sent. URL construction and JSON encoding are shared with
+ * the Spring-free {@link org.dellroad.linode.apiv4.core.LinodeApiClient}.
+ */
+public abstract class AbstractLinodeApiRequestSender {
+
+    /**
+     * Default maximum number of pages loaded at the same time by an aggregating query ({@value #DEFAULT_MAX_PAGES_IN_FLIGHT}).
+     */
+    public static final int DEFAULT_MAX_PAGES_IN_FLIGHT = 4;
+
+    protected final Logger log = LoggerFactory.getLogger(this.getClass());
+
+    private volatile UrlTemplates urlTemplates = new UrlTemplates(Constants.BASE_URI);
+    private int maxPagesInFlight = DEFAULT_MAX_PAGES_IN_FLIGHT;
+    private LinodeApiMetrics metrics = LinodeApiMetrics.NONE;
+
+// Properties
+
+    public URI getBaseURI() {
+        return this.urlTemplates.getBaseURI();
+    }
+    public void setBaseURI(URI baseURI) {
+        if (baseURI == null)
+            throw new IllegalArgumentException("null baseURI");
+        this.urlTemplates = new UrlTemplates(baseURI);
+    }
+
+    /**
+     * Get the default maximum number of pages that an aggregating query loads at the same time.
+     *
+     * @return maximum number of concurrent page loads per query
+     */
+    public int getMaxPagesInFlight() {
+        return this.maxPagesInFlight;
+    }
+
+    /**
+     * Configure the default maximum number of pages that an aggregating query loads at the same time.
+     *
+     * <p>
+     * This keeps large listings from monopolizing the HTTP connection pool. Default is {@value #DEFAULT_MAX_PAGES_IN_FLIGHT}.
+     *
+     * @param maxPagesInFlight maximum number of concurrent page loads per query
+     * @throws IllegalArgumentException if {@code maxPagesInFlight} is zero or negative
+     */
+    public void setMaxPagesInFlight(int maxPagesInFlight) {
+        if (maxPagesInFlight < 1)
+            throw new IllegalArgumentException("maxPagesInFlight < 1");
+        this.maxPagesInFlight = maxPagesInFlight;
+    }
+
+    public LinodeApiMetrics getMetrics() {
+        return this.metrics;
+    }
+
+    /**
+     * Configure where to report retries and pagination statistics.
+     *
+     * <p>
+     * HTTP exchanges themselves are reported by a {@link LinodeApiMetricsInterceptor} configured on the REST template.
+     * Default is {@link LinodeApiMetrics#NONE}.
+     *
+     * @param metrics metrics destination
+     * @throws IllegalArgumentException if {@code metrics} is null
+     */
+    public void setMetrics(LinodeApiMetrics metrics) {
+        if (metrics == null)
+            throw new IllegalArgumentException("null metrics");
+        this.metrics = metrics;
+    }
+
+// Internal methods
+
+    /**
+     * Report a finished aggregating query to the configured {@linkplain #setMetrics metrics}
+     * and, if being recorded, to Java Flight Recorder.
+     *
+     * @param event Flight Recorder event started when the query began, or null
+     * @param pathTemplate resource URI path (relative)
+     * @param templateParameters parameter values for parameters in {@code pathTemplate}
+     * @param numPages number of pages loaded
+     * @param numResults number of results gathered
+     * @param success true if the query succeeded, false if it failed
+     */
+    void reportAggregation(Object event, String pathTemplate, Object[] templateParameters,
+      int numPages, int numResults, boolean success) {
+        final LinodeApiMetrics currentMetrics = this.metrics;
+        final boolean reportMetrics = success && currentMetrics != LinodeApiMetrics.NONE;
+        if (event == null && !reportMetrics)
+            return;
+        final String endpoint = LinodeApiRateLimiter.getEndpointClass(HttpMethod.GET,
+          this.buildURI(pathTemplate, templateParameters));
+        LinodeApiEvents.endAggregation(event, endpoint, numPages, numResults, success);
+        if (reportMetrics)
+            currentMetrics.pages(endpoint, numPages);
+    }
+
+    /**
+     * Build an URL template by combining a base URI with a path template and optional additional query parameters.
+     *
+     * @param pathTemplate path template
+     * @param queryParams additional query parameters in name, value pairs
+     * @return complete URL template
+     * @throws IllegalArgumentException if either parameter is null
+     */
+    protected String buildTemplateURL(String pathTemplate, Object... queryParams) {
+
+        // Sanity check
+        if (pathTemplate == null)
+            throw new IllegalArgumentException("null path");
+        if (queryParams == null)
+            throw new IllegalArgumentException("null queryParams");
+
+        // Use cached template if possible
+        if (queryParams.length == 0)
+            return this.urlTemplates.get(pathTemplate).getTemplate();
+        return this.urlTemplates.resolve(pathTemplate, queryParams);
+    }
+
+    /**
+     * Build a complete URI by combining a base URI with a path template, template parameters, and optional
+     * additional query parameters.
+     *
+     * <p>
+     * This is equivalent to, but much faster than, expanding the result of {@link #buildTemplateURL buildTemplateURL()}
+     * with {@code templateParameters} the way {@link org.springframework.web.client.RestTemplate} does, because
+     * the parsed form of {@code pathTemplate} is cached.
+     *
+     * @param pathTemplate path template
+     * @param templateParameters parameter values for parameters in {@code pathTemplate}
+     * @param queryParams additional query parameters in name, value pairs
+     * @return complete URI
+     * @throws IllegalArgumentException if {@code pathTemplate} or {@code queryParams} is null
+     * @throws IllegalArgumentException if there are not enough {@code templateParameters}
+     */
+    protected URI buildURI(String pathTemplate, Object[] templateParameters, Object... queryParams) {
+
+        // Sanity check
+        if (pathTemplate == null)
+            throw new IllegalArgumentException("null path");
+        if (queryParams == null)
+            throw new IllegalArgumentException("null queryParams");
+
+        // Expand template
+        return this.urlTemplates.expand(pathTemplate, templateParameters, queryParams);
+    }
+
+    /**
+     * Convert value to JSON.
+     *
+     * @param value value to convert
+     * @return JSON encoding of {@code value}
+     * @throws JsonProcessingException if a JSON encoding error occurs
+     * @throws IllegalArgumentException if {@code value} is null
+     */
+    protected String toJson(Object value) throws JsonProcessingException {
+        if (value == null)
+            throw new IllegalArgumentException("null value");
+        if (value instanceof Filter)
+            return ((Filter)value).toJson();
+        final StringWriter buf = new StringWriter();
+        try {
+            final JsonGenerator generator = LinodeApiJson.getObjectMapper().getFactory().createGenerator(buf);
+            LinodeApiJson.getObjectMapper().writer().writeValue(generator, value);
+            generator.flush();
+        } catch (IOException e) {
+            throw new RuntimeException("unexpected exception", e);
+        }
+        return buf.toString();
+    }
+
+    /**
+     * Determine the number of pages to load for an aggregating query, given the first page.
+     *
+     * @param firstPage first page of results
+     * @param maxResults limit on the number of results returned (must be positive)
+     * @return total number of pages to load, including the first page
+     */
+    protected int getNumPagesToLoad(Paginated<?> firstPage, int maxResults) {
+        return PageSpliterator.numPagesToLoad(firstPage, maxResults);
+    }
+}
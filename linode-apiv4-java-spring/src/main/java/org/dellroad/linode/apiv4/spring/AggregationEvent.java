@@ -0,0 +1,60 @@
+
+/*
+ * Copyright (C) 2017 Archie L. Cobbs. All rights reserved.
+ */
+
+package org.dellroad.linode.apiv4.spring;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event for one aggregating query over a paginated Linode API resource.
+ *
+ * <p>
+ * Only loaded if {@link LinodeApiEvents#AVAILABLE} is true.
+ */
+@Name("org.dellroad.linode.apiv4.Aggregation")
+@Label("Linode API Aggregation")
+@Category("Linode API")
+@Description("Query that loads and combines all pages of a paginated Linode API resource")
+final class AggregationEvent extends Event {
+
+    @Label("Endpoint")
+    @Description("HTTP method and URI path with numeric ID's replaced by {id}")
+    String endpoint;
+
+    @Label("Pages")
+    @Description("Number of pages loaded")
+    int pages;
+
+    @Label("Results")
+    @Description("Number of results gathered")
+    int results;
+
+    @Label("Success")
+    boolean success;
+
+    static Object start() {
+        final AggregationEvent event = new AggregationEvent();
+        if (!event.isEnabled())
+            return null;
+        event.begin();
+        return event;
+    }
+
+    static void finish(Object obj, String endpoint, int numPages, int numResults, boolean success) {
+        final AggregationEvent event = (AggregationEvent)obj;
+        event.end();
+        if (!event.shouldCommit())
+            return;
+        event.endpoint = endpoint;
+        event.pages = numPages;
+        event.results = numResults;
+        event.success = success;
+        event.commit();
+    }
+}
@@ -0,0 +1,1543 @@
+
+/*
+ * Copyright (C) 2017 Archie L. Cobbs. All rights reserved.
+ */
+
+package org.dellroad.linode.apiv4.spring;
+
+import java.net.SocketException;
+import java.net.URI;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+import org.apache.http.NoHttpResponseException;
+import org.dellroad.linode.apiv4.Constants;
+import org.dellroad.linode.apiv4.filter.Filter;
+import org.dellroad.linode.apiv4.model.BackupInfo;
+import org.dellroad.linode.apiv4.model.Config;
+import org.dellroad.linode.apiv4.model.Configs;
+import org.dellroad.linode.apiv4.model.Disk;
+import org.dellroad.linode.apiv4.model.Disks;
+import org.dellroad.linode.apiv4.model.IP;
+import org.dellroad.linode.apiv4.model.IPInfo;
+import org.dellroad.linode.apiv4.model.IPv4;
+import org.dellroad.linode.apiv4.model.Image;
+import org.dellroad.linode.apiv4.model.Images;
+import org.dellroad.linode.apiv4.model.Kernel;
+import org.dellroad.linode.apiv4.model.Kernels;
+import org.dellroad.linode.apiv4.model.Linode;
+import org.dellroad.linode.apiv4.model.LinodeSummaries;
+import org.dellroad.linode.apiv4.model.LinodeSummary;
+import org.dellroad.linode.apiv4.model.Linodes;
+import org.dellroad.linode.apiv4.model.Paginated;
+import org.dellroad.linode.apiv4.model.Region;
+import org.dellroad.linode.apiv4.model.Regions;
+import org.dellroad.linode.apiv4.model.StackScript;
+import org.dellroad.linode.apiv4.model.StackScripts;
+import org.dellroad.linode.apiv4.model.Stats;
+import org.dellroad.linode.apiv4.model.Type;
+import org.dellroad.linode.apiv4.model.Types;
+import org.dellroad.linode.apiv4.model.Volume;
+import org.dellroad.linode.apiv4.model.Volumes;
+import org.dellroad.linode.apiv4.request.CloneLinodeRequest;
+import org.dellroad.linode.apiv4.request.CreateConfigRequest;
+import org.dellroad.linode.apiv4.request.CreateDiskRequest;
+import org.dellroad.linode.apiv4.request.CreateImageRequest;
+import org.dellroad.linode.apiv4.request.CreateLinodeRequest;
+import org.dellroad.linode.apiv4.request.CreateVolumeRequest;
+import org.dellroad.linode.apiv4.request.RescueLinodeRequest;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.concurrent.ListenableFuture;
+import org.springframework.web.client.AsyncRestTemplate;
+import org.springframework.web.client.RestClientException;
+
+/**
+ * Non-blocking sender for Linode REST APIv4 requests.
+ *
+ * <p>
+ * This class provides the same API endpoints as {@link LinodeApiRequestSender}, but every method returns immediately
+ * with a {@link CompletableFuture}; no thread is blocked while a request is outstanding. Requests are performed by
+ * an {@link AsyncRestTemplate}, which normally shares its {@link LinodeApiHttpRequestFactory} (and therefore its
+ * authorization token and connection limits) with the synchronous {@link LinodeApiRequestSender}.
+ *
+ * <p>
+ * Errors are reported by completing the returned future exceptionally with a {@link LinodeApiException}.
+ * Cancelling a returned future cancels the underlying HTTP request(s).
+ *
+ * <p>
+ * Slow GET requests may be {@linkplain #setHedgingPolicy hedged}.
+ */
+public class AsyncLinodeApiRequestSender extends AbstractLinodeApiRequestSender implements InitializingBean {
+
+    private AsyncRestTemplate asyncRestTemplate;
+    private volatile LinodeApiHedgingPolicy hedgingPolicy;
+    private volatile ScheduledExecutorService hedgingScheduler;
+
+// Lifecycle
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        if (this.asyncRestTemplate == null)
+            throw new Exception("no asyncRestTemplate configured");
+    }
+
+// Properties
+
+    public AsyncRestTemplate getAsyncRestTemplate() {
+        return this.asyncRestTemplate;
+    }
+    public void setAsyncRestTemplate(AsyncRestTemplate asyncRestTemplate) {
+        this.asyncRestTemplate = asyncRestTemplate;
+    }
+
+    public LinodeApiHedgingPolicy getHedgingPolicy() {
+        return this.hedgingPolicy;
+    }
+
+    /**
+     * Configure the policy for hedging slow GET requests.
+     *
+     * <p>
+     * Hedging also requires a {@linkplain #setHedgingScheduler hedging scheduler}. When both are configured, if no
+     * response to a GET request has arrived after the delay determined by {@code hedgingPolicy}, a duplicate request
+     * is sent, the returned future is completed with the first response to arrive, and the other request is cancelled.
+     *
+     * <p>
+     * By default, no policy is configured and requests are not hedged.
+     *
+     * @param hedgingPolicy hedging policy, or null to never hedge
+     */
+    public void setHedgingPolicy(LinodeApiHedgingPolicy hedgingPolicy) {
+        this.hedgingPolicy = hedgingPolicy;
+    }
+
+    public ScheduledExecutorService getHedgingScheduler() {
+        return this.hedgingScheduler;
+    }
+
+    /**
+     * Configure the scheduler used to send {@linkplain #setHedgingPolicy hedged} GET requests.
+     *
+     * <p>
+     * The scheduler only initiates duplicate requests, which does not block, so a single thread is sufficient.
+     *
+     * @param hedgingScheduler scheduler for hedged requests, or null to never hedge
+     */
+    public void setHedgingScheduler(ScheduledExecutorService hedgingScheduler) {
+        this.hedgingScheduler = hedgingScheduler;
+    }
+
+// Linodes
+
+    /**
+     * Get all Linode instances.
+     *
+     * <p>
+     * Pages after the first are loaded concurrently.
+     *
+     * @param maxResults limit on the number of results returned, or zero for no limit
+     * @param filter filter for returned values, or null for no filter
+     * @return future mutable list of all Linodes matching {@code filter}
+     * @throws IllegalArgumentException if {@code maxResults} is negative
+     */
+    public CompletableFuture<List<Linode>> getLinodes(int maxResults, Filter filter) {
+        return this.getAll(Linodes.class, maxResults, filter, "linode/instances");
+    }
+
+    /**
+     * Get summaries of all Linode instances.
+     *
+     * <p>
+     * This is a much cheaper alternative to {@link #getLinodes getLinodes()} when only the properties
+     * in {@link LinodeSummary} are needed, e.g., for status polling.
+     *
+     * @param maxResults limit on the number of results returned, or zero for no limit
+     * @param filter filter for returned values, or null for no filter
+     * @return future mutable list of summaries of all Linodes matching {@code filter}
+     * @throws IllegalArgumentException if {@code maxResults} is negative
+     */
+    public CompletableFuture<List<LinodeSummary>> getLinodeSummaries(int maxResults, Filter filter) {
+        return this.getAll(LinodeSummaries.class, maxResults, filter, "linode/instances");
+    }
+
+    /**
+     * Get one page of Linode instances.
+     *
+     * @param filter filter for returned values, or null for no filter
+     * @param page page number (the first page is number one)
+     * @return future page of Linodes
+     * @throws IllegalArgumentException if {@code page} is less than one
+     */
+    public CompletableFuture<Linodes> getLinodesPage(Filter filter, int page) {
+        return this.getPage(Linodes.class, filter, page, "linode/instances");
+    }
+
+    /**
+     * Get a particular Linode instance.
+     *
+     * @param linodeId Linode ID
+     * @return future specified Linode
+     */
+    public CompletableFuture<Linode> getLinode(int linodeId) {
+        return this.get(Linode.class, "linode/instances/{id}", linodeId);
+    }
+
+    /**
+     * Create a new Linode instance.
+     *
+     * @param request create info
+     * @return future new Linode
+     * @throws IllegalArgumentException if {@code request} is null
+     */
+    public CompletableFuture<Linode> createLinode(CreateLinodeRequest request) {
+        if (request == null)
+            throw new IllegalArgumentException("null request");
+        return this.postFor(Linode.class, request, "linode/instances");
+    }
+
+    /**
+     * Update a Linode instance.
+     *
+     * @param request update info
+     * @return future completion
+     * @throws IllegalArgumentException if {@code request} is null
+     * @throws IllegalArgumentException if {@code request} has invalid ID
+     */
+    public CompletableFuture<Void> updateLinode(Linode request) {
+        if (request == null)
+            throw new IllegalArgumentException("null request");
+        if (request.getId() <= 0)
+            throw new IllegalArgumentException("invalid linode ID");
+        return this.put(request, "linode/instances/{id}", request.getId());
+    }
+
+    /**
+     * Delete a Linode instance.
+     *
+     * @param linodeId linode ID
+     * @return future completion
+     */
+    public CompletableFuture<Void> deleteLinode(int linodeId) {
+        return this.delete("linode/instances/{id}", linodeId);
+    }
+
+// Linodes: Boot
+
+    /**
+     * Boot a Linode instance.
+     *
+     * @param linodeId Linode ID
+     * @return future completion
+     */
+    public CompletableFuture<Void> bootLinode(int linodeId) {
+        return this.boot(linodeId, -1);
+    }
+
+    /**
+     * Boot a Linode instance.
+     *
+     * @param linodeId Linode ID
+     * @param configId Configuration ID, or -1 for none
+     * @return future completion
+     */
+    public CompletableFuture<Void> boot(int linodeId, int configId) {
+        final Query query = configId != -1 ? new Query("config_id", configId) : new Query();
+        return this.post(query, "linode/instances/{id}/boot", linodeId);
+    }
+
+// Linodes: Clone
+
+    /**
+     * Clone a Linode instance.
+     *
+     * @param linodeId Linode ID of the instance to clone
+     * @param request clone request
+     * @return future new Linode
+     * @throws IllegalArgumentException if {@code request} is null
+     */
+    public CompletableFuture<Linode> cloneLinode(int linodeId, CloneLinodeRequest request) {
+        if (request == null)
+            throw new IllegalArgumentException("null request");
+        return this.postFor(Linode.class, request, "linode/instances/{id}/clone", linodeId);
+    }
+
+// Linodes: KVMify
+
+    /**
+     * Convert a Linode instance to KVM.
+     *
+     * @param linodeId Linode ID of the instance to KVM'ify
+     * @return future completion
+     */
+    public CompletableFuture<Void> kvmifyLinode(int linodeId) {
+        return this.post("", "linode/instances/{id}/kvmify", linodeId);
+    }
+
+// Linodes: Mutate
+
+    /**
+     * Upgrade a Linode to its next generation.
+     *
+     * @param linodeId Linode ID of the instance to upgrade
+     * @return future completion
+     */
+    public CompletableFuture<Void> mutateLinode(int linodeId) {
+        return this.post("", "linode/instances/{id}/mutate", linodeId);
+    }
+
+// Linodes: Reboot
+
+    /**
+     * Reboot a Linode instance.
+     *
+     * @param linodeId Linode ID
+     * @return future completion
+     */
+    public CompletableFuture<Void> rebootLinode(int linodeId) {
+        return this.rebootLinode(linodeId, -1);
+    }
+
+    /**
+     * Reboot a Linode instance.
+     *
+     * @param linodeId Linode ID
+     * @param configId Configuration ID, or -1 for none
+     * @return future completion
+     */
+    public CompletableFuture<Void> rebootLinode(int linodeId, int configId) {
+        final Query query = configId != -1 ? new Query("config_id", configId) : new Query();
+        return this.post(query, "linode/instances/{id}/reboot", linodeId);
+    }
+
+// Linodes: Rescue
+
+    /**
+     * Reboot a Linode instance in rescue mode.
+     *
+     * @param linodeId Linode ID of the instance to clone
+     * @param request rescue request
+     * @return future completion
+     * @throws IllegalArgumentException if {@code request} is null
+     */
+    public CompletableFuture<Void> rescueLinode(int linodeId, RescueLinodeRequest request) {
+        if (request == null)
+            throw new IllegalArgumentException("null request");
+        return this.post(request, "linode/instances/{id}/rescue", linodeId);
+    }
+
+// Linodes: Resize
+
+    /**
+     * Resize a Linode instance.
+     *
+     * @param linodeId Linode ID
+     * @param typeId new type ID
+     * @return future completion
+     */
+    public CompletableFuture<Void> resizeLinode(int linodeId, String typeId) {
+        return this.post(new Query("type", typeId), "linode/instances/{id}/resize", linodeId);
+    }
+
+// Linodes: Shutdown
+
+    /**
+     * Shutdown a Linode.
+     *
+     * @param linodeId Linode ID of the instance
+     * @return future completion
+     */
+    public CompletableFuture<Void> shutdownLinode(int linodeId) {
+        return this.post("", "linode/instances/{id}/shutdown", linodeId);
+    }
+
+// Linodes: Volumes
+
+    /**
+     * Get all volumes attached to a Linode instance.
+     *
+     * <p>
+     * Pages after the first are loaded concurrently.
+     *
+     * @param maxResults limit on the number of results returned, or zero for no limit
+     * @param filter filter for returned values, or null for no filter
+     * @param linodeId Linode ID
+     * @return future mutable list of all volumes associated with the specified Linode matching {@code filter}
+     * @throws IllegalArgumentException if {@code maxResults} is negative
+     */
+    public CompletableFuture<List<Volume>> getLinodeVolumes(int maxResults, Filter filter, int linodeId) {
+        return this.getAll(Volumes.class, maxResults, filter, "linode/instances/{id}/volumes", linodeId);
+    }
+
+    /**
+     * Get one page of the volumes attached to a Linode instance.
+     *
+     * @param filter filter for returned values, or null for no filter
+     * @param page page number (the first page is number one)
+     * @param linodeId Linode ID
+     * @return future page of volumes
+     * @throws IllegalArgumentException if {@code page} is less than one
+     */
+    public CompletableFuture<Volumes> getLinodeVolumesPage(Filter filter, int page, int linodeId) {
+        return this.getPage(Volumes.class, filter, page, "linode/instances/{id}/volumes", linodeId);
+    }
+
+// Linodes: Backups
+
+    /**
+     * Get backup info about a Linode instance.
+     *
+     * @param linodeId Linode ID
+     * @return future backup info for instance
+     */
+    public CompletableFuture<BackupInfo> getLinodeBackupInfo(int linodeId) {
+        return this.get(BackupInfo.class, "linode/instances/{id}/backups", linodeId);
+    }
+
+// Linodes: Configs
+
+    /**
+     * Get all configs associated with a Linode instance.
+     *
+     * <p>
+     * Pages after the first are loaded concurrently.
+     *
+     * @param maxResults limit on the number of results returned, or zero for no limit
+     * @param filter filter for returned values, or null for no filter
+     * @param linodeId Linode ID
+     * @return future mutable list of all configs associated with the specified Linode matching {@code filter}
+     * @throws IllegalArgumentException if {@code maxResults} is negative
+     */
+    public CompletableFuture<List<Config>> getLinodeConfigs(int maxResults, Filter filter, int linodeId) {
+        return this.getAll(Configs.class, maxResults, filter, "linode/instances/{id}/configs", linodeId);
+    }
+
+    /**
+     * Get one page of the configurations associated with a Linode instance.
+     *
+     * @param filter filter for returned values, or null for no filter
+     * @param page page number (the first page is number one)
+     * @param linodeId Linode ID
+     * @return future page of configs for instance
+     * @throws IllegalArgumentException if {@code page} is less than one
+     */
+    public CompletableFuture<Configs> getLinodeConfigsPage(Filter filter, int page, int linodeId) {
+        return this.getPage(Configs.class, filter, page, "linode/instances/{id}/configs", linodeId);
+    }
+
+    /**
+     * Get a particular Linode config.
+     *
+     * @param linodeId Linode ID
+     * @param configId Config ID
+     * @return future requested config
+     */
+    public CompletableFuture<Config> getLinodeConfig(int linodeId, int configId) {
+        return this.get(Config.class, "linode/instances/{id}/configs/{cid}", linodeId, configId);
+    }
+
+    /**
+     * Create a new Linode config.
+     *
+     * @param linodeId Linode ID
+     * @param request config info
+     * @return future new config
+     * @throws IllegalArgumentException if {@code request} is null
+     */
+    public CompletableFuture<Config> createLinodeConfig(int linodeId, CreateConfigRequest request) {
+        if (request == null)
+            throw new IllegalArgumentException("null request");
+        return this.postFor(Config.class, request, "linode/instances/{id}/configs", linodeId);
+    }
+
+    /**
+     * Update a Linode config.
+     *
+     * @param linodeId Linode ID
+     * @param request update info (with config ID set)
+     * @return future completion
+     * @throws IllegalArgumentException if {@code request} is null
+     */
+    public CompletableFuture<Void> updateLinodeConfig(int linodeId, Config request) {
+        if (request == null)
+            throw new IllegalArgumentException("null request");
+        return this.put(request, "linode/instances/{id}/config/{cid}", linodeId, request.getId());
+    }
+
+    /**
+     * Delete a Linode config.
+     *
+     * @param linodeId linode ID
+     * @param configId config ID
+     * @return future completion
+     */
+    public CompletableFuture<Void> deleteLinodeConfig(int linodeId, int configId) {
+        return this.delete("linode/instances/{id}/config/{cid}", linodeId, configId);
+    }
+
+// Linodes: Disks
+
+    /**
+     * Get all disks associated with a Linode instance.
+     *
+     * <p>
+     * Pages after the first are loaded concurrently.
+     *
+     * @param maxResults limit on the number of results returned, or zero for no limit
+     * @param filter filter for returned values, or null for no filter
+     * @param linodeId Linode ID
+     * @return future mutable list of all disks associated with the specified Linode matching {@code filter}
+     * @throws IllegalArgumentException if {@code maxResults} is negative
+     */
+    public CompletableFuture<List<Disk>> getLinodeDisks(int maxResults, Filter filter, int linodeId) {
+        return this.getAll(Disks.class, maxResults, filter, "linode/instances/{id}/disks", linodeId);
+    }
+
+    /**
+     * Get one page of the disks associated with a Linode instance.
+     *
+     * @param filter filter for returned values, or null for no filter
+     * @param page page number (the first page is number one)
+     * @param linodeId Linode ID
+     * @return future page of linode disks info
+     * @throws IllegalArgumentException if {@code page} is less than one
+     */
+    public CompletableFuture<Disks> getLinodeDisksPage(Filter filter, int page, int linodeId) {
+        return this.getPage(Disks.class, filter, page, "linode/instances/{id}/disks", linodeId);
+    }
+
+    /**
+     * Get the specified disk.
+     *
+     * @param linodeId Linode ID
+     * @param diskId disk ID
+     * @return future linode disk info
+     */
+    public CompletableFuture<Disk> getLinodeDisk(int linodeId, int diskId) {
+        return this.get(Disk.class, "linode/instances/{id}/disks/{did}", linodeId, diskId);
+    }
+
+    /**
+     * Create a new Linode disk.
+     *
+     * @param linodeId Linode ID
+     * @param request disk info
+     * @return future new disk
+     * @throws IllegalArgumentException if {@code request} is null
+     */
+    public CompletableFuture<Disk> createLinodeDisk(int linodeId, CreateDiskRequest request) {
+        if (request == null)
+            throw new IllegalArgumentException("null request");
+        return this.postFor(Disk.class, request, "linode/instances/{id}/disks", linodeId);
+    }
+
+    /**
+     * Clone a Linode disk.
+     *
+     * @param linodeId Linode ID
+     * @param diskId disk ID
+     * @return future new disk
+     */
+    public CompletableFuture<Disk> cloneLinodeDisk(int linodeId, int diskId) {
+        return this.postFor(Disk.class, "", "linode/instances/{id}/disks/{did}/clone", linodeId, diskId);
+    }
+
+    /**
+     * Update a Linode disk.
+     *
+     * @param linodeId Linode ID
+     * @param diskId disk ID
+     * @param label new label
+     * @return future completion
+     * @throws IllegalArgumentException if {@code label} is null
+     */
+    public CompletableFuture<Void> updateLinodeDisk(int linodeId, int diskId, String label) {
+        if (label == null)
+            throw new IllegalArgumentException("null label");
+        return this.put(new Query("label", label), "linode/instances/{id}/disks/{did}", linodeId, diskId);
+    }
+
+    /**
+     * Delete a Linode disk.
+     *
+     * @param linodeId Linode ID
+     * @param diskId disk ID
+     * @return future completion
+     */
+    public CompletableFuture<Void> deleteLinodeDisk(int linodeId, int diskId) {
+        return this.delete("linode/instances/{id}/disks/{cid}", linodeId, diskId);
+    }
+
+    /**
+     * Reset root password on a Linode disk.
+     *
+     * @param linodeId Linode ID
+     * @param diskId disk ID
+     * @param password new root password
+     * @return future completion
+     * @throws IllegalArgumentException if {@code password} is null
+     */
+    public CompletableFuture<Void> updateLinodeDiskPassword(int linodeId, int diskId, String password) {
+        if (password == null)
+            throw new IllegalArgumentException("null password");
+        return this.post(new Query("password", password), "linode/instances/{id}/disks/{did}/password", linodeId, diskId);
+    }
+
+    /**
+     * Resize a Linode disk.
+     *
+     * @param linodeId Linode ID
+     * @param diskId disk ID
+     * @param size new size in MB
+     * @return future completion
+     */
+    public CompletableFuture<Void> updateLinodeDisk(int linodeId, int diskId, int size) {
+        return this.put(new Query("size", size), "linode/instances/{id}/disks/{did}/resize", linodeId, diskId);
+    }
+
+// IPs
+
+    /**
+     * Get IP info.
+     *
+     * @param linodeId Linode ID
+     * @return future IP info for linode
+     */
+    public CompletableFuture<IPInfo> getIPInfo(int linodeId) {
+        return this.get(IPInfo.class, "linode/instances/{id}/ips", linodeId);
+    }
+
+    /**
+     * Allocate a new IPv4 address.
+     *
+     * @param linodeId Linode ID
+     * @param type type of address
+     * @return future newly allocated address
+     * @throws IllegalArgumentException if {@code type} is null
+     */
+    public CompletableFuture<IPInfo> allocateIP(int linodeId, IP.Type type) {
+        if (type == null)
+            throw new IllegalArgumentException("null type");
+        return this.postFor(IPInfo.class, new Query("type", type), "linode/instances/{id}/ips", linodeId);
+    }
+
+    /**
+     * Get info about a specific IPv4 address.
+     *
+     * @param linodeId Linode ID
+     * @param address IP address
+     * @return future address info
+     * @throws IllegalArgumentException if {@code address} is null
+     */
+    public CompletableFuture<IPv4> getIP(int linodeId, String address) {
+        if (address == null)
+            throw new IllegalArgumentException("null address");
+        return this.get(IPv4.class, "linode/instances/{id}/ips/{addr}", linodeId, address);
+    }
+
+    /**
+     * Update info about a specific IPv4 address.
+     *
+     * @param linodeId Linode ID
+     * @param address IP address
+     * @param info updated info
+     * @return future completion
+     * @throws IllegalArgumentException if {@code info} is null
+     */
+    public CompletableFuture<Void> updateIP(int linodeId, String address, IP info) {
+        if (info == null)
+            throw new IllegalArgumentException("null info");
+        return this.put(info, "linode/instances/{id}/ips/{addr}", linodeId, address);
+    }
+
+    /**
+     * Delete a specific IPv4 address.
+     *
+     * @param linodeId Linode ID
+     * @param address IP address
+     * @return future completion
+     */
+    public CompletableFuture<Void> deleteIP(int linodeId, String address) {
+        return this.delete("linode/instances/{id}/ips/{addr}", linodeId, address);
+    }
+
+// Kernels
+
+    /**
+     * Get all kernels.
+     *
+     * <p>
+     * Pages after the first are loaded concurrently.
+     *
+     * @param maxResults limit on the number of results returned, or zero for no limit
+     * @param filter filter for returned values, or null for no filter
+     * @return future mutable list of all kernels matching {@code filter}
+     * @throws IllegalArgumentException if {@code maxResults} is negative
+     */
+    public CompletableFuture<List<Kernel>> getKernels(int maxResults, Filter filter) {
+        return this.getAll(Kernels.class, maxResults, filter, "linode/kernels");
+    }
+
+    /**
+     * Get one page of kernels.
+     *
+     * @param filter filter for returned values, or null for no filter
+     * @param page page number (the first page is number one)
+     * @return future page of kernels
+     * @throws IllegalArgumentException if {@code page} is less than one
+     */
+    public CompletableFuture<Kernels> getKernelsPage(Filter filter, int page) {
+        return this.getPage(Kernels.class, filter, page, "linode/kernels");
+    }
+
+    /**
+     * Get a specific kernel.
+     *
+     * @param kernelId kernel ID
+     * @return future specified kernel
+     * @throws IllegalArgumentException if {@code kernelId} is null
+     */
+    public CompletableFuture<Kernel> getKernel(String kernelId) {
+        if (kernelId == null)
+            throw new IllegalArgumentException("null kernelId");
+        return this.get(Kernel.class, "linode/kernels/{id}", kernelId);
+    }
+
+// StackScripts
+
+    /**
+     * Get all StackScripts.
+     *
+     * <p>
+     * Pages after the first are loaded concurrently.
+     *
+     * @param maxResults limit on the number of results returned, or zero for no limit
+     * @param filter filter for returned values, or null for no filter
+     * @return future mutable list of all StackScripts matching {@code filter}
+     * @throws IllegalArgumentException if {@code maxResults} is negative
+     */
+    public CompletableFuture<List<StackScript>> getStackScripts(int maxResults, Filter filter) {
+        return this.getAll(StackScripts.class, maxResults, filter, "linode/stackscripts");
+    }
+
+    /**
+     * Get one page of StackScripts.
+     *
+     * @param filter filter for returned values, or null for no filter
+     * @param page page number (the first page is number one)
+     * @return future page of StackScripts
+     * @throws IllegalArgumentException if {@code page} is less than one
+     */
+    public CompletableFuture<StackScripts> getStackScriptsPage(Filter filter, int page) {
+        return this.getPage(StackScripts.class, filter, page, "linode/stackscripts");
+    }
+
+    /**
+     * Get a specific StackScript.
+     *
+     * @param scriptId script ID
+     * @return future specified StackScript
+     */
+    public CompletableFuture<StackScript> getStackScript(int scriptId) {
+        return this.get(StackScript.class, "linode/stackscripts/{sid}", scriptId);
+    }
+
+// Stats
+
+    /**
+     * Get stats for the past 24 hours.
+     *
+     * @param linodeId Linode ID
+     * @return future instance stats for the past 24 hours
+     */
+    public CompletableFuture<Stats> getStats(int linodeId) {
+        return this.get(Stats.class, "linode/instances/{id}/stats", linodeId);
+    }
+
+    /**
+     * Get stats for the specified month.
+     *
+     * @param linodeId Linode ID
+     * @param month month
+     * @return future instance stats for the specified month
+     * @throws IllegalArgumentException if {@code month} is null
+     */
+    public CompletableFuture<Stats> getStats(int linodeId, YearMonth month) {
+        if (month == null)
+            throw new IllegalArgumentException("null month");
+        return this.get(Stats.class,
+          "linode/instances/{id}/stats/{year}/{month}", linodeId, month.getYear(), month.getMonthValue());
+    }
+
+// Types
+
+    /**
+     * Get all Linode types.
+     *
+     * <p>
+     * Pages after the first are loaded concurrently.
+     *
+     * @param maxResults limit on the number of results returned, or zero for no limit
+     * @param filter filter for returned values, or null for no filter
+     * @return future mutable list of all Linode types matching {@code filter}
+     * @throws IllegalArgumentException if {@code maxResults} is negative
+     */
+    public CompletableFuture<List<Type>> getTypes(int maxResults, Filter filter) {
+        return this.getAll(Types.class, maxResults, filter, "linode/types");
+    }
+
+    /**
+     * Get one page of Linode types.
+     *
+     * @param filter filter for returned values, or null for no filter
+     * @param page page number (the first page is number one)
+     * @return future page of instance types
+     * @throws IllegalArgumentException if {@code page} is less than one
+     */
+    public CompletableFuture<Types> getTypesPage(Filter filter, int page) {
+        return this.getPage(Types.class, filter, page, "linode/types");
+    }
+
+    /**
+     * Get a specific Linode type.
+     *
+     * @param typeId type ID
+     * @return future specified instance type
+     * @throws IllegalArgumentException if {@code typeId} is null
+     */
+    public CompletableFuture<Type> getType(String typeId) {
+        if (typeId == null)
+            throw new IllegalArgumentException("null typeId");
+        return this.get(Type.class, "linode/types/{tid}", typeId);
+    }
+
+// Volumes
+
+    /**
+     * Get all volumes.
+     *
+     * <p>
+     * Pages after the first are loaded concurrently.
+     *
+     * @param maxResults limit on the number of results returned, or zero for no limit
+     * @param filter filter for returned values, or null for no filter
+     * @return future mutable list of all volumes matching {@code filter}
+     * @throws IllegalArgumentException if {@code maxResults} is negative
+     */
+    public CompletableFuture<List<Volume>> getVolumes(int maxResults, Filter filter) {
+        return this.getAll(Volumes.class, maxResults, filter, "volumes");
+    }
+
+    /**
+     * Get one page of volumes.
+     *
+     * @param filter filter for returned values, or null for no filter
+     * @param page page number (the first page is number one)
+     * @return future page of volumes
+     * @throws IllegalArgumentException if {@code page} is less than one
+     */
+    public CompletableFuture<Volumes> getVolumesPage(Filter filter, int page) {
+        return this.getPage(Volumes.class, filter, page, "volumes");
+    }
+
+    /**
+     * Create a new volume.
+     *
+     * @param request volume info
+     * @return future new volume
+     * @throws IllegalArgumentException if {@code request} is null
+     */
+    public CompletableFuture<Volume> createVolume(CreateVolumeRequest request) {
+        if (request == null)
+            throw new IllegalArgumentException("null request");
+        return this.postFor(Volume.class, request, "volumes");
+    }
+
+    /**
+     * Get a specific volume.
+     *
+     * @param volumeId volume ID
+     * @return future specified volume
+     */
+    public CompletableFuture<Volume> getVolume(int volumeId) {
+        return this.get(Volume.class, "volumes/{vid}", volumeId);
+    }
+
+    /**
+     * Delete a specific volume.
+     *
+     * @param volumeId volume ID
+     * @return future completion
+     */
+    public CompletableFuture<Void> deleteVolume(int volumeId) {
+        return this.delete("volumes/{vid}", volumeId);
+    }
+
+    /**
+     * Attach a volume to a Linode.
+     *
+     * @param linodeId Linode ID
+     * @param volumeId volume ID
+     * @param configId config ID (optional)
+     * @return future completion
+     */
+    public CompletableFuture<Void> attachVolume(int linodeId, int volumeId, Integer configId) {
+        return this.post(new Query("linode_id", linodeId, "config_id", configId), "volumes/{vid}/attach", volumeId);
+    }
+
+    /**
+     * Detach a volume from its Linode.
+     *
+     * @param volumeId volume ID
+     * @return future completion
+     */
+    public CompletableFuture<Void> detachVolume(int volumeId) {
+        return this.post(new Query(), "volumes/{vid}/detach", volumeId);
+    }
+
+    /**
+     * Clone a volume.
+     *
+     * @param volumeId volume ID
+     * @param label unique label for new volume
+     * @return future new volume
+     */
+    public CompletableFuture<Volume> cloneVolume(int volumeId, String label) {
+        return this.postFor(Volume.class, new Query("label", label), "volumes/{vid}", volumeId);
+    }
+
+// Regions
+
+    /**
+     * Get all Linode regions.
+     *
+     * <p>
+     * Pages after the first are loaded concurrently.
+     *
+     * @param maxResults limit on the number of results returned, or zero for no limit
+     * @param filter filter for returned values, or null for no filter
+     * @return future mutable list of all regions matching {@code filter}
+     * @throws IllegalArgumentException if {@code maxResults} is negative
+     */
+    public CompletableFuture<List<Region>> getRegions(int maxResults, Filter filter) {
+        return this.getAll(Regions.class, maxResults, filter, "regions");
+    }
+
+    /**
+     * Get one page of Linode regions.
+     *
+     * @param filter filter for returned values, or null for no filter
+     * @param page page number (the first page is number one)
+     * @return future page of regions
+     * @throws IllegalArgumentException if {@code page} is less than one
+     */
+    public CompletableFuture<Regions> getRegionsPage(Filter filter, int page) {
+        return this.getPage(Regions.class, filter, page, "regions");
+    }
+
+    /**
+     * Get a Linode region.
+     *
+     * @param regionId region ID
+     * @return future specified region
+     * @throws IllegalArgumentException if {@code regionId} is null
+     */
+    public CompletableFuture<Region> getRegion(String regionId) {
+        if (regionId == null)
+            throw new IllegalArgumentException("null regionId");
+        return this.get(Region.class, "regions/{id}", regionId);
+    }
+
+// Images
+
+    /**
+     * Get all images.
+     *
+     * <p>
+     * Pages after the first are loaded concurrently.
+     *
+     * @param maxResults limit on the number of results returned, or zero for no limit
+     * @param filter filter for returned values, or null for no filter
+     * @return future mutable list of all images matching {@code filter}
+     * @throws IllegalArgumentException if {@code maxResults} is negative
+     */
+    public CompletableFuture<List<Image>> getImages(int maxResults, Filter filter) {
+        return this.getAll(Images.class, maxResults, filter, "images");
+    }
+
+    /**
+     * Get one page of images.
+     *
+     * @param filter filter for returned values, or null for no filter
+     * @param page page number (the first page is number one)
+     * @return future page of images
+     * @throws IllegalArgumentException if {@code page} is less than one
+     */
+    public CompletableFuture<Images> getImagesPage(Filter filter, int page) {
+        return this.getPage(Images.class, filter, page, "images");
+    }
+
+    /**
+     * Get an image.
+     *
+     * @param imageId image ID
+     * @return future specified image
+     * @throws IllegalArgumentException if {@code imageId} is null
+     */
+    public CompletableFuture<Image> getImage(String imageId) {
+        if (imageId == null)
+            throw new IllegalArgumentException("null imageId");
+        return this.get(Image.class, "images/{id}", imageId);
+    }
+
+    /**
+     * Create an image.
+     *
+     * @param request image info
+     * @return future newly created image
+     * @throws IllegalArgumentException if {@code request} is null
+     */
+    public CompletableFuture<Image> createImage(CreateImageRequest request) {
+        if (request == null)
+            throw new IllegalArgumentException("null request");
+        return this.postFor(Image.class, request, "images");
+    }
+
+    /**
+     * Delete an image.
+     *
+     * @param imageId image ID
+     * @return future completion
+     */
+    public CompletableFuture<Void> deleteImage(int imageId) {
+        return this.delete("linode/images/{id}", imageId);
+    }
+
+// Internal methods
+
+    /**
+     * Query a resource via GET.
+     *
+     * @param responseType response type
+     * @param pathTemplate resource URI path (relative)
+     * @param templateParameters parameter values for parameters in {@code pathTemplate}
+     * @param <R> response type
+     * @return future response from query
+     * @throws IllegalArgumentException if {@code responseType} or {@code pathTemplate} is null
+     */
+    protected <R> CompletableFuture<R> get(Class<R> responseType, String pathTemplate, Object... templateParameters) {
+
+        // Sanity check
+        if (responseType == null)
+            throw new IllegalArgumentException("null responseType");
+        if (pathTemplate == null)
+            throw new IllegalArgumentException("null pathTemplate");
+
+        // Perform query
+        final URI uri = this.buildURI(pathTemplate, templateParameters);
+        return this.hedge(uri, () -> this.query(art -> art.getForEntity(uri, responseType)));
+    }
+
+    /**
+     * POST to a resource.
+     *
+     * @param request request object
+     * @param pathTemplate resource URI path (relative)
+     * @param templateParameters parameter values for parameters in {@code pathTemplate}
+     * @return future completion
+     * @throws IllegalArgumentException if any parameter is null
+     */
+    protected CompletableFuture<Void> post(Object request, String pathTemplate, Object... templateParameters) {
+        return this.postFor(String.class, request, pathTemplate, templateParameters).thenApply(response -> null);
+    }
+
+    /**
+     * POST to a resource expecting response.
+     *
+     * @param responseType response type
+     * @param request request object
+     * @param pathTemplate resource URI path (relative)
+     * @param templateParameters parameter values for parameters in {@code pathTemplate}
+     * @param <R> response type
+     * @return future returned response
+     * @throws IllegalArgumentException if any parameter is null
+     */
+    protected <R> CompletableFuture<R> postFor(Class<R> responseType,
+      Object request, String pathTemplate, Object... templateParameters) {
+
+        // Sanity check
+        if (responseType == null)
+            throw new IllegalArgumentException("null responseType");
+        if (request == null)
+            throw new IllegalArgumentException("null request");
+        if (pathTemplate == null)
+            throw new IllegalArgumentException("null pathTemplate");
+
+        // Perform query
+        return this.query(art -> art.postForEntity(this.buildURI(pathTemplate, templateParameters),
+          new HttpEntity<Object>(request), responseType));
+    }
+
+    /**
+     * PUT a resource.
+     *
+     * @param request request object
+     * @param pathTemplate resource URI path (relative)
+     * @param templateParameters parameter values for parameters in {@code pathTemplate}
+     * @return future completion
+     * @throws IllegalArgumentException if any parameter is null
+     */
+    protected CompletableFuture<Void> put(Object request, String pathTemplate, Object... templateParameters) {
+
+        // Sanity check
+        if (request == null)
+            throw new IllegalArgumentException("null request");
+        if (pathTemplate == null)
+            throw new IllegalArgumentException("null pathTemplate");
+
+        // Perform query
+        return this.submit(art -> art.put(this.buildURI(pathTemplate, templateParameters), new HttpEntity<Object>(request)));
+    }
+
+    /**
+     * DELETE a resource.
+     *
+     * @param pathTemplate resource URI path (relative)
+     * @param templateParameters parameter values for parameters in {@code pathTemplate}
+     * @return future completion
+     * @throws IllegalArgumentException if any parameter is null
+     */
+    protected CompletableFuture<Void> delete(String pathTemplate, Object... templateParameters) {
+
+        // Sanity check
+        if (pathTemplate == null)
+            throw new IllegalArgumentException("null pathTemplate");
+
+        // Perform query
+        return this.submit(art -> art.delete(this.buildURI(pathTemplate, templateParameters)));
+    }
+
+    /**
+     * Get all instances of the specified type, by querying for and aggreating however many pages there are.
+     *
+     * <p>
+     * After the first page is received, the remaining pages (up to {@code maxResults}) are requested concurrently,
+     * with at most {@link #getMaxPagesInFlight} requests outstanding at any time. If any page fails to load, or the
+     * returned future is cancelled, the outstanding page requests (including the request for the first page, if still
+     * in progress) are cancelled and no more pages are requested.
+     *
+     * @param responseType paginated response type
+     * @param maxResults limit on the number of results returned, or zero for no limit
+     * @param filter filter for returned values, or null for no filter
+     * @param pathTemplate resource URI path (relative)
+     * @param templateParameters parameter values for parameters in {@code pathTemplate}
+     * @param <T> item type
+     * @param <P> paginated response type
+     * @return future combined results from all pages
+     * @throws IllegalArgumentException if {@code responseType}, {@code pathTemplate}, or {@code templateParameters} is null
+     * @throws IllegalArgumentException if {@code maxResults} is negative
+     */
+    protected <T, P extends Paginated<T>> CompletableFuture<List<T>> getAll(Class<P> responseType,
+      int maxResults, Filter filter, String pathTemplate, Object... templateParameters) {
+
+        // Sanity check
+        if (maxResults < 0)
+            throw new IllegalArgumentException("maxResults < 0");
+        final int limit = maxResults == 0 ? Integer.MAX_VALUE : maxResults;
+
+        // Get first page, then the remaining pages concurrently, at our priority even though they're requested from callbacks
+        final int maxInFlight = this.getMaxPagesInFlight();
+        final LinodeApiPriority priority = LinodeApiPriority.current();
+        final Object event = LinodeApiEvents.beginAggregation();
+        final CompletableFuture<List<T>> result = new CompletableFuture<>();
+        final AtomicReference<PageCollector<T, P>> collectorRef = new AtomicReference<>();
+        final CompletableFuture<P> firstPageFuture = this.getPage(responseType, filter, 1, pathTemplate, templateParameters);
+        firstPageFuture.whenComplete((firstPage, e) -> {
+            if (e != null) {
+                result.completeExceptionally(e);
+                return;
+            }
+            if (result.isDone())                                        // cancelled already
+                return;
+            final PageCollector<T, P> collector;
+            try {
+                collector = new PageCollector<>(result, firstPage, this.getNumPagesToLoad(firstPage, limit), limit,
+                  page -> LinodeApiPriority.supply(priority,
+                    () -> this.getPage(responseType, filter, page, pathTemplate, templateParameters)));
+            } catch (RuntimeException e2) {
+                result.completeExceptionally(e2);
+                return;
+            }
+            collectorRef.set(collector);
+            collector.start(maxInFlight);
+        });
+
+        // When the result completes for any reason, including cancellation by the caller, stop loading pages
+        result.whenComplete((list, e) -> {
+            firstPageFuture.cancel(true);
+            final PageCollector<T, P> collector = collectorRef.get();
+            this.reportAggregation(event, pathTemplate, templateParameters,
+              collector != null ? collector.getNumLoaded() : 0, list != null ? list.size() : 0, e == null);
+        });
+        return result;
+    }
+
+    /**
+     * Query a paginated resource via GET.
+     *
+     * @param responseType paginated response type
+     * @param filter filter for returned values, or null for no filter
+     * @param page page number (the first page is number one)
+     * @param pathTemplate resource URI path (relative)
+     * @param templateParameters parameter values for parameters in {@code pathTemplate}
+     * @param <T> item type
+     * @param <P> paginated response type
+     * @return future response from query
+     * @throws IllegalArgumentException if {@code page} is less than one
+     * @throws IllegalArgumentException if {@code responseType}, {@code pathTemplate}, or {@code templateParameters} is null
+     */
+    protected <T, P extends Paginated<T>> CompletableFuture<P> getPage(Class<P> responseType, Filter filter,
+      int page, String pathTemplate, Object... templateParameters) {
+
+        // Sanity check
+        if (responseType == null)
+            throw new IllegalArgumentException("null responseType");
+        if (pathTemplate == null)
+            throw new IllegalArgumentException("null pathTemplate");
+        if (templateParameters == null)
+            throw new IllegalArgumentException("null templateParameters");
+        if (page < 1)
+            throw new IllegalArgumentException("page < 1");
+
+        // Perform query
+        final URI uri = this.buildURI(pathTemplate, templateParameters, "page", page);
+        final LinkedMultiValueMap<String, String> headers = new LinkedMultiValueMap<>();
+        if (filter != null)
+            headers.add(Constants.FILTER_HEADER, filter.toJson());
+        final HttpEntity<Void> request = new HttpEntity<Void>(headers);
+        return this.hedge(uri, () -> this.query(art -> art.exchange(uri, HttpMethod.GET, request, responseType)));
+    }
+
+    /**
+     * Perform a GET request, sending a duplicate request if it is slow according to the configured
+     * {@linkplain #setHedgingPolicy hedging policy}, and completing with whichever response arrives first.
+     *
+     * <p>
+     * If hedging is not configured, this just returns the future from {@code action}.
+     *
+     * @param uri URI of the request
+     * @param action action that initiates the request
+     * @param <R> response type
+     * @return future response from the first attempt to succeed
+     * @throws IllegalArgumentException if either parameter is null
+     */
+    protected <R> CompletableFuture<R> hedge(URI uri, Supplier<CompletableFuture<R>> action) {
+
+        // Sanity check
+        if (uri == null)
+            throw new IllegalArgumentException("null uri");
+        if (action == null)
+            throw new IllegalArgumentException("null action");
+
+        // Is hedging enabled?
+        final LinodeApiHedgingPolicy policy = this.hedgingPolicy;
+        final ScheduledExecutorService scheduler = this.hedgingScheduler;
+        if (policy == null || scheduler == null)
+            return action.get();
+        final String endpoint = LinodeApiRateLimiter.getEndpointClass(HttpMethod.GET, uri);
+        final long delay = policy.startRequest(endpoint, TimeUnit.NANOSECONDS);
+
+        // Send the request; the first attempt to succeed (or the last to fail) wins, and the others are cancelled.
+        // A duplicate request counts against the budget until both attempts have finished.
+        final LinodeApiPriority priority = LinodeApiPriority.current();
+        final CompletableFuture<R> result = new CompletableFuture<>();
+        final AtomicInteger remaining = new AtomicInteger(1);
+        final AtomicInteger running = new AtomicInteger(1);
+        final AtomicBoolean won = new AtomicBoolean();
+        final AtomicBoolean hedged = new AtomicBoolean();
+        final List<CompletableFuture<R>> attempts = new CopyOnWriteArrayList<>();
+        final Consumer<Boolean> send = duplicate -> {
+            final long startTime = System.nanoTime();
+            CompletableFuture<R> attempt;
+            try {
+                attempt = LinodeApiPriority.supply(priority, action);
+            } catch (RuntimeException e) {
+                attempt = new CompletableFuture<>();
+                attempt.completeExceptionally(e);
+            }
+            attempts.add(attempt);
+            attempt.whenComplete((response, e) -> {
+                if (e == null) {
+                    policy.recordLatency(endpoint, System.nanoTime() - startTime);
+                    if (won.compareAndSet(false, true)) {
+                        if (duplicate)
+                            policy.hedgeWon();
+                        result.complete(response);
+                    }
+                } else if (remaining.decrementAndGet() == 0)
+                    result.completeExceptionally(e);
+                if (running.decrementAndGet() == 0 && hedged.get())
+                    policy.hedgeFinished();
+            });
+            if (result.isDone())
+                attempt.cancel(true);
+        };
+        send.accept(false);
+        result.whenComplete((response, e) -> attempts.forEach(attempt -> attempt.cancel(true)));
+
+        // If the response is too slow, send a duplicate request (at the caller's priority) if the budget allows
+        if (delay >= 0 && !result.isDone()) {
+            final ScheduledFuture<?> timer = scheduler.schedule(() -> {
+                if (result.isDone())
+                    return;
+                running.incrementAndGet();
+                if (policy.tryHedge()) {
+                    hedged.set(true);
+                    remaining.incrementAndGet();
+                    send.accept(true);
+                } else
+                    running.decrementAndGet();
+            }, delay, TimeUnit.NANOSECONDS);
+            result.whenComplete((response, e) -> timer.cancel(false));
+        }
+        return result;
+    }
+
+    /**
+     * Talk to Linode.
+     *
+     * @param executor query executor
+     * @return future completion
+     * @throws IllegalArgumentException if {@code executor} is null
+     */
+    protected CompletableFuture<Void> submit(Function<AsyncRestTemplate, ListenableFuture<?>> executor) {
+
+        // Sanity check
+        if (executor == null)
+            throw new IllegalArgumentException("null executor");
+
+        // Send request
+        return this.adapt(executor, response -> null);
+    }
+
+    /**
+     * Talk to Linode and get some response.
+     *
+     * <p>
+     * The returned future completes exceptionally with a {@link LinodeApiException} if an error occurs
+     * or a null response is received.
+     *
+     * @param executor query executor
+     * @param <R> response type
+     * @return future response received, never null
+     * @throws IllegalArgumentException if {@code executor} is null
+     */
+    protected <R> CompletableFuture<R> query(Function<AsyncRestTemplate, ListenableFuture<ResponseEntity<R>>> executor) {
+
+        // Sanity check
+        if (executor == null)
+            throw new IllegalArgumentException("null executor");
+
+        // Send request
+        return this.adapt(executor, response -> {
+            final R body = response != null ? response.getBody() : null;
+            if (body == null) {
+                this.log.error("rec'd null response from Linode API request");
+                throw new LinodeApiException("rec'd null response from Linode API request");
+            }
+            return body;
+        });
+    }
+
+    /**
+     * Initiate a request and adapt the resulting {@link ListenableFuture} into a {@link CompletableFuture}.
+     *
+     * <p>
+     * Cancelling the returned future cancels the underlying request. If the underlying request is cancelled,
+     * the returned future completes exceptionally with the {@link CancellationException}.
+     */
+    private <F, R> CompletableFuture<R> adapt(
+      Function<AsyncRestTemplate, ? extends ListenableFuture<? extends F>> executor, Function<? super F, ? extends R> converter) {
+        final CompletableFuture<R> result = new CompletableFuture<>();
+
+        // Initiate request
+        final ListenableFuture<? extends F> future;
+        try {
+            future = executor.apply(this.asyncRestTemplate);
+        } catch (RestClientException e) {
+            result.completeExceptionally(this.wrapException(e));
+            return result;
+        }
+
+        // Propagate outcome
+        future.addCallback(response -> {
+            try {
+                result.complete(converter.apply(response));
+            } catch (LinodeApiException e) {
+                result.completeExceptionally(e);
+            }
+        }, e -> {
+            if (e instanceof CancellationException || future.isCancelled())
+                result.completeExceptionally(e);                    // cancellation is not an error; don't log or wrap it
+            else
+                result.completeExceptionally(this.wrapException(e));
+        });
+
+        // Propagate cancellation
+        result.whenComplete((response, e) -> {
+            if (result.isCancelled())
+                future.cancel(true);
+        });
+
+        // Done
+        return result;
+    }
+
+    /**
+     * Log an exception and convert it into a {@link LinodeApiException}, if not one already.
+     */
+    private LinodeApiException wrapException(Throwable e) {
+        while ((e instanceof ExecutionException || e instanceof CompletionException) && e.getCause() != null)
+            e = e.getCause();
+        if (e instanceof LinodeApiException)
+            return (LinodeApiException)e;
+        final Throwable cause = e instanceof RestClientException ? e.getCause() : e;
+        if (cause instanceof SocketException | cause instanceof NoHttpResponseException)
+            this.log.error("error sending Linode API request: " + e);
+        else
+            this.log.error("error sending Linode API request: " + e, e);
+        return new LinodeApiException("error sending Linode API request", e);
+    }
+
+// PageCollector
+
+    /**
+     * Loads and combines the pages after the first, keeping a bounded number of page requests in flight.
+     */
+    private static class PageCollector<T, P extends Paginated<T>> {
+
+        private final CompletableFuture<List<T>> result;
+        private final IntFunction<CompletableFuture<P>> loader;
+        private final int numPages;
+        private final int limit;
+        private final ArrayList<P> pages;
+        private final HashSet<CompletableFuture<P>> outstanding = new HashSet<>();
+
+        private int nextPage = 2;
+        private int numLoaded = 1;
+
+        PageCollector(CompletableFuture<List<T>> result, P firstPage, int numPages, int limit,
+          IntFunction<CompletableFuture<P>> loader) {
+            this.result = result;
+            this.numPages = numPages;
+            this.limit = limit;
+            this.loader = loader;
+            this.pages = new ArrayList<>(numPages);
+            this.pages.add(firstPage);
+            for (int i = 1; i < numPages; i++)
+                this.pages.add(null);
+            this.result.whenComplete((list, e) -> {
+                if (e != null)
+                    this.cancelOutstanding();
+            });
+        }
+
+        public synchronized int getNumLoaded() {
+            return this.numLoaded;
+        }
+
+        public void start(int maxInFlight) {
+            if (this.numPages == 1) {
+                this.complete();
+                return;
+            }
+            for (int i = 0; i < maxInFlight; i++)
+                this.loadNextPage();
+        }
+
+        private void loadNextPage() {
+
+            // Allocate the next page number, if any
+            final int pageNum;
+            synchronized (this) {
+                if (this.result.isDone() || this.nextPage > this.numPages)
+                    return;
+                pageNum = this.nextPage++;
+            }
+
+            // Request the page; when it arrives, either finish or request another page in its place
+            final CompletableFuture<P> future;
+            try {
+                future = this.loader.apply(pageNum);
+            } catch (RuntimeException e) {
+                this.result.completeExceptionally(e);
+                return;
+            }
+            final boolean cancel;
+            synchronized (this) {
+                this.outstanding.add(future);
+                cancel = this.result.isDone();                          // result may have completed since we checked
+            }
+            if (cancel) {
+                future.cancel(true);
+                return;
+            }
+            future.whenComplete((page, e) -> {
+                if (e != null) {
+                    this.result.completeExceptionally(e);
+                    return;
+                }
+                final boolean done;
+                synchronized (this) {
+                    this.outstanding.remove(future);
+                    this.pages.set(pageNum - 1, page);
+                    done = ++this.numLoaded == this.numPages;
+                }
+                if (done)
+                    this.complete();
+                else
+                    this.loadNextPage();
+            });
+        }
+
+        private void complete() {
+            final ArrayList<T> list = new ArrayList<>();
+            synchronized (this) {
+                for (P page : this.pages)
+                    list.addAll(page.getData());
+            }
+            if (list.size() > this.limit)
+                list.subList(this.limit, list.size()).clear();
+            this.result.complete(list);
+        }
+
+        private void cancelOutstanding() {
+            final ArrayList<CompletableFuture<P>> futures;
+            synchronized (this) {
+                futures = new ArrayList<>(this.outstanding);
+                this.outstanding.clear();
+            }
+            futures.forEach(future -> future.cancel(true));
+        }
+    }
+}
@@ -0,0 +1,136 @@
+
+/*
+ * Copyright (C) 2017 Archie L. Cobbs. All rights reserved.
+ */
+
+package org.dellroad.linode.apiv4.spring;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+import javax.annotation.concurrent.GuardedBy;
+
+/**
+ * Merges concurrent single-entity lookups by ID into batched queries.
+ *
+ * <p>
+ * The first caller to arrive opens a new batch and becomes its leader. Callers arriving while the batch is open
+ * join it. The leader closes the batch when the batch window expires or the batch reaches the maximum size,
+ * whichever comes first, and then loads all of the requested IDs with a single invocation of the configured loader.
+ * Each caller then receives its own result; IDs missing from the loader's result are reported as not found.
+ *
+ * @param <T> entity type
+ */
+class BatchLoader<T> {
+
+    private final Function<Set<Integer>, Map<Integer, T>> loader;
+    private final IntFunction<RuntimeException> notFound;
+
+    @GuardedBy("this")
+    private Map<Integer, CompletableFuture<T>> batch;
+
+    /**
+     * Constructor.
+     *
+     * @param loader loads a batch of IDs, returning the entities found keyed by ID
+     * @param notFound creates the exception reported for an ID that was not found
+     * @throws IllegalArgumentException if either parameter is null
+     */
+    BatchLoader(Function<Set<Integer>, Map<Integer, T>> loader, IntFunction<RuntimeException> notFound) {
+        if (loader == null)
+            throw new IllegalArgumentException("null loader");
+        if (notFound == null)
+            throw new IllegalArgumentException("null notFound");
+        this.loader = loader;
+        this.notFound = notFound;
+    }
+
+    /**
+     * Load the entity with the given ID as part of a batch.
+     *
+     * @param id entity ID
+     * @param window how long the leader of a batch waits for other callers to join it
+     * @param unit {@code window} units
+     * @param maxBatchSize maximum number of distinct IDs in a batch
+     * @return future result
+     * @throws IllegalArgumentException if {@code window} is negative or {@code maxBatchSize} is less than one
+     * @throws IllegalArgumentException if {@code unit} is null
+     */
+    CompletableFuture<T> load(int id, long window, TimeUnit unit, int maxBatchSize) {
+
+        // Sanity check
+        if (window < 0)
+            throw new IllegalArgumentException("window < 0");
+        if (unit == null)
+            throw new IllegalArgumentException("null unit");
+        if (maxBatchSize < 1)
+            throw new IllegalArgumentException("maxBatchSize < 1");
+
+        // Join the open batch, or open a new one
+        final Map<Integer, CompletableFuture<T>> myBatch;
+        final CompletableFuture<T> future;
+        final boolean leader;
+        synchronized (this) {
+            leader = this.batch == null;
+            if (leader)
+                this.batch = new LinkedHashMap<>();
+            myBatch = this.batch;
+            future = myBatch.computeIfAbsent(id, i -> new CompletableFuture<>());
+            if (myBatch.size() >= maxBatchSize) {
+                this.batch = null;
+                this.notifyAll();
+            }
+        }
+        if (!leader)
+            return future;
+
+        // We are the leader; wait for the window to expire or the batch to fill up
+        boolean interrupted = false;
+        synchronized (this) {
+            final long deadline = System.nanoTime() + unit.toNanos(window);
+            for (long remaining = unit.toNanos(window); this.batch == myBatch && remaining > 0;
+              remaining = deadline - System.nanoTime()) {
+                try {
+                    TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                    break;
+                }
+            }
+            if (this.batch == myBatch)
+                this.batch = null;
+        }
+
+        // Load the batch; after the batch is closed, no other thread modifies it
+        try {
+            this.loadBatch(myBatch);
+        } finally {
+            if (interrupted)
+                Thread.currentThread().interrupt();
+        }
+        return future;
+    }
+
+    private void loadBatch(Map<Integer, CompletableFuture<T>> futures) {
+        final Map<Integer, T> found;
+        try {
+            found = this.loader.apply(Collections.unmodifiableSet(futures.keySet()));
+        } catch (RuntimeException | Error e) {
+            futures.values().forEach(future -> future.completeExceptionally(e));
+            return;
+        }
+        futures.forEach((id, future) -> {
+            final T entity = found.get(id);
+            if (entity != null)
+                future.complete(entity);
+            else
+                future.completeExceptionally(this.notFound.apply(id));
+        });
+    }
+}
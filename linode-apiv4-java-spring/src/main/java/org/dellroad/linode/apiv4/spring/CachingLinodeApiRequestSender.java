@@ -0,0 +1,431 @@
+
+/*
+ * Copyright (C) 2017 Archie L. Cobbs. All rights reserved.
+ */
+
+package org.dellroad.linode.apiv4.spring;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import javax.annotation.concurrent.GuardedBy;
+
+import org.dellroad.linode.apiv4.filter.Filter;
+import org.dellroad.linode.apiv4.model.Image;
+import org.dellroad.linode.apiv4.model.Kernel;
+import org.dellroad.linode.apiv4.model.Region;
+import org.dellroad.linode.apiv4.model.Type;
+import org.dellroad.linode.apiv4.request.CreateImageRequest;
+import org.springframework.web.client.RestClientException;
+
+/**
+ * {@link LinodeApiRequestSender} that caches rarely changing reference data, namely regions, types, kernels, and images.
+ *
+ * <p>
+ * The first time one of these catalogs is needed, the whole catalog is loaded and cached. Unfiltered {@code getXxx()}
+ * list queries, and single-item {@code getXxx(id)} lookups, are then answered from the cache. Queries with a filter
+ * are always sent to the API, because filters can't be evaluated locally.
+ *
+ * <p>
+ * Each catalog has its own time-to-live. Once a cached catalog reaches the {@linkplain #setRefreshAhead refresh-ahead}
+ * fraction of its time-to-live, the next reader triggers a background refresh but does not wait for it, so readers
+ * only block when a catalog is loaded for the first time, or has fully expired, or has been
+ * {@linkplain #invalidateAll invalidated}. Images are invalidated automatically when an image is created or deleted
+ * via this instance.
+ *
+ * <p>
+ * Lists returned by this class are mutable copies, but the items in them are shared with the cache and so
+ * must not be modified.
+ */
+public class CachingLinodeApiRequestSender extends LinodeApiRequestSender {
+
+    /**
+     * Default time-to-live for regions, types, and kernels in milliseconds ({@value #DEFAULT_TIME_TO_LIVE}).
+     */
+    public static final long DEFAULT_TIME_TO_LIVE = 60 * 60 * 1000;
+
+    /**
+     * Default time-to-live for images in milliseconds ({@value #DEFAULT_IMAGES_TIME_TO_LIVE}).
+     */
+    public static final long DEFAULT_IMAGES_TIME_TO_LIVE = 10 * 60 * 1000;
+
+    /**
+     * Default refresh-ahead fraction ({@value #DEFAULT_REFRESH_AHEAD}).
+     */
+    public static final double DEFAULT_REFRESH_AHEAD = 0.75;
+
+    private final Catalog<Region> regions = new Catalog<>("regions", Region::getId,
+      () -> super.getRegions(null, 0, null), DEFAULT_TIME_TO_LIVE);
+    private final Catalog<Type> types = new Catalog<>("types", Type::getId,
+      () -> super.getTypes(null, 0, null), DEFAULT_TIME_TO_LIVE);
+    private final Catalog<Kernel> kernels = new Catalog<>("kernels", Kernel::getId,
+      () -> super.getKernels(null, 0, null), DEFAULT_TIME_TO_LIVE);
+    private final Catalog<Image> images = new Catalog<>("images", Image::getId,
+      () -> super.getImages(null, 0, null), DEFAULT_IMAGES_TIME_TO_LIVE);
+
+    private volatile double refreshAhead = DEFAULT_REFRESH_AHEAD;
+    private volatile Executor refreshExecutor;
+
+// Properties
+
+    /**
+     * Configure the time-to-live for cached regions. Default is {@value #DEFAULT_TIME_TO_LIVE}ms.
+     *
+     * @param ttl time-to-live in milliseconds, or zero to disable caching
+     * @throws IllegalArgumentException if {@code ttl} is negative
+     */
+    public void setRegionsTimeToLive(long ttl) {
+        this.regions.setTimeToLive(ttl);
+    }
+
+    /**
+     * Configure the time-to-live for cached types. Default is {@value #DEFAULT_TIME_TO_LIVE}ms.
+     *
+     * @param ttl time-to-live in milliseconds, or zero to disable caching
+     * @throws IllegalArgumentException if {@code ttl} is negative
+     */
+    public void setTypesTimeToLive(long ttl) {
+        this.types.setTimeToLive(ttl);
+    }
+
+    /**
+     * Configure the time-to-live for cached kernels. Default is {@value #DEFAULT_TIME_TO_LIVE}ms.
+     *
+     * @param ttl time-to-live in milliseconds, or zero to disable caching
+     * @throws IllegalArgumentException if {@code ttl} is negative
+     */
+    public void setKernelsTimeToLive(long ttl) {
+        this.kernels.setTimeToLive(ttl);
+    }
+
+    /**
+     * Configure the time-to-live for cached images. Default is {@value #DEFAULT_IMAGES_TIME_TO_LIVE}ms.
+     *
+     * @param ttl time-to-live in milliseconds, or zero to disable caching
+     * @throws IllegalArgumentException if {@code ttl} is negative
+     */
+    public void setImagesTimeToLive(long ttl) {
+        this.images.setTimeToLive(ttl);
+    }
+
+    public double getRefreshAhead() {
+        return this.refreshAhead;
+    }
+
+    /**
+     * Configure the fraction of its time-to-live after which a cached catalog is refreshed in the background.
+     * Default is {@value #DEFAULT_REFRESH_AHEAD}.
+     *
+     * @param refreshAhead fraction of time-to-live, or 1.0 to disable background refresh
+     * @throws IllegalArgumentException if {@code refreshAhead} is not between 0.0 and 1.0
+     */
+    public void setRefreshAhead(double refreshAhead) {
+        if (!(refreshAhead >= 0.0 && refreshAhead <= 1.0))
+            throw new IllegalArgumentException("invalid refreshAhead");
+        this.refreshAhead = refreshAhead;
+    }
+
+    public Executor getRefreshExecutor() {
+        return this.refreshExecutor;
+    }
+
+    /**
+     * Configure the executor used for background refreshes.
+     *
+     * <p>
+     * If none is configured, each background refresh runs in a new daemon thread.
+     *
+     * @param refreshExecutor executor for background refreshes, or null for the default
+     */
+    public void setRefreshExecutor(Executor refreshExecutor) {
+        this.refreshExecutor = refreshExecutor;
+    }
+
+// Invalidation
+
+    /**
+     * Discard all cached data.
+     */
+    public void invalidateAll() {
+        this.regions.invalidate();
+        this.types.invalidate();
+        this.kernels.invalidate();
+        this.images.invalidate();
+    }
+
+    /**
+     * Discard cached regions.
+     */
+    public void invalidateRegions() {
+        this.regions.invalidate();
+    }
+
+    /**
+     * Discard cached types.
+     */
+    public void invalidateTypes() {
+        this.types.invalidate();
+    }
+
+    /**
+     * Discard cached kernels.
+     */
+    public void invalidateKernels() {
+        this.kernels.invalidate();
+    }
+
+    /**
+     * Discard cached images.
+     */
+    public void invalidateImages() {
+        this.images.invalidate();
+    }
+
+// Regions
+
+    @Override
+    public List<Region> getRegions(AsyncExecutor executor, int maxResults, Filter filter) throws InterruptedException {
+        if (filter != null || !this.regions.isEnabled())
+            return super.getRegions(executor, maxResults, filter);
+        return CachingLinodeApiRequestSender.copy(this.regions.getList(), maxResults);
+    }
+
+    @Override
+    public Region getRegion(String regionId) {
+        if (regionId == null)
+            throw new IllegalArgumentException("null regionId");
+        final Region region = this.regions.getItem(regionId);
+        return region != null ? region : super.getRegion(regionId);
+    }
+
+// Types
+
+    @Override
+    public List<Type> getTypes(AsyncExecutor executor, int maxResults, Filter filter) throws InterruptedException {
+        if (filter != null || !this.types.isEnabled())
+            return super.getTypes(executor, maxResults, filter);
+        return CachingLinodeApiRequestSender.copy(this.types.getList(), maxResults);
+    }
+
+    @Override
+    public Type getType(String typeId) {
+        if (typeId == null)
+            throw new IllegalArgumentException("null typeId");
+        final Type type = this.types.getItem(typeId);
+        return type != null ? type : super.getType(typeId);
+    }
+
+// Kernels
+
+    @Override
+    public List<Kernel> getKernels(AsyncExecutor executor, int maxResults, Filter filter) throws InterruptedException {
+        if (filter != null || !this.kernels.isEnabled())
+            return super.getKernels(executor, maxResults, filter);
+        return CachingLinodeApiRequestSender.copy(this.kernels.getList(), maxResults);
+    }
+
+    @Override
+    public Kernel getKernel(String kernelId) {
+        if (kernelId == null)
+            throw new IllegalArgumentException("null kernelId");
+        final Kernel kernel = this.kernels.getItem(kernelId);
+        return kernel != null ? kernel : super.getKernel(kernelId);
+    }
+
+// Images
+
+    @Override
+    public List<Image> getImages(AsyncExecutor executor, int maxResults, Filter filter) throws InterruptedException {
+        if (filter != null || !this.images.isEnabled())
+            return super.getImages(executor, maxResults, filter);
+        return CachingLinodeApiRequestSender.copy(this.images.getList(), maxResults);
+    }
+
+    @Override
+    public Image getImage(String imageId) {
+        if (imageId == null)
+            throw new IllegalArgumentException("null imageId");
+        final Image image = this.images.getItem(imageId);
+        return image != null ? image : super.getImage(imageId);
+    }
+
+    @Override
+    public Image updateLinodeDiskPassword(int diskId, CreateImageRequest request) {
+        try {
+            return super.updateLinodeDiskPassword(diskId, request);
+        } finally {
+            this.images.invalidate();
+        }
+    }
+
+    @Override
+    public void deleteImage(int imageId) {
+        try {
+            super.deleteImage(imageId);
+        } finally {
+            this.images.invalidate();
+        }
+    }
+
+// Internal methods
+
+    private static <T> List<T> copy(List<T> list, int maxResults) {
+        if (maxResults < 0)
+            throw new IllegalArgumentException("maxResults < 0");
+        return new ArrayList<>(maxResults > 0 && maxResults < list.size() ? list.subList(0, maxResults) : list);
+    }
+
+    private void refreshInBackground(Runnable refresh) {
+        final Executor executor = this.refreshExecutor;
+        if (executor != null) {
+            executor.execute(refresh);
+            return;
+        }
+        final Thread thread = new Thread(refresh, "Linode API cache refresh");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+// Catalog
+
+    /**
+     * One cached catalog.
+     */
+    private final class Catalog<T> {
+
+        private final String name;
+        private final Function<T, String> idFunction;
+        private final Callable<List<T>> loader;
+
+        private volatile long timeToLive;
+
+        @GuardedBy("this")
+        private Snapshot<T> snapshot;
+        @GuardedBy("this")
+        private long loadTime;
+        @GuardedBy("this")
+        private long generation;
+        @GuardedBy("this")
+        private boolean refreshing;
+
+        Catalog(String name, Function<T, String> idFunction, Callable<List<T>> loader, long timeToLive) {
+            this.name = name;
+            this.idFunction = idFunction;
+            this.loader = loader;
+            this.timeToLive = timeToLive;
+        }
+
+        void setTimeToLive(long timeToLive) {
+            if (timeToLive < 0)
+                throw new IllegalArgumentException("timeToLive < 0");
+            this.timeToLive = timeToLive;
+            this.invalidate();
+        }
+
+        boolean isEnabled() {
+            return this.timeToLive > 0;
+        }
+
+        List<T> getList() throws InterruptedException {
+            return this.getSnapshot().list;
+        }
+
+        T getItem(String id) {
+            if (!this.isEnabled())
+                return null;
+            try {
+                return this.getSnapshot().map.get(id);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RestClientException("interrupted while loading " + this.name, e);
+            }
+        }
+
+        synchronized void invalidate() {
+            this.snapshot = null;
+            this.generation++;
+            this.refreshing = false;
+        }
+
+        /**
+         * Get the current catalog, loading it synchronously if necessary, and start a background refresh if due.
+         */
+        private synchronized Snapshot<T> getSnapshot() throws InterruptedException {
+            final long ttl = TimeUnit.MILLISECONDS.toNanos(this.timeToLive);
+            final long age = System.nanoTime() - this.loadTime;
+            if (this.snapshot != null && age < ttl) {
+                if (!this.refreshing && age >= (long)(ttl * CachingLinodeApiRequestSender.this.refreshAhead)) {
+                    this.refreshing = true;
+                    final long expectedGeneration = this.generation;
+                    CachingLinodeApiRequestSender.this.refreshInBackground(() -> this.refresh(expectedGeneration));
+                }
+                return this.snapshot;
+            }
+            this.install(this.load());
+            return this.snapshot;
+        }
+
+        private void refresh(long expectedGeneration) {
+            final List<T> newList;
+            try {
+                newList = this.load();
+            } catch (InterruptedException | RuntimeException e) {
+                CachingLinodeApiRequestSender.this.log.warn("background refresh of cached {} failed: {}",
+                  this.name, e.toString());
+                synchronized (this) {
+                    if (this.generation == expectedGeneration)
+                        this.refreshing = false;
+                }
+                return;
+            }
+            synchronized (this) {
+                if (this.generation == expectedGeneration)
+                    this.install(newList);
+            }
+        }
+
+        private List<T> load() throws InterruptedException {
+            CachingLinodeApiRequestSender.this.log.debug("loading {} into cache", this.name);
+            try {
+                return this.loader.call();
+            } catch (InterruptedException | RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new RestClientException("error loading " + this.name, e);
+            }
+        }
+
+        @GuardedBy("this")
+        private void install(List<T> newList) {
+            final HashMap<String, T> newMap = new HashMap<>(newList.size());
+            for (T item : newList)
+                newMap.put(this.idFunction.apply(item), item);
+            this.snapshot = new Snapshot<>(newList, newMap);
+            this.loadTime = System.nanoTime();
+            this.generation++;
+            this.refreshing = false;
+        }
+    }
+
+// Snapshot
+
+    /**
+     * Immutable snapshot of one cached catalog.
+     */
+    private static final class Snapshot<T> {
+
+        final List<T> list;
+        final Map<String, T> map;
+
+        Snapshot(List<T> list, Map<String, T> map) {
+            this.list = list;
+            this.map = map;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+
+/*
+ * Copyright (C) 2017 Archie L. Cobbs. All rights reserved.
+ */
+
+package org.dellroad.linode.apiv4.spring;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+import org.springframework.http.HttpRequest;
+
+/**
+ * Flight Recorder event for one HTTP exchange with the Linode API.
+ *
+ * <p>
+ * Only loaded if {@link LinodeApiEvents#AVAILABLE} is true.
+ */
+@Name("org.dellroad.linode.apiv4.HttpExchange")
+@Label("Linode API HTTP Exchange")
+@Category("Linode API")
+@Description("HTTP request/response exchange with the Linode API, timed until the response headers are received")
+final class HttpExchangeEvent extends Event {
+
+    @Label("Endpoint")
+    @Description("HTTP method and URI path with numeric ID's replaced by {id}")
+    String endpoint;
+
+    @Label("URI")
+    String uri;
+
+    @Label("Status")
+    @Description("HTTP response status code, or zero if no response was received")
+    int status;
+
+    @Label("Page")
+    @Description("Page number requested, or zero if not a paginated request")
+    int page;
+
+    @Label("Bytes Sent")
+    @DataAmount
+    long bytesSent;
+
+    @Label("Bytes Received")
+    @Description("Response body size according to Content-Length, or -1 if unknown")
+    @DataAmount
+    long bytesReceived;
+
+    static Object start() {
+        final HttpExchangeEvent event = new HttpExchangeEvent();
+        if (!event.isEnabled())
+            return null;
+        event.begin();
+        return event;
+    }
+
+    static void finish(Object obj, HttpRequest request, String endpoint, int statusCode, long bytesSent, long bytesReceived) {
+        final HttpExchangeEvent event = (HttpExchangeEvent)obj;
+        event.end();
+        if (!event.shouldCommit())
+            return;
+        event.endpoint = endpoint;
+        event.uri = String.valueOf(request.getURI());
+        event.status = statusCode;
+        event.page = HttpExchangeEvent.getPage(request.getURI().getRawQuery());
+        event.bytesSent = bytesSent;
+        event.bytesReceived = bytesReceived;
+        event.commit();
+    }
+
+    private static int getPage(String query) {
+        if (query == null)
+            return 0;
+        for (String param : query.split("&")) {
+            if (!param.startsWith("page="))
+                continue;
+            try {
+                return Integer.parseInt(param.substring(5));
+            } catch (NumberFormatException e) {
+                return 0;
+            }
+        }
+        return 0;
+    }
+}
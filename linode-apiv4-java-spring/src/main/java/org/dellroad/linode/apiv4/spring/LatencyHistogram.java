@@ -0,0 +1,153 @@
+
+/*
+ * Copyright (C) 2017 Archie L. Cobbs. All rights reserved.
+ */
+
+package org.dellroad.linode.apiv4.spring;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free latency histogram with logarithmic buckets.
+ *
+ * <p>
+ * Values are recorded with microsecond resolution into buckets whose width is one eighth of a power of two,
+ * so reported percentiles are accurate to within about 12.5%. Values from one microsecond up to about 25 days
+ * are supported; larger values are recorded in the last bucket.
+ *
+ * <p>
+ * Instances are thread safe.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_EXPONENT = 40;
+    private static final int NUM_BUCKETS = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(NUM_BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Record a value.
+     *
+     * @param duration duration in nanoseconds; negative values are treated as zero
+     */
+    public void record(long duration) {
+        final long micros = Math.max(TimeUnit.NANOSECONDS.toMicros(duration), 0);
+        this.counts.incrementAndGet(LatencyHistogram.bucketFor(micros));
+        this.count.incrementAndGet();
+        this.total.addAndGet(micros);
+        this.max.accumulateAndGet(micros, Math::max);
+    }
+
+    /**
+     * Get the number of values recorded.
+     *
+     * @return number of values
+     */
+    public long getCount() {
+        return this.count.get();
+    }
+
+    /**
+     * Get the mean of the recorded values.
+     *
+     * @param unit result time unit
+     * @return mean value, or zero if no values have been recorded
+     */
+    public double getMean(TimeUnit unit) {
+        final long n = this.count.get();
+        return n > 0 ? (double)unit.convert(this.total.get(), TimeUnit.MICROSECONDS) / n : 0.0;
+    }
+
+    /**
+     * Get the maximum recorded value.
+     *
+     * @param unit result time unit
+     * @return maximum value, or zero if no values have been recorded
+     */
+    public long getMax(TimeUnit unit) {
+        return unit.convert(this.max.get(), TimeUnit.MICROSECONDS);
+    }
+
+    /**
+     * Get the given percentile of the recorded values.
+     *
+     * <p>
+     * The returned value is the upper bound of the bucket containing the percentile, capped at the maximum recorded value.
+     *
+     * @param percentile percentile between 0.0 and 100.0
+     * @param unit result time unit
+     * @return percentile value, or zero if no values have been recorded
+     * @throws IllegalArgumentException if {@code percentile} is out of range
+     */
+    public long getPercentile(double percentile, TimeUnit unit) {
+        return LatencyHistogram.getPercentile(percentile, unit, this);
+    }
+
+    @Override
+    public String toString() {
+        final TimeUnit ms = TimeUnit.MILLISECONDS;
+        return String.format("count=%d mean=%.1fms p50=%dms p90=%dms p99=%dms max=%dms", this.getCount(), this.getMean(ms),
+          this.getPercentile(50, ms), this.getPercentile(90, ms), this.getPercentile(99, ms), this.getMax(ms));
+    }
+
+// Internal methods
+
+    /**
+     * Get the given percentile of the values recorded in any of the given histograms, as if they were one histogram.
+     *
+     * @param percentile percentile between 0.0 and 100.0
+     * @param unit result time unit
+     * @param histograms histograms to combine
+     * @return percentile value, or zero if no values have been recorded
+     * @throws IllegalArgumentException if {@code percentile} is out of range
+     */
+    static long getPercentile(double percentile, TimeUnit unit, LatencyHistogram... histograms) {
+        if (!(percentile >= 0.0 && percentile <= 100.0))
+            throw new IllegalArgumentException("invalid percentile");
+        final long[] snapshot = new long[NUM_BUCKETS];
+        long n = 0;
+        long max = 0;
+        for (LatencyHistogram histogram : histograms) {
+            for (int i = 0; i < NUM_BUCKETS; i++) {
+                final long count = histogram.counts.get(i);
+                snapshot[i] += count;
+                n += count;
+            }
+            max = Math.max(max, histogram.max.get());
+        }
+        if (n == 0)
+            return 0;
+        final long target = Math.max((long)Math.ceil(n * percentile / 100.0), 1);
+        long seen = 0;
+        for (int i = 0; i < NUM_BUCKETS; i++) {
+            if ((seen += snapshot[i]) >= target)
+                return unit.convert(Math.min(LatencyHistogram.upperBound(i), max), TimeUnit.MICROSECONDS);
+        }
+        return unit.convert(max, TimeUnit.MICROSECONDS);
+    }
+
+    static int bucketFor(long value) {
+        if (value < SUB_BUCKETS)
+            return (int)value;
+        final int exponent = 63 - Long.numberOfLeadingZeros(value);
+        if (exponent > MAX_EXPONENT)
+            return NUM_BUCKETS - 1;
+        final int subBucket = (int)(value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS)
+            return bucket;
+        final int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        final long subBucket = bucket % SUB_BUCKETS;
+        return ((SUB_BUCKETS + subBucket + 1) << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+}
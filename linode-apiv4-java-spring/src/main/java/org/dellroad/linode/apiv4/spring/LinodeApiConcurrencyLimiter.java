@@ -0,0 +1,724 @@
+
+/*
+ * Copyright (C) 2017 Archie L. Cobbs. All rights reserved.
+ */
+
+package org.dellroad.linode.apiv4.spring;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.annotation.concurrent.GuardedBy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.AsyncClientHttpRequestExecution;
+import org.springframework.http.client.AsyncClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.util.concurrent.ListenableFuture;
+import org.springframework.util.concurrent.SettableListenableFuture;
+
+/**
+ * Adaptive limit on the number of concurrent Linode API requests.
+ *
+ * <p>
+ * The limit is adjusted using AIMD (additive increase, multiplicative decrease): each successful exchange raises
+ * the limit by one divided by the current limit, i.e., by about one per round trip's worth of requests, while an
+ * exchange that indicates congestion multiplies the limit by the {@linkplain #setBackoffRatio backoff ratio}.
+ * An exchange indicates congestion if it fails with an I/O error, the server responds with HTTP 429 or any 5xx
+ * status, or its latency exceeds the {@linkplain #setLatencyTolerance latency tolerance} times the average latency
+ * previously observed for the same endpoint class (as defined by {@link LinodeApiRateLimiter}). The limit is decreased
+ * at most once per round trip, i.e., congestion reported by requests sent before the most recent decrease is ignored.
+ *
+ * <p>
+ * The limit always stays between the {@linkplain #setMinLimit minimum} and {@linkplain #setMaxLimit maximum}.
+ * The maximum should be the {@linkplain LinodeApiHttpRequestFactory#setMaxSimultaneousRequests size of the
+ * connection pool}, so the client never goes faster than before, but backs off on its own when the API is
+ * struggling and comes back up when it recovers.
+ *
+ * <p>
+ * A request holds its slot until its response is closed. Synchronous callers that can't obtain a slot immediately
+ * wait for one; asynchronous requests are queued without tying up a thread. Either way, if a request waits longer
+ * than the {@linkplain #setQueueTimeout queue timeout}, a {@link LinodeApiException} is thrown; asynchronous requests
+ * are timed out by a background thread, so the timeout is enforced even if no other requests complete.
+ *
+ * <p>
+ * Cancelling the future returned for an asynchronous request removes it from the queue if it is still waiting,
+ * or cancels the underlying exchange and releases its slot if it has already been sent.
+ *
+ * <p>
+ * Waiting requests are sent in order of their {@link LinodeApiPriority}, and in order of arrival within the same
+ * priority. To prevent starvation, a request that has been waiting longer than the {@linkplain #setStarvationTimeout
+ * starvation timeout} is sent next, regardless of its priority.
+ *
+ * <p>
+ * To use, add an instance to the {@link org.springframework.web.client.RestTemplate}'s list of
+ * {@linkplain org.springframework.web.client.RestTemplate#setInterceptors interceptors} and/or the
+ * {@link org.springframework.web.client.AsyncRestTemplate}'s list of
+ * {@linkplain org.springframework.web.client.AsyncRestTemplate#setInterceptors interceptors}. If there is also
+ * a {@link LinodeApiRateLimiter}, add this interceptor after it, so that requests waiting for the rate limiter
+ * don't occupy a slot; if there is also a {@link LinodeApiMetricsInterceptor}, add this interceptor before it,
+ * so that time spent waiting for a slot is not counted as latency.
+ */
+public class LinodeApiConcurrencyLimiter implements ClientHttpRequestInterceptor, AsyncClientHttpRequestInterceptor,
+  DisposableBean {
+
+    /**
+     * Default maximum limit ({@value #DEFAULT_MAX_LIMIT}).
+     */
+    public static final int DEFAULT_MAX_LIMIT = LinodeApiHttpRequestFactory.DEFAULT_MAX_SIMULTANEOUS_REQUESTS;
+
+    /**
+     * Default minimum limit ({@value #DEFAULT_MIN_LIMIT}).
+     */
+    public static final int DEFAULT_MIN_LIMIT = 1;
+
+    /**
+     * Default factor applied to the limit on congestion ({@value #DEFAULT_BACKOFF_RATIO}).
+     */
+    public static final double DEFAULT_BACKOFF_RATIO = 0.75;
+
+    /**
+     * Default latency tolerance ({@value #DEFAULT_LATENCY_TOLERANCE}).
+     */
+    public static final double DEFAULT_LATENCY_TOLERANCE = 3.0;
+
+    /**
+     * Default maximum time to wait for a slot in milliseconds ({@value #DEFAULT_QUEUE_TIMEOUT}).
+     */
+    public static final long DEFAULT_QUEUE_TIMEOUT = 60_000;
+
+    /**
+     * Default time after which a waiting request is sent ahead of higher priority requests in milliseconds
+     * ({@value #DEFAULT_STARVATION_TIMEOUT}).
+     */
+    public static final long DEFAULT_STARVATION_TIMEOUT = 5_000;
+
+    private static final double LATENCY_AVERAGE_WEIGHT = 0.05;
+    private static final int LATENCY_WARMUP_SAMPLES = 10;
+
+    protected final Logger log = LoggerFactory.getLogger(this.getClass());
+
+    private final ConcurrentHashMap<String, LatencyAverage> latencies = new ConcurrentHashMap<>();
+
+    @GuardedBy("this")
+    private final EnumMap<LinodeApiPriority, ArrayDeque<Waiter>> queues = new EnumMap<>(LinodeApiPriority.class);
+    @GuardedBy("this")
+    private int numWaiters;
+    @GuardedBy("this")
+    private int maxLimit = DEFAULT_MAX_LIMIT;
+    @GuardedBy("this")
+    private int minLimit = DEFAULT_MIN_LIMIT;
+    @GuardedBy("this")
+    private double limit = DEFAULT_MAX_LIMIT;
+    @GuardedBy("this")
+    private int inFlight;
+    @GuardedBy("this")
+    private long lastDecrease = System.nanoTime();
+    @GuardedBy("this")
+    private ScheduledThreadPoolExecutor timer;
+    @GuardedBy("this")
+    private boolean destroyed;
+
+    private volatile double backoffRatio = DEFAULT_BACKOFF_RATIO;
+    private volatile double latencyTolerance = DEFAULT_LATENCY_TOLERANCE;
+    private volatile long queueTimeout = DEFAULT_QUEUE_TIMEOUT;
+    private volatile long starvationTimeout = DEFAULT_STARVATION_TIMEOUT;
+
+    /**
+     * Constructor.
+     */
+    public LinodeApiConcurrencyLimiter() {
+        for (LinodeApiPriority priority : LinodeApiPriority.values())
+            this.queues.put(priority, new ArrayDeque<>());
+    }
+
+// Properties
+
+    /**
+     * Configure the maximum limit. Default is {@value #DEFAULT_MAX_LIMIT}.
+     *
+     * <p>
+     * This also resets the current limit to the new maximum.
+     *
+     * @param maxLimit maximum number of concurrent requests
+     * @throws IllegalArgumentException if {@code maxLimit} is zero or negative
+     */
+    public synchronized void setMaxLimit(int maxLimit) {
+        if (maxLimit < 1)
+            throw new IllegalArgumentException("maxLimit < 1");
+        this.maxLimit = maxLimit;
+        this.minLimit = Math.min(this.minLimit, maxLimit);
+        this.limit = maxLimit;
+    }
+
+    /**
+     * Configure the minimum limit. Default is {@value #DEFAULT_MIN_LIMIT}.
+     *
+     * @param minLimit minimum number of concurrent requests
+     * @throws IllegalArgumentException if {@code minLimit} is zero or negative
+     */
+    public synchronized void setMinLimit(int minLimit) {
+        if (minLimit < 1)
+            throw new IllegalArgumentException("minLimit < 1");
+        this.minLimit = minLimit;
+        this.maxLimit = Math.max(this.maxLimit, minLimit);
+        this.limit = Math.max(this.limit, minLimit);
+    }
+
+    /**
+     * Configure the factor by which the limit is multiplied when congestion is detected.
+     * Default is {@value #DEFAULT_BACKOFF_RATIO}.
+     *
+     * @param backoffRatio backoff ratio
+     * @throws IllegalArgumentException if {@code backoffRatio} is not strictly between zero and one
+     */
+    public void setBackoffRatio(double backoffRatio) {
+        if (!(backoffRatio > 0.0 && backoffRatio < 1.0))
+            throw new IllegalArgumentException("invalid backoffRatio");
+        this.backoffRatio = backoffRatio;
+    }
+
+    /**
+     * Configure how many times slower than the average latency for its endpoint class an exchange must be
+     * to be considered a sign of congestion. Default is {@value #DEFAULT_LATENCY_TOLERANCE}.
+     *
+     * @param latencyTolerance latency tolerance, or zero to ignore latency
+     * @throws IllegalArgumentException if {@code latencyTolerance} is negative, or positive but not greater than one
+     */
+    public void setLatencyTolerance(double latencyTolerance) {
+        if (!(latencyTolerance == 0.0 || latencyTolerance > 1.0))
+            throw new IllegalArgumentException("invalid latencyTolerance");
+        this.latencyTolerance = latencyTolerance;
+    }
+
+    /**
+     * Configure the maximum time a request will wait for a slot. Default is {@value #DEFAULT_QUEUE_TIMEOUT}ms.
+     *
+     * @param queueTimeout timeout in milliseconds
+     * @throws IllegalArgumentException if {@code queueTimeout} is negative
+     */
+    public void setQueueTimeout(long queueTimeout) {
+        if (queueTimeout < 0)
+            throw new IllegalArgumentException("queueTimeout < 0");
+        this.queueTimeout = queueTimeout;
+    }
+
+    /**
+     * Configure how long a request may wait before it is sent ahead of higher priority requests.
+     * Default is {@value #DEFAULT_STARVATION_TIMEOUT}ms.
+     *
+     * @param starvationTimeout starvation timeout in milliseconds
+     * @throws IllegalArgumentException if {@code starvationTimeout} is negative
+     */
+    public void setStarvationTimeout(long starvationTimeout) {
+        if (starvationTimeout < 0)
+            throw new IllegalArgumentException("starvationTimeout < 0");
+        this.starvationTimeout = starvationTimeout;
+    }
+
+// Status
+
+    /**
+     * Get the current limit.
+     *
+     * @return current maximum number of concurrent requests
+     */
+    public synchronized int getLimit() {
+        return (int)this.limit;
+    }
+
+    /**
+     * Get the number of requests currently holding a slot.
+     *
+     * @return number of requests in flight
+     */
+    public synchronized int getInFlight() {
+        return this.inFlight;
+    }
+
+    /**
+     * Get the number of requests currently waiting for a slot.
+     *
+     * @return number of waiting requests
+     */
+    public synchronized int getNumWaiting() {
+        return this.numWaiters;
+    }
+
+// Lifecycle
+
+    @Override
+    public void destroy() {
+        final ScheduledThreadPoolExecutor oldTimer;
+        synchronized (this) {
+            oldTimer = this.timer;
+            this.timer = null;
+            this.destroyed = true;
+        }
+        if (oldTimer != null)
+            oldTimer.shutdownNow();
+    }
+
+// ClientHttpRequestInterceptor
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution)
+      throws IOException {
+        final String endpoint = LinodeApiRateLimiter.getEndpointClass(request);
+
+        // Wait for a slot
+        try {
+            this.acquire(endpoint, LinodeApiPriority.of(request),
+              System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(this.queueTimeout));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw (IOException)new InterruptedIOException("interrupted while waiting for concurrency limiter").initCause(e);
+        }
+
+        // Send request and adjust limit from response
+        final long startTime = System.nanoTime();
+        final ClientHttpResponse response;
+        try {
+            response = execution.execute(request, body);
+        } catch (IOException | RuntimeException e) {
+            this.update(endpoint, startTime, 0);
+            this.release();
+            throw e;
+        }
+        this.update(endpoint, startTime, LinodeApiConcurrencyLimiter.getStatusCode(response));
+        return new SlotResponse(response);
+    }
+
+// AsyncClientHttpRequestInterceptor
+
+    @Override
+    public ListenableFuture<ClientHttpResponse> intercept(HttpRequest request, byte[] body,
+      AsyncClientHttpRequestExecution execution) {
+        final String endpoint = LinodeApiRateLimiter.getEndpointClass(request);
+        final SettableListenableFuture<ClientHttpResponse> result = new SettableListenableFuture<>();
+        final AtomicReference<ListenableFuture<ClientHttpResponse>> exchange = new AtomicReference<>();
+        final long queueTimeoutMillis = this.queueTimeout;
+        final Waiter waiter = new Waiter(LinodeApiPriority.of(request), endpoint,
+          System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(queueTimeoutMillis), result,
+          () -> this.executeAsync(endpoint, request, body, execution, result, exchange));
+        result.addCallback(response -> { }, e -> {
+            if (result.isCancelled())
+                this.cancel(waiter, exchange);
+        });
+        final boolean proceed;
+        synchronized (this) {
+            proceed = this.numWaiters == 0 && this.inFlight < (int)this.limit;
+            if (proceed)
+                this.inFlight++;
+            else {
+                this.enqueue(waiter);
+                final ScheduledThreadPoolExecutor scheduler = this.getTimer();
+                if (scheduler != null)
+                    waiter.timer = scheduler.schedule(() -> this.expire(waiter), queueTimeoutMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+        if (proceed)
+            waiter.action.run();
+        return result;
+    }
+
+    private void executeAsync(String endpoint, HttpRequest request, byte[] body, AsyncClientHttpRequestExecution execution,
+      SettableListenableFuture<ClientHttpResponse> result, AtomicReference<ListenableFuture<ClientHttpResponse>> exchange) {
+
+        // Don't send a request that was cancelled while it was being granted a slot
+        if (result.isDone()) {
+            this.release();
+            return;
+        }
+
+        // Send request
+        final long startTime = System.nanoTime();
+        final ListenableFuture<ClientHttpResponse> future;
+        try {
+            future = execution.executeAsync(request, body);
+        } catch (IOException | RuntimeException e) {
+            this.update(endpoint, startTime, 0);
+            this.release();
+            result.setException(e);
+            return;
+        }
+        future.addCallback(response -> {
+            this.update(endpoint, startTime, LinodeApiConcurrencyLimiter.getStatusCode(response));
+            final SlotResponse slotResponse = new SlotResponse(response);
+            if (!result.set(slotResponse))
+                slotResponse.close();
+        }, e -> {
+            if (!result.isCancelled())                          // cancellation is not a sign of congestion
+                this.update(endpoint, startTime, 0);
+            this.release();
+            result.setException(e);
+        });
+
+        // If the result was cancelled before we recorded the exchange, cancel it now
+        exchange.set(future);
+        if (result.isCancelled())
+            future.cancel(true);
+    }
+
+// Internal methods
+
+    private void acquire(String endpoint, LinodeApiPriority priority, long deadline) throws InterruptedException {
+        final Waiter waiter;
+        synchronized (this) {
+
+            // Proceed immediately if possible
+            if (this.numWaiters == 0 && this.inFlight < (int)this.limit) {
+                this.inFlight++;
+                return;
+            }
+
+            // Wait in line for a slot
+            waiter = new Waiter(priority, endpoint, deadline, null, null);
+            this.enqueue(waiter);
+            try {
+                while (!waiter.granted) {
+                    final long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        this.dequeue(waiter);
+                        throw new LinodeApiException("timed out waiting for concurrency limiter for " + endpoint);
+                    }
+                    TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                }
+                return;
+            } catch (InterruptedException e) {
+                if (!waiter.granted) {
+                    this.dequeue(waiter);
+                    throw e;
+                }
+            }
+        }
+
+        // We were interrupted just after being granted a slot; give it back
+        this.release();
+        throw new InterruptedException();
+    }
+
+    /**
+     * Handle cancellation of an asynchronous request: stop waiting, or cancel the exchange, which releases the slot.
+     */
+    private void cancel(Waiter waiter, AtomicReference<ListenableFuture<ClientHttpResponse>> exchange) {
+        synchronized (this) {
+            if (this.dequeue(waiter))
+                return;
+        }
+        final ListenableFuture<ClientHttpResponse> future = exchange.get();
+        if (future != null)
+            future.cancel(true);
+    }
+
+    /**
+     * Fail an asynchronous request if it is still waiting for a slot when its queue timeout expires.
+     */
+    private void expire(Waiter waiter) {
+        synchronized (this) {
+            if (!this.dequeue(waiter))
+                return;
+        }
+        waiter.expire();
+    }
+
+    /**
+     * Get the timer used to enforce the queue timeout of asynchronous requests, creating it on demand.
+     *
+     * @return timer, or null if this instance has been destroyed
+     */
+    @GuardedBy("this")
+    private ScheduledThreadPoolExecutor getTimer() {
+        if (this.timer == null && !this.destroyed) {
+            this.timer = new ScheduledThreadPoolExecutor(1, action -> {
+                final Thread thread = new Thread(action, "Linode API concurrency limiter timer");
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.timer.setRemoveOnCancelPolicy(true);
+        }
+        return this.timer;
+    }
+
+    private void release() {
+        final List<Runnable> ready;
+        synchronized (this) {
+            this.inFlight--;
+            ready = this.dispatch();
+        }
+        ready.forEach(Runnable::run);
+    }
+
+    /**
+     * Adjust the limit based on the outcome of an exchange.
+     *
+     * @param endpoint endpoint class
+     * @param startTime when the request was sent
+     * @param statusCode HTTP response status, or zero if no response was received
+     */
+    private void update(String endpoint, long startTime, int statusCode) {
+        final long now = System.nanoTime();
+        final boolean slow = this.latencies.computeIfAbsent(endpoint, key -> new LatencyAverage())
+          .update(now - startTime, this.latencyTolerance);
+        final boolean congested = slow || statusCode == 0
+          || statusCode == LinodeApiRateLimiter.TOO_MANY_REQUESTS || statusCode >= 500;
+        final List<Runnable> ready;
+        synchronized (this) {
+            if (congested) {
+                if (startTime - this.lastDecrease > 0) {
+                    final double previous = this.limit;
+                    this.limit = Math.max(this.minLimit, this.limit * this.backoffRatio);
+                    this.lastDecrease = now;
+                    if (this.log.isDebugEnabled()) {
+                        this.log.debug("congestion detected for {} (status {}{}); limit reduced from {} to {}",
+                          endpoint, statusCode, slow ? ", slow response" : "", (int)previous, (int)this.limit);
+                    }
+                }
+                ready = Collections.emptyList();
+            } else {
+                this.limit = Math.min(this.maxLimit, this.limit + 1.0 / this.limit);
+                ready = this.dispatch();
+            }
+        }
+        ready.forEach(Runnable::run);
+    }
+
+    @GuardedBy("this")
+    private void enqueue(Waiter waiter) {
+        this.queues.get(waiter.priority).add(waiter);
+        this.numWaiters++;
+    }
+
+    @GuardedBy("this")
+    private boolean dequeue(Waiter waiter) {
+        if (!this.queues.get(waiter.priority).remove(waiter))
+            return false;
+        this.numWaiters--;
+        waiter.cancelTimer();
+        return true;
+    }
+
+    /**
+     * Hand out available slots to waiting requests.
+     *
+     * @return actions that send or fail asynchronous requests, to be run by the caller after releasing the lock
+     */
+    @GuardedBy("this")
+    private List<Runnable> dispatch() {
+        final ArrayList<Runnable> ready = new ArrayList<>();
+        final long now = System.nanoTime();
+
+        // Discard cancelled asynchronous requests, and fail those that have waited too long; normally the timer
+        // has already done this, but it may have lost a race with us (synchronous requests give up on their own)
+        for (ArrayDeque<Waiter> queue : this.queues.values()) {
+            while (!queue.isEmpty() && queue.peek().action != null
+              && (queue.peek().result.isDone() || queue.peek().isExpired(now))) {
+                final Waiter waiter = queue.remove();
+                this.numWaiters--;
+                waiter.cancelTimer();
+                if (!waiter.result.isDone())
+                    ready.add(waiter::expire);
+            }
+        }
+
+        // Grant slots
+        boolean wakeup = false;
+        while (this.inFlight < (int)this.limit) {
+            final Waiter waiter = this.nextWaiter(now);
+            if (waiter == null)
+                break;
+            this.queues.get(waiter.priority).remove();
+            this.numWaiters--;
+            waiter.cancelTimer();
+            if (waiter.action != null && waiter.result.isDone())       // cancelled asynchronous request
+                continue;
+            this.inFlight++;
+            if (waiter.action != null)
+                ready.add(waiter.action);
+            else {
+                waiter.granted = true;
+                wakeup = true;
+            }
+        }
+        if (wakeup)
+            this.notifyAll();
+        return ready;
+    }
+
+    /**
+     * Choose the next request to receive a slot: the longest waiting request if it has waited longer than
+     * the starvation timeout, otherwise the first request with the highest priority.
+     */
+    @GuardedBy("this")
+    private Waiter nextWaiter(long now) {
+        final long starvationNanos = TimeUnit.MILLISECONDS.toNanos(this.starvationTimeout);
+        Waiter starved = null;
+        for (ArrayDeque<Waiter> queue : this.queues.values()) {
+            final Waiter waiter = queue.peek();
+            if (waiter != null && now - waiter.enqueueTime >= starvationNanos
+              && (starved == null || waiter.enqueueTime - starved.enqueueTime < 0))
+                starved = waiter;
+        }
+        if (starved != null)
+            return starved;
+        for (ArrayDeque<Waiter> queue : this.queues.values()) {
+            if (!queue.isEmpty())
+                return queue.peek();
+        }
+        return null;
+    }
+
+    private static int getStatusCode(ClientHttpResponse response) {
+        try {
+            return response.getRawStatusCode();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+// Waiter
+
+    /**
+     * A request waiting for a slot.
+     */
+    private static final class Waiter {
+
+        private final LinodeApiPriority priority;
+        private final String endpoint;
+        private final long enqueueTime = System.nanoTime();
+        private final long deadline;
+        private final SettableListenableFuture<ClientHttpResponse> result;
+        private final Runnable action;
+
+        private boolean granted;                            // guarded by the limiter's lock
+        private ScheduledFuture<?> timer;                   // guarded by the limiter's lock
+
+        /**
+         * Constructor.
+         *
+         * @param result future result of an asynchronous request, or null for a synchronous request
+         * @param action action that sends an asynchronous request, or null for a synchronous request
+         */
+        Waiter(LinodeApiPriority priority, String endpoint, long deadline,
+          SettableListenableFuture<ClientHttpResponse> result, Runnable action) {
+            this.priority = priority;
+            this.endpoint = endpoint;
+            this.deadline = deadline;
+            this.result = result;
+            this.action = action;
+        }
+
+        boolean isExpired(long now) {
+            return now - this.deadline >= 0;
+        }
+
+        void cancelTimer() {
+            if (this.timer != null) {
+                this.timer.cancel(false);
+                this.timer = null;
+            }
+        }
+
+        /**
+         * Fail an asynchronous request because it waited too long for a slot.
+         */
+        void expire() {
+            this.result.setException(new LinodeApiException("timed out waiting for concurrency limiter for " + this.endpoint));
+        }
+    }
+
+// LatencyAverage
+
+    /**
+     * Exponentially weighted moving average of the latency for one endpoint class.
+     */
+    private static final class LatencyAverage {
+
+        @GuardedBy("this")
+        private double average;
+        @GuardedBy("this")
+        private int samples;
+
+        /**
+         * Add a sample.
+         *
+         * @return true if the sample is slow compared to the average before it was added
+         */
+        synchronized boolean update(long latency, double tolerance) {
+            final boolean slow = tolerance > 0 && this.samples >= LATENCY_WARMUP_SAMPLES && latency > this.average * tolerance;
+            this.average = this.samples == 0 ? latency : this.average + LATENCY_AVERAGE_WEIGHT * (latency - this.average);
+            if (this.samples < LATENCY_WARMUP_SAMPLES)
+                this.samples++;
+            return slow;
+        }
+    }
+
+// SlotResponse
+
+    /**
+     * Wraps a response so that the request's slot is released when the response is closed.
+     */
+    private final class SlotResponse implements ClientHttpResponse {
+
+        private final ClientHttpResponse response;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        SlotResponse(ClientHttpResponse response) {
+            this.response = response;
+        }
+
+        @Override
+        public HttpStatus getStatusCode() throws IOException {
+            return this.response.getStatusCode();
+        }
+
+        @Override
+        public int getRawStatusCode() throws IOException {
+            return this.response.getRawStatusCode();
+        }
+
+        @Override
+        public String getStatusText() throws IOException {
+            return this.response.getStatusText();
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return this.response.getHeaders();
+        }
+
+        @Override
+        public InputStream getBody() throws IOException {
+            return this.response.getBody();
+        }
+
+        @Override
+        public void close() {
+            try {
+                this.response.close();
+            } finally {
+                if (this.released.compareAndSet(false, true))
+                    LinodeApiConcurrencyLimiter.this.release();
+            }
+        }
+    }
+}
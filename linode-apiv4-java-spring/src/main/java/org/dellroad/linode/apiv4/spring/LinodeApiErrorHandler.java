@@ -5,11 +5,11 @@
 
 package org.dellroad.linode.apiv4.spring;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
 
+import org.dellroad.linode.apiv4.core.LinodeApiJson;
 import org.dellroad.linode.apiv4.model.Errors;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.MediaType;
@@ -19,39 +19,40 @@ import org.springframework.web.client.DefaultResponseErrorHandler;
 /**
  * Extension of Spring's {@link DefaultResponseErrorHandler} that decodes the JSON error payload
  * in HTTP 400 and 500 series errors so it can be included in the thrown exception.
+ *
+ * <p>
+ * If the response includes a {@code Retry-After} header with a delay in seconds, the delay is also included.
  */
 public class LinodeApiErrorHandler extends DefaultResponseErrorHandler {
 
-    private final ObjectMapper errorMapper = new ObjectMapper();
-
     @Override
     public void handleError(ClientHttpResponse response) throws IOException {
 
-        // Default exception message
-        String errorMessage = response.getRawStatusCode() + " " + response.getStatusText();
-
         // Parse JSON error payload, if possible, and extract the error message therein
         Errors errors = null;
         final MediaType mimeType = response.getHeaders().getContentType();
         if (mimeType != null && mimeType.isCompatibleWith(MediaType.APPLICATION_JSON)) {
             try (final InputStream body = response.getBody()) {
-                errors = this.errorMapper.readValue(body, Errors.class);
-                if (errors.getErrors().length > 0) {
-                    final Errors.Error firstError = errors.getErrors()[0];
-                    if (firstError.getReason() != null) {
-                        errorMessage = firstError.getReason();
-                        if (firstError.getField() != null)
-                            errorMessage = "field `" + firstError.getField() + "': " + errorMessage;
-                    }
-                }
+                errors = LinodeApiJson.getObjectMapper().readValue(body, Errors.class);
             } catch (Exception e) {
                 LoggerFactory.getLogger(this.getClass()).warn("failed to parse JSON error payload", e);
             }
         }
 
         // Build and throw exception
+        final String errorMessage = LinodeApiJson.getErrorMessage(errors,
+          response.getRawStatusCode() + " " + response.getStatusText());
         final LinodeApiException e = new LinodeApiException(errorMessage);
         e.setErrors(errors);
+        e.setStatusCode(response.getRawStatusCode());
+        final String retryAfter = response.getHeaders().getFirst(LinodeApiRateLimiter.RETRY_AFTER_HEADER);
+        if (retryAfter != null) {
+            try {
+                e.setRetryAfter(TimeUnit.SECONDS.toMillis(Math.max(Long.parseLong(retryAfter.trim()), 0)));
+            } catch (NumberFormatException e2) {
+                // ignore; we don't bother with the HTTP-date form
+            }
+        }
         throw e;
     }
 }
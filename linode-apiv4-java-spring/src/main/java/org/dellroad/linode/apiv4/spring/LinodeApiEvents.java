@@ -0,0 +1,81 @@
+
+/*
+ * Copyright (C) 2017 Archie L. Cobbs. All rights reserved.
+ */
+
+package org.dellroad.linode.apiv4.spring;
+
+import org.springframework.http.HttpRequest;
+
+/**
+ * Emits Java Flight Recorder events, if Flight Recorder is available.
+ *
+ * <p>
+ * Flight Recorder is not present in all Java 8 runtimes, so the event classes are only ever loaded after
+ * verifying that the {@code jdk.jfr} API exists. Events are passed around as opaque {@link Object}s, which
+ * are null when Flight Recorder is unavailable or the event type is not enabled in any recording.
+ */
+final class LinodeApiEvents {
+
+    static final boolean AVAILABLE = LinodeApiEvents.isFlightRecorderPresent();
+
+    private LinodeApiEvents() {
+    }
+
+    /**
+     * Begin timing an HTTP exchange.
+     *
+     * @return event, or null if not being recorded
+     */
+    static Object beginExchange() {
+        return AVAILABLE ? HttpExchangeEvent.start() : null;
+    }
+
+    /**
+     * Finish timing an HTTP exchange and commit the event.
+     *
+     * @param event event from {@link #beginExchange}, or null
+     * @param request the request
+     * @param endpoint endpoint
+     * @param statusCode HTTP response status code, or zero if no response was received
+     * @param bytesSent request body size
+     * @param bytesReceived response body size, or -1 if unknown
+     */
+    static void endExchange(Object event, HttpRequest request, String endpoint,
+      int statusCode, long bytesSent, long bytesReceived) {
+        if (event != null)
+            HttpExchangeEvent.finish(event, request, endpoint, statusCode, bytesSent, bytesReceived);
+    }
+
+    /**
+     * Begin timing an aggregating query.
+     *
+     * @return event, or null if not being recorded
+     */
+    static Object beginAggregation() {
+        return AVAILABLE ? AggregationEvent.start() : null;
+    }
+
+    /**
+     * Finish timing an aggregating query and commit the event.
+     *
+     * @param event event from {@link #beginAggregation}, or null
+     * @param endpoint endpoint
+     * @param numPages number of pages loaded
+     * @param numResults number of results gathered
+     * @param success whether the query succeeded
+     */
+    static void endAggregation(Object event, String endpoint, int numPages, int numResults, boolean success) {
+        if (event != null)
+            AggregationEvent.finish(event, endpoint, numPages, numResults, success);
+    }
+
+    private static boolean isFlightRecorderPresent() {
+        try {
+            Class.forName("jdk.jfr.Event", false, LinodeApiEvents.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+}
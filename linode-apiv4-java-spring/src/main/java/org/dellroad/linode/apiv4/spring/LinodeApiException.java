@@ -15,6 +15,8 @@ import org.springframework.web.client.RestClientException;
 public class LinodeApiException extends RestClientException {
 
     private Errors errors;
+    private int statusCode;
+    private long retryAfter = -1;
 
     public LinodeApiException(String message) {
         super(message);
@@ -35,4 +37,28 @@ public class LinodeApiException extends RestClientException {
     public void setErrors(final Errors errors) {
         this.errors = errors;
     }
+
+    /**
+     * Get the HTTP status code returned from the API, if any.
+     *
+     * @return HTTP response status code, or zero if no HTTP response was received
+     */
+    public int getStatusCode() {
+        return this.statusCode;
+    }
+    public void setStatusCode(final int statusCode) {
+        this.statusCode = statusCode;
+    }
+
+    /**
+     * Get the delay before retrying requested by the API via a {@code Retry-After} header, if any.
+     *
+     * @return requested delay in milliseconds, or -1 if none was requested
+     */
+    public long getRetryAfter() {
+        return this.retryAfter;
+    }
+    public void setRetryAfter(final long retryAfter) {
+        this.retryAfter = retryAfter;
+    }
 }
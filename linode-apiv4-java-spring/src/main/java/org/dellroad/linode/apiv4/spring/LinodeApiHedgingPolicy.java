@@ -0,0 +1,298 @@
+
+/*
+ * Copyright (C) 2017 Archie L. Cobbs. All rights reserved.
+ */
+
+package org.dellroad.linode.apiv4.spring;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.concurrent.GuardedBy;
+
+/**
+ * Configures how {@link LinodeApiRequestSender} and {@link AsyncLinodeApiRequestSender} hedge GET requests.
+ *
+ * <p>
+ * When a GET request has not completed after a delay equal to the configured {@linkplain #setPercentile percentile}
+ * of the latencies previously observed for its endpoint class (as defined by {@link LinodeApiRateLimiter}), a duplicate
+ * request is sent, the first response to arrive is used, and the other request is cancelled. This trims the tail latency
+ * of individual requests, and therefore of aggregating queries, which have to wait for their slowest page.
+ *
+ * <p>
+ * Only latencies observed during the last one to two {@linkplain #setWindow windows} are considered, so the delay
+ * follows changes in the API's responsiveness. No request is hedged until at least {@value #MIN_SAMPLES} such latencies
+ * have been observed for its endpoint class, and the delay is never less than the {@linkplain #setMinDelay minimum delay}.
+ *
+ * <p>
+ * To keep hedging from adding significant load when the API is slow across the board, duplicate requests are limited
+ * to a {@linkplain #setBudget budget} expressed as a fraction of all requests. A cancelled request may keep its connection
+ * busy until its response arrives, so each duplicate request counts against the budget until it and the original request
+ * have both {@linkplain #hedgeFinished finished}.
+ *
+ * <p>
+ * Instances are thread safe and keep running counts of hedged requests, for monitoring purposes.
+ */
+public class LinodeApiHedgingPolicy {
+
+    /**
+     * Default latency percentile after which a duplicate request is sent ({@value #DEFAULT_PERCENTILE}).
+     */
+    public static final double DEFAULT_PERCENTILE = 95.0;
+
+    /**
+     * Default minimum hedging delay in milliseconds ({@value #DEFAULT_MIN_DELAY}).
+     */
+    public static final long DEFAULT_MIN_DELAY = 50;
+
+    /**
+     * Default maximum fraction of requests that may be duplicated ({@value #DEFAULT_BUDGET}).
+     */
+    public static final double DEFAULT_BUDGET = 0.05;
+
+    /**
+     * Default latency window in milliseconds ({@value #DEFAULT_WINDOW}).
+     */
+    public static final long DEFAULT_WINDOW = 60000;
+
+    /**
+     * Minimum number of latencies observed for an endpoint class before its requests are hedged ({@value #MIN_SAMPLES}).
+     */
+    public static final int MIN_SAMPLES = 20;
+
+    private static final double MAX_BUDGET_BALANCE = 10.0;
+
+    private final ConcurrentHashMap<String, RecentLatencies> latencies = new ConcurrentHashMap<>();
+    private final AtomicLong hedges = new AtomicLong();
+    private final AtomicLong wins = new AtomicLong();
+
+    private volatile double percentile = DEFAULT_PERCENTILE;
+    private volatile long minDelay = DEFAULT_MIN_DELAY;
+    private volatile double budget = DEFAULT_BUDGET;
+    private volatile long window = DEFAULT_WINDOW;
+
+    @GuardedBy("this")
+    private double balance;
+    @GuardedBy("this")
+    private int outstanding;
+
+// Properties
+
+    public double getPercentile() {
+        return this.percentile;
+    }
+
+    /**
+     * Configure the latency percentile after which a duplicate request is sent. Default is {@value #DEFAULT_PERCENTILE}.
+     *
+     * @param percentile percentile between 0.0 and 100.0
+     * @throws IllegalArgumentException if {@code percentile} is out of range
+     */
+    public void setPercentile(double percentile) {
+        if (!(percentile >= 0.0 && percentile <= 100.0))
+            throw new IllegalArgumentException("invalid percentile");
+        this.percentile = percentile;
+    }
+
+    public long getMinDelay() {
+        return this.minDelay;
+    }
+
+    /**
+     * Configure the minimum delay before a duplicate request is sent. Default is {@value #DEFAULT_MIN_DELAY}ms.
+     *
+     * @param minDelay delay in milliseconds
+     * @throws IllegalArgumentException if {@code minDelay} is negative
+     */
+    public void setMinDelay(long minDelay) {
+        if (minDelay < 0)
+            throw new IllegalArgumentException("minDelay < 0");
+        this.minDelay = minDelay;
+    }
+
+    public double getBudget() {
+        return this.budget;
+    }
+
+    /**
+     * Configure the maximum number of duplicate requests as a fraction of all requests.
+     * Default is {@value #DEFAULT_BUDGET}.
+     *
+     * <p>
+     * Unused budget accumulates, up to a small limit, so occasional bursts of slow responses can all be hedged.
+     *
+     * @param budget budget fraction from 0.0 (never hedge) to 1.0
+     * @throws IllegalArgumentException if {@code budget} is not between 0.0 and 1.0
+     */
+    public void setBudget(double budget) {
+        if (!(budget >= 0.0 && budget <= 1.0))
+            throw new IllegalArgumentException("invalid budget");
+        this.budget = budget;
+    }
+
+    public long getWindow() {
+        return this.window;
+    }
+
+    /**
+     * Configure the latency window. Default is {@value #DEFAULT_WINDOW}ms.
+     *
+     * <p>
+     * Latencies are kept for each endpoint class in two histograms, one for the current window and one for the previous
+     * window, so the hedging delay reflects between one and two windows' worth of recent requests.
+     *
+     * @param window window in milliseconds
+     * @throws IllegalArgumentException if {@code window} is not positive
+     */
+    public void setWindow(long window) {
+        if (window <= 0)
+            throw new IllegalArgumentException("window <= 0");
+        this.window = window;
+    }
+
+// Statistics
+
+    /**
+     * Get the total number of duplicate requests sent.
+     *
+     * @return number of hedged requests
+     */
+    public long getHedgeCount() {
+        return this.hedges.get();
+    }
+
+    /**
+     * Get the total number of duplicate requests that completed before the original request.
+     *
+     * @return number of hedged requests whose duplicate won
+     */
+    public long getWinCount() {
+        return this.wins.get();
+    }
+
+    /**
+     * Get the number of duplicate requests that still count against the budget because they, or their original requests,
+     * have not yet finished.
+     *
+     * @return number of outstanding hedged requests
+     */
+    public synchronized int getOutstandingCount() {
+        return this.outstanding;
+    }
+
+// Methods
+
+    /**
+     * Determine how long to wait before hedging a new GET request, and add to the budget.
+     *
+     * @param endpoint endpoint class
+     * @param unit result time unit
+     * @return hedging delay, or -1 if the request should not be hedged
+     */
+    public long startRequest(String endpoint, TimeUnit unit) {
+        synchronized (this) {
+            this.balance = Math.min(this.balance + this.budget, MAX_BUDGET_BALANCE);
+        }
+        final RecentLatencies recent = this.latencies.get(endpoint);
+        if (recent == null)
+            return -1;
+        final long windowNanos = TimeUnit.MILLISECONDS.toNanos(this.window);
+        if (recent.getCount(windowNanos) < MIN_SAMPLES)
+            return -1;
+        return unit.convert(Math.max(recent.getPercentile(this.percentile, windowNanos, TimeUnit.MICROSECONDS),
+          TimeUnit.MILLISECONDS.toMicros(this.minDelay)), TimeUnit.MICROSECONDS);
+    }
+
+    /**
+     * Record the latency of a successful request.
+     *
+     * @param endpoint endpoint class
+     * @param duration request duration in nanoseconds
+     */
+    public void recordLatency(String endpoint, long duration) {
+        this.latencies.computeIfAbsent(endpoint, key -> new RecentLatencies())
+          .record(duration, TimeUnit.MILLISECONDS.toNanos(this.window));
+    }
+
+    /**
+     * Request permission to send a duplicate request.
+     *
+     * <p>
+     * If this method returns true, the caller must invoke {@link #hedgeFinished} once the duplicate request
+     * and the original request have both finished.
+     *
+     * @return true if the budget allows a duplicate request, false otherwise
+     */
+    public boolean tryHedge() {
+        synchronized (this) {
+            if (this.balance - this.outstanding < 1.0)
+                return false;
+            this.balance -= 1.0;
+            this.outstanding++;
+        }
+        this.hedges.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Record that a duplicate request completed before the original request.
+     */
+    public void hedgeWon() {
+        this.wins.incrementAndGet();
+    }
+
+    /**
+     * Record that a duplicate request permitted by {@link #tryHedge} and its original request have both finished.
+     *
+     * @throws IllegalStateException if there is no such duplicate request outstanding
+     */
+    public void hedgeFinished() {
+        synchronized (this) {
+            if (this.outstanding <= 0)
+                throw new IllegalStateException("no outstanding hedged request");
+            this.outstanding--;
+        }
+    }
+
+// RecentLatencies
+
+    /**
+     * Latencies observed for one endpoint class during the current and previous windows.
+     */
+    private static final class RecentLatencies {
+
+        private volatile LatencyHistogram current = new LatencyHistogram();
+        private volatile LatencyHistogram previous = new LatencyHistogram();
+        private volatile long windowStart = System.nanoTime();
+
+        void record(long duration, long window) {
+            this.rotate(window);
+            this.current.record(duration);
+        }
+
+        long getCount(long window) {
+            this.rotate(window);
+            return this.previous.getCount() + this.current.getCount();
+        }
+
+        long getPercentile(double percentile, long window, TimeUnit unit) {
+            this.rotate(window);
+            return LatencyHistogram.getPercentile(percentile, unit, this.previous, this.current);
+        }
+
+        private void rotate(long window) {
+            final long now = System.nanoTime();
+            if (now - this.windowStart < window)
+                return;
+            synchronized (this) {
+                final long elapsed = now - this.windowStart;
+                if (elapsed < window)
+                    return;
+                this.previous = elapsed < 2 * window ? this.current : new LatencyHistogram();
+                this.current = new LatencyHistogram();
+                this.windowStart = now;
+            }
+        }
+    }
+}
@@ -5,28 +5,73 @@
 
 package org.dellroad.linode.apiv4.spring;
 
+import java.io.Closeable;
+import java.io.IOException;
 import java.net.URI;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 import java.util.function.Supplier;
 
+import javax.annotation.concurrent.GuardedBy;
+
+import org.apache.http.HttpRequest;
 import org.apache.http.HttpRequestInterceptor;
 import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.methods.HttpRequestBase;
 import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
 import org.apache.http.config.SocketConfig;
+import org.apache.http.conn.routing.HttpRoute;
 import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.impl.client.HttpClients;
 import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClientBuilder;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.nio.conn.NoopIOSessionStrategy;
+import org.apache.http.nio.conn.SchemeIOSessionStrategy;
+import org.apache.http.nio.conn.ssl.SSLIOSessionStrategy;
+import org.apache.http.nio.reactor.IOReactorException;
+import org.apache.http.pool.PoolStats;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
-import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.AsyncClientHttpRequest;
+import org.springframework.http.client.HttpComponentsAsyncClientHttpRequestFactory;
 
 /**
- * Extends Spring's {@link HttpComponentsClientHttpRequestFactory} to set connection and read timeouts,
+ * Extends Spring's {@link org.springframework.http.client.HttpComponentsClientHttpRequestFactory} to set connection and read timeouts,
  * setup authorization, etc.
+ *
+ * <p>
+ * Instances also implement Spring's {@link org.springframework.http.client.AsyncClientHttpRequestFactory} (by way of
+ * {@link HttpComponentsAsyncClientHttpRequestFactory}) so that the same configuration can be shared with an
+ * {@link org.springframework.web.client.AsyncRestTemplate}, e.g., for use by an {@link AsyncLinodeApiRequestSender}.
+ * The non-blocking HTTP client, and its I/O reactor threads, are not created until the first asynchronous request.
+ * It has its own connection pool, which is also limited by the {@linkplain #setMaxSimultaneousRequests maximum
+ * number of simultaneous requests}; asynchronous requests beyond that limit wait for a connection without tying up a thread.
+ *
+ * <p>
+ * To avoid sending requests on stale keep-alive connections that the server (or some middlebox) has already closed,
+ * pooled connections are retired after a {@linkplain #setConnectionTimeToLive time-to-live}, synchronous connections
+ * are {@linkplain #setValidateAfterInactivity validated} before reuse after a period of inactivity, and a background
+ * thread periodically {@linkplain #setEvictionInterval evicts} expired connections and connections that have been
+ * {@linkplain #setMaxIdleTime idle} too long. Connection pool statistics are available via {@link #getPoolStats}
+ * and {@link #getAsyncPoolStats}, for monitoring pool saturation.
  */
-public class LinodeApiHttpRequestFactory extends HttpComponentsClientHttpRequestFactory
+public class LinodeApiHttpRequestFactory extends HttpComponentsAsyncClientHttpRequestFactory
   implements InitializingBean, DisposableBean {
 
     /**
@@ -39,10 +84,40 @@ public class LinodeApiHttpRequestFactory extends HttpComponentsClientHttpRequest
      */
     public static final int DEFAULT_MAX_SIMULTANEOUS_REQUESTS = 16;
 
-    private final PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+    /**
+     * Default pooled connection time-to-live in milliseconds ({@value #DEFAULT_CONNECTION_TIME_TO_LIVE}).
+     */
+    public static final long DEFAULT_CONNECTION_TIME_TO_LIVE = 300_000;
+
+    /**
+     * Default inactivity period after which pooled connections are validated before reuse in milliseconds
+     * ({@value #DEFAULT_VALIDATE_AFTER_INACTIVITY}).
+     */
+    public static final int DEFAULT_VALIDATE_AFTER_INACTIVITY = 2_000;
+
+    /**
+     * Default maximum time a pooled connection may remain idle in milliseconds ({@value #DEFAULT_MAX_IDLE_TIME}).
+     */
+    public static final long DEFAULT_MAX_IDLE_TIME = 30_000;
+
+    /**
+     * Default interval between idle/expired connection evictions in milliseconds ({@value #DEFAULT_EVICTION_INTERVAL}).
+     */
+    public static final long DEFAULT_EVICTION_INTERVAL = 5_000;
+
+    private PoolingHttpClientConnectionManager connectionManager;
     private int timeout = DEFAULT_TIMEOUT;
     private Supplier<String> tokenSupplier;
     private int maxSimultaneousRequests = DEFAULT_MAX_SIMULTANEOUS_REQUESTS;
+    private long connectionTimeToLive = DEFAULT_CONNECTION_TIME_TO_LIVE;
+    private int validateAfterInactivity = DEFAULT_VALIDATE_AFTER_INACTIVITY;
+    private long maxIdleTime = DEFAULT_MAX_IDLE_TIME;
+    private long evictionInterval = DEFAULT_EVICTION_INTERVAL;
+    private ScheduledExecutorService evictor;
+    @GuardedBy("this")
+    private CloseableHttpAsyncClient asyncClient;
+    @GuardedBy("this")
+    private PoolingNHttpClientConnectionManager asyncConnectionManager;
 
 // Properties
 
@@ -55,6 +130,10 @@ public class LinodeApiHttpRequestFactory extends HttpComponentsClientHttpRequest
         this.timeout = timeout;
     }
 
+    public int getMaxSimultaneousRequests() {
+        return this.maxSimultaneousRequests;
+    }
+
     /**
      * Configure the maximum number of simultaneous requests.
      *
@@ -67,6 +146,57 @@ public class LinodeApiHttpRequestFactory extends HttpComponentsClientHttpRequest
         this.maxSimultaneousRequests = maxSimultaneousRequests;
     }
 
+    /**
+     * Configure the maximum lifetime of a pooled connection. Default is {@value #DEFAULT_CONNECTION_TIME_TO_LIVE}ms.
+     *
+     * @param connectionTimeToLive time-to-live in milliseconds, or zero for unlimited
+     * @throws IllegalArgumentException if {@code connectionTimeToLive} is negative
+     */
+    public void setConnectionTimeToLive(long connectionTimeToLive) {
+        if (connectionTimeToLive < 0)
+            throw new IllegalArgumentException("connectionTimeToLive < 0");
+        this.connectionTimeToLive = connectionTimeToLive;
+    }
+
+    /**
+     * Configure the period of inactivity after which a pooled connection is checked for staleness before being reused
+     * for a synchronous request. Default is {@value #DEFAULT_VALIDATE_AFTER_INACTIVITY}ms.
+     *
+     * @param validateAfterInactivity inactivity period in milliseconds, or zero to never validate
+     * @throws IllegalArgumentException if {@code validateAfterInactivity} is negative
+     */
+    public void setValidateAfterInactivity(int validateAfterInactivity) {
+        if (validateAfterInactivity < 0)
+            throw new IllegalArgumentException("validateAfterInactivity < 0");
+        this.validateAfterInactivity = validateAfterInactivity;
+    }
+
+    /**
+     * Configure the maximum time a pooled connection may remain idle before it is evicted. Default is
+     * {@value #DEFAULT_MAX_IDLE_TIME}ms.
+     *
+     * @param maxIdleTime maximum idle time in milliseconds, or zero for unlimited
+     * @throws IllegalArgumentException if {@code maxIdleTime} is negative
+     */
+    public void setMaxIdleTime(long maxIdleTime) {
+        if (maxIdleTime < 0)
+            throw new IllegalArgumentException("maxIdleTime < 0");
+        this.maxIdleTime = maxIdleTime;
+    }
+
+    /**
+     * Configure how often the background thread evicts expired and idle connections. Default is
+     * {@value #DEFAULT_EVICTION_INTERVAL}ms.
+     *
+     * @param evictionInterval eviction interval in milliseconds, or zero to disable background eviction
+     * @throws IllegalArgumentException if {@code evictionInterval} is negative
+     */
+    public void setEvictionInterval(long evictionInterval) {
+        if (evictionInterval < 0)
+            throw new IllegalArgumentException("evictionInterval < 0");
+        this.evictionInterval = evictionInterval;
+    }
+
     /**
      * Configure where authorization tokens come from.
      *
@@ -91,33 +221,195 @@ public class LinodeApiHttpRequestFactory extends HttpComponentsClientHttpRequest
 // Lifecycle
 
     @Override
-    public void afterPropertiesSet() throws Exception {
+    public void afterPropertiesSet() {
+        this.connectionManager = new PoolingHttpClientConnectionManager(
+          this.connectionTimeToLive > 0 ? this.connectionTimeToLive : -1, TimeUnit.MILLISECONDS);
         this.configureConnectionManager(this.connectionManager);
         final HttpClientBuilder builder = HttpClients.custom()
           .setConnectionManager(this.connectionManager)
-          .addInterceptorLast((HttpRequestInterceptor)(request, context) -> {
-            final String token = this.tokenSupplier != null ? this.tokenSupplier.get() : null;
-            if (token != null)
-                request.addHeader(HttpHeaders.AUTHORIZATION, "Bearer " + token);
-          })
+          .addInterceptorLast((HttpRequestInterceptor)(request, context) -> this.addAuthorization(request))
           .setDefaultSocketConfig(SocketConfig.custom().setSoKeepAlive(true).build());
         this.setHttpClient(this.configureHttpClient(builder).build());
+
+        // Release the (never started) default asynchronous client created by our superclass; ours is created on demand
+        if (this.getAsyncClient() instanceof Closeable)
+            this.close((Closeable)this.getAsyncClient());
+
+        // Start evicting idle and expired connections
+        if (this.evictionInterval > 0) {
+            this.evictor = Executors.newSingleThreadScheduledExecutor(action -> {
+                final Thread thread = new Thread(action, "Linode API connection evictor");
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.evictor.scheduleWithFixedDelay(this::evictConnections,
+              this.evictionInterval, this.evictionInterval, TimeUnit.MILLISECONDS);
+        }
     }
 
     @Override
     public void destroy() {
-        this.connectionManager.shutdown();
+        if (this.evictor != null) {
+            this.evictor.shutdownNow();
+            this.evictor = null;
+        }
+        if (this.connectionManager != null)
+            this.connectionManager.shutdown();
+        synchronized (this) {
+            if (this.asyncClient != null) {
+                this.close(this.asyncClient);
+                this.asyncClient = null;
+                this.asyncConnectionManager = null;
+            }
+        }
     }
 
     protected void configureConnectionManager(PoolingHttpClientConnectionManager manager) {
         manager.setMaxTotal(this.maxSimultaneousRequests);
         manager.setDefaultMaxPerRoute(this.maxSimultaneousRequests);
+        manager.setValidateAfterInactivity(this.validateAfterInactivity > 0 ? this.validateAfterInactivity : -1);
     }
 
     protected HttpClientBuilder configureHttpClient(HttpClientBuilder builder) {
         return builder;
     }
 
+    protected void configureAsyncConnectionManager(PoolingNHttpClientConnectionManager manager) {
+        manager.setMaxTotal(this.maxSimultaneousRequests);
+        manager.setDefaultMaxPerRoute(this.maxSimultaneousRequests);
+    }
+
+    protected HttpAsyncClientBuilder configureHttpAsyncClient(HttpAsyncClientBuilder builder) {
+        return builder;
+    }
+
+// Connection Pool
+
+    /**
+     * Get statistics for the synchronous connection pool.
+     *
+     * @return connection pool statistics
+     * @throws IllegalStateException if this instance is not yet initialized
+     */
+    public PoolStats getPoolStats() {
+        return this.getInitializedConnectionManager().getTotalStats();
+    }
+
+    /**
+     * Get per-route statistics for the synchronous connection pool.
+     *
+     * @return mapping from target host URI to connection pool statistics
+     * @throws IllegalStateException if this instance is not yet initialized
+     */
+    public Map<String, PoolStats> getRoutePoolStats() {
+        final PoolingHttpClientConnectionManager manager = this.getInitializedConnectionManager();
+        return LinodeApiHttpRequestFactory.getRouteStats(manager.getRoutes(), manager::getStats);
+    }
+
+    /**
+     * Get statistics for the asynchronous connection pool.
+     *
+     * @return connection pool statistics, or null if no asynchronous request has been made yet
+     */
+    public synchronized PoolStats getAsyncPoolStats() {
+        return this.asyncConnectionManager != null ? this.asyncConnectionManager.getTotalStats() : null;
+    }
+
+    /**
+     * Get per-route statistics for the asynchronous connection pool.
+     *
+     * @return mapping from target host URI to connection pool statistics, empty if no asynchronous request has been made yet
+     */
+    public synchronized Map<String, PoolStats> getAsyncRoutePoolStats() {
+        final PoolingNHttpClientConnectionManager manager = this.asyncConnectionManager;
+        if (manager == null)
+            return Collections.emptyMap();
+        return LinodeApiHttpRequestFactory.getRouteStats(manager.getRoutes(), manager::getStats);
+    }
+
+    /**
+     * Close expired connections and connections that have been idle too long.
+     *
+     * <p>
+     * This is invoked periodically by a background thread, unless background eviction is
+     * {@linkplain #setEvictionInterval disabled}.
+     */
+    public void evictConnections() {
+        final PoolingHttpClientConnectionManager manager = this.connectionManager;
+        if (manager != null) {
+            manager.closeExpiredConnections();
+            if (this.maxIdleTime > 0)
+                manager.closeIdleConnections(this.maxIdleTime, TimeUnit.MILLISECONDS);
+        }
+        final PoolingNHttpClientConnectionManager asyncManager;
+        synchronized (this) {
+            asyncManager = this.asyncConnectionManager;
+        }
+        if (asyncManager != null) {
+            asyncManager.closeExpiredConnections();
+            if (this.maxIdleTime > 0)
+                asyncManager.closeIdleConnections(this.maxIdleTime, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private PoolingHttpClientConnectionManager getInitializedConnectionManager() {
+        final PoolingHttpClientConnectionManager manager = this.connectionManager;
+        if (manager == null)
+            throw new IllegalStateException("not initialized");
+        return manager;
+    }
+
+    private static Map<String, PoolStats> getRouteStats(Set<HttpRoute> routes, Function<HttpRoute, PoolStats> stats) {
+        final TreeMap<String, PoolStats> map = new TreeMap<>();
+        for (HttpRoute route : routes)
+            map.put(route.getTargetHost().toURI(), stats.apply(route));
+        return map;
+    }
+
+// HttpComponentsAsyncClientHttpRequestFactory
+
+    @Override
+    public AsyncClientHttpRequest createAsyncRequest(URI uri, HttpMethod httpMethod) throws IOException {
+        synchronized (this) {
+            if (this.asyncClient == null) {
+                this.asyncClient = this.buildHttpAsyncClient();
+                this.setAsyncClient(this.asyncClient);
+            }
+        }
+        return super.createAsyncRequest(uri, httpMethod);
+    }
+
+    @GuardedBy("this")
+    private CloseableHttpAsyncClient buildHttpAsyncClient() throws IOReactorException {
+        final Registry<SchemeIOSessionStrategy> registry = RegistryBuilder.<SchemeIOSessionStrategy>create()
+          .register("http", NoopIOSessionStrategy.INSTANCE)
+          .register("https", SSLIOSessionStrategy.getDefaultStrategy())
+          .build();
+        final PoolingNHttpClientConnectionManager manager = new PoolingNHttpClientConnectionManager(
+          new DefaultConnectingIOReactor(IOReactorConfig.custom().setSoKeepAlive(true).build()), null, registry, null, null,
+          this.connectionTimeToLive > 0 ? this.connectionTimeToLive : -1, TimeUnit.MILLISECONDS);
+        this.configureAsyncConnectionManager(manager);
+        this.asyncConnectionManager = manager;
+        final HttpAsyncClientBuilder builder = HttpAsyncClients.custom()
+          .setConnectionManager(manager)
+          .addInterceptorLast((HttpRequestInterceptor)(request, context) -> this.addAuthorization(request));
+        return this.configureHttpAsyncClient(builder).build();
+    }
+
+    private void close(Closeable client) {
+        try {
+            client.close();
+        } catch (IOException e) {
+            LoggerFactory.getLogger(this.getClass()).warn("error closing asynchronous HTTP client (ignoring)", e);
+        }
+    }
+
+    private void addAuthorization(HttpRequest request) {
+        final String token = this.tokenSupplier != null ? this.tokenSupplier.get() : null;
+        if (token != null)
+            request.addHeader(HttpHeaders.AUTHORIZATION, "Bearer " + token);
+    }
+
 // HttpComponentsClientHttpRequestFactory
 
     @Override
@@ -0,0 +1,59 @@
+
+/*
+ * Copyright (C) 2017 Archie L. Cobbs. All rights reserved.
+ */
+
+package org.dellroad.linode.apiv4.spring;
+
+/**
+ * Callback interface for recording Linode API client metrics.
+ *
+ * <p>
+ * Endpoints are identified by HTTP method and URI path with numeric resource ID's replaced by {@code {id}},
+ * for example, {@code GET /v4/linode/instances/{id}/disks}.
+ *
+ * <p>
+ * HTTP exchanges are reported by a {@link LinodeApiMetricsInterceptor}; retries and pagination are reported
+ * by the {@link AbstractLinodeApiRequestSender request sender} configured with this instance.
+ * All methods have empty default implementations. Implementations must be thread safe and should return quickly.
+ *
+ * @see LinodeApiStatistics
+ * @see MicrometerLinodeApiMetrics
+ */
+public interface LinodeApiMetrics {
+
+    /**
+     * Instance that discards all metrics.
+     */
+    LinodeApiMetrics NONE = new LinodeApiMetrics() { };
+
+    /**
+     * Record an HTTP exchange.
+     *
+     * @param endpoint endpoint
+     * @param statusCode HTTP response status code, or zero if no response was received
+     * @param duration time from sending the request until the response headers were received (or the exchange failed),
+     *  in nanoseconds
+     * @param bytesSent size of the request body
+     * @param bytesReceived size of the response body according to its {@code Content-Length} header, or -1 if unknown
+     */
+    default void exchange(String endpoint, int statusCode, long duration, long bytesSent, long bytesReceived) {
+    }
+
+    /**
+     * Record that a request is being retried after a transient failure.
+     *
+     * @param endpoint endpoint
+     */
+    default void retry(String endpoint) {
+    }
+
+    /**
+     * Record a completed aggregating query over a paginated resource.
+     *
+     * @param endpoint endpoint
+     * @param numPages number of pages loaded
+     */
+    default void pages(String endpoint, int numPages) {
+    }
+}
@@ -0,0 +1,112 @@
+
+/*
+ * Copyright (C) 2017 Archie L. Cobbs. All rights reserved.
+ */
+
+package org.dellroad.linode.apiv4.spring;
+
+import java.io.IOException;
+
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.AsyncClientHttpRequestExecution;
+import org.springframework.http.client.AsyncClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.util.concurrent.ListenableFuture;
+
+/**
+ * Reports every HTTP exchange to a {@link LinodeApiMetrics}.
+ *
+ * <p>
+ * To use, add an instance to the {@link org.springframework.web.client.RestTemplate}'s list of
+ * {@linkplain org.springframework.web.client.RestTemplate#setInterceptors interceptors} and/or the
+ * {@link org.springframework.web.client.AsyncRestTemplate}'s list of
+ * {@linkplain org.springframework.web.client.AsyncRestTemplate#setInterceptors interceptors}. If there is also
+ * a {@link LinodeApiRateLimiter}, add this interceptor after it, so that time spent waiting for the rate limiter
+ * is not counted. Requests retried by {@link LinodeApiRequestSender}, including after an HTTP 429 response, pass
+ * through this interceptor again, so each attempt is recorded as a separate exchange.
+ *
+ * <p>
+ * When running on a JVM with Java Flight Recorder, this class also emits an {@code org.dellroad.linode.apiv4.HttpExchange}
+ * event for each exchange, regardless of the configured {@link LinodeApiMetrics}.
+ */
+public class LinodeApiMetricsInterceptor implements ClientHttpRequestInterceptor, AsyncClientHttpRequestInterceptor {
+
+    private LinodeApiMetrics metrics = LinodeApiMetrics.NONE;
+
+// Properties
+
+    public LinodeApiMetrics getMetrics() {
+        return this.metrics;
+    }
+
+    /**
+     * Configure where to report metrics.
+     *
+     * @param metrics metrics destination
+     * @throws IllegalArgumentException if {@code metrics} is null
+     */
+    public void setMetrics(LinodeApiMetrics metrics) {
+        if (metrics == null)
+            throw new IllegalArgumentException("null metrics");
+        this.metrics = metrics;
+    }
+
+// ClientHttpRequestInterceptor
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution)
+      throws IOException {
+        final Object event = LinodeApiEvents.beginExchange();
+        final long startTime = System.nanoTime();
+        final ClientHttpResponse response;
+        try {
+            response = execution.execute(request, body);
+        } catch (IOException | RuntimeException e) {
+            this.record(request, body, null, startTime, event);
+            throw e;
+        }
+        this.record(request, body, response, startTime, event);
+        return response;
+    }
+
+// AsyncClientHttpRequestInterceptor
+
+    @Override
+    public ListenableFuture<ClientHttpResponse> intercept(HttpRequest request, byte[] body,
+      AsyncClientHttpRequestExecution execution) throws IOException {
+        final Object event = LinodeApiEvents.beginExchange();
+        final long startTime = System.nanoTime();
+        final ListenableFuture<ClientHttpResponse> future;
+        try {
+            future = execution.executeAsync(request, body);
+        } catch (IOException | RuntimeException e) {
+            this.record(request, body, null, startTime, event);
+            throw e;
+        }
+        future.addCallback(
+          response -> this.record(request, body, response, startTime, event),
+          e -> this.record(request, body, null, startTime, event));
+        return future;
+    }
+
+// Internal methods
+
+    private void record(HttpRequest request, byte[] body, ClientHttpResponse response, long startTime, Object event) {
+        final long duration = System.nanoTime() - startTime;
+        int statusCode = 0;
+        long bytesReceived = -1;
+        if (response != null) {
+            try {
+                statusCode = response.getRawStatusCode();
+            } catch (IOException e) {
+                // ignore
+            }
+            bytesReceived = response.getHeaders().getContentLength();
+        }
+        final String endpoint = LinodeApiRateLimiter.getEndpointClass(request);
+        LinodeApiEvents.endExchange(event, request, endpoint, statusCode, body.length, bytesReceived);
+        this.metrics.exchange(endpoint, statusCode, duration, body.length, bytesReceived);
+    }
+}
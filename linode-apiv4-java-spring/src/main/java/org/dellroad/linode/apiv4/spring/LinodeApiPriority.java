@@ -0,0 +1,136 @@
+
+/*
+ * Copyright (C) 2017 Archie L. Cobbs. All rights reserved.
+ */
+
+package org.dellroad.linode.apiv4.spring;
+
+import java.util.function.Supplier;
+
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRequest;
+
+/**
+ * Linode API request priority classes.
+ *
+ * <p>
+ * When requests have to wait for a slot in the {@link LinodeApiConcurrencyLimiter}, higher priority requests
+ * are sent first, so that for example provisioning a Linode is not stuck behind a large background listing.
+ * To keep lower priority requests from starving, a request that has been waiting longer than the limiter's
+ * {@linkplain LinodeApiConcurrencyLimiter#setStarvationTimeout starvation timeout} is sent next regardless
+ * of its priority.
+ *
+ * <p>
+ * Priority is associated with the current thread by {@link #enter}, typically by a call site that is about to do
+ * bulk or latency-sensitive work:
+ * <blockquote><pre>
+ * try (LinodeApiPriority.Scope scope = LinodeApiPriority.BACKGROUND.enter()) {
+ *     sender.getLinodes(executor, 0, null);
+ * }
+ * </pre></blockquote>
+ * Aggregating queries carry the priority that was in effect when they were started over to any pages they load
+ * on other threads. Requests made outside of any scope default to {@link #NORMAL} for {@code GET} requests and
+ * {@link #INTERACTIVE} for all other requests, as those create, modify, or destroy resources.
+ */
+public enum LinodeApiPriority {
+
+    /**
+     * Latency-sensitive requests, e.g., on behalf of a waiting user.
+     */
+    INTERACTIVE,
+
+    /**
+     * Ordinary requests.
+     */
+    NORMAL,
+
+    /**
+     * Bulk requests that are not time-critical, e.g., periodic scans and statistics collection.
+     */
+    BACKGROUND;
+
+    private static final ThreadLocal<LinodeApiPriority> CURRENT = new ThreadLocal<>();
+
+    /**
+     * Associate this priority with Linode API requests made by the current thread until the returned
+     * {@link Scope} is closed.
+     *
+     * @return scope which restores the previous priority when closed
+     */
+    public Scope enter() {
+        return LinodeApiPriority.enter(this);
+    }
+
+    /**
+     * Get the priority explicitly associated with the current thread, if any.
+     *
+     * @return current thread's priority, or null if none has been set
+     */
+    public static LinodeApiPriority current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Determine the priority of the given request being sent by the current thread.
+     *
+     * @param request HTTP request
+     * @return request priority
+     */
+    static LinodeApiPriority of(HttpRequest request) {
+        final LinodeApiPriority priority = CURRENT.get();
+        if (priority != null)
+            return priority;
+        return HttpMethod.GET.equals(request.getMethod()) ? NORMAL : INTERACTIVE;
+    }
+
+    /**
+     * Perform an action with the given priority, or with no explicit priority if {@code priority} is null.
+     *
+     * <p>
+     * This is used to carry a priority captured by {@link #current} over to another thread.
+     *
+     * @param priority priority, or null for none
+     * @param action action to perform
+     * @param <R> result type
+     * @return result from {@code action}
+     */
+    static <R> R supply(LinodeApiPriority priority, Supplier<R> action) {
+        final Scope scope = LinodeApiPriority.enter(priority);
+        try {
+            return action.get();
+        } finally {
+            scope.close();
+        }
+    }
+
+    private static Scope enter(LinodeApiPriority priority) {
+        final LinodeApiPriority previous = CURRENT.get();
+        CURRENT.set(priority);
+        return new Scope(previous);
+    }
+
+// Scope
+
+    /**
+     * Restores the previous priority of the current thread when closed.
+     *
+     * <p>
+     * Instances must be closed by the same thread that created them.
+     */
+    public static final class Scope implements AutoCloseable {
+
+        private final LinodeApiPriority previous;
+
+        private Scope(LinodeApiPriority previous) {
+            this.previous = previous;
+        }
+
+        @Override
+        public void close() {
+            if (this.previous != null)
+                CURRENT.set(this.previous);
+            else
+                CURRENT.remove();
+        }
+    }
+}
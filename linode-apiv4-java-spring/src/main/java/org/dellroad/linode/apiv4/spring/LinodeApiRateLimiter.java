@@ -0,0 +1,318 @@
+
+/*
+ * Copyright (C) 2017 Archie L. Cobbs. All rights reserved.
+ */
+
+package org.dellroad.linode.apiv4.spring;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import javax.annotation.concurrent.GuardedBy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+/**
+ * Client-side rate limiter for Linode API requests.
+ *
+ * <p>
+ * Requests are grouped into endpoint classes consisting of the HTTP method plus the URI path, with numeric path
+ * segments (i.e., resource ID's) normalized, so that for example {@code GET /v4/linode/instances/123} and
+ * {@code GET /v4/linode/instances/456} share the same class. Each class has its own token bucket: a request must
+ * obtain a token before it is sent, and tokens are replenished at a rate of {@link #setLimit limit} tokens per
+ * {@link #setWindow window}.
+ *
+ * <p>
+ * The bucket adapts to the {@code X-RateLimit-Limit}, {@code X-RateLimit-Remaining}, and {@code X-RateLimit-Reset}
+ * headers returned by the API, if present, so that the client slows down before the server starts rejecting requests.
+ * If the server responds with HTTP 429 anyway, the endpoint class is paused according to the {@code Retry-After} header.
+ * The response is passed back to the caller, so that the request is retried through the whole interceptor chain;
+ * {@link LinodeApiRequestSender} does this according to its {@link LinodeApiRetryPolicy}.
+ *
+ * <p>
+ * Callers that can't obtain a token immediately wait for one instead of failing; if they wait longer than the
+ * {@link #setQueueTimeout queue timeout}, a {@link LinodeApiException} is thrown.
+ *
+ * <p>
+ * To use, add an instance to the {@link org.springframework.web.client.RestTemplate}'s list of
+ * {@linkplain org.springframework.web.client.RestTemplate#setInterceptors interceptors}. This class only applies
+ * to synchronous requests.
+ */
+public class LinodeApiRateLimiter implements ClientHttpRequestInterceptor {
+
+    /**
+     * Name of the rate limit header.
+     */
+    public static final String LIMIT_HEADER = "X-RateLimit-Limit";
+
+    /**
+     * Name of the remaining requests header.
+     */
+    public static final String REMAINING_HEADER = "X-RateLimit-Remaining";
+
+    /**
+     * Name of the rate limit reset time header.
+     */
+    public static final String RESET_HEADER = "X-RateLimit-Reset";
+
+    /**
+     * Name of the retry after header.
+     */
+    public static final String RETRY_AFTER_HEADER = "Retry-After";
+
+    /**
+     * HTTP status code for "Too Many Requests".
+     */
+    public static final int TOO_MANY_REQUESTS = 429;
+
+    /**
+     * Default number of requests allowed per window per endpoint class ({@value #DEFAULT_LIMIT}).
+     */
+    public static final int DEFAULT_LIMIT = 800;
+
+    /**
+     * Default rate limit window in milliseconds ({@value #DEFAULT_WINDOW}).
+     */
+    public static final long DEFAULT_WINDOW = 120_000;
+
+    /**
+     * Default maximum time in milliseconds a request will wait for permission to proceed ({@value #DEFAULT_QUEUE_TIMEOUT}).
+     */
+    public static final long DEFAULT_QUEUE_TIMEOUT = 60_000;
+
+    /**
+     * Default pause in milliseconds after an HTTP 429 response without a {@code Retry-After} header
+     * ({@value #DEFAULT_RETRY_AFTER}).
+     */
+    public static final long DEFAULT_RETRY_AFTER = 1_000;
+
+    private static final Pattern NUMERIC_SEGMENT = Pattern.compile("/[0-9]+(?=/|$)");
+
+    protected final Logger log = LoggerFactory.getLogger(this.getClass());
+
+    private final ConcurrentHashMap<String, Bucket> buckets = new ConcurrentHashMap<>();
+
+    private volatile int limit = DEFAULT_LIMIT;
+    private volatile long window = DEFAULT_WINDOW;
+    private volatile long queueTimeout = DEFAULT_QUEUE_TIMEOUT;
+
+// Properties
+
+    /**
+     * Configure the number of requests per endpoint class allowed per window until the API tells us otherwise.
+     * Default is {@value #DEFAULT_LIMIT}.
+     *
+     * @param limit number of requests allowed per window
+     * @throws IllegalArgumentException if {@code limit} is zero or negative
+     */
+    public void setLimit(int limit) {
+        if (limit < 1)
+            throw new IllegalArgumentException("limit < 1");
+        this.limit = limit;
+    }
+
+    /**
+     * Configure the rate limit window. Default is {@value #DEFAULT_WINDOW}ms.
+     *
+     * @param window window in milliseconds
+     * @throws IllegalArgumentException if {@code window} is zero or negative
+     */
+    public void setWindow(long window) {
+        if (window < 1)
+            throw new IllegalArgumentException("window < 1");
+        this.window = window;
+    }
+
+    /**
+     * Configure the maximum time a request will wait for permission to proceed. Default is {@value #DEFAULT_QUEUE_TIMEOUT}ms.
+     *
+     * @param queueTimeout timeout in milliseconds
+     * @throws IllegalArgumentException if {@code queueTimeout} is negative
+     */
+    public void setQueueTimeout(long queueTimeout) {
+        if (queueTimeout < 0)
+            throw new IllegalArgumentException("queueTimeout < 0");
+        this.queueTimeout = queueTimeout;
+    }
+
+// ClientHttpRequestInterceptor
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution)
+      throws IOException {
+        final String endpoint = LinodeApiRateLimiter.getEndpointClass(request);
+        final Bucket bucket = this.buckets.computeIfAbsent(endpoint, key -> new Bucket(this.limit, this.window));
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(this.queueTimeout);
+
+        // Wait for permission
+        try {
+            bucket.acquire(endpoint, deadline);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw (IOException)new InterruptedIOException("interrupted while waiting for rate limiter").initCause(e);
+        }
+
+        // Send request and update bucket from response
+        final ClientHttpResponse response = execution.execute(request, body);
+        final HttpHeaders headers = response.getHeaders();
+        bucket.update(LinodeApiRateLimiter.parseLong(headers.getFirst(LIMIT_HEADER)),
+          LinodeApiRateLimiter.parseLong(headers.getFirst(REMAINING_HEADER)),
+          LinodeApiRateLimiter.parseLong(headers.getFirst(RESET_HEADER)));
+        if (response.getRawStatusCode() != TOO_MANY_REQUESTS)
+            return response;
+
+        // We got a 429; pause this endpoint class. We can't retry from here: re-executing the request would bypass
+        // any interceptors that follow us, so leave that to the caller.
+        final Long retryAfterSeconds = LinodeApiRateLimiter.parseLong(headers.getFirst(RETRY_AFTER_HEADER));
+        final long retryAfter = retryAfterSeconds != null ?
+          TimeUnit.SECONDS.toNanos(Math.max(retryAfterSeconds, 0)) : TimeUnit.MILLISECONDS.toNanos(DEFAULT_RETRY_AFTER);
+        bucket.pause(System.nanoTime() + retryAfter);
+        this.log.info("rec'd HTTP 429 for {}; pausing for {}ms", endpoint, TimeUnit.NANOSECONDS.toMillis(retryAfter));
+        return response;
+    }
+
+// Internal methods
+
+    /**
+     * Determine the endpoint class for the given request.
+     *
+     * @param request HTTP request
+     * @return endpoint class
+     */
+    static String getEndpointClass(HttpRequest request) {
+        return LinodeApiRateLimiter.getEndpointClass(request.getMethod(), request.getURI());
+    }
+
+    /**
+     * Determine the endpoint class for the given request method and URI.
+     *
+     * @param method HTTP method
+     * @param uri request URI
+     * @return endpoint class
+     */
+    static String getEndpointClass(HttpMethod method, URI uri) {
+        final String path = uri.getRawPath();
+        return method + " " + (path != null ? NUMERIC_SEGMENT.matcher(path).replaceAll("/{id}") : "");
+    }
+
+    private static Long parseLong(String value) {
+        if (value == null)
+            return null;
+        try {
+            return Long.valueOf(value.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+// Bucket
+
+    /**
+     * Token bucket for one endpoint class.
+     */
+    private static final class Bucket {
+
+        @GuardedBy("this")
+        private double capacity;
+        @GuardedBy("this")
+        private double tokens;
+        @GuardedBy("this")
+        private double tokensPerNano;
+        @GuardedBy("this")
+        private long lastRefill;
+        @GuardedBy("this")
+        private long pausedUntil;
+        @GuardedBy("this")
+        private boolean paused;
+
+        Bucket(int limit, long window) {
+            this.capacity = limit;
+            this.tokens = limit;
+            this.tokensPerNano = (double)limit / TimeUnit.MILLISECONDS.toNanos(window);
+            this.lastRefill = System.nanoTime();
+        }
+
+        /**
+         * Wait for and consume one token.
+         */
+        synchronized void acquire(String endpoint, long deadline) throws InterruptedException {
+            while (true) {
+                final long now = System.nanoTime();
+                this.refill(now);
+
+                // Determine how long we need to wait, if at all
+                long delay;
+                if (this.paused && this.pausedUntil - now > 0)
+                    delay = this.pausedUntil - now;
+                else {
+                    this.paused = false;
+                    if (this.tokens >= 1.0) {
+                        this.tokens -= 1.0;
+                        return;
+                    }
+                    delay = (long)Math.ceil((1.0 - this.tokens) / this.tokensPerNano);
+                }
+
+                // Give up if we would exceed the deadline
+                if (now + delay - deadline > 0)
+                    throw new LinodeApiException("timed out waiting for rate limiter for " + endpoint);
+
+                // Wait (but wake up if another thread changes things)
+                TimeUnit.NANOSECONDS.timedWait(this, Math.max(delay, 1));
+            }
+        }
+
+        /**
+         * Update from the rate limit headers in a response.
+         */
+        synchronized void update(Long limit, Long remaining, Long reset) {
+            final long now = System.nanoTime();
+            this.refill(now);
+            if (limit != null && limit > 0 && limit != (long)this.capacity) {
+                this.tokensPerNano = this.tokensPerNano * limit / this.capacity;
+                this.capacity = limit;
+                this.tokens = Math.min(this.tokens, this.capacity);
+            }
+            if (remaining != null && remaining >= 0)
+                this.tokens = Math.min(this.tokens, remaining);
+            if (remaining != null && remaining == 0 && reset != null) {
+                final long resetMillis = TimeUnit.SECONDS.toMillis(reset) - System.currentTimeMillis();
+                if (resetMillis > 0)
+                    this.pause(now + TimeUnit.MILLISECONDS.toNanos(resetMillis));
+            }
+            this.notifyAll();
+        }
+
+        /**
+         * Don't allow any requests until the given time.
+         */
+        synchronized void pause(long until) {
+            if (!this.paused || until - this.pausedUntil > 0) {
+                this.pausedUntil = until;
+                this.paused = true;
+            }
+            this.tokens = Math.min(this.tokens, 0);
+            if (until - this.lastRefill > 0)
+                this.lastRefill = until;
+        }
+
+        private void refill(long now) {
+            final long elapsed = now - this.lastRefill;
+            if (elapsed <= 0)
+                return;
+            this.tokens = Math.min(this.capacity, this.tokens + elapsed * this.tokensPerNano);
+            this.lastRefill = now;
+        }
+    }
+}
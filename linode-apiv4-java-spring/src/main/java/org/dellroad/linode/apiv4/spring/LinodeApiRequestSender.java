@@ -5,30 +5,39 @@
 
 package org.dellroad.linode.apiv4.spring;
 
-import com.fasterxml.jackson.core.JsonGenerator;
-import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
-import java.io.IOException;
-import java.io.StringWriter;
-import java.io.UnsupportedEncodingException;
 import java.net.SocketException;
 import java.net.URI;
-import java.net.URISyntaxException;
-import java.net.URLEncoder;
 import java.time.YearMonth;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import org.apache.http.NoHttpResponseException;
 import org.dellroad.linode.apiv4.Constants;
+import org.dellroad.linode.apiv4.core.LinodeApiJson;
 import org.dellroad.linode.apiv4.filter.Filter;
+import org.dellroad.linode.apiv4.filter.FilterBuilder;
 import org.dellroad.linode.apiv4.model.BackupInfo;
 import org.dellroad.linode.apiv4.model.Config;
 import org.dellroad.linode.apiv4.model.Configs;
@@ -42,6 +51,8 @@ import org.dellroad.linode.apiv4.model.Images;
 import org.dellroad.linode.apiv4.model.Kernel;
 import org.dellroad.linode.apiv4.model.Kernels;
 import org.dellroad.linode.apiv4.model.Linode;
+import org.dellroad.linode.apiv4.model.LinodeSummaries;
+import org.dellroad.linode.apiv4.model.LinodeSummary;
 import org.dellroad.linode.apiv4.model.Linodes;
 import org.dellroad.linode.apiv4.model.Paginated;
 import org.dellroad.linode.apiv4.model.Region;
@@ -60,28 +71,53 @@ import org.dellroad.linode.apiv4.request.CreateImageRequest;
 import org.dellroad.linode.apiv4.request.CreateLinodeRequest;
 import org.dellroad.linode.apiv4.request.CreateVolumeRequest;
 import org.dellroad.linode.apiv4.request.RescueLinodeRequest;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpMethod;
-import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
 import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.web.client.RequestCallback;
 import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 
 /**
  * Sender for Linode REST APIv4 requests.
+ *
+ * <p>
+ * Idempotent requests that fail with a transient error, and any request rejected with HTTP 429, are automatically
+ * retried according to the configured {@link LinodeApiRetryPolicy}, if any. Each retry is a new request that passes
+ * through all of the {@link RestTemplate}'s interceptors again.
+ *
+ * <p>
+ * Optionally, concurrent identical GET requests may be {@linkplain #setCoalesceRequests coalesced}, and concurrent
+ * {@link #getLinode getLinode()} lookups may be {@linkplain #setBatchWindow batched} into a single list query.
+ * Slow GET requests may also be {@linkplain #setHedgingPolicy hedged}.
  */
-public class LinodeApiRequestSender implements InitializingBean {
+public class LinodeApiRequestSender extends AbstractLinodeApiRequestSender implements InitializingBean {
 
-    protected final Logger log = LoggerFactory.getLogger(this.getClass());
-
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    /**
+     * Default maximum number of Linode IDs looked up by a single batched query ({@value #DEFAULT_MAX_BATCH_SIZE}).
+     */
+    public static final int DEFAULT_MAX_BATCH_SIZE = 100;
 
-    private URI baseURI = Constants.BASE_URI;
     private RestTemplate restTemplate;
+    private LinodeApiRetryPolicy retryPolicy = new LinodeApiRetryPolicy();
+    private final ThreadLocal<Boolean> retriesSuppressed = new ThreadLocal<>();
+    private final ConcurrentHashMap<List<Object>, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    private volatile boolean coalesceRequests;
+    private final BatchLoader<Linode> linodeBatchLoader = new BatchLoader<>(this::loadLinodes, linodeId -> {
+        final LinodeApiException e = new LinodeApiException("Linode #" + linodeId + " not found");
+        e.setStatusCode(404);
+        return e;
+    });
+    private volatile long batchWindow;
+    private volatile int maxBatchSize = DEFAULT_MAX_BATCH_SIZE;
+    private volatile LinodeApiHedgingPolicy hedgingPolicy;
+    private volatile AsyncTaskExecutor hedgingExecutor;
 
 // Lifecycle
 
@@ -100,13 +136,156 @@ public class LinodeApiRequestSender implements InitializingBean {
         this.restTemplate = restTemplate;
     }
 
-    public URI getBaseURI() {
-        return this.baseURI;
+    public LinodeApiRetryPolicy getRetryPolicy() {
+        return this.retryPolicy;
     }
-    public void setBaseURI(URI baseURI) {
-        if (baseURI == null)
-            throw new IllegalArgumentException("null baseURI");
-        this.baseURI = baseURI;
+
+    /**
+     * Configure the policy for retrying idempotent requests that fail with a transient error.
+     *
+     * <p>
+     * By default, a {@link LinodeApiRetryPolicy} with default settings is used.
+     *
+     * @param retryPolicy retry policy, or null to never retry
+     */
+    public void setRetryPolicy(LinodeApiRetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+    }
+
+    /**
+     * Perform an action in the current thread with the configured {@linkplain #setRetryPolicy retry policy}
+     * suspended, so that each request made by this instance during the action is attempted only once.
+     *
+     * <p>
+     * This is for callers that retry failed requests themselves, e.g., to schedule the wait between attempts
+     * instead of blocking a thread, and don't want those retries multiplied by this instance's own.
+     *
+     * @param action action to perform
+     * @param <R> result type
+     * @return result from {@code action}
+     * @throws IllegalArgumentException if {@code action} is null
+     */
+    public <R> R withoutRetries(Supplier<R> action) {
+        if (action == null)
+            throw new IllegalArgumentException("null action");
+        final Boolean previous = this.retriesSuppressed.get();
+        this.retriesSuppressed.set(Boolean.TRUE);
+        try {
+            return action.get();
+        } finally {
+            if (previous != null)
+                this.retriesSuppressed.set(previous);
+            else
+                this.retriesSuppressed.remove();
+        }
+    }
+
+    public boolean isCoalesceRequests() {
+        return this.coalesceRequests;
+    }
+
+    /**
+     * Configure whether to coalesce concurrent identical GET requests.
+     *
+     * <p>
+     * When enabled, a GET request issued while an identical request (same URL and same filter) is already in flight
+     * does not generate a new HTTP exchange; instead, it waits for and returns the result of the in-flight request.
+     * Note this means concurrent callers can receive the same response object, so callers must not modify it.
+     *
+     * <p>
+     * Default is false.
+     *
+     * @param coalesceRequests true to coalesce identical GET requests
+     */
+    public void setCoalesceRequests(boolean coalesceRequests) {
+        this.coalesceRequests = coalesceRequests;
+    }
+
+    public long getBatchWindow() {
+        return this.batchWindow;
+    }
+
+    /**
+     * Configure the window for batching concurrent {@link #getLinode getLinode()} lookups.
+     *
+     * <p>
+     * When non-zero, the first {@link #getLinode getLinode()} call waits up to this long for other calls to arrive,
+     * then all of the requested IDs are looked up with a single list query filtered on {@code id}, and the results
+     * are handed back to the individual callers. A caller whose Linode does not exist receives a
+     * {@link LinodeApiException} with status code 404, just as it would without batching.
+     *
+     * <p>
+     * This converts many round trips into one, at the cost of adding up to {@code batchWindow} milliseconds
+     * of latency to each lookup.
+     *
+     * <p>
+     * Default is zero, which disables batching.
+     *
+     * @param batchWindow batching window in milliseconds, or zero to disable
+     * @throws IllegalArgumentException if {@code batchWindow} is negative
+     */
+    public void setBatchWindow(long batchWindow) {
+        if (batchWindow < 0)
+            throw new IllegalArgumentException("batchWindow < 0");
+        this.batchWindow = batchWindow;
+    }
+
+    public int getMaxBatchSize() {
+        return this.maxBatchSize;
+    }
+
+    /**
+     * Configure the maximum number of distinct Linode IDs looked up by a single batched query.
+     *
+     * <p>
+     * A batch is sent as soon as it reaches this size, without waiting for the rest of the {@linkplain #setBatchWindow
+     * batch window}. Default is {@value #DEFAULT_MAX_BATCH_SIZE}, which is the API's default page size.
+     *
+     * @param maxBatchSize maximum batch size
+     * @throws IllegalArgumentException if {@code maxBatchSize} is less than one
+     */
+    public void setMaxBatchSize(int maxBatchSize) {
+        if (maxBatchSize < 1)
+            throw new IllegalArgumentException("maxBatchSize < 1");
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    public LinodeApiHedgingPolicy getHedgingPolicy() {
+        return this.hedgingPolicy;
+    }
+
+    /**
+     * Configure the policy for hedging slow GET requests.
+     *
+     * <p>
+     * Hedging also requires a {@linkplain #setHedgingExecutor hedging executor}. When both are configured, each GET request
+     * is performed by the executor while the calling thread waits; if no response has arrived after the delay determined
+     * by {@code hedgingPolicy}, a duplicate request is performed by the executor, and the first response to arrive is
+     * returned. The losing request's thread is interrupted, and its response, if any, is discarded.
+     *
+     * <p>
+     * By default, no policy is configured and requests are not hedged.
+     *
+     * @param hedgingPolicy hedging policy, or null to never hedge
+     */
+    public void setHedgingPolicy(LinodeApiHedgingPolicy hedgingPolicy) {
+        this.hedgingPolicy = hedgingPolicy;
+    }
+
+    public AsyncTaskExecutor getHedgingExecutor() {
+        return this.hedgingExecutor;
+    }
+
+    /**
+     * Configure the executor that performs {@linkplain #setHedgingPolicy hedged} GET requests.
+     *
+     * <p>
+     * The executor should be able to run at least two tasks for every thread that may send requests concurrently.
+     *
+     * @param hedgingExecutor executor for hedged requests, or null to never hedge
+     */
+    public void setHedgingExecutor(AsyncTaskExecutor hedgingExecutor) {
+        this.hedgingExecutor = hedgingExecutor;
     }
 
 // Linodes
@@ -143,14 +322,93 @@ public class LinodeApiRequestSender implements InitializingBean {
         return this.getPage(Linodes.class, filter, page, "linode/instances");
     }
 
+    /**
+     * Stream all Linode instances.
+     *
+     * <p>
+     * Pages are loaded lazily as the stream is consumed; see {@link #stream stream()}.
+     *
+     * @param executor executor for loading pages ahead of time, or null to load pages synchronously on demand
+     * @param readAhead maximum number of pages to load ahead of time (ignored if {@code executor} is null)
+     * @param filter filter for returned values, or null for no filter
+     * @return lazily evaluated stream of all Linodes matching {@code filter}
+     * @throws IllegalArgumentException if {@code readAhead} is negative
+     */
+    public Stream<Linode> streamLinodes(AsyncExecutor executor, int readAhead, Filter filter) {
+        return this.stream(Linodes.class, executor, readAhead, filter, "linode/instances");
+    }
+
+    /**
+     * Process all Linode instances one at a time, decoding each page incrementally as it is received.
+     *
+     * <p>
+     * See {@link #forEach forEach()}.
+     *
+     * @param maxResults maximum number of results to process, or zero for no limit
+     * @param filter filter for returned values, or null for no filter
+     * @param consumer receives each Linode as soon as it has been decoded
+     * @return the number of Linode instances processed
+     * @throws RestClientException if an error occurs
+     * @throws IllegalArgumentException if {@code consumer} is null
+     * @throws IllegalArgumentException if {@code maxResults} is negative
+     */
+    public int forEachLinode(int maxResults, Filter filter, Consumer<? super Linode> consumer) {
+        return this.forEach(Linodes.class, maxResults, filter, consumer, "linode/instances");
+    }
+
+    /**
+     * Get summaries of all Linode instances.
+     *
+     * <p>
+     * This is a much cheaper alternative to {@link #getLinodes getLinodes()} when only the properties
+     * in {@link LinodeSummary} are needed, e.g., for status polling.
+     *
+     * @param executor executor for loading pages, or null to load pages synchronously
+     * @param maxResults limit on the number of results returned, or zero for no limit
+     * @param filter filter for returned values, or null for no filter
+     * @return mutable list of summaries of all Linodes matching {@code filter}
+     * @throws RestClientException if an error occurs
+     * @throws InterruptedException if the current thread is interrupted while waiting for {@code executor}
+     * @throws IllegalArgumentException if {@code maxResults} is negative
+     */
+    public List<LinodeSummary> getLinodeSummaries(AsyncExecutor executor, int maxResults, Filter filter)
+      throws InterruptedException {
+        return this.getAll(LinodeSummaries.class, executor, maxResults, filter, "linode/instances");
+    }
+
+    /**
+     * Process summaries of all Linode instances one at a time, decoding each page incrementally as it is received.
+     *
+     * <p>
+     * See {@link #forEach forEach()} and {@link #getLinodeSummaries getLinodeSummaries()}.
+     *
+     * @param maxResults maximum number of results to process, or zero for no limit
+     * @param filter filter for returned values, or null for no filter
+     * @param consumer receives each Linode summary as soon as it has been decoded
+     * @return the number of Linode instances processed
+     * @throws RestClientException if an error occurs
+     * @throws IllegalArgumentException if {@code consumer} is null
+     * @throws IllegalArgumentException if {@code maxResults} is negative
+     */
+    public int forEachLinodeSummary(int maxResults, Filter filter, Consumer<? super LinodeSummary> consumer) {
+        return this.forEach(LinodeSummaries.class, maxResults, filter, consumer, "linode/instances");
+    }
+
     /**
      * Get a particular Linode instance.
      *
+     * <p>
+     * If a {@linkplain #setBatchWindow batch window} is configured, this lookup may be combined with
+     * concurrent lookups into a single list query.
+     *
      * @param linodeId Linode ID
      * @return specified Linode
      * @throws RestClientException if an error occurs
      */
     public Linode getLinode(int linodeId) {
+        final long window = this.batchWindow;
+        if (window > 0)
+            return this.await(this.linodeBatchLoader.load(linodeId, window, TimeUnit.MILLISECONDS, this.maxBatchSize));
         return this.get(Linode.class, "linode/instances/{id}", linodeId);
     }
 
@@ -215,7 +473,7 @@ public class LinodeApiRequestSender implements InitializingBean {
      */
     public void boot(int linodeId, int configId) {
         final Query query = configId != -1 ? new Query("config_id", configId) : new Query();
-        this.post(query, "linode/instances/{id}/boot", linodeId);
+        this.postIdempotent(query, "linode/instances/{id}/boot", linodeId);
     }
 
 // Linodes: Clone
@@ -321,7 +579,7 @@ public class LinodeApiRequestSender implements InitializingBean {
      * @throws RestClientException if an error occurs
      */
     public void shutdownLinode(int linodeId) {
-        this.post("", "linode/instances/{id}/shutdown", linodeId);
+        this.postIdempotent("", "linode/instances/{id}/shutdown", linodeId);
     }
 
 // Linodes: Volumes
@@ -361,6 +619,23 @@ public class LinodeApiRequestSender implements InitializingBean {
         return this.getPage(Volumes.class, filter, page, "linode/instances/{id}/volumes", linodeId);
     }
 
+    /**
+     * Stream all volumes attached to a Linode instance.
+     *
+     * <p>
+     * Pages are loaded lazily as the stream is consumed; see {@link #stream stream()}.
+     *
+     * @param executor executor for loading pages ahead of time, or null to load pages synchronously on demand
+     * @param readAhead maximum number of pages to load ahead of time (ignored if {@code executor} is null)
+     * @param filter filter for returned values, or null for no filter
+     * @param linodeId Linode ID
+     * @return lazily evaluated stream of all volumes associated with the specified Linode matching {@code filter}
+     * @throws IllegalArgumentException if {@code readAhead} is negative
+     */
+    public Stream<Volume> streamLinodeVolumes(AsyncExecutor executor, int readAhead, Filter filter, int linodeId) {
+        return this.stream(Volumes.class, executor, readAhead, filter, "linode/instances/{id}/volumes", linodeId);
+    }
+
 // Linodes: Backups
 
     /**
@@ -415,6 +690,23 @@ public class LinodeApiRequestSender implements InitializingBean {
         return this.getPage(Configs.class, filter, page, "linode/instances/{id}/configs", linodeId);
     }
 
+    /**
+     * Stream all configs associated with a Linode instance.
+     *
+     * <p>
+     * Pages are loaded lazily as the stream is consumed; see {@link #stream stream()}.
+     *
+     * @param executor executor for loading pages ahead of time, or null to load pages synchronously on demand
+     * @param readAhead maximum number of pages to load ahead of time (ignored if {@code executor} is null)
+     * @param filter filter for returned values, or null for no filter
+     * @param linodeId Linode ID
+     * @return lazily evaluated stream of all configs associated with the specified Linode matching {@code filter}
+     * @throws IllegalArgumentException if {@code readAhead} is negative
+     */
+    public Stream<Config> streamLinodeConfigs(AsyncExecutor executor, int readAhead, Filter filter, int linodeId) {
+        return this.stream(Configs.class, executor, readAhead, filter, "linode/instances/{id}/configs", linodeId);
+    }
+
     /**
      * Get a particular Linode config.
      *
@@ -504,6 +796,23 @@ public class LinodeApiRequestSender implements InitializingBean {
         return this.getPage(Disks.class, filter, page, "linode/instances/{id}/disks", linodeId);
     }
 
+    /**
+     * Stream all disks associated with a Linode instance.
+     *
+     * <p>
+     * Pages are loaded lazily as the stream is consumed; see {@link #stream stream()}.
+     *
+     * @param executor executor for loading pages ahead of time, or null to load pages synchronously on demand
+     * @param readAhead maximum number of pages to load ahead of time (ignored if {@code executor} is null)
+     * @param filter filter for returned values, or null for no filter
+     * @param linodeId Linode ID
+     * @return lazily evaluated stream of all disks associated with the specified Linode matching {@code filter}
+     * @throws IllegalArgumentException if {@code readAhead} is negative
+     */
+    public Stream<Disk> streamLinodeDisks(AsyncExecutor executor, int readAhead, Filter filter, int linodeId) {
+        return this.stream(Disks.class, executor, readAhead, filter, "linode/instances/{id}/disks", linodeId);
+    }
+
     /**
      * Get the specified disk.
      *
@@ -699,6 +1008,22 @@ public class LinodeApiRequestSender implements InitializingBean {
         return this.getPage(Kernels.class, filter, page, "linode/kernels");
     }
 
+    /**
+     * Stream all kernels.
+     *
+     * <p>
+     * Pages are loaded lazily as the stream is consumed; see {@link #stream stream()}.
+     *
+     * @param executor executor for loading pages ahead of time, or null to load pages synchronously on demand
+     * @param readAhead maximum number of pages to load ahead of time (ignored if {@code executor} is null)
+     * @param filter filter for returned values, or null for no filter
+     * @return lazily evaluated stream of all kernels matching {@code filter}
+     * @throws IllegalArgumentException if {@code readAhead} is negative
+     */
+    public Stream<Kernel> streamKernels(AsyncExecutor executor, int readAhead, Filter filter) {
+        return this.stream(Kernels.class, executor, readAhead, filter, "linode/kernels");
+    }
+
     /**
      * Get a specific kernel.
      *
@@ -748,6 +1073,40 @@ public class LinodeApiRequestSender implements InitializingBean {
         return this.getPage(StackScripts.class, filter, page, "linode/stackscripts");
     }
 
+    /**
+     * Stream all StackScripts.
+     *
+     * <p>
+     * Pages are loaded lazily as the stream is consumed; see {@link #stream stream()}.
+     *
+     * @param executor executor for loading pages ahead of time, or null to load pages synchronously on demand
+     * @param readAhead maximum number of pages to load ahead of time (ignored if {@code executor} is null)
+     * @param filter filter for returned values, or null for no filter
+     * @return lazily evaluated stream of all StackScripts matching {@code filter}
+     * @throws IllegalArgumentException if {@code readAhead} is negative
+     */
+    public Stream<StackScript> streamStackScripts(AsyncExecutor executor, int readAhead, Filter filter) {
+        return this.stream(StackScripts.class, executor, readAhead, filter, "linode/stackscripts");
+    }
+
+    /**
+     * Process all StackScripts one at a time, decoding each page incrementally as it is received.
+     *
+     * <p>
+     * See {@link #forEach forEach()}.
+     *
+     * @param maxResults maximum number of results to process, or zero for no limit
+     * @param filter filter for returned values, or null for no filter
+     * @param consumer receives each StackScript as soon as it has been decoded
+     * @return the number of StackScripts processed
+     * @throws RestClientException if an error occurs
+     * @throws IllegalArgumentException if {@code consumer} is null
+     * @throws IllegalArgumentException if {@code maxResults} is negative
+     */
+    public int forEachStackScript(int maxResults, Filter filter, Consumer<? super StackScript> consumer) {
+        return this.forEach(StackScripts.class, maxResults, filter, consumer, "linode/stackscripts");
+    }
+
     /**
      * Get a specific StackScript.
      *
@@ -822,6 +1181,22 @@ public class LinodeApiRequestSender implements InitializingBean {
         return this.getPage(Types.class, filter, page, "linode/types");
     }
 
+    /**
+     * Stream all Linode types.
+     *
+     * <p>
+     * Pages are loaded lazily as the stream is consumed; see {@link #stream stream()}.
+     *
+     * @param executor executor for loading pages ahead of time, or null to load pages synchronously on demand
+     * @param readAhead maximum number of pages to load ahead of time (ignored if {@code executor} is null)
+     * @param filter filter for returned values, or null for no filter
+     * @return lazily evaluated stream of all Linode types matching {@code filter}
+     * @throws IllegalArgumentException if {@code readAhead} is negative
+     */
+    public Stream<Type> streamTypes(AsyncExecutor executor, int readAhead, Filter filter) {
+        return this.stream(Types.class, executor, readAhead, filter, "linode/types");
+    }
+
     /**
      * Get a specific Linode type.
      *
@@ -870,6 +1245,22 @@ public class LinodeApiRequestSender implements InitializingBean {
         return this.getPage(Volumes.class, filter, page, "volumes");
     }
 
+    /**
+     * Stream all volumes.
+     *
+     * <p>
+     * Pages are loaded lazily as the stream is consumed; see {@link #stream stream()}.
+     *
+     * @param executor executor for loading pages ahead of time, or null to load pages synchronously on demand
+     * @param readAhead maximum number of pages to load ahead of time (ignored if {@code executor} is null)
+     * @param filter filter for returned values, or null for no filter
+     * @return lazily evaluated stream of all volumes matching {@code filter}
+     * @throws IllegalArgumentException if {@code readAhead} is negative
+     */
+    public Stream<Volume> streamVolumes(AsyncExecutor executor, int readAhead, Filter filter) {
+        return this.stream(Volumes.class, executor, readAhead, filter, "volumes");
+    }
+
     /**
      * Create a new volume.
      *
@@ -924,7 +1315,7 @@ public class LinodeApiRequestSender implements InitializingBean {
      * @throws RestClientException if an error occurs
      */
     public void detachVolume(int volumeId) {
-        this.post(new Query(), "volumes/{vid}/detach", volumeId);
+        this.postIdempotent(new Query(), "volumes/{vid}/detach", volumeId);
     }
 
     /**
@@ -990,6 +1381,22 @@ public class LinodeApiRequestSender implements InitializingBean {
         return this.getPage(Regions.class, filter, page, "regions");
     }
 
+    /**
+     * Stream all Linode regions.
+     *
+     * <p>
+     * Pages are loaded lazily as the stream is consumed; see {@link #stream stream()}.
+     *
+     * @param executor executor for loading pages ahead of time, or null to load pages synchronously on demand
+     * @param readAhead maximum number of pages to load ahead of time (ignored if {@code executor} is null)
+     * @param filter filter for returned values, or null for no filter
+     * @return lazily evaluated stream of all regions matching {@code filter}
+     * @throws IllegalArgumentException if {@code readAhead} is negative
+     */
+    public Stream<Region> streamRegions(AsyncExecutor executor, int readAhead, Filter filter) {
+        return this.stream(Regions.class, executor, readAhead, filter, "regions");
+    }
+
     /**
      * Get a Linode region.
      *
@@ -1050,6 +1457,40 @@ public class LinodeApiRequestSender implements InitializingBean {
         return this.getPage(Images.class, filter, page, "images");
     }
 
+    /**
+     * Stream all images.
+     *
+     * <p>
+     * Pages are loaded lazily as the stream is consumed; see {@link #stream stream()}.
+     *
+     * @param executor executor for loading pages ahead of time, or null to load pages synchronously on demand
+     * @param readAhead maximum number of pages to load ahead of time (ignored if {@code executor} is null)
+     * @param filter filter for returned values, or null for no filter
+     * @return lazily evaluated stream of all images matching {@code filter}
+     * @throws IllegalArgumentException if {@code readAhead} is negative
+     */
+    public Stream<Image> streamImages(AsyncExecutor executor, int readAhead, Filter filter) {
+        return this.stream(Images.class, executor, readAhead, filter, "images");
+    }
+
+    /**
+     * Process all images one at a time, decoding each page incrementally as it is received.
+     *
+     * <p>
+     * See {@link #forEach forEach()}.
+     *
+     * @param maxResults maximum number of results to process, or zero for no limit
+     * @param filter filter for returned values, or null for no filter
+     * @param consumer receives each Image as soon as it has been decoded
+     * @return the number of images processed
+     * @throws RestClientException if an error occurs
+     * @throws IllegalArgumentException if {@code consumer} is null
+     * @throws IllegalArgumentException if {@code maxResults} is negative
+     */
+    public int forEachImage(int maxResults, Filter filter, Consumer<? super Image> consumer) {
+        return this.forEach(Images.class, maxResults, filter, consumer, "images");
+    }
+
     /**
      * Get an image.
      *
@@ -1112,7 +1553,11 @@ public class LinodeApiRequestSender implements InitializingBean {
             throw new IllegalArgumentException("null pathTemplate");
 
         // Perform query
-        return this.query(rt -> rt.getForObject(this.buildTemplateURL(pathTemplate), responseType, templateParameters));
+        final List<Object> key = Arrays.asList(responseType, pathTemplate,
+          templateParameters != null ? Arrays.asList(templateParameters) : null);
+        final URI uri = this.buildURI(pathTemplate, templateParameters);
+        return this.coalesce(key, () -> this.retry(HttpMethod.GET, uri,
+          () -> this.hedge(uri, () -> this.query(rt -> rt.getForObject(uri, responseType)))));
     }
 
     /**
@@ -1128,6 +1573,29 @@ public class LinodeApiRequestSender implements InitializingBean {
         this.postFor(String.class, request, pathTemplate, templateParameters);
     }
 
+    /**
+     * POST to a resource, where the operation is known to be safe to repeat, so that it may be retried.
+     *
+     * @param request request object
+     * @param pathTemplate resource URI path (relative)
+     * @param templateParameters parameter values for parameters in {@code pathTemplate}
+     * @throws RestClientException if an error occurs
+     * @throws IllegalArgumentException if any parameter is null
+     * @see #setRetryPolicy
+     */
+    protected void postIdempotent(Object request, String pathTemplate, Object... templateParameters) {
+
+        // Sanity check
+        if (request == null)
+            throw new IllegalArgumentException("null request");
+        if (pathTemplate == null)
+            throw new IllegalArgumentException("null pathTemplate");
+
+        // Perform query
+        final URI uri = this.buildURI(pathTemplate, templateParameters);
+        this.retry(HttpMethod.POST, uri, true, () -> this.query(rt -> rt.postForObject(uri, request, String.class)));
+    }
+
     /**
      * POST to a resource expecting response.
      *
@@ -1150,8 +1618,9 @@ public class LinodeApiRequestSender implements InitializingBean {
         if (pathTemplate == null)
             throw new IllegalArgumentException("null pathTemplate");
 
-        // Perform query
-        return this.query(rt -> rt.postForObject(this.buildTemplateURL(pathTemplate), request, responseType, templateParameters));
+        // Perform query; this is only retried if rejected due to rate limiting
+        final URI uri = this.buildURI(pathTemplate, templateParameters);
+        return this.retry(HttpMethod.POST, uri, false, () -> this.query(rt -> rt.postForObject(uri, request, responseType)));
     }
 
     /**
@@ -1172,7 +1641,11 @@ public class LinodeApiRequestSender implements InitializingBean {
             throw new IllegalArgumentException("null pathTemplate");
 
         // Perform query
-        this.submit(rt -> rt.put(this.buildTemplateURL(pathTemplate), request, templateParameters));
+        final URI uri = this.buildURI(pathTemplate, templateParameters);
+        this.retry(HttpMethod.PUT, uri, () -> {
+            this.submit(rt -> rt.put(uri, request));
+            return null;
+        });
     }
 
     /**
@@ -1190,7 +1663,11 @@ public class LinodeApiRequestSender implements InitializingBean {
             throw new IllegalArgumentException("null pathTemplate");
 
         // Perform query
-        this.submit(rt -> rt.delete(this.buildTemplateURL(pathTemplate), templateParameters));
+        final URI uri = this.buildURI(pathTemplate, templateParameters);
+        this.retry(HttpMethod.DELETE, uri, () -> {
+            this.submit(rt -> rt.delete(uri));
+            return null;
+        });
     }
 
     /**
@@ -1200,6 +1677,12 @@ public class LinodeApiRequestSender implements InitializingBean {
      * Pages after the first are loaded asynchronously using the given {@link AsyncExecutor}, if any;
      * if {@code executor} is null, pages are loaded synchronously and sequentially.
      *
+     * <p>
+     * When loading asynchronously, at most {@link AsyncExecutor#getMaxConcurrency executor.getMaxConcurrency()} pages
+     * (or {@link #getMaxPagesInFlight}, if the executor doesn't specify a limit) are loaded at the same time, and no pages
+     * are requested beyond those needed to produce {@code maxResults} results. If any page fails to load, all outstanding
+     * page loads are cancelled.
+     *
      * @param responseType paginated response type
      * @param executor executor for loading pages, or null to load pages synchronously
      * @param maxResults limit on the number of results returned, or zero for no limit
@@ -1218,48 +1701,225 @@ public class LinodeApiRequestSender implements InitializingBean {
       int maxResults, Filter filter, String pathTemplate, Object... templateParameters) throws InterruptedException {
 
         // Sanity check
+        if (responseType == null)
+            throw new IllegalArgumentException("null responseType");
+        if (pathTemplate == null)
+            throw new IllegalArgumentException("null pathTemplate");
+        if (templateParameters == null)
+            throw new IllegalArgumentException("null templateParameters");
         if (maxResults < 0)
             throw new IllegalArgumentException("maxResults < 0");
-        if (maxResults == 0)
-            maxResults = Integer.MAX_VALUE;
 
-        // Initialize list
-        final ArrayList<T> list = new ArrayList<>();
+        // Determine how many pages we can load at the same time
+        final int maxInFlight = executor != null && executor.getMaxConcurrency() > 0 ?
+          executor.getMaxConcurrency() : this.getMaxPagesInFlight();
 
-        // Get first page
-        final P firstPage = this.getPage(responseType, filter, 1, pathTemplate, templateParameters);
-        list.addAll(firstPage.getData());
-
-        // Get remaining pages synchonously if no executor provided, otherwise asynchonously using executor
-        if (executor == null) {
-            for (int pageNum = 2; pageNum <= firstPage.getPages() && list.size() < maxResults; pageNum++)
-                list.addAll(this.getPage(responseType, filter, pageNum, pathTemplate, templateParameters).getData());
-        } else {
-            final ArrayList<Future<P>> futureList = new ArrayList<>(firstPage.getPages() - 1);
-            final int numPages = Math.min(firstPage.getPages(),
-              (int)Math.round(Math.ceil((double)maxResults / (double)firstPage.getData().size())));
-            for (int pageNum = 2; pageNum <= numPages; pageNum++) {
-                final int pageNum0 = pageNum;
-                futureList.add(executor.submit(()
-                  -> this.getPage(responseType, filter, pageNum0, pathTemplate, templateParameters)));
+        // Load pages and gather results, at our priority even if pages are loaded by other threads
+        final LinodeApiPriority priority = LinodeApiPriority.current();
+        final Object event = LinodeApiEvents.beginAggregation();
+        final ArrayList<T> list = new ArrayList<>();
+        try (PageSpliterator<T, P> spliterator = new PageSpliterator<>(page -> LinodeApiPriority.supply(priority,
+          () -> this.getPage(responseType, filter, page, pathTemplate, templateParameters)), executor, maxInFlight, maxResults)) {
+            boolean success = false;
+            try {
+                spliterator.forEachRemaining(list::add);
+                success = true;
+            } finally {
+                this.reportAggregation(event, pathTemplate, templateParameters, spliterator.getPagesLoaded(), list.size(), success);
             }
-            for (Future<P> future : futureList) {
-                try {
-                    list.addAll(future.get().getData());
-                } catch (ExecutionException e) {
-                    throw new RestClientException("error in asynchronous page load", e.getCause());
-                }
+        } catch (RestClientException e) {
+            if (e.getCause() instanceof InterruptedException) {
+                Thread.interrupted();
+                throw (InterruptedException)e.getCause();
             }
+            throw e;
         }
 
-        // Trim list if last page went over
-        if (list.size() > maxResults)
-            list.subList(maxResults, list.size()).clear();
-
         // Done
         return list;
     }
 
+    /**
+     * Stream all instances of the specified type, loading pages lazily as the stream is consumed.
+     *
+     * <p>
+     * Unlike {@link #getAll getAll()}, results are not accumulated into a list, so memory usage is bounded by the
+     * read-ahead window rather than by the total number of results. No pages are loaded until the stream's terminal
+     * operation begins. If an {@link AsyncExecutor} is given, up to {@code readAhead} pages beyond the one being
+     * consumed are loaded in the background; otherwise, each page is loaded synchronously when it's needed.
+     *
+     * <p>
+     * Errors are thrown as {@link RestClientException}s from the stream's terminal operation. Closing the stream
+     * cancels any outstanding page loads, so callers using read-ahead should close the stream if they don't
+     * consume it fully (e.g., using try-with-resources).
+     *
+     * @param responseType paginated response type
+     * @param executor executor for loading pages ahead of time, or null to load pages synchronously on demand
+     * @param readAhead maximum number of pages to load ahead of time (ignored if {@code executor} is null)
+     * @param filter filter for returned values, or null for no filter
+     * @param pathTemplate resource URI path (relative)
+     * @param templateParameters parameter values for parameters in {@code pathTemplate}
+     * @param <T> item type
+     * @param <P> paginated response type
+     * @return lazily evaluated stream of results
+     * @throws IllegalArgumentException if {@code responseType}, {@code pathTemplate}, or {@code templateParameters} is null
+     * @throws IllegalArgumentException if {@code readAhead} is negative
+     */
+    protected <T, P extends Paginated<T>> Stream<T> stream(Class<P> responseType, AsyncExecutor executor,
+      int readAhead, Filter filter, String pathTemplate, Object... templateParameters) {
+
+        // Sanity check
+        if (responseType == null)
+            throw new IllegalArgumentException("null responseType");
+        if (pathTemplate == null)
+            throw new IllegalArgumentException("null pathTemplate");
+        if (templateParameters == null)
+            throw new IllegalArgumentException("null templateParameters");
+
+        // Build stream; pages are loaded at our priority even if loaded by other threads
+        final LinodeApiPriority priority = LinodeApiPriority.current();
+        final PageSpliterator<T, P> spliterator = new PageSpliterator<>(page -> LinodeApiPriority.supply(priority,
+          () -> this.getPage(responseType, filter, page, pathTemplate, templateParameters)), executor, readAhead, 0);
+        return StreamSupport.stream(spliterator, false).onClose(spliterator::close);
+    }
+
+    /**
+     * Process all instances of the specified type one at a time, decoding each page incrementally as it is received.
+     *
+     * <p>
+     * Unlike {@link #getAll getAll()} and {@link #stream stream()}, pages are not decoded into complete object graphs;
+     * instead, each page's response body is parsed token-by-token as it arrives from the network, and each element
+     * is handed to {@code consumer} as soon as it has been decoded. This bounds memory usage to a single element,
+     * and allows processing to overlap with the network transfer. Pages are loaded sequentially, and parsing stops as soon
+     * as {@code maxResults} elements have been delivered, without decoding the rest of the page.
+     *
+     * <p>
+     * Because {@code consumer} may have already received some of a page's elements, a page is only retried
+     * after a transient error if no elements from it have been delivered yet. Requests are never
+     * {@linkplain #setCoalesceRequests coalesced}.
+     *
+     * @param responseType paginated response type
+     * @param maxResults maximum number of results to process, or zero for no limit
+     * @param filter filter for returned values, or null for no filter
+     * @param consumer receives each element as soon as it has been decoded
+     * @param pathTemplate resource URI path (relative)
+     * @param templateParameters parameter values for parameters in {@code pathTemplate}
+     * @param <T> item type
+     * @param <P> paginated response type
+     * @return the number of elements delivered to {@code consumer}
+     * @throws RestClientException if an error occurs
+     * @throws IllegalArgumentException if {@code responseType}, {@code consumer}, {@code pathTemplate},
+     *  or {@code templateParameters} is null
+     * @throws IllegalArgumentException if {@code maxResults} is negative
+     */
+    protected <T, P extends Paginated<T>> int forEach(Class<P> responseType, int maxResults, Filter filter,
+      Consumer<? super T> consumer, String pathTemplate, Object... templateParameters) {
+
+        // Sanity check
+        if (consumer == null)
+            throw new IllegalArgumentException("null consumer");
+        if (maxResults < 0)
+            throw new IllegalArgumentException("maxResults < 0");
+        final int limit = maxResults == 0 ? Integer.MAX_VALUE : maxResults;
+
+        // Load pages one at a time, stopping once we've delivered the maximum number of results
+        final Object event = LinodeApiEvents.beginAggregation();
+        final AtomicInteger count = new AtomicInteger();
+        final Consumer<T> countingConsumer = element -> {
+            count.incrementAndGet();
+            consumer.accept(element);
+        };
+        int page = 0;
+        boolean success = false;
+        try {
+            int numPages = 1;
+            while (page < numPages && count.get() < limit) {
+                final int remaining = limit == Integer.MAX_VALUE ? 0 : limit - count.get();
+                final P info = this.streamPage(responseType, filter, ++page, remaining, countingConsumer,
+                  pathTemplate, templateParameters);
+                numPages = info.getPages();
+            }
+            success = true;
+        } finally {
+            this.reportAggregation(event, pathTemplate, templateParameters, page, count.get(), success);
+        }
+        return count.get();
+    }
+
+    /**
+     * Query one page of a paginated resource via GET, decoding it incrementally as it is received.
+     *
+     * <p>
+     * Each element is handed to {@code consumer} as soon as it has been decoded. The returned page contains
+     * the response's page number, page count, and result count, but its {@linkplain Paginated#getData data} is empty.
+     *
+     * <p>
+     * If {@code maxResults} is non-zero, parsing stops once that many elements have been delivered, and the rest of the
+     * response is discarded; in that case, the returned page information may be incomplete.
+     *
+     * <p>
+     * A transient error is only retried if {@code consumer} has not received any elements yet.
+     *
+     * @param responseType paginated response type; must have a public default constructor
+     * @param filter filter for returned values, or null for no filter
+     * @param page page number (the first page is number one)
+     * @param maxResults maximum number of elements to deliver, or zero for no limit
+     * @param consumer receives each element as soon as it has been decoded
+     * @param pathTemplate resource URI path (relative)
+     * @param templateParameters parameter values for parameters in {@code pathTemplate}
+     * @param <T> item type
+     * @param <P> paginated response type
+     * @return page information, without any data
+     * @throws RestClientException if an error occurs
+     * @throws IllegalArgumentException if {@code page} is less than one
+     * @throws IllegalArgumentException if {@code maxResults} is negative
+     * @throws IllegalArgumentException if {@code responseType}, {@code consumer}, {@code pathTemplate},
+     *  or {@code templateParameters} is null
+     */
+    protected <T, P extends Paginated<T>> P streamPage(Class<P> responseType, Filter filter, int page, int maxResults,
+      Consumer<? super T> consumer, String pathTemplate, Object... templateParameters) {
+
+        // Sanity check
+        if (responseType == null)
+            throw new IllegalArgumentException("null responseType");
+        if (consumer == null)
+            throw new IllegalArgumentException("null consumer");
+        if (pathTemplate == null)
+            throw new IllegalArgumentException("null pathTemplate");
+        if (templateParameters == null)
+            throw new IllegalArgumentException("null templateParameters");
+        if (page < 1)
+            throw new IllegalArgumentException("page < 1");
+        if (maxResults < 0)
+            throw new IllegalArgumentException("maxResults < 0");
+
+        // Encode filter (the encoding is cached by the filter)
+        final String filterJson = filter != null ? filter.toJson() : null;
+
+        // Perform query, decoding the response as it arrives
+        final URI uri = this.buildURI(pathTemplate, templateParameters, "page", page);
+        final StreamingPageExtractor<T, P> extractor = new StreamingPageExtractor<>(
+          this.getResponseObjectMapper(), responseType, consumer, maxResults);
+        final RequestCallback callback = request -> {
+            request.getHeaders().setAccept(Collections.singletonList(MediaType.APPLICATION_JSON));
+            if (filterJson != null)
+                request.getHeaders().add(Constants.FILTER_HEADER, filterJson);
+        };
+        try {
+            return this.retry(HttpMethod.GET, uri, () -> {
+                try {
+                    return this.query(rt -> rt.execute(uri, HttpMethod.GET, callback, extractor));
+                } catch (LinodeApiException e) {
+                    if (extractor.getDelivered() > 0)
+                        throw new PartialResponseException(e);
+                    throw e;
+                }
+            });
+        } catch (PartialResponseException e) {
+            throw e.getLinodeApiException();
+        }
+    }
+
     /**
      * Query a paginated resource via GET.
      *
@@ -1288,20 +1948,305 @@ public class LinodeApiRequestSender implements InitializingBean {
         if (page < 1)
             throw new IllegalArgumentException("page < 1");
 
+        // Encode filter (the encoding is cached by the filter)
+        final String filterJson = filter != null ? filter.toJson() : null;
+
         // Perform query
-        return this.query(rt -> {
-            final String url = this.buildTemplateURL(pathTemplate, "page", "" + page);
+        final URI uri = this.buildURI(pathTemplate, templateParameters, "page", page);
+        return this.coalesce(Arrays.asList(responseType, pathTemplate, Arrays.asList(templateParameters), page, filterJson),
+          () -> this.retry(HttpMethod.GET, uri, () -> this.hedge(uri, () -> this.query(rt -> {
             final LinkedMultiValueMap<String, String> headers = new LinkedMultiValueMap<>();
-            if (filter != null) {
+            if (filterJson != null)
+                headers.add(Constants.FILTER_HEADER, filterJson);
+            final HttpEntity<Void> request = new HttpEntity<Void>(headers);
+            return rt.exchange(uri, HttpMethod.GET, request, responseType).getBody();
+        }))));
+    }
+
+    /**
+     * Perform a GET request, sharing the result with any concurrent identical requests if
+     * {@linkplain #setCoalesceRequests coalescing} is enabled.
+     *
+     * <p>
+     * If an identical request is already in flight, wait for it and return (or throw) its result;
+     * otherwise, perform {@code action} and make its result available to any identical requests that
+     * arrive in the meantime.
+     *
+     * @param key request identity; must have value semantics
+     * @param action action that performs the request
+     * @param <R> response type
+     * @return result from {@code action}
+     * @throws RestClientException if an error occurs
+     * @throws IllegalArgumentException if either parameter is null
+     */
+    @SuppressWarnings("unchecked")
+    protected <R> R coalesce(List<Object> key, Supplier<R> action) {
+
+        // Sanity check
+        if (key == null)
+            throw new IllegalArgumentException("null key");
+        if (action == null)
+            throw new IllegalArgumentException("null action");
+
+        // Coalescing disabled?
+        if (!this.coalesceRequests)
+            return action.get();
+
+        // Join an identical in-flight request, if any
+        final CompletableFuture<Object> future = new CompletableFuture<>();
+        final CompletableFuture<Object> existing = this.inFlight.putIfAbsent(key, future);
+        if (existing != null)
+            return (R)this.await(existing);
+
+        // Perform the request ourselves
+        try {
+            final R result = action.get();
+            future.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            this.inFlight.remove(key, future);
+        }
+    }
+
+    /**
+     * Wait for a shared request to complete and return (or throw) its result.
+     */
+    private <R> R await(Future<R> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new LinodeApiException("interrupted while waiting for Linode API request", e);
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException)cause;
+            if (cause instanceof Error)
+                throw (Error)cause;
+            throw new LinodeApiException("error sending Linode API request", cause);
+        }
+    }
+
+    /**
+     * Load a {@linkplain #setBatchWindow batch} of Linodes with a single list query filtered on {@code id}.
+     */
+    private Map<Integer, Linode> loadLinodes(Set<Integer> linodeIds) {
+        final FilterBuilder fb = new FilterBuilder();
+        final List<FilterBuilder.Condition> conditions = new ArrayList<>(linodeIds.size());
+        for (int linodeId : linodeIds)
+            conditions.add(fb.equal("id", linodeId));
+        final Filter filter = fb.where(conditions.size() == 1 ? conditions.get(0) : fb.or(conditions)).build();
+        final List<Linode> linodes;
+        try {
+            linodes = this.getAll(Linodes.class, null, 0, filter, "linode/instances");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new LinodeApiException("interrupted while loading Linodes", e);
+        }
+        final HashMap<Integer, Linode> map = new HashMap<>(linodes.size());
+        for (Linode linode : linodes)
+            map.put(linode.getId(), linode);
+        return map;
+    }
+
+    /**
+     * Perform an idempotent request, retrying it if it fails with a transient error according to the configured
+     * {@link LinodeApiRetryPolicy}, if any.
+     *
+     * <p>
+     * Retries are reported to the configured {@linkplain #setMetrics metrics}.
+     *
+     * @param method HTTP method of the request
+     * @param uri URI of the request
+     * @param action action that performs the request
+     * @param <R> response type
+     * @return result from {@code action}
+     * @throws LinodeApiException if an error occurs and either it's not transient or retries are exhausted
+     * @throws IllegalArgumentException if any parameter is null
+     */
+    protected <R> R retry(HttpMethod method, URI uri, Supplier<R> action) {
+        return this.retry(method, uri, true, action);
+    }
+
+    /**
+     * Perform a request, retrying it if it fails with a transient error according to the configured
+     * {@link LinodeApiRetryPolicy}, if any.
+     *
+     * <p>
+     * If {@code idempotent} is false, the request is only retried if it was rejected with HTTP 429.
+     *
+     * @param method HTTP method of the request
+     * @param uri URI of the request
+     * @param idempotent whether the request is safe to repeat
+     * @param action action that performs the request
+     * @param <R> response type
+     * @return result from {@code action}
+     * @throws LinodeApiException if an error occurs and either it's not transient or retries are exhausted
+     * @throws IllegalArgumentException if {@code method}, {@code uri}, or {@code action} is null
+     */
+    protected <R> R retry(HttpMethod method, URI uri, boolean idempotent, Supplier<R> action) {
+
+        // Sanity check
+        if (method == null)
+            throw new IllegalArgumentException("null method");
+        if (uri == null)
+            throw new IllegalArgumentException("null uri");
+        if (action == null)
+            throw new IllegalArgumentException("null action");
+
+        // Try until success, non-retryable error, or retries exhausted
+        final long startTime = System.nanoTime();
+        for (int attempt = 1; true; attempt++) {
+            try {
+                return action.get();
+            } catch (LinodeApiException e) {
+                final LinodeApiRetryPolicy policy = this.retryPolicy;
+                if (policy == null || this.retriesSuppressed.get() != null)
+                    throw e;
+                final long delay = policy.nextDelay(e, attempt,
+                  TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime), idempotent);
+                if (delay < 0)
+                    throw e;
+                this.log.info("retrying Linode API request in {}ms after attempt #{} failed: {}", delay, attempt, e.toString());
+                this.getMetrics().retry(LinodeApiRateLimiter.getEndpointClass(method, uri));
                 try {
-                    headers.add(Constants.FILTER_HEADER, this.toJson(filter));
-                } catch (JsonProcessingException e) {
-                    throw new HttpMessageNotWritableException("can't write filter: " + e.getMessage(), e);
+                    Thread.sleep(delay);
+                } catch (InterruptedException e2) {
+                    Thread.currentThread().interrupt();
+                    throw e;
                 }
             }
-            final HttpEntity<Void> request = new HttpEntity<Void>(headers);
-            return rt.exchange(url, HttpMethod.GET, request, responseType, templateParameters).getBody();
-        });
+        }
+    }
+
+    /**
+     * Perform a GET request, sending a duplicate request if it is slow according to the configured
+     * {@linkplain #setHedgingPolicy hedging policy}, and returning whichever response arrives first.
+     *
+     * <p>
+     * If hedging is not configured, this just performs {@code action}.
+     *
+     * @param uri URI of the request
+     * @param action action that performs the request
+     * @param <R> response type
+     * @return result from {@code action}
+     * @throws LinodeApiException if all attempts fail
+     * @throws IllegalArgumentException if either parameter is null
+     */
+    protected <R> R hedge(URI uri, Supplier<R> action) {
+
+        // Sanity check
+        if (uri == null)
+            throw new IllegalArgumentException("null uri");
+        if (action == null)
+            throw new IllegalArgumentException("null action");
+
+        // Is hedging enabled?
+        final LinodeApiHedgingPolicy policy = this.hedgingPolicy;
+        final AsyncTaskExecutor executor = this.hedgingExecutor;
+        if (policy == null || executor == null)
+            return action.get();
+        final String endpoint = LinodeApiRateLimiter.getEndpointClass(HttpMethod.GET, uri);
+        final long delay = policy.startRequest(endpoint, TimeUnit.NANOSECONDS);
+
+        // If the request won't be hedged, just perform it in this thread
+        if (delay < 0)
+            return this.performInline(policy, endpoint, action);
+
+        // Send the request from the executor, at our priority; the first attempt to succeed (or the last to fail) wins.
+        // Interrupting the losing attempt doesn't stop its HTTP request, so a duplicate request counts against the
+        // budget until both attempts have finished.
+        final LinodeApiPriority priority = LinodeApiPriority.current();
+        final CompletableFuture<R> result = new CompletableFuture<>();
+        final AtomicInteger remaining = new AtomicInteger(1);
+        final AtomicInteger running = new AtomicInteger(1);
+        final AtomicBoolean won = new AtomicBoolean();
+        final AtomicBoolean hedged = new AtomicBoolean();
+        final Runnable finished = () -> {
+            if (running.decrementAndGet() == 0 && hedged.get())
+                policy.hedgeFinished();
+        };
+        final Function<Boolean, Runnable> attempt = duplicate -> () -> {
+            final long startTime = System.nanoTime();
+            try {
+                final R response = LinodeApiPriority.supply(priority, action);
+                policy.recordLatency(endpoint, System.nanoTime() - startTime);
+                if (won.compareAndSet(false, true)) {
+                    if (duplicate)
+                        policy.hedgeWon();
+                    result.complete(response);
+                }
+            } catch (RuntimeException | Error e) {
+                if (remaining.decrementAndGet() == 0)
+                    result.completeExceptionally(e);
+            } finally {
+                finished.run();
+            }
+        };
+        final Future<?> original;
+        try {
+            original = executor.submit(attempt.apply(false));
+        } catch (TaskRejectedException e) {
+            this.log.debug("hedging executor is saturated, sending Linode API request without hedging: {}", e.toString());
+            return this.performInline(policy, endpoint, action);
+        }
+        Future<?> duplicate = null;
+        try {
+
+            // Wait for the response; if it's too slow, send a duplicate request if the budget allows
+            if (!this.waitFor(result, delay) && !result.isDone()) {
+                running.incrementAndGet();
+                if (policy.tryHedge()) {
+                    hedged.set(true);
+                    remaining.incrementAndGet();
+                    try {
+                        duplicate = executor.submit(attempt.apply(true));
+                    } catch (TaskRejectedException e) {
+                        if (remaining.decrementAndGet() == 0)
+                            result.completeExceptionally(e);
+                        finished.run();
+                    }
+                } else
+                    finished.run();
+            }
+            return this.await(result);
+        } finally {
+            original.cancel(true);
+            if (duplicate != null)
+                duplicate.cancel(true);
+        }
+    }
+
+    /**
+     * Perform a GET request in the current thread without hedging, recording its latency.
+     */
+    private <R> R performInline(LinodeApiHedgingPolicy policy, String endpoint, Supplier<R> action) {
+        final long startTime = System.nanoTime();
+        final R response = action.get();
+        policy.recordLatency(endpoint, System.nanoTime() - startTime);
+        return response;
+    }
+
+    /**
+     * Wait for a future to complete, up to the given timeout.
+     *
+     * @return true if {@code future} completed, false if the timeout expired
+     */
+    private boolean waitFor(Future<?> future, long nanos) {
+        try {
+            future.get(nanos, TimeUnit.NANOSECONDS);
+            return true;
+        } catch (TimeoutException e) {
+            return false;
+        } catch (ExecutionException e) {
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new LinodeApiException("interrupted while waiting for Linode API request", e);
+        }
     }
 
     /**
@@ -1371,95 +2316,43 @@ public class LinodeApiRequestSender implements InitializingBean {
     }
 
     /**
-     * Build an URL template by combining a base URI with a path template and optional additional query parameters.
+     * Get the {@link ObjectMapper} used by the configured {@link RestTemplate} to decode JSON responses.
      *
-     * @param pathTemplate path template
-     * @param queryParams additional query parameters in name, value pairs
-     * @return complete URL template
-     * @throws IllegalArgumentException if either parameter is null
+     * @return JSON decoder
      */
-    protected String buildTemplateURL(String pathTemplate, Object... queryParams) {
-
-        // Sanity check
-        if (pathTemplate == null)
-            throw new IllegalArgumentException("null path");
-        if (queryParams == null)
-            throw new IllegalArgumentException("null queryParams");
-
-        // Split off query portion
-        final String pathPortion;
-        String queryPortion;
-        final int questionMark = pathTemplate.lastIndexOf('?');
-        if (questionMark == -1) {
-            pathPortion = pathTemplate;
-            queryPortion = null;
-        } else {
-            pathPortion = pathTemplate.substring(0, questionMark);
-            queryPortion = pathTemplate.substring(questionMark + 1);
-        }
-
-        // Tack on additional query parameters, if any
-        if (queryParams.length > 0) {
-            final StringBuilder buf = new StringBuilder();
-            if (queryPortion != null)
-                buf.append('?').append(queryPortion);
-            int i = 0;
-            while (i < queryParams.length - 1) {
-                if (buf.length() > 0)
-                    buf.append('&');
-                try {
-                    buf.append(URLEncoder.encode(String.valueOf(queryParams[i++]), "UTF-8"));
-                    buf.append('=');
-                    buf.append(URLEncoder.encode(String.valueOf(queryParams[i++]), "UTF-8"));
-                } catch (UnsupportedEncodingException e) {
-                    throw new RuntimeException("unexpected exception", e);
-                }
-            }
-            queryPortion = buf.toString();
-        }
-
-        // Build URI
-        URI pathTemplateURI;
-        try {
-            pathTemplateURI = new URI(null, null, pathPortion, queryPortion, null);
-        } catch (URISyntaxException e) {
-            throw new IllegalArgumentException("unexpected exception", e);
+    private ObjectMapper getResponseObjectMapper() {
+        for (HttpMessageConverter<?> converter : this.restTemplate.getMessageConverters()) {
+            if (converter instanceof MappingJackson2HttpMessageConverter)
+                return ((MappingJackson2HttpMessageConverter)converter).getObjectMapper();
         }
-        final URI escapedURI = this.baseURI.resolve(pathTemplateURI);
-
-        // Un-escape template fields
-        final String templateURL = escapedURI.toString().replaceAll("%7B(\\w+)%7D", "{$1}");
-
-        // Done
-        return templateURL;
+        return LinodeApiJson.getObjectMapper();
     }
 
+// PartialResponseException
+
     /**
-     * Convert value to JSON.
-     *
-     * @param value value to convert
-     * @return JSON encoding of {@code value}
-     * @throws JsonProcessingException if a JSON encoding error occurs
-     * @throws IllegalArgumentException if {@code value} is null
+     * Prevents retrying a streamed page after some of its elements have already been delivered.
      */
-    protected String toJson(Object value) throws JsonProcessingException {
-        if (value == null)
-            throw new IllegalArgumentException("null value");
-        final StringWriter buf = new StringWriter();
-        try {
-            final JsonGenerator generator = this.objectMapper.getFactory().createGenerator(buf);
-            objectMapper.writer().writeValue(generator, value);
-            generator.flush();
-        } catch (IOException e) {
-            throw new RuntimeException("unexpected exception", e);
+    @SuppressWarnings("serial")
+    private static class PartialResponseException extends RuntimeException {
+
+        PartialResponseException(LinodeApiException cause) {
+            super(cause);
+        }
+
+        public LinodeApiException getLinodeApiException() {
+            return (LinodeApiException)this.getCause();
         }
-        return buf.toString();
     }
 
 // AsyncExecutor
 
     /**
      * Simplified asynchronous task execution interface.
+     *
+     * <p>
+     * An {@link AsyncExecutor} may also specify the maximum number of pages that a single aggregating query
+     * (e.g., {@link #getLinodes getLinodes()}) should load at the same time; see {@link #withMaxConcurrency}.
      */
     @FunctionalInterface
     public interface AsyncExecutor {
@@ -1473,6 +2366,42 @@ public class LinodeApiRequestSender implements InitializingBean {
          */
         <T> Future<T> submit(Callable<T> task);
 
+        /**
+         * Get the maximum number of pages that an aggregating query using this instance should load at the same time.
+         *
+         * <p>
+         * The implementation in {@link AsyncExecutor} returns zero.
+         *
+         * @return maximum number of concurrent page loads, or zero to use the sender's
+         *  {@linkplain LinodeApiRequestSender#getMaxPagesInFlight default}
+         */
+        default int getMaxConcurrency() {
+            return 0;
+        }
+
+        /**
+         * Create a view of this instance that limits aggregating queries to the given number of concurrent page loads.
+         *
+         * @param maxConcurrency maximum number of concurrent page loads, or zero to use the sender's default
+         * @return view of this instance with the given concurrency limit
+         * @throws IllegalArgumentException if {@code maxConcurrency} is negative
+         */
+        default AsyncExecutor withMaxConcurrency(int maxConcurrency) {
+            if (maxConcurrency < 0)
+                throw new IllegalArgumentException("maxConcurrency < 0");
+            final AsyncExecutor executor = this;
+            return new AsyncExecutor() {
+                @Override
+                public <T> Future<T> submit(Callable<T> task) {
+                    return executor.submit(task);
+                }
+                @Override
+                public int getMaxConcurrency() {
+                    return maxConcurrency;
+                }
+            };
+        }
+
         static AsyncExecutor of(AsyncTaskExecutor executor) {
             return executor::submit;
         }
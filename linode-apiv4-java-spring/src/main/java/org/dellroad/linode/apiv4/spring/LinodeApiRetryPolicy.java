@@ -0,0 +1,264 @@
+
+/*
+ * Copyright (C) 2017 Archie L. Cobbs. All rights reserved.
+ */
+
+package org.dellroad.linode.apiv4.spring;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.http.converter.HttpMessageConversionException;
+
+/**
+ * Configures how {@link LinodeApiRequestSender} automatically retries failed requests.
+ *
+ * <p>
+ * Idempotent requests (GET, PUT, DELETE, and POSTs explicitly marked as safe to repeat) are retried when the failure
+ * looks transient: an I/O error (e.g., a connection reset on a pooled keep-alive connection), or an HTTP 429, 502, 503,
+ * or 504 response. Other requests are only retried after an HTTP 429 response, which means the request was rejected
+ * without being processed. Successive attempts are separated by an exponentially increasing delay with random
+ * jitter, or by the delay requested in the response's {@code Retry-After} header, if any; no retry is attempted if it
+ * would start after the overall deadline.
+ *
+ * <p>
+ * Instances are thread safe and keep running counts of retries, for monitoring purposes.
+ */
+public class LinodeApiRetryPolicy {
+
+    /**
+     * Default maximum number of attempts ({@value #DEFAULT_MAX_ATTEMPTS}).
+     */
+    public static final int DEFAULT_MAX_ATTEMPTS = 3;
+
+    /**
+     * Default delay before the first retry in milliseconds ({@value #DEFAULT_INITIAL_BACKOFF}).
+     */
+    public static final long DEFAULT_INITIAL_BACKOFF = 200;
+
+    /**
+     * Default maximum delay between attempts in milliseconds ({@value #DEFAULT_MAX_BACKOFF}).
+     */
+    public static final long DEFAULT_MAX_BACKOFF = 10_000;
+
+    /**
+     * Default backoff multiplier ({@value #DEFAULT_MULTIPLIER}).
+     */
+    public static final double DEFAULT_MULTIPLIER = 2.0;
+
+    /**
+     * Default jitter fraction ({@value #DEFAULT_JITTER}).
+     */
+    public static final double DEFAULT_JITTER = 0.5;
+
+    /**
+     * Default overall deadline in milliseconds ({@value #DEFAULT_DEADLINE}).
+     */
+    public static final long DEFAULT_DEADLINE = 60_000;
+
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong exhausted = new AtomicLong();
+
+    private volatile int maxAttempts = DEFAULT_MAX_ATTEMPTS;
+    private volatile long initialBackoff = DEFAULT_INITIAL_BACKOFF;
+    private volatile long maxBackoff = DEFAULT_MAX_BACKOFF;
+    private volatile double multiplier = DEFAULT_MULTIPLIER;
+    private volatile double jitter = DEFAULT_JITTER;
+    private volatile long deadline = DEFAULT_DEADLINE;
+
+// Properties
+
+    public int getMaxAttempts() {
+        return this.maxAttempts;
+    }
+
+    /**
+     * Configure the maximum number of attempts, including the first. Default is {@value #DEFAULT_MAX_ATTEMPTS}.
+     *
+     * @param maxAttempts maximum number of attempts; one means never retry
+     * @throws IllegalArgumentException if {@code maxAttempts} is zero or negative
+     */
+    public void setMaxAttempts(int maxAttempts) {
+        if (maxAttempts < 1)
+            throw new IllegalArgumentException("maxAttempts < 1");
+        this.maxAttempts = maxAttempts;
+    }
+
+    public long getInitialBackoff() {
+        return this.initialBackoff;
+    }
+
+    /**
+     * Configure the delay before the first retry. Default is {@value #DEFAULT_INITIAL_BACKOFF}ms.
+     *
+     * @param initialBackoff delay in milliseconds
+     * @throws IllegalArgumentException if {@code initialBackoff} is negative
+     */
+    public void setInitialBackoff(long initialBackoff) {
+        if (initialBackoff < 0)
+            throw new IllegalArgumentException("initialBackoff < 0");
+        this.initialBackoff = initialBackoff;
+    }
+
+    public long getMaxBackoff() {
+        return this.maxBackoff;
+    }
+
+    /**
+     * Configure the maximum delay between attempts. Default is {@value #DEFAULT_MAX_BACKOFF}ms.
+     *
+     * @param maxBackoff delay in milliseconds
+     * @throws IllegalArgumentException if {@code maxBackoff} is negative
+     */
+    public void setMaxBackoff(long maxBackoff) {
+        if (maxBackoff < 0)
+            throw new IllegalArgumentException("maxBackoff < 0");
+        this.maxBackoff = maxBackoff;
+    }
+
+    public double getMultiplier() {
+        return this.multiplier;
+    }
+
+    /**
+     * Configure the factor by which the delay increases after each retry. Default is {@value #DEFAULT_MULTIPLIER}.
+     *
+     * @param multiplier backoff multiplier
+     * @throws IllegalArgumentException if {@code multiplier} is less than 1.0
+     */
+    public void setMultiplier(double multiplier) {
+        if (!(multiplier >= 1.0))
+            throw new IllegalArgumentException("multiplier < 1.0");
+        this.multiplier = multiplier;
+    }
+
+    public double getJitter() {
+        return this.jitter;
+    }
+
+    /**
+     * Configure random jitter. Each delay is reduced by a random fraction between zero and {@code jitter},
+     * which keeps multiple clients from retrying in lock-step. Default is {@value #DEFAULT_JITTER}.
+     *
+     * @param jitter jitter fraction from 0.0 (no jitter) to 1.0
+     * @throws IllegalArgumentException if {@code jitter} is not between 0.0 and 1.0
+     */
+    public void setJitter(double jitter) {
+        if (!(jitter >= 0.0 && jitter <= 1.0))
+            throw new IllegalArgumentException("invalid jitter");
+        this.jitter = jitter;
+    }
+
+    public long getDeadline() {
+        return this.deadline;
+    }
+
+    /**
+     * Configure the overall deadline, measured from the start of the first attempt, after which no retries are started.
+     * Default is {@value #DEFAULT_DEADLINE}ms.
+     *
+     * @param deadline deadline in milliseconds
+     * @throws IllegalArgumentException if {@code deadline} is negative
+     */
+    public void setDeadline(long deadline) {
+        if (deadline < 0)
+            throw new IllegalArgumentException("deadline < 0");
+        this.deadline = deadline;
+    }
+
+// Statistics
+
+    /**
+     * Get the total number of retries performed.
+     *
+     * @return number of retries
+     */
+    public long getRetryCount() {
+        return this.retries.get();
+    }
+
+    /**
+     * Get the total number of requests that failed with a retryable error after exhausting all attempts
+     * or reaching the deadline.
+     *
+     * @return number of requests that failed despite retrying
+     */
+    public long getExhaustedCount() {
+        return this.exhausted.get();
+    }
+
+// Methods
+
+    /**
+     * Determine whether the given error is transient, i.e., whether it's worth retrying an idempotent request.
+     *
+     * <p>
+     * The implementation in {@link LinodeApiRetryPolicy} returns true for HTTP 429, 502, 503, and 504 responses and
+     * for errors caused by an {@link IOException}, except for errors encoding or decoding a payload (i.e., those
+     * caused by a {@link JsonProcessingException} or {@link HttpMessageConversionException}), which would just
+     * happen again.
+     *
+     * @param e error from previous attempt
+     * @return true if {@code e} is transient
+     */
+    public boolean isRetryable(LinodeApiException e) {
+        switch (e.getStatusCode()) {
+        case LinodeApiRateLimiter.TOO_MANY_REQUESTS:
+        case 502:
+        case 503:
+        case 504:
+            return true;
+        default:
+            break;
+        }
+        for (Throwable t = e.getCause(); t != null; t = t.getCause()) {
+            if (t instanceof JsonProcessingException || t instanceof HttpMessageConversionException)
+                return false;
+            if (t instanceof IOException)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Determine how long to wait before the given retry.
+     *
+     * @param retry retry number (the first retry, i.e., the second attempt, is number one)
+     * @return delay in milliseconds
+     * @throws IllegalArgumentException if {@code retry} is zero or negative
+     */
+    public long getBackoff(int retry) {
+        if (retry < 1)
+            throw new IllegalArgumentException("retry < 1");
+        final double backoff = Math.min(this.maxBackoff, this.initialBackoff * Math.pow(this.multiplier, retry - 1));
+        return (long)(backoff * (1.0 - this.jitter * ThreadLocalRandom.current().nextDouble()));
+    }
+
+    /**
+     * Decide whether to retry after the given failure and, if so, determine the delay.
+     *
+     * @param e error from the most recent attempt
+     * @param attempt number of attempts made so far (the first attempt is number one)
+     * @param elapsed time in milliseconds since the first attempt started
+     * @param idempotent whether the request is safe to repeat
+     * @return delay in milliseconds before the next attempt, or -1 to give up
+     */
+    long nextDelay(LinodeApiException e, int attempt, long elapsed, boolean idempotent) {
+        if (!idempotent && e.getStatusCode() != LinodeApiRateLimiter.TOO_MANY_REQUESTS)
+            return -1;
+        if (!this.isRetryable(e))
+            return -1;
+        long delay = -1;
+        if (attempt < this.maxAttempts)
+            delay = e.getRetryAfter() >= 0 ? e.getRetryAfter() : this.getBackoff(attempt);
+        if (delay < 0 || elapsed + delay > this.deadline) {
+            this.exhausted.incrementAndGet();
+            return -1;
+        }
+        this.retries.incrementAndGet();
+        return delay;
+    }
+}
@@ -0,0 +1,163 @@
+
+/*
+ * Copyright (C) 2017 Archie L. Cobbs. All rights reserved.
+ */
+
+package org.dellroad.linode.apiv4.spring;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Dependency-free {@link LinodeApiMetrics} implementation that keeps per-endpoint statistics in memory.
+ *
+ * <p>
+ * For each endpoint, a {@link LatencyHistogram}, status code counts, byte counts, retry counts, and pagination
+ * counts are kept. Statistics can be polled via {@link #getEndpointStatistics}, or dumped via {@link #toString}.
+ *
+ * <p>
+ * Instances are thread safe.
+ */
+public class LinodeApiStatistics implements LinodeApiMetrics {
+
+    private final ConcurrentHashMap<String, EndpointStatistics> endpoints = new ConcurrentHashMap<>();
+
+    /**
+     * Get a snapshot of the endpoints for which statistics exist.
+     *
+     * @return mapping from endpoint to its (live) statistics, sorted by endpoint
+     */
+    public Map<String, EndpointStatistics> getEndpointStatistics() {
+        return new TreeMap<>(this.endpoints);
+    }
+
+    /**
+     * Discard all statistics.
+     */
+    public void reset() {
+        this.endpoints.clear();
+    }
+
+// LinodeApiMetrics
+
+    @Override
+    public void exchange(String endpoint, int statusCode, long duration, long bytesSent, long bytesReceived) {
+        final EndpointStatistics stats = this.getStats(endpoint);
+        stats.latency.record(duration);
+        stats.statusCodes.computeIfAbsent(statusCode, code -> new LongAdder()).increment();
+        stats.bytesSent.add(bytesSent);
+        if (bytesReceived > 0)
+            stats.bytesReceived.add(bytesReceived);
+    }
+
+    @Override
+    public void retry(String endpoint) {
+        this.getStats(endpoint).retries.increment();
+    }
+
+    @Override
+    public void pages(String endpoint, int numPages) {
+        final EndpointStatistics stats = this.getStats(endpoint);
+        stats.aggregations.increment();
+        stats.pages.add(numPages);
+    }
+
+// Object
+
+    @Override
+    public String toString() {
+        final StringBuilder buf = new StringBuilder();
+        for (Map.Entry<String, EndpointStatistics> entry : this.getEndpointStatistics().entrySet())
+            buf.append(entry.getKey()).append(": ").append(entry.getValue()).append('\n');
+        return buf.toString();
+    }
+
+// Internal methods
+
+    private EndpointStatistics getStats(String endpoint) {
+        return this.endpoints.computeIfAbsent(endpoint, e -> new EndpointStatistics());
+    }
+
+// EndpointStatistics
+
+    /**
+     * Statistics for one endpoint.
+     */
+    public static final class EndpointStatistics {
+
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final ConcurrentHashMap<Integer, LongAdder> statusCodes = new ConcurrentHashMap<>();
+        private final LongAdder bytesSent = new LongAdder();
+        private final LongAdder bytesReceived = new LongAdder();
+        private final LongAdder retries = new LongAdder();
+        private final LongAdder aggregations = new LongAdder();
+        private final LongAdder pages = new LongAdder();
+
+        EndpointStatistics() {
+        }
+
+        /**
+         * Get the latency histogram.
+         *
+         * @return latency of HTTP exchanges
+         */
+        public LatencyHistogram getLatency() {
+            return this.latency;
+        }
+
+        /**
+         * Get the number of HTTP exchanges by response status code.
+         *
+         * @return mapping from status code (zero for no response) to count
+         */
+        public Map<Integer, Long> getStatusCodeCounts() {
+            final TreeMap<Integer, Long> map = new TreeMap<>();
+            this.statusCodes.forEach((code, count) -> map.put(code, count.sum()));
+            return map;
+        }
+
+        public long getBytesSent() {
+            return this.bytesSent.sum();
+        }
+
+        /**
+         * Get the total size of response bodies, not including any whose size was not known in advance.
+         *
+         * @return bytes received
+         */
+        public long getBytesReceived() {
+            return this.bytesReceived.sum();
+        }
+
+        public long getRetries() {
+            return this.retries.sum();
+        }
+
+        /**
+         * Get the number of aggregating queries over this (paginated) endpoint.
+         *
+         * @return number of aggregating queries
+         */
+        public long getAggregations() {
+            return this.aggregations.sum();
+        }
+
+        /**
+         * Get the total number of pages loaded by aggregating queries over this (paginated) endpoint.
+         *
+         * @return number of pages
+         */
+        public long getPages() {
+            return this.pages.sum();
+        }
+
+        @Override
+        public String toString() {
+            return this.latency + " status=" + this.getStatusCodeCounts() + " sent=" + this.getBytesSent()
+              + " received=" + this.getBytesReceived() + " retries=" + this.getRetries()
+              + " aggregations=" + this.getAggregations() + " pages=" + this.getPages();
+        }
+    }
+}
@@ -0,0 +1,117 @@
+
+/*
+ * Copyright (C) 2017 Archie L. Cobbs. All rights reserved.
+ */
+
+package org.dellroad.linode.apiv4.spring;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link LinodeApiMetrics} implementation that reports to a <a href="https://micrometer.io/">Micrometer</a>
+ * {@link MeterRegistry}.
+ *
+ * <p>
+ * The following meters are registered, all tagged with {@code endpoint}:
+ * <ul>
+ *  <li>{@value #REQUESTS} - timer for HTTP exchanges, also tagged with {@code status}, publishing
+ *      50th, 90th, and 99th percentiles</li>
+ *  <li>{@value #BYTES_SENT} - distribution summary of request body sizes</li>
+ *  <li>{@value #BYTES_RECEIVED} - distribution summary of response body sizes (when known)</li>
+ *  <li>{@value #RETRIES} - counter of retried requests</li>
+ *  <li>{@value #PAGES} - distribution summary of the number of pages loaded by aggregating queries</li>
+ * </ul>
+ *
+ * <p>
+ * Micrometer is an optional dependency; it must be on the classpath to use this class.
+ */
+public class MicrometerLinodeApiMetrics implements LinodeApiMetrics {
+
+    /**
+     * HTTP exchange timer name.
+     */
+    public static final String REQUESTS = "linode.api.requests";
+
+    /**
+     * Request body size summary name.
+     */
+    public static final String BYTES_SENT = "linode.api.bytes.sent";
+
+    /**
+     * Response body size summary name.
+     */
+    public static final String BYTES_RECEIVED = "linode.api.bytes.received";
+
+    /**
+     * Retry counter name.
+     */
+    public static final String RETRIES = "linode.api.retries";
+
+    /**
+     * Pages per aggregating query summary name.
+     */
+    public static final String PAGES = "linode.api.pages";
+
+    private static final String ENDPOINT_TAG = "endpoint";
+    private static final String STATUS_TAG = "status";
+
+    private final MeterRegistry registry;
+    private final ConcurrentHashMap<String, Timer> timers = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, DistributionSummary> bytesSent = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, DistributionSummary> bytesReceived = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Counter> retries = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, DistributionSummary> pages = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor.
+     *
+     * @param registry registry in which to register meters
+     * @throws IllegalArgumentException if {@code registry} is null
+     */
+    public MicrometerLinodeApiMetrics(MeterRegistry registry) {
+        if (registry == null)
+            throw new IllegalArgumentException("null registry");
+        this.registry = registry;
+    }
+
+// LinodeApiMetrics
+
+    @Override
+    public void exchange(String endpoint, int statusCode, long duration, long bytesSent, long bytesReceived) {
+        this.timers.computeIfAbsent(endpoint + " " + statusCode, key -> Timer.builder(REQUESTS)
+          .tag(ENDPOINT_TAG, endpoint)
+          .tag(STATUS_TAG, String.valueOf(statusCode))
+          .publishPercentiles(0.5, 0.9, 0.99)
+          .register(this.registry)).record(duration, TimeUnit.NANOSECONDS);
+        this.bytesSent.computeIfAbsent(endpoint, key -> DistributionSummary.builder(BYTES_SENT)
+          .baseUnit("bytes")
+          .tag(ENDPOINT_TAG, endpoint)
+          .register(this.registry)).record(bytesSent);
+        if (bytesReceived >= 0) {
+            this.bytesReceived.computeIfAbsent(endpoint, key -> DistributionSummary.builder(BYTES_RECEIVED)
+              .baseUnit("bytes")
+              .tag(ENDPOINT_TAG, endpoint)
+              .register(this.registry)).record(bytesReceived);
+        }
+    }
+
+    @Override
+    public void retry(String endpoint) {
+        this.retries.computeIfAbsent(endpoint, key -> Counter.builder(RETRIES)
+          .tag(ENDPOINT_TAG, endpoint)
+          .register(this.registry)).increment();
+    }
+
+    @Override
+    public void pages(String endpoint, int numPages) {
+        this.pages.computeIfAbsent(endpoint, key -> DistributionSummary.builder(PAGES)
+          .tag(ENDPOINT_TAG, endpoint)
+          .register(this.registry)).record(numPages);
+    }
+}
@@ -0,0 +1,199 @@
+
+/*
+ * Copyright (C) 2017 Archie L. Cobbs. All rights reserved.
+ */
+
+package org.dellroad.linode.apiv4.spring;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+
+import org.dellroad.linode.apiv4.model.Paginated;
+import org.springframework.web.client.RestClientException;
+
+/**
+ * {@link Spliterator} that lazily iterates the items in a paginated resource, one page at a time.
+ *
+ * <p>
+ * Pages are not loaded until needed. If an {@link LinodeApiRequestSender.AsyncExecutor} is given, up to {@code readAhead}
+ * pages beyond the one being consumed are loaded in the background, so at most {@code readAhead + 1} pages are held
+ * in memory, and at most {@code readAhead} page loads are in flight, at any time. No pages are requested beyond those
+ * needed to produce {@code maxResults} items.
+ *
+ * <p>
+ * Outstanding page loads are cancelled by {@link #close}, which happens automatically when an error occurs
+ * or the last item has been returned.
+ *
+ * <p>
+ * Instances are not thread safe.
+ *
+ * @param <T> item type
+ * @param <P> paginated response type
+ */
+class PageSpliterator<T, P extends Paginated<T>> implements Spliterator<T>, AutoCloseable {
+
+    private final IntFunction<P> loader;
+    private final LinodeApiRequestSender.AsyncExecutor executor;
+    private final int readAhead;
+    private final int maxResults;
+    private final ArrayDeque<Future<P>> pending = new ArrayDeque<>();
+
+    private Iterator<T> current;
+    private int nextPage = 1;
+    private int numPages = -1;
+    private long remaining = Long.MAX_VALUE;
+    private int returned;
+    private int pagesLoaded;
+    private boolean closed;
+
+    /**
+     * Constructor.
+     *
+     * @param loader loads the specified page (the first page is number one)
+     * @param executor executor for loading pages ahead of time, or null to load pages synchronously on demand
+     * @param readAhead maximum number of pages to load ahead of time (ignored if {@code executor} is null)
+     * @param maxResults limit on the number of results returned, or zero for no limit
+     * @throws IllegalArgumentException if {@code loader} is null
+     * @throws IllegalArgumentException if {@code readAhead} or {@code maxResults} is negative
+     */
+    PageSpliterator(IntFunction<P> loader, LinodeApiRequestSender.AsyncExecutor executor, int readAhead, int maxResults) {
+        if (loader == null)
+            throw new IllegalArgumentException("null loader");
+        if (readAhead < 0)
+            throw new IllegalArgumentException("readAhead < 0");
+        if (maxResults < 0)
+            throw new IllegalArgumentException("maxResults < 0");
+        this.loader = loader;
+        this.executor = executor;
+        this.readAhead = executor != null ? readAhead : 0;
+        this.maxResults = maxResults != 0 ? maxResults : Integer.MAX_VALUE;
+    }
+
+    /**
+     * Determine the number of pages that need to be loaded to produce the given number of results.
+     *
+     * @param firstPage first page of results
+     * @param maxResults limit on the number of results returned (must be positive)
+     * @return total number of pages to load, including the first page
+     */
+    static int numPagesToLoad(Paginated<?> firstPage, int maxResults) {
+        final int pageSize = firstPage.getData().size();
+        if (pageSize == 0)
+            return 1;
+        return Math.min(firstPage.getPages(), (int)Math.min(Integer.MAX_VALUE, ((long)maxResults + pageSize - 1) / pageSize));
+    }
+
+    /**
+     * Get the number of pages loaded and consumed so far.
+     *
+     * @return number of pages loaded
+     */
+    int getPagesLoaded() {
+        return this.pagesLoaded;
+    }
+
+// Spliterator
+
+    @Override
+    public boolean tryAdvance(Consumer<? super T> action) {
+        if (action == null)
+            throw new IllegalArgumentException("null action");
+        if (this.returned >= this.maxResults) {
+            this.close();
+            return false;
+        }
+        while (this.current == null || !this.current.hasNext()) {
+            if (!this.advancePage()) {
+                this.close();
+                return false;
+            }
+        }
+        final T item = this.current.next();
+        this.returned++;
+        if (this.remaining > 0)
+            this.remaining--;
+        action.accept(item);
+        return true;
+    }
+
+    @Override
+    public Spliterator<T> trySplit() {
+        return null;
+    }
+
+    @Override
+    public long estimateSize() {
+        return this.remaining;
+    }
+
+    @Override
+    public int characteristics() {
+        return Spliterator.ORDERED | Spliterator.NONNULL;
+    }
+
+// AutoCloseable
+
+    /**
+     * Cancel any outstanding page loads and discard any remaining items.
+     */
+    @Override
+    public void close() {
+        this.closed = true;
+        this.current = null;
+        while (!this.pending.isEmpty())
+            this.pending.removeFirst().cancel(true);
+    }
+
+// Internal methods
+
+    private boolean advancePage() {
+
+        // Any more pages?
+        if (this.closed || (this.numPages != -1 && this.nextPage > this.numPages && this.pending.isEmpty()))
+            return false;
+
+        // Get the next page, either from the read-ahead queue or directly
+        final P page;
+        if (!this.pending.isEmpty())
+            page = this.waitFor(this.pending.removeFirst());
+        else {
+            try {
+                page = this.loader.apply(this.nextPage++);
+            } catch (RuntimeException e) {
+                this.close();
+                throw e;
+            }
+            if (this.numPages == -1) {
+                this.numPages = PageSpliterator.numPagesToLoad(page, this.maxResults);
+                this.remaining = Math.min(page.getResults(), this.maxResults);
+            }
+        }
+        this.current = page.getData().iterator();
+        this.pagesLoaded++;
+
+        // Keep the read-ahead queue full
+        while (this.pending.size() < this.readAhead && this.nextPage <= this.numPages) {
+            final int pageNum = this.nextPage++;
+            this.pending.addLast(this.executor.submit(() -> this.loader.apply(pageNum)));
+        }
+        return true;
+    }
+
+    private P waitFor(Future<P> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            this.close();
+            Thread.currentThread().interrupt();
+            throw new RestClientException("interrupted while waiting for asynchronous page load", e);
+        } catch (ExecutionException e) {
+            this.close();
+            throw new RestClientException("error in asynchronous page load", e.getCause());
+        }
+    }
+}
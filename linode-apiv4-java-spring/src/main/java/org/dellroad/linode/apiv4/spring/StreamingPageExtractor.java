@@ -0,0 +1,187 @@
+
+/*
+ * Copyright (C) 2017 Archie L. Cobbs. All rights reserved.
+ */
+
+package org.dellroad.linode.apiv4.spring;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.function.Consumer;
+
+import org.apache.http.conn.EofSensorInputStream;
+import org.dellroad.linode.apiv4.model.Paginated;
+import org.springframework.beans.BeanUtils;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.web.client.ResponseExtractor;
+
+/**
+ * Decodes a {@link Paginated} response token-by-token directly from the response body, handing each element
+ * of the {@code data} array to a {@link Consumer} as soon as it has been parsed.
+ *
+ * <p>
+ * The returned {@link Paginated} contains the {@code page}, {@code pages}, and {@code results} values from
+ * the response, but its {@linkplain Paginated#getData data} is always empty.
+ *
+ * <p>
+ * Optionally, parsing stops once a maximum number of elements has been delivered. The rest of the response is then
+ * not decoded, so the returned {@link Paginated} may be missing values that follow the {@code data} array. If more
+ * than {@value #MAX_DRAIN_BYTES} bytes of the response remain (or the length is unknown), the underlying connection
+ * is aborted rather than read to the end, if possible.
+ *
+ * <p>
+ * Instances are single use.
+ *
+ * @param <T> item type
+ * @param <P> paginated response type
+ */
+class StreamingPageExtractor<T, P extends Paginated<T>> implements ResponseExtractor<P> {
+
+    /**
+     * Maximum number of unread response bytes to read and discard after stopping early, in order to keep the
+     * connection alive ({@value #MAX_DRAIN_BYTES}).
+     */
+    static final int MAX_DRAIN_BYTES = 16 * 1024;
+
+    private final ObjectMapper objectMapper;
+    private final Class<P> responseType;
+    private final Consumer<? super T> consumer;
+    private final int maxElements;
+
+    private int delivered;
+
+    /**
+     * Constructor.
+     *
+     * @param objectMapper JSON decoder
+     * @param responseType paginated response type; must have a public default constructor
+     * @param consumer element consumer
+     * @throws IllegalArgumentException if any parameter is null
+     */
+    StreamingPageExtractor(ObjectMapper objectMapper, Class<P> responseType, Consumer<? super T> consumer) {
+        this(objectMapper, responseType, consumer, 0);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param objectMapper JSON decoder
+     * @param responseType paginated response type; must have a public default constructor
+     * @param consumer element consumer
+     * @param maxElements stop parsing after delivering this many elements, or zero for no limit
+     * @throws IllegalArgumentException if {@code objectMapper}, {@code responseType}, or {@code consumer} is null
+     * @throws IllegalArgumentException if {@code maxElements} is negative
+     */
+    StreamingPageExtractor(ObjectMapper objectMapper, Class<P> responseType, Consumer<? super T> consumer, int maxElements) {
+        if (objectMapper == null)
+            throw new IllegalArgumentException("null objectMapper");
+        if (responseType == null)
+            throw new IllegalArgumentException("null responseType");
+        if (consumer == null)
+            throw new IllegalArgumentException("null consumer");
+        if (maxElements < 0)
+            throw new IllegalArgumentException("maxElements < 0");
+        this.objectMapper = objectMapper;
+        this.responseType = responseType;
+        this.consumer = consumer;
+        this.maxElements = maxElements == 0 ? Integer.MAX_VALUE : maxElements;
+    }
+
+    /**
+     * Get the number of elements delivered to the consumer so far.
+     *
+     * @return number of elements delivered
+     */
+    public int getDelivered() {
+        return this.delivered;
+    }
+
+// ResponseExtractor
+
+    @Override
+    public P extractData(ClientHttpResponse response) throws IOException {
+        final P page = BeanUtils.instantiateClass(this.responseType);
+        final ObjectReader elementReader = this.objectMapper.readerFor(page.getElementType());
+        try (InputStream input = response.getBody();
+          JsonParser parser = this.objectMapper.getFactory().createParser(input)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT)
+                throw new HttpMessageNotReadableException("expected JSON object in paginated response");
+            JsonToken next;
+            for (next = parser.nextToken(); next == JsonToken.FIELD_NAME; next = parser.nextToken()) {
+                final String field = parser.getCurrentName();
+                final JsonToken token = parser.nextToken();
+                switch (field) {
+                case "page":
+                    page.setPage(parser.getValueAsInt());
+                    break;
+                case "pages":
+                    page.setPages(parser.getValueAsInt());
+                    break;
+                case "results":
+                    page.setResults(parser.getValueAsInt());
+                    break;
+                case "data":
+                    if (token != JsonToken.START_ARRAY)
+                        throw new HttpMessageNotReadableException("expected JSON array for paginated response data");
+                    if (!this.readElements(parser, elementReader)) {
+                        this.abandon(response, input, parser);
+                        page.setData(Collections.emptyList());
+                        return page;
+                    }
+                    break;
+                default:
+                    parser.skipChildren();
+                    break;
+                }
+            }
+            if (next != JsonToken.END_OBJECT)
+                throw new HttpMessageNotReadableException("truncated paginated response");
+        } catch (JsonProcessingException e) {
+            throw new HttpMessageNotReadableException("invalid JSON in paginated response: " + e.getMessage(), e);
+        }
+        page.setData(Collections.emptyList());
+        return page;
+    }
+
+    /**
+     * Read and deliver the elements of the {@code data} array.
+     *
+     * @return true if the whole array was read, false if we stopped early because the maximum was reached
+     */
+    private boolean readElements(JsonParser parser, ObjectReader elementReader) throws IOException {
+        for (JsonToken token = parser.nextToken(); token != JsonToken.END_ARRAY; token = parser.nextToken()) {
+            if (this.delivered >= this.maxElements)
+                return false;
+            if (token == null)
+                throw new HttpMessageNotReadableException("truncated paginated response");
+            final T element = elementReader.readValue(parser);
+            this.delivered++;
+            this.consumer.accept(element);
+        }
+        return true;
+    }
+
+    /**
+     * Give up on the rest of the response. Unless there's not much left, drop the connection instead of draining it.
+     */
+    private void abandon(ClientHttpResponse response, InputStream input, JsonParser parser) {
+        final long length = response.getHeaders().getContentLength();
+        if (length >= 0 && length - parser.getCurrentLocation().getByteOffset() <= MAX_DRAIN_BYTES)
+            return;
+        if (input instanceof EofSensorInputStream) {
+            try {
+                ((EofSensorInputStream)input).abortConnection();
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+    }
+}
@@ -12,12 +12,36 @@
  * Here are the primary classes provided:
  * <ul>
  *  <li>{@link org.dellroad.linode.apiv4.spring.LinodeApiRequestSender} - Java version of the API</li>
+ *  <li>{@link org.dellroad.linode.apiv4.spring.AsyncLinodeApiRequestSender} - non-blocking version of the API
+ *      returning {@link java.util.concurrent.CompletableFuture}s</li>
+ *  <li>{@link org.dellroad.linode.apiv4.spring.CachingLinodeApiRequestSender} - variant that caches regions,
+ *      types, kernels, and images</li>
  *  <li>{@link org.dellroad.linode.apiv4.spring.LinodeApiHttpRequestFactory} - configures how HTTP requests
  *      are performed, including token authorization</li>
+ *  <li>{@link org.dellroad.linode.apiv4.spring.LinodeApiRateLimiter} - paces requests according to the API's
+ *      rate limits and pauses after requests rejected with HTTP 429</li>
+ *  <li>{@link org.dellroad.linode.apiv4.spring.LinodeApiConcurrencyLimiter} - adapts the number of concurrent
+ *      requests to the capacity the API is currently offering, dispatching waiting requests by
+ *      {@link org.dellroad.linode.apiv4.spring.LinodeApiPriority}</li>
+ *  <li>{@link org.dellroad.linode.apiv4.spring.LinodeApiRetryPolicy} - configures automatic retry of idempotent
+ *      requests that fail with a transient error, and of any request rejected with HTTP 429</li>
+ *  <li>{@link org.dellroad.linode.apiv4.spring.LinodeApiHedgingPolicy} - configures optional hedging of slow GET
+ *      requests with a duplicate request</li>
+ *  <li>{@link org.dellroad.linode.apiv4.spring.LinodeApiStatistics} - per-endpoint latency histograms and request
+ *      statistics, fed by a {@link org.dellroad.linode.apiv4.spring.LinodeApiMetricsInterceptor}; see also
+ *      {@link org.dellroad.linode.apiv4.spring.MicrometerLinodeApiMetrics}</li>
  *  <li>{@link org.dellroad.linode.apiv4.spring.LinodeApiException} - thrown if there is an error, including
  *      a decode of the JSON error payload (if any)</li>
  * </ul>
  *
+ * <p><b>Flight Recorder</b></p>
+ *
+ * <p>
+ * When running on a JVM with Java Flight Recorder, {@link org.dellroad.linode.apiv4.spring.LinodeApiMetricsInterceptor}
+ * emits an {@code org.dellroad.linode.apiv4.HttpExchange} event for each HTTP exchange, and the request senders emit an
+ * {@code org.dellroad.linode.apiv4.Aggregation} event for each query that gathers all pages of a paginated resource.
+ * The worker pool library emits similar events for its periodic checks and worker state transitions.
+ *
  * <p><b>XML Setup</b></p>
  *
  * <p>
@@ -27,7 +51,9 @@
  * </pre>
  *
  * <p>
- * The XML sets up a {@link org.dellroad.linode.apiv4.spring.LinodeApiRequestSender} which can be used to perform API queries:
+ * The XML sets up a {@link org.dellroad.linode.apiv4.spring.LinodeApiRequestSender} which can be used to perform API queries
+ * (there is also a {@link org.dellroad.linode.apiv4.spring.AsyncLinodeApiRequestSender} which shares the same
+ * {@link org.dellroad.linode.apiv4.spring.LinodeApiHttpRequestFactory}):
  * <pre>
  *  import org.dellroad.linode.apiv4.model.{@link org.dellroad.linode.apiv4.model.Linode};
  *  import org.dellroad.linode.apiv4.request.{@link org.dellroad.linode.apiv4.request.CreateLinodeRequest};
@@ -0,0 +1,131 @@
+
+/*
+ * Copyright (C) 2017 Archie L. Cobbs. All rights reserved.
+ */
+
+package org.dellroad.linode.apiv4.spring;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.dellroad.linode.apiv4.model.Region;
+import org.springframework.context.support.ClassPathXmlApplicationContext;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.concurrent.SettableListenableFuture;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+public class AsyncLinodeApiRequestSenderTest {
+
+    private static final int NUM_PAGES = 10;
+
+    private final List<Integer> pageRequests = new CopyOnWriteArrayList<>();
+
+    private volatile CountDownLatch release;
+    private ExecutorService executor;
+    private HttpServer server;
+    private ClassPathXmlApplicationContext context;
+    private AsyncLinodeApiRequestSender sender;
+
+    @BeforeClass
+    public void setup() throws Exception {
+        this.executor = Executors.newCachedThreadPool();
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        this.server.setExecutor(this.executor);
+        this.server.createContext("/v4/", this::handle);
+        this.server.start();
+        this.context = new ClassPathXmlApplicationContext("/org/dellroad/linode/apiv4/spring/linodeApi.xml", this.getClass());
+        this.sender = this.context.getBean("linodeApiAsyncRequestSender", AsyncLinodeApiRequestSender.class);
+        this.sender.setBaseURI(URI.create("http://127.0.0.1:" + this.server.getAddress().getPort() + "/v4/"));
+    }
+
+    @AfterClass
+    public void teardown() throws Exception {
+        if (this.release != null)
+            this.release.countDown();
+        this.context.close();
+        this.server.stop(0);
+        this.executor.shutdownNow();
+    }
+
+    @Test
+    public void testCancelGetAll() throws Exception {
+        this.release = new CountDownLatch(1);
+        this.sender.setMaxPagesInFlight(2);
+
+        // Start aggregation and wait for it to be stuck on the second and third pages
+        final CompletableFuture<List<Region>> future = this.sender.getRegions(0, null);
+        final long startTime = System.nanoTime();
+        while (this.pageRequests.size() < 3) {
+            assert System.nanoTime() - startTime < TimeUnit.SECONDS.toNanos(10) : "pages requested: " + this.pageRequests;
+            Thread.sleep(10);
+        }
+
+        // Cancel it; no more pages should be requested, even after the outstanding ones are released
+        assert future.cancel(true);
+        this.release.countDown();
+        Thread.sleep(500);
+        assert this.pageRequests.size() == 3 : "pages requested after cancel: " + this.pageRequests;
+    }
+
+    @Test
+    public void testCancelQuery() throws Exception {
+
+        // Cancelling the result cancels the request
+        final SettableListenableFuture<ResponseEntity<String>> request1 = new SettableListenableFuture<>();
+        final CompletableFuture<String> result1 = this.sender.query(art -> request1);
+        assert result1.cancel(true);
+        assert request1.isCancelled();
+
+        // Cancellation of the request is passed through as is, not reported as an API error
+        final SettableListenableFuture<ResponseEntity<String>> request2 = new SettableListenableFuture<>();
+        final CompletableFuture<String> result2 = this.sender.query(art -> request2);
+        assert request2.cancel(true);
+        try {
+            result2.get(5, TimeUnit.SECONDS);
+            assert false : "expected exception";
+        } catch (CancellationException e) {
+            // expected
+        }
+        assert result2.isCancelled();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        final String query = exchange.getRequestURI().getQuery();
+        final int page = Integer.parseInt(query.substring(query.indexOf("page=") + 5));
+        this.pageRequests.add(page);
+        if (page > 1) {
+            try {
+                this.release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        final byte[] body = ("{\"data\":[{\"id\":\"region" + page + "\"}],\"page\":" + page
+          + ",\"pages\":" + NUM_PAGES + ",\"results\":" + NUM_PAGES + "}").getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        try {
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream output = exchange.getResponseBody()) {
+                output.write(body);
+            }
+        } catch (IOException e) {
+            // client went away
+        }
+    }
+}
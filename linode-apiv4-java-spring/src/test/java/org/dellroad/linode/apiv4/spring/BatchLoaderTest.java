@@ -0,0 +1,145 @@
+
+/*
+ * Copyright (C) 2017 Archie L. Cobbs. All rights reserved.
+ */
+
+package org.dellroad.linode.apiv4.spring;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.dellroad.linode.apiv4.filter.Filter;
+import org.dellroad.linode.apiv4.model.Linode;
+import org.dellroad.linode.apiv4.model.Paginated;
+import org.testng.annotations.Test;
+
+public class BatchLoaderTest {
+
+    @Test
+    public void testBatching() throws Exception {
+        final List<Set<Integer>> batches = new CopyOnWriteArrayList<>();
+        final BatchLoader<String> loader = new BatchLoader<>(ids -> {
+            batches.add(new HashSet<>(ids));
+            final HashMap<Integer, String> map = new HashMap<>();
+            for (int id : ids) {
+                if (id % 10 != 0)
+                    map.put(id, "entity" + id);
+            }
+            return map;
+        }, id -> new LinodeApiException("not found: " + id));
+        final ExecutorService executor = Executors.newFixedThreadPool(20);
+        try {
+            final List<Future<CompletableFuture<String>>> futures = new ArrayList<>();
+            for (int i = 1; i <= 20; i++) {
+                final int id = i;
+                futures.add(executor.submit(() -> loader.load(id, 500, TimeUnit.MILLISECONDS, 8)));
+            }
+            for (int i = 1; i <= 20; i++) {
+                final CompletableFuture<String> future = futures.get(i - 1).get();
+                if (i % 10 == 0) {
+                    try {
+                        future.get();
+                        assert false : "expected exception";
+                    } catch (ExecutionException e) {
+                        assert e.getCause().getMessage().equals("not found: " + i);
+                    }
+                } else
+                    assert future.get().equals("entity" + i);
+            }
+        } finally {
+            executor.shutdown();
+        }
+        int total = 0;
+        for (Set<Integer> batch : batches) {
+            assert batch.size() <= 8 : "batch too big: " + batch;
+            total += batch.size();
+        }
+        assert total == 20 : "wrong batches: " + batches;
+        assert batches.size() >= 3 && batches.size() < 20 : "wrong batches: " + batches;
+    }
+
+    @Test
+    public void testLoaderFailure() throws Exception {
+        final LinodeApiException failure = new LinodeApiException("boom");
+        final BatchLoader<String> loader = new BatchLoader<>(ids -> {
+            throw failure;
+        }, id -> new LinodeApiException("not found: " + id));
+        try {
+            loader.load(123, 0, TimeUnit.MILLISECONDS, 10).get();
+            assert false : "expected exception";
+        } catch (ExecutionException e) {
+            assert e.getCause() == failure;
+        }
+    }
+
+    @Test
+    public void testGetLinode() throws Exception {
+        final List<String> filters = new CopyOnWriteArrayList<>();
+        final LinodeApiRequestSender sender = new LinodeApiRequestSender() {
+            @Override
+            @SuppressWarnings("unchecked")
+            protected <T, P extends Paginated<T>> List<T> getAll(Class<P> responseType, AsyncExecutor executor,
+              int maxResults, Filter filter, String pathTemplate, Object... templateParameters) {
+                filters.add(filter.toJson());
+                final Linode linode = new Linode();
+                linode.setId(42);
+                return (List<T>)Collections.singletonList(linode);
+            }
+        };
+        sender.setBatchWindow(1);
+        assert sender.getLinode(42).getId() == 42;
+        try {
+            sender.getLinode(43);
+            assert false : "expected exception";
+        } catch (LinodeApiException e) {
+            assert e.getStatusCode() == 404;
+        }
+        assert filters.equals(Arrays.asList("{\"id\":42}", "{\"id\":43}")) : "wrong filters: " + filters;
+
+        // Concurrent lookups are combined using "+or"
+        filters.clear();
+        sender.setBatchWindow(500);
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            final Future<Linode> future1 = executor.submit(() -> sender.getLinode(42));
+            final Future<Linode> future2 = executor.submit(() -> sender.getLinode(42));
+            assert future1.get().getId() == 42;
+            assert future2.get() == future1.get();
+        } finally {
+            executor.shutdown();
+        }
+        assert filters.equals(Collections.singletonList("{\"id\":42}")) : "wrong filters: " + filters;
+        filters.clear();
+        sender.setMaxBatchSize(2);
+        final ExecutorService executor2 = Executors.newFixedThreadPool(2);
+        try {
+            final Future<Linode> future1 = executor2.submit(() -> sender.getLinode(42));
+            final Future<Object> future2 = executor2.submit(() -> {
+                try {
+                    return sender.getLinode(7);
+                } catch (LinodeApiException e) {
+                    return e.getStatusCode();
+                }
+            });
+            assert future1.get().getId() == 42;
+            assert future2.get().equals(404);
+        } finally {
+            executor2.shutdown();
+        }
+        assert filters.size() == 1 : "wrong filters: " + filters;
+        assert filters.get(0).equals("{\"+or\":[{\"id\":42},{\"id\":7}]}")
+          || filters.get(0).equals("{\"+or\":[{\"id\":7},{\"id\":42}]}") : "wrong filters: " + filters;
+    }
+}
@@ -0,0 +1,107 @@
+
+/*
+ * Copyright (C) 2017 Archie L. Cobbs. All rights reserved.
+ */
+
+package org.dellroad.linode.apiv4.spring;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.dellroad.linode.apiv4.filter.Filter;
+import org.dellroad.linode.apiv4.filter.FilterBuilder;
+import org.dellroad.linode.apiv4.model.Paginated;
+import org.dellroad.linode.apiv4.model.Region;
+import org.dellroad.linode.apiv4.model.Regions;
+import org.testng.annotations.Test;
+
+public class CachingLinodeApiRequestSenderTest {
+
+    @Test
+    public void testCache() throws Exception {
+        final TestSender sender = new TestSender();
+
+        // First access loads, subsequent accesses don't
+        assert sender.getRegions(null, 0, null).size() == 3;
+        assert sender.getRegion("region-2").getId().equals("region-2");
+        assert sender.getRegions(null, 2, null).size() == 2;
+        assert sender.loads.get() == 1;
+
+        // Returned lists are copies
+        sender.getRegions(null, 0, null).clear();
+        assert sender.getRegions(null, 0, null).size() == 3;
+        assert sender.loads.get() == 1;
+
+        // Filtered queries bypass the cache
+        final FilterBuilder fb = new FilterBuilder();
+        sender.getRegions(null, 0, fb.where(fb.equal("country", "us")).build());
+        assert sender.loads.get() == 2;
+
+        // Invalidation forces a reload
+        sender.invalidateRegions();
+        sender.getRegions(null, 0, null);
+        assert sender.loads.get() == 3;
+    }
+
+    @Test
+    public void testRefreshAhead() throws Exception {
+        final TestSender sender = new TestSender();
+        sender.setRegionsTimeToLive(60_000);
+        sender.setRefreshAhead(0.0);
+        sender.setRefreshExecutor(Runnable::run);
+        sender.getRegions(null, 0, null);
+        assert sender.loads.get() == 1;
+        sender.getRegions(null, 0, null);           // triggers (synchronous) background refresh
+        assert sender.loads.get() == 2;
+    }
+
+    @Test
+    public void testExpiry() throws Exception {
+        final TestSender sender = new TestSender();
+        sender.setRegionsTimeToLive(50);
+        sender.setRefreshAhead(1.0);
+        sender.getRegions(null, 0, null);
+        sender.getRegions(null, 0, null);
+        assert sender.loads.get() == 1;
+        Thread.sleep(100);
+        sender.getRegions(null, 0, null);
+        assert sender.loads.get() == 2;
+    }
+
+    @Test
+    public void testDisabled() throws Exception {
+        final TestSender sender = new TestSender();
+        sender.setRegionsTimeToLive(0);
+        sender.getRegions(null, 0, null);
+        sender.getRegions(null, 0, null);
+        assert sender.loads.get() == 2;
+    }
+
+// TestSender
+
+    private static class TestSender extends CachingLinodeApiRequestSender {
+
+        final AtomicInteger loads = new AtomicInteger();
+
+        @Override
+        @SuppressWarnings("unchecked")
+        protected <T, P extends Paginated<T>> P getPage(Class<P> responseType, Filter filter,
+          int page, String pathTemplate, Object... templateParameters) {
+            assert responseType == Regions.class;
+            this.loads.incrementAndGet();
+            final List<Region> list = new ArrayList<>();
+            for (int i = 1; i <= 3; i++) {
+                final Region region = new Region();
+                region.setId("region-" + i);
+                list.add(region);
+            }
+            final Regions regions = new Regions();
+            regions.setPage(1);
+            regions.setPages(1);
+            regions.setResults(list.size());
+            regions.setData(list);
+            return (P)regions;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+
+/*
+ * Copyright (C) 2017 Archie L. Cobbs. All rights reserved.
+ */
+
+package org.dellroad.linode.apiv4.spring;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.annotations.Test;
+
+public class CoalesceTest {
+
+    @Test
+    public void testCoalesce() throws Exception {
+        final LinodeApiRequestSender sender = new LinodeApiRequestSender();
+        sender.setCoalesceRequests(true);
+        final AtomicInteger count = new AtomicInteger();
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final Object response = new Object();
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final List<Future<Object>> futures = new ArrayList<>();
+            futures.add(executor.submit(() -> sender.coalesce(Arrays.asList("GET", 123), () -> {
+                count.incrementAndGet();
+                started.countDown();
+                this.await(release);
+                return response;
+            })));
+            started.await();
+            for (int i = 0; i < 3; i++)
+                futures.add(executor.submit(() -> sender.coalesce(Arrays.asList("GET", 123), () -> {
+                    count.incrementAndGet();
+                    return new Object();
+                })));
+            Thread.sleep(100);
+            release.countDown();
+            for (Future<Object> future : futures)
+                assert future.get() == response;
+            assert count.get() == 1 : "expected one request but got " + count.get();
+
+            // Now that the request has completed, the next one should go through
+            assert sender.coalesce(Arrays.asList("GET", 123), () -> {
+                count.incrementAndGet();
+                return new Object();
+            }) != response;
+            assert count.get() == 2;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testCoalesceError() throws Exception {
+        final LinodeApiRequestSender sender = new LinodeApiRequestSender();
+        sender.setCoalesceRequests(true);
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            final Future<Object> future1 = executor.submit(() -> sender.coalesce(Arrays.asList("GET", 456), () -> {
+                started.countDown();
+                this.await(release);
+                throw new LinodeApiException("oops");
+            }));
+            started.await();
+            final Future<Object> future2 = executor.submit(() -> sender.coalesce(Arrays.asList("GET", 456), Object::new));
+            Thread.sleep(100);
+            release.countDown();
+            for (Future<Object> future : Arrays.asList(future1, future2)) {
+                try {
+                    future.get();
+                    assert false : "expected exception";
+                } catch (ExecutionException e) {
+                    assert e.getCause() instanceof LinodeApiException;
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testDisabled() throws Exception {
+        final LinodeApiRequestSender sender = new LinodeApiRequestSender();
+        final AtomicInteger count = new AtomicInteger();
+        sender.coalesce(Arrays.asList("GET", 789), count::incrementAndGet);
+        sender.coalesce(Arrays.asList("GET", 789), count::incrementAndGet);
+        assert count.get() == 2;
+    }
+
+    private void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+
+/*
+ * Copyright (C) 2017 Archie L. Cobbs. All rights reserved.
+ */
+
+package org.dellroad.linode.apiv4.spring;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.dellroad.linode.apiv4.filter.Filter;
+import org.dellroad.linode.apiv4.filter.FilterBuilder;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+public class FilterTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test(dataProvider = "filters")
+    public void testJson(Filter filter) throws Exception {
+        final String json = filter.toJson();
+        assert json == filter.toJson() : "JSON not cached";
+        final String expected = this.objectMapper.writeValueAsString(filter);
+        assert this.objectMapper.readTree(json).equals(this.objectMapper.readTree(expected)) : "wrong JSON " + json;
+    }
+
+    @Test
+    public void testEquals() throws Exception {
+        final FilterBuilder fb1 = new FilterBuilder();
+        final Filter filter1 = fb1.where(fb1.and(fb1.equal("vendor", "Debian"), fb1.equal("is_public", true)))
+          .orderBy("label").build();
+        final FilterBuilder fb2 = new FilterBuilder();
+        final Filter filter2 = fb2.orderBy("label").where(fb2.and(fb2.equal("vendor", "Debian"), fb2.equal("is_public", true)))
+          .build();
+        assert filter1.equals(filter2);
+        assert filter1.hashCode() == filter2.hashCode();
+        assert !filter1.equals(fb1.orderBy("label", false).build());
+    }
+
+    @DataProvider(name = "filters")
+    public Object[][] genFilters() {
+        final FilterBuilder fb = new FilterBuilder();
+        return new Object[][] {
+            { new FilterBuilder().build() },
+            { fb.where(fb.equal("vendor", "Debian")).build() },
+            { new FilterBuilder().orderBy("size", false).build() },
+            { fb.where(fb.and(fb.greaterThan("vcpus", 2), fb.notEqual("label", "a \"quoted\"\n\\label\u0001"))).build() },
+            { fb.where(fb.or(fb.contains("label", "foo"), fb.lessThanOrEqual("memory", 1024.5), fb.equal("x", false))).build() },
+        };
+    }
+}
@@ -0,0 +1,77 @@
+
+/*
+ * Copyright (C) 2017 Archie L. Cobbs. All rights reserved.
+ */
+
+package org.dellroad.linode.apiv4.spring;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.net.URI;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.AbstractClientHttpResponse;
+
+/**
+ * Canned HTTP requests and responses for unit tests of interceptors and the like.
+ */
+final class HttpFixtures {
+
+    private HttpFixtures() {
+    }
+
+    static HttpRequest request(HttpMethod method, String uri) {
+        return new HttpRequest() {
+            @Override
+            public HttpMethod getMethod() {
+                return method;
+            }
+            @Override
+            public URI getURI() {
+                return URI.create(uri);
+            }
+            @Override
+            public HttpHeaders getHeaders() {
+                return new HttpHeaders();
+            }
+        };
+    }
+
+    static AbstractClientHttpResponse response(int status) {
+        return HttpFixtures.response(status, "", new HttpHeaders());
+    }
+
+    static AbstractClientHttpResponse response(int status, String statusText) {
+        return HttpFixtures.response(status, statusText, new HttpHeaders());
+    }
+
+    static AbstractClientHttpResponse response(int status, HttpHeaders headers) {
+        return HttpFixtures.response(status, "", headers);
+    }
+
+    static AbstractClientHttpResponse response(int status, String statusText, HttpHeaders headers) {
+        return new AbstractClientHttpResponse() {
+            @Override
+            public int getRawStatusCode() {
+                return status;
+            }
+            @Override
+            public String getStatusText() {
+                return statusText;
+            }
+            @Override
+            public HttpHeaders getHeaders() {
+                return headers;
+            }
+            @Override
+            public InputStream getBody() {
+                return new ByteArrayInputStream(new byte[0]);
+            }
+            @Override
+            public void close() {
+            }
+        };
+    }
+}
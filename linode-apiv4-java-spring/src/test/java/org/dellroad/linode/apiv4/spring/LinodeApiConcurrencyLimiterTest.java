@@ -0,0 +1,225 @@
+
+/*
+ * Copyright (C) 2017 Archie L. Cobbs. All rights reserved.
+ */
+
+package org.dellroad.linode.apiv4.spring;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.AsyncClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.util.concurrent.ListenableFuture;
+import org.springframework.util.concurrent.SettableListenableFuture;
+import org.testng.annotations.Test;
+
+public class LinodeApiConcurrencyLimiterTest {
+
+    @Test
+    public void testAimd() throws Exception {
+        final LinodeApiConcurrencyLimiter limiter = new LinodeApiConcurrencyLimiter();
+        limiter.setMaxLimit(8);
+        limiter.setBackoffRatio(0.5);
+        limiter.setLatencyTolerance(0);
+        final HttpRequest request = this.request("https://api.linode.com/v4/linode/instances/123");
+        final ClientHttpRequestExecution ok = (r, body) -> HttpFixtures.response(200);
+        final ClientHttpRequestExecution unavailable = (r, body) -> HttpFixtures.response(503);
+        final ClientHttpRequestExecution failure = (r, body) -> {
+            throw new IOException("reset");
+        };
+
+        // Congestion halves the limit, but only once per round trip
+        assert limiter.getLimit() == 8;
+        limiter.intercept(request, new byte[0], unavailable).close();
+        assert limiter.getLimit() == 4;
+        try {
+            limiter.intercept(request, new byte[0], failure);
+            assert false : "expected exception";
+        } catch (IOException e) {
+            // expected
+        }
+        assert limiter.getLimit() == 2;
+        final ClientHttpRequestExecution nested = (r, body) -> {
+            limiter.intercept(request, new byte[0], unavailable).close();
+            return HttpFixtures.response(429);
+        };
+        limiter.intercept(request, new byte[0], nested).close();
+        assert limiter.getLimit() == 1 : "limit is " + limiter.getLimit();
+        limiter.intercept(request, new byte[0], unavailable).close();
+        assert limiter.getLimit() == 1;
+        assert limiter.getInFlight() == 0;
+
+        // Success increases the limit gradually, up to the maximum
+        for (int i = 0; i < 3; i++)
+            limiter.intercept(request, new byte[0], ok).close();
+        assert limiter.getLimit() == 2 : "limit is " + limiter.getLimit();
+        for (int i = 0; i < 100; i++)
+            limiter.intercept(request, new byte[0], ok).close();
+        assert limiter.getLimit() == 8 : "limit is " + limiter.getLimit();
+        assert limiter.getInFlight() == 0;
+    }
+
+    @Test
+    public void testQueueing() throws Exception {
+        final LinodeApiConcurrencyLimiter limiter = new LinodeApiConcurrencyLimiter();
+        limiter.setMaxLimit(1);
+        limiter.setQueueTimeout(50);
+        final HttpRequest request = this.request("https://api.linode.com/v4/regions");
+        final ClientHttpRequestExecution ok = (r, body) -> HttpFixtures.response(200);
+
+        // Synchronous request times out while the only slot is held
+        final ClientHttpResponse held = limiter.intercept(request, new byte[0], ok);
+        assert limiter.getInFlight() == 1;
+        try {
+            limiter.intercept(request, new byte[0], ok);
+            assert false : "expected exception";
+        } catch (LinodeApiException e) {
+            // expected
+        }
+
+        // Asynchronous request is queued until the slot is released
+        limiter.setQueueTimeout(10000);
+        final SettableListenableFuture<ClientHttpResponse> pending = new SettableListenableFuture<>();
+        final int[] sent = new int[1];
+        final AsyncClientHttpRequestExecution async = (r, body) -> {
+            sent[0]++;
+            return pending;
+        };
+        final ListenableFuture<ClientHttpResponse> future = limiter.intercept(request, new byte[0], async);
+        assert sent[0] == 0;
+        held.close();
+        held.close();
+        assert sent[0] == 1;
+        assert limiter.getInFlight() == 1;
+        assert !future.isDone();
+        pending.set(HttpFixtures.response(200));
+        assert future.get().getRawStatusCode() == 200;
+        assert limiter.getInFlight() == 1;
+        future.get().close();
+        assert limiter.getInFlight() == 0;
+    }
+
+    @Test
+    public void testCancel() throws Exception {
+        final LinodeApiConcurrencyLimiter limiter = new LinodeApiConcurrencyLimiter();
+        limiter.setMaxLimit(1);
+        limiter.setLatencyTolerance(0);
+        final HttpRequest request = this.request("https://api.linode.com/v4/regions");
+        final SettableListenableFuture<ClientHttpResponse> pending = new SettableListenableFuture<>();
+        final int[] sent = new int[1];
+        final AsyncClientHttpRequestExecution async = (r, body) -> {
+            sent[0]++;
+            return pending;
+        };
+
+        // Cancelling a request in flight cancels the exchange and releases its slot, without counting as congestion
+        final ListenableFuture<ClientHttpResponse> inFlight = limiter.intercept(request, new byte[0], async);
+        assert sent[0] == 1;
+        assert limiter.getInFlight() == 1;
+        inFlight.cancel(true);
+        assert pending.isCancelled();
+        assert limiter.getInFlight() == 0;
+        assert limiter.getLimit() == 1;
+
+        // Cancelling a waiting request removes it from the queue, so it is never sent
+        final ClientHttpResponse held = limiter.intercept(request, new byte[0],
+          (ClientHttpRequestExecution)(r, body) -> HttpFixtures.response(200));
+        final ListenableFuture<ClientHttpResponse> waiting = limiter.intercept(request, new byte[0], async);
+        assert limiter.getNumWaiting() == 1;
+        waiting.cancel(true);
+        assert limiter.getNumWaiting() == 0;
+        held.close();
+        assert sent[0] == 1;
+        assert limiter.getInFlight() == 0;
+        limiter.destroy();
+    }
+
+    @Test
+    public void testAsyncQueueTimeout() throws Exception {
+        final LinodeApiConcurrencyLimiter limiter = new LinodeApiConcurrencyLimiter();
+        limiter.setMaxLimit(1);
+        limiter.setQueueTimeout(50);
+        final HttpRequest request = this.request("https://api.linode.com/v4/regions");
+        final ClientHttpResponse held = limiter.intercept(request, new byte[0],
+          (ClientHttpRequestExecution)(r, body) -> HttpFixtures.response(200));
+
+        // A waiting asynchronous request times out even though nothing else happens
+        final ListenableFuture<ClientHttpResponse> future = limiter.intercept(request, new byte[0],
+          (AsyncClientHttpRequestExecution)(r, body) -> {
+            throw new AssertionError("request sent");
+        });
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            assert false : "expected exception";
+        } catch (ExecutionException e) {
+            assert e.getCause() instanceof LinodeApiException : "got " + e.getCause();
+        }
+        assert limiter.getNumWaiting() == 0;
+        held.close();
+        assert limiter.getInFlight() == 0;
+        limiter.destroy();
+    }
+
+    @Test
+    public void testPriority() throws Exception {
+        assert this.dispatchOrder(60000).equals(Arrays.asList("interactive", "normal", "background"));
+        assert this.dispatchOrder(0).equals(Arrays.asList("background", "normal", "interactive"));
+    }
+
+    private List<String> dispatchOrder(long starvationTimeout) throws Exception {
+        final LinodeApiConcurrencyLimiter limiter = new LinodeApiConcurrencyLimiter();
+        limiter.setMaxLimit(1);
+        limiter.setLatencyTolerance(0);
+        limiter.setStarvationTimeout(starvationTimeout);
+        final ClientHttpResponse held = limiter.intercept(this.request("https://api.linode.com/v4/regions"),
+          new byte[0], (ClientHttpRequestExecution)(r, body) -> HttpFixtures.response(200));
+
+        // Queue requests with increasing priority
+        final List<String> sent = new ArrayList<>();
+        final List<ListenableFuture<ClientHttpResponse>> futures = new ArrayList<>();
+        final LinodeApiPriority.Scope scope = LinodeApiPriority.BACKGROUND.enter();
+        try {
+            futures.add(limiter.intercept(this.request("https://api.linode.com/v4/linode/instances"), new byte[0],
+              (AsyncClientHttpRequestExecution)(r, body) -> this.sent(sent, "background")));
+        } finally {
+            scope.close();
+        }
+        futures.add(limiter.intercept(this.request("https://api.linode.com/v4/linode/types"), new byte[0],
+          (AsyncClientHttpRequestExecution)(r, body) -> this.sent(sent, "normal")));
+        futures.add(limiter.intercept(HttpFixtures.request(HttpMethod.POST, "https://api.linode.com/v4/linode/instances"),
+          new byte[0], (AsyncClientHttpRequestExecution)(r, body) -> this.sent(sent, "interactive")));
+        assert sent.isEmpty();
+        assert limiter.getNumWaiting() == 3;
+
+        // Release slots one at a time
+        held.close();
+        for (int i = 0; i < 3; i++) {
+            assert sent.size() == i + 1 : "sent " + sent;
+            for (ListenableFuture<ClientHttpResponse> future : futures) {
+                if (future.isDone() && future.get().getStatusText().equals(sent.get(i)))
+                    future.get().close();
+            }
+        }
+        assert limiter.getNumWaiting() == 0;
+        return sent;
+    }
+
+    private ListenableFuture<ClientHttpResponse> sent(List<String> sent, String name) {
+        sent.add(name);
+        final SettableListenableFuture<ClientHttpResponse> future = new SettableListenableFuture<>();
+        future.set(HttpFixtures.response(200, name));
+        return future;
+    }
+
+    private HttpRequest request(String uri) {
+        return HttpFixtures.request(HttpMethod.GET, uri);
+    }
+}
@@ -0,0 +1,66 @@
+
+/*
+ * Copyright (C) 2017 Archie L. Cobbs. All rights reserved.
+ */
+
+package org.dellroad.linode.apiv4.spring;
+
+import java.io.File;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.testng.SkipException;
+import org.testng.annotations.Test;
+
+public class LinodeApiEventsTest {
+
+    private static final String EXCHANGE_EVENT = "org.dellroad.linode.apiv4.HttpExchange";
+
+    @Test
+    public void testExchangeEvent() throws Exception {
+        if (!LinodeApiEvents.AVAILABLE)
+            throw new SkipException("Flight Recorder not available");
+
+        // Perform an exchange while recording
+        final LinodeApiMetricsInterceptor interceptor = new LinodeApiMetricsInterceptor();
+        final HttpRequest request
+          = HttpFixtures.request(HttpMethod.GET, "https://api.linode.com/v4/linode/instances/123/disks?page=3");
+        final ClientHttpRequestExecution execution = (r, body) -> HttpFixtures.response(200);
+        final File file = File.createTempFile("linode", ".jfr");
+        try {
+            try (Recording recording = new Recording()) {
+                recording.enable(EXCHANGE_EVENT);
+                recording.start();
+                interceptor.intercept(request, new byte[5], execution);
+                recording.stop();
+                recording.dump(file.toPath());
+            }
+
+            // Verify event
+            final List<RecordedEvent> events = RecordingFile.readAllEvents(file.toPath()).stream()
+              .filter(event -> event.getEventType().getName().equals(EXCHANGE_EVENT))
+              .collect(Collectors.toList());
+            assert events.size() == 1 : "wrong events: " + events;
+            final RecordedEvent event = events.get(0);
+            assert event.getString("endpoint").equals("GET /v4/linode/instances/{id}/disks");
+            assert event.getInt("status") == 200;
+            assert event.getInt("page") == 3;
+            assert event.getLong("bytesSent") == 5;
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testNullEvents() throws Exception {
+        LinodeApiEvents.endExchange(null, null, null, 0, 0, 0);
+        LinodeApiEvents.endAggregation(null, null, 0, 0, false);
+    }
+}
@@ -0,0 +1,212 @@
+
+/*
+ * Copyright (C) 2017 Archie L. Cobbs. All rights reserved.
+ */
+
+package org.dellroad.linode.apiv4.spring;
+
+import java.net.URI;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.http.HttpMethod;
+import org.testng.annotations.Test;
+
+public class LinodeApiHedgingPolicyTest {
+
+    private static final URI TYPES_URI = URI.create("https://api.linode.com/v4/linode/types");
+    private static final String ENDPOINT = LinodeApiRateLimiter.getEndpointClass(HttpMethod.GET, TYPES_URI);
+
+    @Test
+    public void testPolicy() throws Exception {
+        final LinodeApiHedgingPolicy policy = new LinodeApiHedgingPolicy();
+        policy.setBudget(0.5);
+
+        // Not enough samples yet
+        assert policy.startRequest(ENDPOINT, TimeUnit.MILLISECONDS) == -1;
+        for (int i = 0; i < LinodeApiHedgingPolicy.MIN_SAMPLES; i++)
+            policy.recordLatency(ENDPOINT, TimeUnit.MILLISECONDS.toNanos(i < 19 ? 10 : 1000));
+        assert policy.startRequest("other", TimeUnit.MILLISECONDS) == -1;
+
+        // Delay is the configured percentile, but no less than the minimum delay
+        assert policy.startRequest(ENDPOINT, TimeUnit.MILLISECONDS) == LinodeApiHedgingPolicy.DEFAULT_MIN_DELAY;
+        policy.setMinDelay(0);
+        final long delay = policy.startRequest(ENDPOINT, TimeUnit.MILLISECONDS);
+        assert delay >= 10 && delay < 20 : "delay is " + delay;
+        policy.setPercentile(100.0);
+        assert policy.startRequest(ENDPOINT, TimeUnit.MILLISECONDS) == 1000;
+
+        // Budget: five requests at 50% allows two (and a half) hedges, but only one at a time until the first finishes
+        assert policy.tryHedge();
+        assert !policy.tryHedge();
+        assert policy.getOutstandingCount() == 1;
+        policy.hedgeFinished();
+        assert policy.getOutstandingCount() == 0;
+        assert policy.tryHedge();
+        policy.hedgeFinished();
+        assert !policy.tryHedge();
+        assert policy.getHedgeCount() == 2;
+    }
+
+    @Test
+    public void testWindow() throws Exception {
+        final LinodeApiHedgingPolicy policy = new LinodeApiHedgingPolicy();
+        policy.setMinDelay(0);
+        policy.setPercentile(100.0);
+        policy.setWindow(200);
+
+        // Slow latencies are still considered during the next window
+        for (int i = 0; i < LinodeApiHedgingPolicy.MIN_SAMPLES; i++)
+            policy.recordLatency(ENDPOINT, TimeUnit.MILLISECONDS.toNanos(1000));
+        assert policy.startRequest(ENDPOINT, TimeUnit.MILLISECONDS) == 1000;
+        Thread.sleep(250);
+        for (int i = 0; i < LinodeApiHedgingPolicy.MIN_SAMPLES; i++)
+            policy.recordLatency(ENDPOINT, TimeUnit.MILLISECONDS.toNanos(10));
+        assert policy.startRequest(ENDPOINT, TimeUnit.MILLISECONDS) == 1000;
+
+        // ...but are forgotten after that
+        Thread.sleep(250);
+        for (int i = 0; i < LinodeApiHedgingPolicy.MIN_SAMPLES; i++)
+            policy.recordLatency(ENDPOINT, TimeUnit.MILLISECONDS.toNanos(10));
+        final long delay = policy.startRequest(ENDPOINT, TimeUnit.MILLISECONDS);
+        assert delay >= 10 && delay < 20 : "delay is " + delay;
+
+        // Once a whole window passes without any requests, nothing is hedged until enough new samples are observed
+        Thread.sleep(450);
+        assert policy.startRequest(ENDPOINT, TimeUnit.MILLISECONDS) == -1;
+    }
+
+    @Test
+    public void testSyncHedge() throws Exception {
+        final LinodeApiHedgingPolicy policy = this.trainedPolicy();
+        final LinodeApiRequestSender sender = new LinodeApiRequestSender();
+        sender.setHedgingPolicy(policy);
+        sender.setHedgingExecutor(new SimpleAsyncTaskExecutor());
+
+        // Requests that can't be hedged are performed by the calling thread
+        final Thread caller = Thread.currentThread();
+        sender.setHedgingPolicy(new LinodeApiHedgingPolicy());
+        assert sender.hedge(TYPES_URI, () -> Thread.currentThread()) == caller;
+        sender.setHedgingPolicy(policy);
+
+        // ...as are requests the executor has no room for
+        sender.setHedgingExecutor(new TaskExecutorAdapter(task -> {
+            throw new RejectedExecutionException();
+        }));
+        assert sender.hedge(TYPES_URI, () -> Thread.currentThread()) == caller;
+        sender.setHedgingExecutor(new SimpleAsyncTaskExecutor());
+
+        // The original request hangs, so the duplicate request wins and the original is interrupted
+        final CountDownLatch interrupted = new CountDownLatch(1);
+        final AtomicInteger attempts = new AtomicInteger();
+        final String response = sender.hedge(TYPES_URI, () -> {
+            if (attempts.incrementAndGet() == 1) {
+                try {
+                    Thread.sleep(60000);
+                } catch (InterruptedException e) {
+                    interrupted.countDown();
+                }
+                return "original";
+            }
+            return "duplicate";
+        });
+        assert response.equals("duplicate");
+        assert interrupted.await(5, TimeUnit.SECONDS);
+        assert policy.getHedgeCount() == 1;
+        assert policy.getWinCount() == 1;
+        this.awaitNoOutstanding(policy);
+
+        // Fast requests are not hedged (allow plenty of time for thread startup)
+        policy.setMinDelay(1000);
+        assert sender.hedge(TYPES_URI, () -> "fast").equals("fast");
+        assert policy.getHedgeCount() == 1;
+
+        // Errors are propagated
+        try {
+            sender.hedge(TYPES_URI, () -> {
+                throw new LinodeApiException("boom");
+            });
+            assert false : "expected exception";
+        } catch (LinodeApiException e) {
+            assert e.getMessage().equals("boom");
+        }
+    }
+
+    @Test
+    public void testAsyncHedge() throws Exception {
+        final LinodeApiHedgingPolicy policy = this.trainedPolicy();
+        final AsyncLinodeApiRequestSender sender = new AsyncLinodeApiRequestSender();
+        final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        sender.setHedgingPolicy(policy);
+        sender.setHedgingScheduler(scheduler);
+        try {
+
+            // The original request hangs, so the duplicate request wins and the original is cancelled;
+            // the duplicate is sent with the caller's priority
+            final CompletableFuture<String> original = new CompletableFuture<>();
+            final AtomicInteger attempts = new AtomicInteger();
+            final CompletableFuture<String> response;
+            final LinodeApiPriority.Scope scope = LinodeApiPriority.BACKGROUND.enter();
+            try {
+                response = sender.hedge(TYPES_URI, () -> attempts.incrementAndGet() == 1 ? original :
+                  CompletableFuture.completedFuture("duplicate " + LinodeApiPriority.current()));
+            } finally {
+                scope.close();
+            }
+            assert response.get(5, TimeUnit.SECONDS).equals("duplicate BACKGROUND");
+            try {
+                original.get(5, TimeUnit.SECONDS);                  // cancelled by the thread that completed the response
+                assert false : "expected exception";
+            } catch (CancellationException e) {
+                // expected
+            }
+            assert policy.getHedgeCount() == 1;
+            assert policy.getWinCount() == 1;
+            this.awaitNoOutstanding(policy);
+
+            // If the original completes first, the duplicate is never sent
+            final CompletableFuture<String> fast = sender.hedge(TYPES_URI, () -> CompletableFuture.completedFuture("fast"));
+            assert fast.get().equals("fast");
+            Thread.sleep(100);
+            assert policy.getHedgeCount() == 1;
+
+            // If all attempts fail, so does the result
+            final CompletableFuture<String> failed = new CompletableFuture<>();
+            final CompletableFuture<String> response2 = sender.hedge(TYPES_URI, () -> failed);
+            Thread.sleep(100);
+            failed.completeExceptionally(new LinodeApiException("boom"));
+            try {
+                response2.get(5, TimeUnit.SECONDS);
+                assert false : "expected exception";
+            } catch (ExecutionException e) {
+                assert e.getCause().getMessage().equals("boom");
+            }
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+
+    private void awaitNoOutstanding(LinodeApiHedgingPolicy policy) throws InterruptedException {
+        for (int i = 0; i < 50 && policy.getOutstandingCount() > 0; i++)
+            Thread.sleep(100);
+        assert policy.getOutstandingCount() == 0;
+    }
+
+    private LinodeApiHedgingPolicy trainedPolicy() {
+        final LinodeApiHedgingPolicy policy = new LinodeApiHedgingPolicy();
+        policy.setBudget(1.0);
+        policy.setMinDelay(10);
+        for (int i = 0; i < LinodeApiHedgingPolicy.MIN_SAMPLES; i++)
+            policy.recordLatency(ENDPOINT, TimeUnit.MILLISECONDS.toNanos(5));
+        return policy;
+    }
+}
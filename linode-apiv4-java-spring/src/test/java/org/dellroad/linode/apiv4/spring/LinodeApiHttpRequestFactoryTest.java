@@ -0,0 +1,38 @@
+
+/*
+ * Copyright (C) 2017 Archie L. Cobbs. All rights reserved.
+ */
+
+package org.dellroad.linode.apiv4.spring;
+
+import org.apache.http.pool.PoolStats;
+import org.testng.annotations.Test;
+
+public class LinodeApiHttpRequestFactoryTest {
+
+    @Test
+    public void testPoolStats() throws Exception {
+        final LinodeApiHttpRequestFactory factory = new LinodeApiHttpRequestFactory();
+        factory.setMaxSimultaneousRequests(7);
+        factory.setEvictionInterval(10);
+        factory.afterPropertiesSet();
+        try {
+            final PoolStats stats = factory.getPoolStats();
+            assert stats.getMax() == 7;
+            assert stats.getLeased() == 0;
+            assert stats.getPending() == 0;
+            assert stats.getAvailable() == 0;
+            assert factory.getRoutePoolStats().isEmpty();
+            assert factory.getAsyncPoolStats() == null;
+            assert factory.getAsyncRoutePoolStats().isEmpty();
+            factory.evictConnections();
+        } finally {
+            factory.destroy();
+        }
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void testNotInitialized() throws Exception {
+        new LinodeApiHttpRequestFactory().getPoolStats();
+    }
+}
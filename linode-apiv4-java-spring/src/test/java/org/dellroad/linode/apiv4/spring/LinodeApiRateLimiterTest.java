@@ -0,0 +1,134 @@
+
+/*
+ * Copyright (C) 2017 Archie L. Cobbs. All rights reserved.
+ */
+
+package org.dellroad.linode.apiv4.spring;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.dellroad.linode.apiv4.model.Region;
+import org.springframework.context.support.ClassPathXmlApplicationContext;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpResponse;
+import org.testng.annotations.Test;
+
+public class LinodeApiRateLimiterTest {
+
+    @Test
+    public void testEndpointClass() throws Exception {
+        assert this.endpoint(HttpMethod.GET, "linode/instances/123").equals("GET /v4/linode/instances/{id}");
+        assert this.endpoint(HttpMethod.POST, "linode/instances/123/disks/456/clone")
+          .equals("POST /v4/linode/instances/{id}/disks/{id}/clone");
+        assert this.endpoint(HttpMethod.GET, "regions/us-east-1a?page=2").equals("GET /v4/regions/us-east-1a");
+    }
+
+    @Test
+    public void testRetryAfter() throws Exception {
+        final LinodeApiRateLimiter limiter = new LinodeApiRateLimiter();
+        final HttpRequest request = HttpFixtures.request(HttpMethod.GET, "https://api.linode.com/v4/regions");
+        final AtomicInteger count = new AtomicInteger();
+        final long start = System.nanoTime();
+
+        // A 429 is passed back to the caller rather than retried here
+        final ClientHttpResponse response = limiter.intercept(request, new byte[0], (r, body) -> {
+            count.incrementAndGet();
+            final HttpHeaders headers = new HttpHeaders();
+            headers.set(LinodeApiRateLimiter.RETRY_AFTER_HEADER, "1");
+            return HttpFixtures.response(LinodeApiRateLimiter.TOO_MANY_REQUESTS, headers);
+        });
+        assert response.getRawStatusCode() == LinodeApiRateLimiter.TOO_MANY_REQUESTS;
+        assert count.get() == 1;
+
+        // But the next request for the same endpoint class waits for Retry-After
+        limiter.intercept(request, new byte[0], (r, body) -> HttpFixtures.response(200, new HttpHeaders()));
+        assert System.nanoTime() - start >= 900_000_000L : "didn't wait for Retry-After";
+    }
+
+    @Test
+    public void testRetryThroughInterceptors() throws Exception {
+        final HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        final ClassPathXmlApplicationContext context
+          = new ClassPathXmlApplicationContext("/org/dellroad/linode/apiv4/spring/linodeApi.xml", this.getClass());
+        try {
+            final LinodeApiRequestSender sender = context.getBean("linodeApiRequestSender", LinodeApiRequestSender.class);
+            final LinodeApiConcurrencyLimiter concurrencyLimiter
+              = context.getBean("linodeApiConcurrencyLimiter", LinodeApiConcurrencyLimiter.class);
+            final LinodeApiStatistics statistics = context.getBean("linodeApiStatistics", LinodeApiStatistics.class);
+            final int maxLimit = concurrencyLimiter.getLimit();
+
+            // Reject the first request with a 429, noting how many requests hold a concurrency slot each time
+            final List<Integer> inFlight = new CopyOnWriteArrayList<>();
+            server.createContext("/v4/", exchange -> {
+                inFlight.add(concurrencyLimiter.getInFlight());
+                if (inFlight.size() == 1) {
+                    exchange.getResponseHeaders().set(LinodeApiRateLimiter.RETRY_AFTER_HEADER, "1");
+                    this.respond(exchange, LinodeApiRateLimiter.TOO_MANY_REQUESTS, "{\"errors\":[{\"reason\":\"Slow down\"}]}");
+                } else
+                    this.respond(exchange, 200, "{\"id\":\"us-east\",\"country\":\"us\"}");
+            });
+            server.start();
+            sender.setBaseURI(URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/v4/"));
+
+            // The retry should go through the whole interceptor chain
+            final long start = System.nanoTime();
+            final Region region = sender.getRegion("us-east");
+            assert region.getId().equals("us-east");
+            assert System.nanoTime() - start >= 900_000_000L : "didn't wait for Retry-After";
+            assert inFlight.size() == 2 : "requests: " + inFlight;
+            assert inFlight.get(0) == 1 && inFlight.get(1) == 1 : "retry did not hold a concurrency slot: " + inFlight;
+            assert concurrencyLimiter.getInFlight() == 0;
+            assert concurrencyLimiter.getLimit() < maxLimit : "429 not reported to concurrency limiter";
+            final LinodeApiStatistics.EndpointStatistics endpointStatistics
+              = statistics.getEndpointStatistics().get("GET /v4/regions/us-east");
+            assert endpointStatistics != null : "no statistics: " + statistics;
+            assert endpointStatistics.getStatusCodeCounts().get(LinodeApiRateLimiter.TOO_MANY_REQUESTS) == 1 : endpointStatistics;
+            assert endpointStatistics.getStatusCodeCounts().get(200) == 1 : endpointStatistics;
+            assert endpointStatistics.getRetries() == 1 : endpointStatistics;
+        } finally {
+            context.close();
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void testQueueTimeout() throws Exception {
+        final LinodeApiRateLimiter limiter = new LinodeApiRateLimiter();
+        limiter.setLimit(1);
+        limiter.setWindow(60_000);
+        limiter.setQueueTimeout(100);
+        final HttpRequest request = HttpFixtures.request(HttpMethod.GET, "https://api.linode.com/v4/regions");
+        limiter.intercept(request, new byte[0], (r, body) -> HttpFixtures.response(200, new HttpHeaders()));
+        try {
+            limiter.intercept(request, new byte[0], (r, body) -> HttpFixtures.response(200, new HttpHeaders()));
+            assert false : "expected timeout";
+        } catch (LinodeApiException e) {
+            // expected
+        }
+    }
+
+    private void respond(HttpExchange exchange, int status, String json) throws IOException {
+        final byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write(body);
+        }
+    }
+
+    private String endpoint(HttpMethod method, String path) {
+        return LinodeApiRateLimiter.getEndpointClass(HttpFixtures.request(method, "https://api.linode.com/v4/" + path));
+    }
+}
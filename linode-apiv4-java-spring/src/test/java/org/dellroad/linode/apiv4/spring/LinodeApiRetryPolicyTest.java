@@ -0,0 +1,133 @@
+
+/*
+ * Copyright (C) 2017 Archie L. Cobbs. All rights reserved.
+ */
+
+package org.dellroad.linode.apiv4.spring;
+
+import com.fasterxml.jackson.databind.JsonMappingException;
+
+import java.net.SocketException;
+import java.net.URI;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.springframework.http.HttpMethod;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.web.client.RestClientException;
+import org.testng.annotations.Test;
+
+public class LinodeApiRetryPolicyTest {
+
+    @Test
+    public void testRetryable() throws Exception {
+        final LinodeApiRetryPolicy policy = new LinodeApiRetryPolicy();
+        assert policy.isRetryable(this.error(429));
+        assert policy.isRetryable(this.error(503));
+        assert policy.isRetryable(this.error(504));
+        assert !policy.isRetryable(this.error(400));
+        assert !policy.isRetryable(this.error(404));
+        assert policy.isRetryable(new LinodeApiException("error", new RuntimeException(new SocketException("reset"))));
+        assert !policy.isRetryable(new LinodeApiException("error", new IllegalStateException()));
+
+        // Deserialization failures are deterministic, even though JsonProcessingException is an IOException
+        final JsonMappingException jsonError = new JsonMappingException(null, "bad JSON");
+        assert !policy.isRetryable(new LinodeApiException("error", jsonError));
+        assert !policy.isRetryable(new LinodeApiException("error",
+          new RestClientException("error extracting response", new HttpMessageNotReadableException("bad JSON", jsonError))));
+    }
+
+    @Test
+    public void testBackoff() throws Exception {
+        final LinodeApiRetryPolicy policy = new LinodeApiRetryPolicy();
+        policy.setInitialBackoff(100);
+        policy.setMaxBackoff(1000);
+        policy.setJitter(0.5);
+        for (int i = 0; i < 100; i++) {
+            final long delay1 = policy.getBackoff(1);
+            assert delay1 >= 50 && delay1 <= 100 : "bad delay " + delay1;
+            final long delay3 = policy.getBackoff(3);
+            assert delay3 >= 200 && delay3 <= 400 : "bad delay " + delay3;
+            final long delay10 = policy.getBackoff(10);
+            assert delay10 >= 500 && delay10 <= 1000 : "bad delay " + delay10;
+        }
+    }
+
+    @Test
+    public void testLimits() throws Exception {
+        final LinodeApiRetryPolicy policy = new LinodeApiRetryPolicy();
+        policy.setMaxAttempts(3);
+        policy.setInitialBackoff(100);
+        policy.setJitter(0.0);
+        policy.setDeadline(1000);
+        assert policy.nextDelay(this.error(404), 1, 0, true) == -1;
+        assert policy.nextDelay(this.error(503), 1, 0, true) == 100;
+        assert policy.nextDelay(this.error(503), 2, 100, true) == 200;
+        assert policy.nextDelay(this.error(503), 3, 300, true) == -1;
+        assert policy.nextDelay(this.error(503), 1, 950, true) == -1;
+        assert policy.getRetryCount() == 2;
+        assert policy.getExhaustedCount() == 2;
+    }
+
+    @Test
+    public void testRateLimited() throws Exception {
+        final LinodeApiRetryPolicy policy = new LinodeApiRetryPolicy();
+        policy.setInitialBackoff(100);
+        policy.setJitter(0.0);
+        final LinodeApiException e = this.error(429);
+        e.setRetryAfter(2000);
+
+        // Retry-After overrides backoff, and non-idempotent requests are retried after HTTP 429 only
+        assert policy.nextDelay(e, 1, 0, true) == 2000;
+        assert policy.nextDelay(e, 1, 0, false) == 2000;
+        assert policy.nextDelay(this.error(429), 1, 0, false) == 100;
+        assert policy.nextDelay(this.error(503), 1, 0, false) == -1;
+    }
+
+    @Test
+    public void testWithoutRetries() throws Exception {
+        final LinodeApiRetryPolicy policy = new LinodeApiRetryPolicy();
+        policy.setInitialBackoff(1);
+        final LinodeApiRequestSender sender = new LinodeApiRequestSender();
+        sender.setRetryPolicy(policy);
+        final URI uri = URI.create("https://api.linode.com/v4/linode/instances/123");
+        final AtomicInteger attempts = new AtomicInteger();
+        final Supplier<Void> unavailable = () -> {
+            attempts.incrementAndGet();
+            throw this.error(503);
+        };
+
+        // Normally the request is retried
+        try {
+            sender.retry(HttpMethod.DELETE, uri, unavailable);
+            assert false : "expected exception";
+        } catch (LinodeApiException e) {
+            assert e.getStatusCode() == 503;
+        }
+        assert attempts.getAndSet(0) == LinodeApiRetryPolicy.DEFAULT_MAX_ATTEMPTS;
+
+        // ...but not while retries are suppressed, including in nested calls
+        try {
+            sender.withoutRetries(() -> sender.withoutRetries(() -> sender.retry(HttpMethod.DELETE, uri, unavailable)));
+            assert false : "expected exception";
+        } catch (LinodeApiException e) {
+            assert e.getStatusCode() == 503;
+        }
+        assert attempts.getAndSet(0) == 1;
+
+        // Retries resume afterward
+        try {
+            sender.retry(HttpMethod.DELETE, uri, unavailable);
+            assert false : "expected exception";
+        } catch (LinodeApiException e) {
+            assert e.getStatusCode() == 503;
+        }
+        assert attempts.get() == LinodeApiRetryPolicy.DEFAULT_MAX_ATTEMPTS;
+    }
+
+    private LinodeApiException error(int statusCode) {
+        final LinodeApiException e = new LinodeApiException("HTTP " + statusCode);
+        e.setStatusCode(statusCode);
+        return e;
+    }
+}
@@ -0,0 +1,104 @@
+
+/*
+ * Copyright (C) 2017 Archie L. Cobbs. All rights reserved.
+ */
+
+package org.dellroad.linode.apiv4.spring;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.testng.annotations.Test;
+
+public class LinodeApiStatisticsTest {
+
+    @Test
+    public void testHistogramBuckets() throws Exception {
+        for (long value = 0; value < (1L << 42); value = value * 3 / 2 + 1) {
+            final int bucket = LatencyHistogram.bucketFor(value);
+            assert bucket == 0 || LatencyHistogram.upperBound(bucket - 1) < value : "value " + value + " below bucket " + bucket;
+            assert value <= LatencyHistogram.upperBound(bucket) || value > (1L << 41) :
+              "value " + value + " above bucket " + bucket;
+        }
+    }
+
+    @Test
+    public void testHistogramPercentiles() throws Exception {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        assert histogram.getPercentile(99, TimeUnit.MICROSECONDS) == 0;
+        final Random random = new Random(123);
+        final long[] values = new long[10000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = 1000 + random.nextInt(100000);
+            histogram.record(TimeUnit.MICROSECONDS.toNanos(values[i]));
+        }
+        Arrays.sort(values);
+        assert histogram.getCount() == values.length;
+        assert histogram.getMax(TimeUnit.MICROSECONDS) == values[values.length - 1];
+        for (double p : new double[] { 50, 90, 99, 99.9 }) {
+            final long expected = values[(int)Math.ceil(values.length * p / 100.0) - 1];
+            final long actual = histogram.getPercentile(p, TimeUnit.MICROSECONDS);
+            assert actual >= expected && actual <= expected * 1.125 : "p" + p + ": expected " + expected + " got " + actual;
+        }
+    }
+
+    @Test
+    public void testInterceptor() throws Exception {
+        final LinodeApiStatistics stats = new LinodeApiStatistics();
+        final LinodeApiMetricsInterceptor interceptor = new LinodeApiMetricsInterceptor();
+        interceptor.setMetrics(stats);
+        final HttpRequest request = HttpFixtures.request(HttpMethod.PUT, "https://api.linode.com/v4/linode/instances/123");
+        final HttpHeaders headers = new HttpHeaders();
+        headers.setContentLength(42);
+        final ClientHttpRequestExecution ok = (r, body) -> HttpFixtures.response(200, headers);
+        final ClientHttpRequestExecution notFound = (r, body) -> HttpFixtures.response(404, new HttpHeaders());
+        final ClientHttpRequestExecution failure = (r, body) -> {
+            throw new IOException("reset");
+        };
+        interceptor.intercept(request, new byte[10], ok);
+        interceptor.intercept(request, new byte[10], notFound);
+        try {
+            interceptor.intercept(request, new byte[10], failure);
+            assert false : "expected exception";
+        } catch (IOException e) {
+            // expected
+        }
+        final LinodeApiStatistics.EndpointStatistics endpoint = stats.getEndpointStatistics().get("PUT /v4/linode/instances/{id}");
+        assert endpoint != null : "missing endpoint in " + stats;
+        assert endpoint.getLatency().getCount() == 3;
+        assert endpoint.getStatusCodeCounts().get(200) == 1;
+        assert endpoint.getStatusCodeCounts().get(404) == 1;
+        assert endpoint.getStatusCodeCounts().get(0) == 1;
+        assert endpoint.getBytesSent() == 30;
+        assert endpoint.getBytesReceived() == 42;
+    }
+
+    @Test
+    public void testRetries() throws Exception {
+        final LinodeApiStatistics stats = new LinodeApiStatistics();
+        final LinodeApiRetryPolicy policy = new LinodeApiRetryPolicy();
+        policy.setInitialBackoff(1);
+        final LinodeApiRequestSender sender = new LinodeApiRequestSender();
+        sender.setRetryPolicy(policy);
+        sender.setMetrics(stats);
+        final AtomicInteger count = new AtomicInteger();
+        final String result = sender.retry(HttpMethod.GET, URI.create("https://api.linode.com/v4/linode/instances/456"), () -> {
+            if (count.incrementAndGet() < 3) {
+                final LinodeApiException e = new LinodeApiException("HTTP 503");
+                e.setStatusCode(503);
+                throw e;
+            }
+            return "ok";
+        });
+        assert result.equals("ok");
+        assert stats.getEndpointStatistics().get("GET /v4/linode/instances/{id}").getRetries() == 2;
+    }
+}
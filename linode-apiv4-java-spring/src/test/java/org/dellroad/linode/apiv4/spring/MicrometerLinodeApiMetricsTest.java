@@ -0,0 +1,39 @@
+
+/*
+ * Copyright (C) 2017 Archie L. Cobbs. All rights reserved.
+ */
+
+package org.dellroad.linode.apiv4.spring;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.util.concurrent.TimeUnit;
+
+import org.testng.annotations.Test;
+
+public class MicrometerLinodeApiMetricsTest {
+
+    @Test
+    public void testMeters() throws Exception {
+        final MeterRegistry registry = new SimpleMeterRegistry();
+        final MicrometerLinodeApiMetrics metrics = new MicrometerLinodeApiMetrics(registry);
+
+        // Repeated reports for the same endpoint accumulate in the same meters
+        for (int i = 0; i < 3; i++) {
+            metrics.exchange("GET regions", 200, TimeUnit.MILLISECONDS.toNanos(10), 0, 100);
+            metrics.retry("GET regions");
+            metrics.pages("GET regions", 2);
+        }
+        metrics.exchange("GET regions", 429, TimeUnit.MILLISECONDS.toNanos(10), 0, -1);
+        metrics.exchange("GET linode/types", 200, TimeUnit.MILLISECONDS.toNanos(10), 0, 100);
+        assert registry.get(MicrometerLinodeApiMetrics.REQUESTS).tags("endpoint", "GET regions", "status", "200")
+          .timer().count() == 3;
+        assert registry.get(MicrometerLinodeApiMetrics.BYTES_SENT).tag("endpoint", "GET regions").summary().count() == 4;
+        assert registry.get(MicrometerLinodeApiMetrics.BYTES_RECEIVED).tag("endpoint", "GET regions").summary()
+          .totalAmount() == 300;
+        assert registry.get(MicrometerLinodeApiMetrics.RETRIES).tag("endpoint", "GET regions").counter().count() == 3;
+        assert registry.get(MicrometerLinodeApiMetrics.PAGES).tag("endpoint", "GET regions").summary().totalAmount() == 6;
+        assert registry.get(MicrometerLinodeApiMetrics.BYTES_SENT).summaries().size() == 2;
+    }
+}
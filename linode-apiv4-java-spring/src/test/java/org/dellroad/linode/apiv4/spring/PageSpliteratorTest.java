@@ -0,0 +1,148 @@
+
+/*
+ * Copyright (C) 2017 Archie L. Cobbs. All rights reserved.
+ */
+
+package org.dellroad.linode.apiv4.spring;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.dellroad.linode.apiv4.model.Region;
+import org.dellroad.linode.apiv4.model.Regions;
+import org.springframework.web.client.RestClientException;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+public class PageSpliteratorTest {
+
+    private static final int PAGE_SIZE = 3;
+
+    private ExecutorService executorService;
+
+    @BeforeClass
+    public void setupExecutor() {
+        this.executorService = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterClass
+    public void shutdownExecutor() {
+        this.executorService.shutdownNow();
+    }
+
+    @Test(dataProvider = "cases")
+    public void testPageSpliterator(int numResults, boolean async, int readAhead, int maxResults) throws Exception {
+        final AtomicInteger loads = new AtomicInteger();
+        final LinodeApiRequestSender.AsyncExecutor executor = async ?
+          LinodeApiRequestSender.AsyncExecutor.of(this.executorService) : null;
+        final PageSpliterator<Region, Regions> spliterator = new PageSpliterator<>(page -> {
+            loads.incrementAndGet();
+            return this.buildPage(page, numResults);
+        }, executor, readAhead, maxResults);
+
+        // Nothing should be loaded until the stream is consumed
+        final Stream<Region> stream = StreamSupport.stream(spliterator, false).onClose(spliterator::close);
+        assert loads.get() == 0;
+
+        // Verify all results are returned, in order
+        final List<String> ids;
+        try (Stream<Region> stream2 = stream) {
+            ids = stream2.map(Region::getId).collect(Collectors.toList());
+        }
+        final int numExpected = maxResults != 0 ? Math.min(numResults, maxResults) : numResults;
+        final List<String> expected = new ArrayList<>();
+        for (int i = 0; i < numExpected; i++)
+            expected.add("region" + i);
+        assert ids.equals(expected) : "got " + ids + " != " + expected;
+
+        // Verify no unnecessary pages were loaded
+        assert loads.get() == Math.max(1, (numExpected + PAGE_SIZE - 1) / PAGE_SIZE) : "loaded " + loads.get() + " pages";
+    }
+
+    @Test
+    public void testMaxInFlight() throws Exception {
+        final int readAhead = 3;
+        final AtomicInteger inFlight = new AtomicInteger();
+        final AtomicInteger maxInFlight = new AtomicInteger();
+        final PageSpliterator<Region, Regions> spliterator = new PageSpliterator<>(page -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            inFlight.decrementAndGet();
+            return this.buildPage(page, 100);
+        }, LinodeApiRequestSender.AsyncExecutor.of(this.executorService), readAhead, 0);
+        assert StreamSupport.stream(spliterator, false).count() == 100;
+        assert maxInFlight.get() <= readAhead : "too many pages in flight: " + maxInFlight.get();
+    }
+
+    @Test
+    public void testError() throws Exception {
+        final PageSpliterator<Region, Regions> spliterator = new PageSpliterator<>(page -> {
+            if (page == 3)
+                throw new LinodeApiException("page " + page + " failed");
+            return this.buildPage(page, 100);
+        }, LinodeApiRequestSender.AsyncExecutor.of(this.executorService), 2, 0);
+        try {
+            StreamSupport.stream(spliterator, false).count();
+            assert false;
+        } catch (RestClientException e) {
+            assert e.getCause() instanceof LinodeApiException : "wrong cause: " + e.getCause();
+        }
+        assert !spliterator.tryAdvance(region -> { }) : "spliterator not closed after error";
+    }
+
+    @Test
+    public void testLazyLoading() throws Exception {
+        final AtomicInteger loads = new AtomicInteger();
+        final PageSpliterator<Region, Regions> spliterator = new PageSpliterator<>(page -> {
+            loads.incrementAndGet();
+            return this.buildPage(page, 100);
+        }, null, 0, 0);
+        final List<Region> regions = StreamSupport.stream(spliterator, false).limit(PAGE_SIZE + 1).collect(Collectors.toList());
+        assert regions.size() == PAGE_SIZE + 1;
+        assert loads.get() == 2 : "loaded " + loads.get() + " pages";
+    }
+
+    @DataProvider(name = "cases")
+    public Object[][] genCases() {
+        return new Object[][] {
+            { 0, false, 0, 0 },
+            { 1, false, 0, 0 },
+            { 10, false, 0, 0 },
+            { 10, true, 0, 0 },
+            { 10, true, 1, 0 },
+            { 10, true, 2, 0 },
+            { 30, true, 10, 0 },
+            { 30, false, 0, 4 },
+            { 30, true, 10, 6 },
+            { 30, true, 10, 7 },
+            { 30, true, 2, 29 },
+        };
+    }
+
+    private Regions buildPage(int page, int numResults) {
+        final Regions regions = new Regions();
+        regions.setPage(page);
+        regions.setPages(Math.max(1, (numResults + PAGE_SIZE - 1) / PAGE_SIZE));
+        regions.setResults(numResults);
+        final List<Region> list = new ArrayList<>();
+        for (int i = (page - 1) * PAGE_SIZE; i < Math.min(page * PAGE_SIZE, numResults); i++) {
+            final Region region = new Region();
+            region.setId("region" + i);
+            list.add(region);
+        }
+        regions.setData(list);
+        return regions;
+    }
+}
@@ -7,6 +7,8 @@ package org.dellroad.linode.apiv4.spring;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 
 import org.dellroad.linode.apiv4.filter.FilterBuilder;
 import org.dellroad.linode.apiv4.model.BackupInfo;
@@ -257,6 +259,32 @@ public class QueryTest extends SpringTest {
         }
     }
 
+    @Test
+    public void testAsyncRegions() throws Exception {
+        final List<Region> regions = this.asyncSender.getRegions(MAX_RESULTS, null).get();
+        final List<CompletableFuture<Region>> futures = new ArrayList<>();
+        for (Region region : regions) {
+            this.log.info("async getRegions(): {}", this.toString(region));
+            futures.add(this.asyncSender.getRegion(region.getId()));
+        }
+        for (int i = 0; i < regions.size(); i++) {
+            final Region region = futures.get(i).get();
+            assert region.getId().equals(regions.get(i).getId());
+            this.log.info("async getRegion({}): {}", region.getId(), this.toString(region));
+        }
+    }
+
+    @Test
+    public void testAsyncError() throws Exception {
+        try {
+            this.asyncSender.getRegion("nonexistent").get();
+            assert false;
+        } catch (ExecutionException e) {
+            assert e.getCause() instanceof LinodeApiException : "wrong exception: " + e.getCause();
+            this.log.info("got expected " + e.getCause());
+        }
+    }
+
 // Support - TODO
 // Account - TODO
 // Profile - TODO
@@ -40,6 +40,7 @@ public abstract class SpringTest {
     protected String authToken;
     protected ClassPathXmlApplicationContext context;
     protected LinodeApiRequestSender sender;
+    protected AsyncLinodeApiRequestSender asyncSender;
     protected ThreadPoolTaskExecutor taskExecutor;
     protected LinodeApiRequestSender.AsyncExecutor asyncExecutor;
 
@@ -62,8 +63,9 @@ public abstract class SpringTest {
         // Load context
         this.context = new ClassPathXmlApplicationContext("/org/dellroad/linode/apiv4/spring/linodeApi.xml", this.getClass());
 
-        // Get request sender
+        // Get request senders
         this.sender = this.context.getBean("linodeApiRequestSender", LinodeApiRequestSender.class);
+        this.asyncSender = this.context.getBean("linodeApiAsyncRequestSender", AsyncLinodeApiRequestSender.class);
 
         // Configure auth token
         if (this.authToken != null) {
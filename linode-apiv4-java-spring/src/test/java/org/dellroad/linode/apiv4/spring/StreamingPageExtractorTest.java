@@ -0,0 +1,233 @@
+
+/*
+ * Copyright (C) 2017 Archie L. Cobbs. All rights reserved.
+ */
+
+package org.dellroad.linode.apiv4.spring;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.dellroad.linode.apiv4.model.Image;
+import org.dellroad.linode.apiv4.model.Images;
+import org.dellroad.linode.apiv4.model.Linode;
+import org.dellroad.linode.apiv4.model.LinodeSummaries;
+import org.dellroad.linode.apiv4.model.LinodeSummary;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.AbstractClientHttpRequest;
+import org.springframework.http.client.AbstractClientHttpResponse;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.web.client.RestTemplate;
+import org.testng.annotations.Test;
+
+public class StreamingPageExtractorTest {
+
+    private static final Pattern PAGE_PATTERN = Pattern.compile("page=([0-9]+)");
+
+    @Test
+    public void testExtract() throws Exception {
+        final List<Image> images = new ArrayList<>();
+        final StreamingPageExtractor<Image, Images> extractor = new StreamingPageExtractor<>(
+          new ObjectMapper(), Images.class, images::add);
+        final Images page = extractor.extractData(this.response(this.page(2, 3, 0, 3, true)));
+        assert page.getPage() == 2;
+        assert page.getPages() == 3;
+        assert page.getResults() == 7;
+        assert page.getData().isEmpty();
+        assert images.size() == 3;
+        assert extractor.getDelivered() == 3;
+        for (int i = 0; i < 3; i++)
+            assert images.get(i).getId().equals("image" + i);
+    }
+
+    @Test
+    public void testLinodeSummary() throws Exception {
+        final String json = "{\"page\": 1, \"pages\": 1, \"results\": 1, \"data\": [{"
+          + "\"id\": 123, \"label\": \"worker-1\", \"group\": \"workers\", \"status\": \"running\","
+          + " \"region\": \"us-east-1a\", \"type\": \"g5-nanode-1\", \"ipv4\": [\"10.0.0.1\"],"
+          + " \"created\": \"2018-01-01T00:00:00\", \"hypervisor\": \"kvm\","
+          + " \"alerts\": {\"cpu\": 90, \"io\": 10000, \"network_in\": 10, \"network_out\": 10},"
+          + " \"backups\": {\"enabled\": true, \"schedule\": {\"day\": \"Sunday\", \"window\": \"W0\"}},"
+          + " \"specs\": {\"disk\": 20480, \"memory\": 1024, \"vcpus\": 1, \"transfer\": 1000}}]}";
+        final List<LinodeSummary> linodes = new ArrayList<>();
+        new StreamingPageExtractor<>(new ObjectMapper(), LinodeSummaries.class, linodes::add).extractData(this.response(json));
+        assert linodes.size() == 1;
+        final LinodeSummary linode = linodes.get(0);
+        assert linode.getId() == 123;
+        assert linode.getLabel().equals("worker-1");
+        assert linode.getGroup().equals("workers");
+        assert linode.getStatus() == Linode.Status.RUNNING;
+        assert linode.getRegionId().equals("us-east-1a");
+        assert linode.getTypeId().equals("g5-nanode-1");
+        assert linode.getIpv4()[0].equals("10.0.0.1");
+    }
+
+    @Test
+    public void testTruncated() throws Exception {
+        final List<Image> images = new ArrayList<>();
+        final StreamingPageExtractor<Image, Images> extractor = new StreamingPageExtractor<>(
+          new ObjectMapper(), Images.class, images::add);
+        final String json = this.page(1, 1, 0, 2, false);
+        try {
+            extractor.extractData(this.response(json.substring(0, json.lastIndexOf('{'))));
+            assert false : "expected exception";
+        } catch (HttpMessageNotReadableException e) {
+            // expected
+        }
+        assert images.size() == 1;
+    }
+
+    @Test
+    public void testStopAtLimit() throws Exception {
+        final byte[] json = this.page(1, 1, 0, 2000, false).getBytes(StandardCharsets.UTF_8);
+        final AtomicInteger bytesRead = new AtomicInteger();
+        final InputStream input = new ByteArrayInputStream(json) {
+            @Override
+            public synchronized int read(byte[] buf, int off, int len) {
+                final int r = super.read(buf, off, len);
+                if (r > 0)
+                    bytesRead.addAndGet(r);
+                return r;
+            }
+        };
+        final List<Image> images = new ArrayList<>();
+        final StreamingPageExtractor<Image, Images> extractor = new StreamingPageExtractor<>(
+          new ObjectMapper(), Images.class, images::add, 2);
+        extractor.extractData(this.response(input));
+        assert images.size() == 2;
+        assert extractor.getDelivered() == 2;
+        assert bytesRead.get() < json.length / 4 : "read " + bytesRead.get() + " of " + json.length + " bytes";
+    }
+
+    @Test
+    public void testForEach() throws Exception {
+        final AtomicInteger requests = new AtomicInteger();
+        final LinodeApiRequestSender sender = this.sender(uri -> {
+            requests.incrementAndGet();
+            final Matcher matcher = PAGE_PATTERN.matcher(uri.getRawQuery());
+            assert matcher.find();
+            final int page = Integer.parseInt(matcher.group(1));
+            return new ByteArrayInputStream(this.page(page, 4, (page - 1) * 2, 2, false).getBytes(StandardCharsets.UTF_8));
+        });
+        final List<Image> images = new ArrayList<>();
+        assert sender.forEachImage(5, null, images::add) == 5;
+        assert requests.get() == 3;
+        for (int i = 0; i < 5; i++)
+            assert images.get(i).getId().equals("image" + i);
+        requests.set(0);
+        assert sender.forEachImage(0, null, image -> { }) == 8;
+        assert requests.get() == 4;
+    }
+
+    @Test
+    public void testNoRetryAfterPartialDelivery() throws Exception {
+        final AtomicInteger requests = new AtomicInteger();
+        final LinodeApiRequestSender sender = this.sender(uri -> {
+            requests.incrementAndGet();
+            final String json = this.page(1, 1, 0, 2, false);
+            final byte[] head = json.substring(0, json.lastIndexOf('{')).getBytes(StandardCharsets.UTF_8);
+            return new SequenceInputStream(new ByteArrayInputStream(head), new InputStream() {
+                @Override
+                public int read() throws IOException {
+                    throw new IOException("connection reset");
+                }
+            });
+        });
+        final LinodeApiRetryPolicy policy = new LinodeApiRetryPolicy();
+        policy.setInitialBackoff(1);
+        sender.setRetryPolicy(policy);
+        final List<Image> images = new ArrayList<>();
+        try {
+            sender.forEachImage(0, null, images::add);
+            assert false : "expected exception";
+        } catch (LinodeApiException e) {
+            // expected
+        }
+        assert images.size() == 1;
+        assert requests.get() == 1;
+    }
+
+    private String page(int page, int pages, int first, int count, boolean extra) {
+        final StringBuilder buf = new StringBuilder();
+        buf.append("{\"page\": ").append(page).append(", \"pages\": ").append(pages)
+          .append(", \"results\": ").append(pages * 2 + 1);
+        if (extra)
+            buf.append(", \"extra\": {\"foo\": [1, 2, {\"bar\": null}]}");
+        buf.append(", \"data\": [");
+        for (int i = 0; i < count; i++) {
+            if (i > 0)
+                buf.append(", ");
+            buf.append("{\"id\": \"image").append(first + i).append("\", \"label\": \"Image\", \"size\": 1024}");
+        }
+        return buf.append("]}").toString();
+    }
+
+    private LinodeApiRequestSender sender(Function<URI, InputStream> server) {
+        final RestTemplate restTemplate = new RestTemplate((uri, method) -> new AbstractClientHttpRequest() {
+            @Override
+            public HttpMethod getMethod() {
+                return method;
+            }
+            @Override
+            public URI getURI() {
+                return uri;
+            }
+            @Override
+            protected OutputStream getBodyInternal(HttpHeaders headers) {
+                return new ByteArrayOutputStream();
+            }
+            @Override
+            protected ClientHttpResponse executeInternal(HttpHeaders headers) {
+                return StreamingPageExtractorTest.this.response(server.apply(uri));
+            }
+        });
+        restTemplate.setErrorHandler(new LinodeApiErrorHandler());
+        final LinodeApiRequestSender sender = new LinodeApiRequestSender();
+        sender.setRestTemplate(restTemplate);
+        return sender;
+    }
+
+    private ClientHttpResponse response(String json) {
+        return this.response(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private ClientHttpResponse response(InputStream body) {
+        return new AbstractClientHttpResponse() {
+            @Override
+            public int getRawStatusCode() {
+                return 200;
+            }
+            @Override
+            public String getStatusText() {
+                return "OK";
+            }
+            @Override
+            public HttpHeaders getHeaders() {
+                return new HttpHeaders();
+            }
+            @Override
+            public InputStream getBody() {
+                return body;
+            }
+            @Override
+            public void close() {
+            }
+        };
+    }
+}
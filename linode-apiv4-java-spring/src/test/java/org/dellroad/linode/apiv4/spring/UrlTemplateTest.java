@@ -0,0 +1,53 @@
+
+/*
+ * Copyright (C) 2017 Archie L. Cobbs. All rights reserved.
+ */
+
+package org.dellroad.linode.apiv4.spring;
+
+import java.net.URI;
+
+import org.springframework.web.util.DefaultUriTemplateHandler;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+public class UrlTemplateTest {
+
+    private final LinodeApiRequestSender sender = new LinodeApiRequestSender();
+    private final DefaultUriTemplateHandler handler = new DefaultUriTemplateHandler();
+
+    @Test(dataProvider = "cases")
+    public void testExpand(String pathTemplate, Object[] params) throws Exception {
+
+        // Compare with what RestTemplate would do
+        final URI expected = this.handler.expand(this.sender.buildTemplateURL(pathTemplate), params);
+        final URI actual = this.sender.buildURI(pathTemplate, params);
+        assert actual.toString().equals(expected.toString()) : "expected " + expected + " but got " + actual;
+
+        // Again with a page parameter (buildTemplateURL() mishandles existing query strings, so skip those)
+        if (pathTemplate.indexOf('?') != -1)
+            return;
+        final URI expected2 = this.handler.expand(this.sender.buildTemplateURL(pathTemplate, "page", "7"), params);
+        final URI actual2 = this.sender.buildURI(pathTemplate, params, "page", 7);
+        assert actual2.toString().equals(expected2.toString()) : "expected " + expected2 + " but got " + actual2;
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testNotEnough() throws Exception {
+        this.sender.buildURI("linode/instances/{id}/disks/{diskId}", new Object[] { 123 });
+    }
+
+    @DataProvider(name = "cases")
+    public Object[][] genCases() {
+        return new Object[][] {
+            { "regions", new Object[0] },
+            { "linode/instances/{id}", new Object[] { 123 } },
+            { "linode/instances/{id}/disks/{diskId}", new Object[] { 123, 456 } },
+            { "images/{id}", new Object[] { "linode/ubuntu16.04LTS" } },
+            { "images/{id}", new Object[] { "private/123" } },
+            { "linode/kernels/{id}", new Object[] { "linode/4.9.36-x86_64 (latest)" } },
+            { "regions/{id}", new Object[] { "us-easté&x=y?z#w%20" } },
+            { "foo/{x}?bar={y}", new Object[] { "a b", "c&d=e/f?g" } },
+        };
+    }
+}
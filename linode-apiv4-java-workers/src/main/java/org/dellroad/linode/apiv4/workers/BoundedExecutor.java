@@ -0,0 +1,117 @@
+
+/*
+ * Copyright (C) 2017 Archie L. Cobbs. All rights reserved.
+ */
+
+package org.dellroad.linode.apiv4.workers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Runs tasks on an underlying {@link Executor}, at most a fixed number at a time.
+ *
+ * <p>
+ * Tasks submitted while the limit is reached wait in a queue, without occupying any thread, and are started as
+ * running tasks finish. No locking is involved, so tasks may be submitted from any thread, including while holding
+ * the {@link WorkerPool} lock.
+ *
+ * @param <T> task type
+ */
+@ThreadSafe
+final class BoundedExecutor<T extends Runnable> {
+
+    private final Executor executor;
+    private final int maxConcurrent;
+    private final BiConsumer<? super T, ? super RejectedExecutionException> rejectionHandler;
+    private final ConcurrentLinkedQueue<T> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger numRunning = new AtomicInteger();                     // limited by maxConcurrent
+
+    /**
+     * Constructor.
+     *
+     * @param executor underlying executor
+     * @param maxConcurrent maximum number of tasks running at once
+     * @param rejectionHandler invoked with any task that {@code executor} refuses to run
+     * @throws IllegalArgumentException if {@code executor} or {@code rejectionHandler} is null
+     * @throws IllegalArgumentException if {@code maxConcurrent} is zero or negative
+     */
+    BoundedExecutor(Executor executor, int maxConcurrent,
+      BiConsumer<? super T, ? super RejectedExecutionException> rejectionHandler) {
+        if (executor == null)
+            throw new IllegalArgumentException("null executor");
+        if (maxConcurrent <= 0)
+            throw new IllegalArgumentException("maxConcurrent <= 0");
+        if (rejectionHandler == null)
+            throw new IllegalArgumentException("null rejectionHandler");
+        this.executor = executor;
+        this.maxConcurrent = maxConcurrent;
+        this.rejectionHandler = rejectionHandler;
+    }
+
+    /**
+     * Submit a task, which runs as soon as fewer than the maximum number of tasks are running.
+     *
+     * @param task task to run
+     * @throws IllegalArgumentException if {@code task} is null
+     */
+    void submit(T task) {
+        if (task == null)
+            throw new IllegalArgumentException("null task");
+        this.queue.add(task);
+        this.drain();
+    }
+
+    /**
+     * Remove and return all tasks that are still waiting to run.
+     *
+     * @return tasks removed from the queue
+     */
+    List<T> clearQueue() {
+        final ArrayList<T> list = new ArrayList<>();
+        for (T task; (task = this.queue.poll()) != null; )
+            list.add(task);
+        return list;
+    }
+
+    // Start queued tasks until the queue is empty or we reach maxConcurrent; invoked whenever a task is
+    // submitted and whenever one finishes, so the queue can never stall while a slot is free
+    private void drain() {
+        while (!this.queue.isEmpty()) {
+
+            // Reserve a slot, if any is available
+            final int running = this.numRunning.get();
+            if (running >= this.maxConcurrent)
+                return;
+            if (!this.numRunning.compareAndSet(running, running + 1))
+                continue;
+
+            // Start the next task in the reserved slot
+            final T task = this.queue.poll();
+            if (task == null) {
+                this.numRunning.decrementAndGet();
+                continue;
+            }
+            try {
+                this.executor.execute(() -> {
+                    try {
+                        task.run();
+                    } finally {
+                        this.numRunning.decrementAndGet();
+                        this.drain();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                this.numRunning.decrementAndGet();
+                this.rejectionHandler.accept(task, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,87 @@
+
+/*
+ * Copyright (C) 2017 Archie L. Cobbs. All rights reserved.
+ */
+
+package org.dellroad.linode.apiv4.workers;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight Recorder event for one {@link WorkerPool} periodic check.
+ *
+ * <p>
+ * Only loaded if {@link WorkerPoolEvents#AVAILABLE} is true.
+ */
+@Name("org.dellroad.linode.apiv4.workers.PeriodicCheck")
+@Label("Worker Pool Periodic Check")
+@Category({ "Linode API", "Worker Pool" })
+@Description("Periodic reconciliation of a worker pool with its Linodes")
+final class PeriodicCheckEvent extends Event {
+
+    @Label("Group")
+    @Description("Worker pool group name")
+    String group;
+
+    @Label("Starting")
+    @Description("Whether this is the initial check performed on startup")
+    boolean starting;
+
+    @Label("Linodes")
+    @Description("Number of worker Linodes found")
+    int linodes;
+
+    @Label("Workers")
+    @Description("Number of workers in the pool after the check")
+    int workers;
+
+    @Label("Query Time")
+    @Description("Time spent querying the Linode API")
+    @Timespan(Timespan.NANOSECONDS)
+    long queryTime;
+
+    @Label("Lock Wait Time")
+    @Description("Time spent waiting to re-acquire the worker pool lock after querying")
+    @Timespan(Timespan.NANOSECONDS)
+    long lockWaitTime;
+
+    @Label("Success")
+    boolean success;
+
+    static Object start() {
+        final PeriodicCheckEvent event = new PeriodicCheckEvent();
+        if (!event.isEnabled())
+            return null;
+        event.begin();
+        return event;
+    }
+
+    static void queried(Object obj, int numLinodes, long queryTime) {
+        final PeriodicCheckEvent event = (PeriodicCheckEvent)obj;
+        event.linodes = numLinodes;
+        event.queryTime = queryTime;
+    }
+
+    static void locked(Object obj, long lockWaitTime) {
+        ((PeriodicCheckEvent)obj).lockWaitTime = lockWaitTime;
+    }
+
+    static void finish(Object obj, WorkerPool pool, boolean starting, boolean success) {
+        final PeriodicCheckEvent event = (PeriodicCheckEvent)obj;
+        event.end();
+        if (!event.shouldCommit())
+            return;
+        synchronized (pool) {
+            event.group = pool.getGroupName();
+            event.workers = pool.getWorkers().size();
+        }
+        event.starting = starting;
+        event.success = success;
+        event.commit();
+    }
+}
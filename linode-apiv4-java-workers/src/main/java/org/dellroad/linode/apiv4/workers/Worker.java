@@ -8,15 +8,19 @@ package org.dellroad.linode.apiv4.workers;
 import java.io.File;
 import java.io.IOException;
 import java.io.PrintStream;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.EnumSet;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
 
-import javax.annotation.concurrent.GuardedBy;
 import javax.annotation.concurrent.ThreadSafe;
 
 import org.dellroad.linode.apiv4.model.Linode;
@@ -38,6 +42,13 @@ import org.slf4j.LoggerFactory;
  * the same name, it's possible for one {@link Worker} instance to replace another one in a worker pool. In this case,
  * the original {@link Worker} instance transistions to {@link State#INVALID}, leaves the worker pool, and a new
  * {@link Worker} instance is automatically instantiated to replace it.
+ *
+ * <p><b>Concurrency</b>
+ *
+ * <p>
+ * Workers do not lock their {@link WorkerPool}. Each worker's state is held in a single atomic reference and changed only
+ * via compare-and-set transitions, and its process set is a concurrent set, so {@link #getState}, {@link #execute execute()},
+ * etc. may be invoked by any number of threads without contending with each other or with the pool's periodic check.
  */
 @ThreadSafe
 public class Worker {
@@ -50,29 +61,28 @@ public class Worker {
     private final Logger log = LoggerFactory.getLogger(this.getClass());
     private final WorkerPool pool;
     private final int index;
+    private final String name;
     private final int linodeId;
     private final String ipAddress;
     private final String rootPassword;
     private final List<String> standardSshFlags;
 
-    @GuardedBy("pool")
-    private State state;
-    @GuardedBy("pool")
-    private Instant lastStateChangeTime = Instant.now();
-    @GuardedBy("pool")
-    private Instant idleStartTime = Instant.now();
-    @GuardedBy("pool")
-    private HashSet<Process> processSet = new HashSet<>();
+    private final AtomicReference<Snapshot> snapshot;
+    private final Set<Process> processSet = ConcurrentHashMap.newKeySet();
+    private final CompletableFuture<Worker> running = new CompletableFuture<>();
 
 // Constructor
 
-    Worker(WorkerPool pool, int index, Linode linode, String rootPassword, List<String> standardSshFlags, State state) {
+    Worker(WorkerPool pool, int index, int linodeId, String ipAddress,
+      String rootPassword, List<String> standardSshFlags, State state) {
         if (pool == null)
             throw new IllegalArgumentException("null pool");
         if (index < 0)
             throw new IllegalArgumentException("invalid index");
-        if (linode == null || linode.getId() <= 0)
-            throw new IllegalArgumentException("null/invalid linode");
+        if (linodeId <= 0)
+            throw new IllegalArgumentException("invalid linodeId");
+        if (ipAddress == null)
+            throw new IllegalArgumentException("null ipAddress");
         if (rootPassword == null)
             throw new IllegalArgumentException("null rootPassword");
         if (standardSshFlags == null)
@@ -81,11 +91,14 @@ public class Worker {
             throw new IllegalArgumentException("null state");
         this.pool = pool;
         this.index = index;
-        this.linodeId = linode.getId();
-        this.ipAddress = linode.getIpv4()[0];
+        this.name = pool.getWorkerName(index);
+        this.linodeId = linodeId;
+        this.ipAddress = ipAddress;
         this.rootPassword = rootPassword;
         this.standardSshFlags = standardSshFlags;
-        this.state = state;
+        final Instant now = Instant.now();
+        this.snapshot = new AtomicReference<>(new Snapshot(state, now, now));
+        this.updateRunning(state);
     }
 
 // Accessors
@@ -106,7 +119,7 @@ public class Worker {
      * @see WorkerPool#getWorkerName WorkerPool.getWorkerName()
      */
     public String getName() {
-        return this.pool.getWorkerName(this.index);
+        return this.name;
     }
 
     /**
@@ -153,9 +166,7 @@ public class Worker {
      * @return worker state
      */
     public State getState() {
-        synchronized (this.pool) {
-            return this.state;
-        }
+        return this.snapshot.get().state;
     }
 
     /**
@@ -164,9 +175,7 @@ public class Worker {
      * @return immutable snapshot of this worker's active processes
      */
     public Set<Process> getProcesses() {
-        synchronized (this.pool) {
-            return Collections.unmodifiableSet(new HashSet<>(this.processSet));
-        }
+        return Collections.unmodifiableSet(new HashSet<>(this.processSet));
     }
 
     /**
@@ -182,18 +191,8 @@ public class Worker {
      * @return true if this worker's state was changed, false if already in {@link State#UNMANAGED} or {@link State#INVALID}
      */
     public boolean setUnmanaged() {
-        synchronized (this.pool) {
-            switch (this.state) {
-            case UNKNOWN:
-            case CREATING:
-            case RUNNING:
-            case DESTROYING:
-                this.setState(State.UNMANAGED);
-                return true;
-            default:
-                return false;
-            }
-        }
+        return this.transition(EnumSet.of(State.UNKNOWN, State.CREATING, State.RUNNING, State.DESTROYING),
+          State.UNMANAGED) != null;
     }
 
     /**
@@ -207,18 +206,12 @@ public class Worker {
      * @return true if this worker's state was changed, false if this worker is not currently {@link State#UNMANAGED}
      */
     public boolean setManaged() {
-        synchronized (this.pool) {
-            if (this.state.equals(State.UNMANAGED)) {
-                this.setState(State.UNKNOWN);
-                return true;
-            }
-            return false;
-        }
+        return this.compareAndSetState(State.UNMANAGED, State.UNKNOWN);
     }
 
     @Override
     public String toString() {
-        return this.getClass().getSimpleName() + "[name=" + this.getName() + ",state=" + this.state + "]";
+        return this.getClass().getSimpleName() + "[name=" + this.name + ",state=" + this.getState() + "]";
     }
 
 // Other Methods
@@ -235,6 +228,45 @@ public class Worker {
         return this.pool.destroy(this);
     }
 
+    /**
+     * Forcibly destroy this worker, returning a future that completes when its Linode has been deleted.
+     *
+     * <p>
+     * This method does not block; the worker transitions to {@link State#DESTROYING} immediately and its Linode is
+     * deleted in the background. The returned future completes normally once the deletion succeeds, or exceptionally
+     * if it fails after any retries (see {@link WorkerPool#setDestroyRetryPolicy WorkerPool.setDestroyRetryPolicy()})
+     * or the pool is stopped first.
+     *
+     * <p>
+     * In the {@link State#DESTROYING} and {@link State#INVALID} states, this method does nothing and returns a future
+     * that has already completed exceptionally with an {@link IllegalStateException}.
+     *
+     * @return future completion of the Linode deletion
+     */
+    public CompletableFuture<Void> destroyAsync() {
+        final CompletableFuture<Void> future = this.pool.destroyAsync(this);
+        if (future != null)
+            return future;
+        final CompletableFuture<Void> failed = new CompletableFuture<>();
+        failed.completeExceptionally(new IllegalStateException(this + " can't be destroyed"));
+        return failed;
+    }
+
+    /**
+     * Get a future that completes when this worker is first seen in state {@link State#RUNNING}.
+     *
+     * <p>
+     * If this worker instead goes from {@link State#CREATING} or {@link State#UNKNOWN} to any of the
+     * {@link State#UNMANAGED}, {@link State#DESTROYING}, or {@link State#INVALID} states, the future completes
+     * exceptionally with an {@link IllegalStateException}. A worker that reverts to {@link State#UNMANAGED}
+     * because it exceeded the {@linkplain WorkerPool#setMaxStartupTime maximum startup time} is an example.
+     *
+     * @return future that completes with this instance once it's running
+     */
+    public CompletableFuture<Worker> whenRunning() {
+        return this.running;
+    }
+
     /**
      * Execute the specified command on this worker by remote execution over SSH.
      *
@@ -331,9 +363,15 @@ public class Worker {
             throw new IllegalArgumentException("null username");
         if (command == null)
             throw new IllegalArgumentException("null command");
-        synchronized (this.pool) {
-            if (!this.state.equals(State.RUNNING))
-                throw new IllegalStateException("worker is in state " + this.state + " != " + State.RUNNING);
+
+        // Verify we are running and mark this worker busy; this prevents a concurrent idle timeout
+        while (true) {
+            final Snapshot current = this.snapshot.get();
+            if (current.state != State.RUNNING)
+                throw new IllegalStateException("worker is in state " + current.state + " != " + State.RUNNING);
+            if (current.idleStartTime == null
+              || this.snapshot.compareAndSet(current, new Snapshot(current.state, current.lastStateChangeTime, null)))
+                break;
         }
 
         // Build commmand
@@ -365,20 +403,18 @@ public class Worker {
         if (password != null)
             this.sendSshPassword(process, password);
 
-        // Add process to process set
-        synchronized (this.pool) {
-
-            // Check for state change while we were getting started
-            if (!this.state.equals(State.RUNNING)) {
-                if (this.log.isDebugEnabled())
-                    this.log.debug("{}: state changed to {} while forking, killing nascent {}", this, this.state, process);
-                process.destroyForcibly();
-                throw new IllegalStateException("worker is in state " + this.state + " != " + State.RUNNING);
-            }
+        // Add process to process set; a concurrent markIdle() may have marked us idle while the set was still empty
+        this.processSet.add(process);
+        this.clearIdle();
 
-            // Add process
-            this.processSet.add(process);
-            this.idleStartTime = null;
+        // Check for state change while we were getting started
+        final State state = this.getState();
+        if (state != State.RUNNING) {
+            if (this.log.isDebugEnabled())
+                this.log.debug("{}: state changed to {} while forking, killing nascent {}", this, state, process);
+            this.processSet.remove(process);
+            process.destroyForcibly();
+            throw new IllegalStateException("worker is in state " + state + " != " + State.RUNNING);
         }
 
         // Done
@@ -387,45 +423,178 @@ public class Worker {
 
 // Package methods
 
+    /**
+     * Unconditionally change this worker's state.
+     *
+     * @param state new state
+     * @throws IllegalArgumentException if {@code state} is null
+     */
     void setState(final State state) {
-        assert Thread.holdsLock(this.pool);
         if (state == null)
             throw new IllegalArgumentException("null state");
-        if (this.state.equals(state))
-            return;
-        this.log.info("{}: state change {} -> {}", this, this.state, state);
-        this.state = state;
-        this.lastStateChangeTime = Instant.now();
+        while (true) {
+            final Snapshot current = this.snapshot.get();
+            if (current.state == state || this.transition(current, state))
+                return;
+        }
+    }
+
+    /**
+     * Change this worker's state, but only if it currently has the expected state.
+     *
+     * @param expect expected current state
+     * @param update new state
+     * @return true if this worker is now in state {@code update}, false if its state was not {@code expect}
+     */
+    boolean compareAndSetState(final State expect, final State update) {
+        return this.transition(EnumSet.of(expect), update) != null;
+    }
+
+    /**
+     * Change this worker's state, but only if it has not changed since it was observed to have the expected state.
+     *
+     * @param expect expected current state
+     * @param expectChangeTime expected {@linkplain #getLastStateChangeTime last state change time}
+     * @param update new state
+     * @return true if successful, false if this worker's state has changed
+     */
+    boolean compareAndSetState(final State expect, final Instant expectChangeTime, final State update) {
+        while (true) {
+            final Snapshot current = this.snapshot.get();
+            if (current.state != expect || !current.lastStateChangeTime.equals(expectChangeTime))
+                return false;
+            if (expect == update || this.transition(current, update))
+                return true;
+        }
+    }
+
+    /**
+     * Change this worker's state, but only from one of the given states.
+     *
+     * @param fromStates allowed current states
+     * @param update new state
+     * @return previous state, or null if this worker's state was not in {@code fromStates}
+     */
+    State transition(final Set<State> fromStates, final State update) {
+        while (true) {
+            final Snapshot current = this.snapshot.get();
+            if (!fromStates.contains(current.state))
+                return null;
+            if (current.state == update || this.transition(current, update))
+                return current.state;
+        }
     }
 
     Instant getLastStateChangeTime() {
-        assert Thread.holdsLock(this.pool);
-        return this.lastStateChangeTime;
+        return this.snapshot.get().lastStateChangeTime;
     }
 
-    HashSet<Process> getProcessSet() {
-        assert Thread.holdsLock(this.pool);
+    Set<Process> getProcessSet() {
         return this.processSet;
     }
 
     Instant getIdleStartTime() {
-        assert Thread.holdsLock(this.pool);
-        return this.idleStartTime;
+        return this.snapshot.get().idleStartTime;
     }
 
-    void setIdleStartTime(final Instant idleStartTime) {
-        assert Thread.holdsLock(this.pool);
-        this.idleStartTime = idleStartTime;
+    /**
+     * Record that this {@link State#RUNNING} worker has become idle, unless already recorded or it has processes.
+     *
+     * @param now current time
+     */
+    void markIdle(final Instant now) {
+        while (true) {
+            final Snapshot current = this.snapshot.get();
+            if (current.state != State.RUNNING || current.idleStartTime != null || !this.processSet.isEmpty())
+                return;
+            if (this.snapshot.compareAndSet(current, new Snapshot(current.state, current.lastStateChangeTime, now)))
+                return;
+        }
+    }
+
+    /**
+     * Record that this worker is not idle, e.g., because it has processes still running.
+     */
+    void clearIdle() {
+        while (true) {
+            final Snapshot current = this.snapshot.get();
+            if (current.idleStartTime == null
+              || this.snapshot.compareAndSet(current, new Snapshot(current.state, current.lastStateChangeTime, null)))
+                return;
+        }
+    }
+
+    /**
+     * Transition this worker to {@link State#DESTROYING} if it has been idle for too long.
+     *
+     * <p>
+     * This fails if the worker is concurrently put back to work by {@link #execute execute()}.
+     *
+     * @param now current time
+     * @param maxIdleTime maximum idle time
+     * @return the time the worker became idle if it was transitioned, otherwise null
+     */
+    Instant idleTimeout(final Instant now, final Duration maxIdleTime) {
+        final Snapshot current = this.snapshot.get();
+        if (current.state != State.RUNNING || current.idleStartTime == null || !this.processSet.isEmpty())
+            return null;
+        if (current.idleStartTime.plus(maxIdleTime).isAfter(now))
+            return null;
+        return this.transition(current, State.DESTROYING) ? current.idleStartTime : null;
     }
 
 // Internal helpers
 
+    private boolean transition(Snapshot current, State state) {
+        final Instant now = Instant.now();
+        if (!this.snapshot.compareAndSet(current, new Snapshot(state, now, current.idleStartTime)))
+            return false;
+        this.log.info("{}: state change {} -> {}", this, current.state, state);
+        WorkerPoolEvents.workerStateChange(this, current.state, state, Duration.between(current.lastStateChangeTime, now));
+        this.updateRunning(state);
+        return true;
+    }
+
+    private void updateRunning(State state) {
+        switch (state) {
+        case RUNNING:
+            this.running.complete(this);
+            break;
+        case UNMANAGED:
+        case DESTROYING:
+        case INVALID:
+            this.running.completeExceptionally(new IllegalStateException(this.name + " became " + state
+              + " before " + State.RUNNING));
+            break;
+        default:
+            break;
+        }
+    }
+
     private void sendSshPassword(Process process, String password) {
         final PrintStream ps = new PrintStream(process.getOutputStream());
         ps.println(password);
         ps.flush();                                 // we intentionally do not close() the PrintStream here
     }
 
+// Snapshot
+
+    /**
+     * Immutable snapshot of a worker's mutable state; replaced atomically on every change.
+     */
+    private static final class Snapshot {
+
+        final State state;
+        final Instant lastStateChangeTime;
+        final Instant idleStartTime;
+
+        Snapshot(State state, Instant lastStateChangeTime, Instant idleStartTime) {
+            this.state = state;
+            this.lastStateChangeTime = lastStateChangeTime;
+            this.idleStartTime = idleStartTime;
+        }
+    }
+
 // State
 
     /**
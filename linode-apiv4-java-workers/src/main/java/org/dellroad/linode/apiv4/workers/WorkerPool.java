@@ -16,13 +16,17 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Pattern;
 
 import javax.annotation.PostConstruct;
@@ -33,8 +37,12 @@ import javax.annotation.concurrent.ThreadSafe;
 import org.dellroad.linode.apiv4.filter.Filter;
 import org.dellroad.linode.apiv4.filter.FilterBuilder;
 import org.dellroad.linode.apiv4.model.Linode;
+import org.dellroad.linode.apiv4.model.LinodeSummary;
 import org.dellroad.linode.apiv4.request.CreateLinodeRequest;
+import org.dellroad.linode.apiv4.spring.LinodeApiException;
+import org.dellroad.linode.apiv4.spring.LinodeApiPriority;
 import org.dellroad.linode.apiv4.spring.LinodeApiRequestSender;
+import org.dellroad.linode.apiv4.spring.LinodeApiRetryPolicy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -60,10 +68,18 @@ import org.springframework.scheduling.TaskScheduler;
  * <p><b>Pool Size</b>
  *
  * <p>
- * Workers are added to the pool via invocations of {@link #addWorker addWorker()}. Workers are never automatically added; however,
- * idle workers (those with no remaining {@link Process}es) are automatically shutdown after a configurable
- * {@linkplain #getMaxIdleTime maximum idle time}, until the configurable {@linkplain #getMinWorkers minimum number of
- * workers} is reached.
+ * Workers are added to the pool via invocations of {@link #addWorker(WorkerSpec) addWorker()}, or in bulk via
+ * {@link #addWorkers addWorkers()}. Idle workers (those with no remaining {@link Process}es) are automatically shutdown
+ * after a configurable {@linkplain #getMaxIdleTime maximum idle time}, until the configurable {@linkplain #getMinWorkers
+ * minimum number of workers} is reached.
+ *
+ * <p>
+ * Workers are only added automatically if a {@linkplain #setHeadroomSpec headroom policy} is configured. Then the pool
+ * keeps a number of idle {@link Worker.State#RUNNING} workers available beyond those currently busy, so that a burst of
+ * new jobs can start right away instead of waiting for new Linodes to be created and booted. Headroom is replenished
+ * during each periodic check, subject to a {@linkplain #setHeadroomMaxWorkers maximum pool size} and
+ * {@linkplain #setHeadroomMaxHourlyCost maximum hourly cost}, and idle workers are not shutdown if that would
+ * eat into the headroom.
  *
  * <p><b>Managed vs. Unmanaged Workers</b>
  *
@@ -86,6 +102,22 @@ import org.springframework.scheduling.TaskScheduler;
  * In general, {@link WorkerPool}s are robust in the face of unexpected behavior. This allows humans to intervene when needed.
  * For example, if a worker is misbehaving or needs to be inspected by a human, you can invoke {@link Worker#setUnmanaged},
  * rename the worker in the Linode console, or shut it down.
+ *
+ * <p><b>Concurrency</b>
+ *
+ * <p>
+ * The pool's lock is only used to serialize changes to the set of workers (adding workers, periodic checks, and shutdown).
+ * Reading the worker set via {@link #getWorkers} does not lock, nor do any {@link Worker} methods, so job threads dispatching
+ * work via {@link Worker#execute Worker.execute()} never wait for each other or for a periodic check in progress.
+ *
+ * <p>
+ * Other than during {@link #start}, no network I/O is ever performed while holding the pool's lock. Adding a worker
+ * reserves its index while locked, then creates its Linode without the lock; {@link #addWorkers addWorkers()} creates
+ * Linodes in the background, at most {@linkplain #setMaxConcurrentCreates a configurable number} at a time. Similarly,
+ * destroying a worker only changes its state to {@link Worker.State#DESTROYING} and queues the deletion of its Linode;
+ * queued deletions are then performed in the background, at most {@linkplain #setMaxConcurrentDestroys a configurable
+ * number} at a time, and retried after transient errors according to the {@linkplain #setDestroyRetryPolicy destroy
+ * retry policy}. Use {@link Worker#whenRunning} and {@link Worker#destroyAsync} to be notified when these complete.
  */
 @ThreadSafe
 public class WorkerPool {
@@ -121,6 +153,28 @@ public class WorkerPool {
      */
     public static final int DEFAULT_MAX_IDLE_TIME_SECONDS = 300;
 
+    /**
+     * Default number of idle workers to keep available by the headroom policy ({@value #DEFAULT_HEADROOM_WORKERS}).
+     *
+     * @see #setHeadroomWorkers setHeadroomWorkers()
+     */
+    public static final int DEFAULT_HEADROOM_WORKERS = 1;
+
+    /**
+     * Default number of idle workers to keep available by the headroom policy, as a fraction of the number of busy
+     * workers ({@value #DEFAULT_HEADROOM_FRACTION}).
+     *
+     * @see #setHeadroomFraction setHeadroomFraction()
+     */
+    public static final double DEFAULT_HEADROOM_FRACTION = 0.0;
+
+    /**
+     * Default maximum number of workers the headroom policy will grow the pool to ({@value #DEFAULT_HEADROOM_MAX_WORKERS}).
+     *
+     * @see #setHeadroomMaxWorkers setHeadroomMaxWorkers()
+     */
+    public static final int DEFAULT_HEADROOM_MAX_WORKERS = 10;
+
     /**
      * Default Linode group name and worker name prefix ({@value #DEFAULT_GROUP_NAME}).
      *
@@ -128,6 +182,35 @@ public class WorkerPool {
      */
     public static final String DEFAULT_GROUP_NAME = "Worker-Pool";
 
+    /**
+     * Default maximum number of Linode creations in progress at the same time ({@value #DEFAULT_MAX_CONCURRENT_CREATES}).
+     *
+     * @see #setMaxConcurrentCreates setMaxConcurrentCreates()
+     */
+    public static final int DEFAULT_MAX_CONCURRENT_CREATES = 8;
+
+    /**
+     * Default interval (in seconds) between checks of a newly created worker's startup progress
+     * ({@value #DEFAULT_STARTUP_CHECK_INTERVAL_SECONDS}).
+     *
+     * @see #setStartupCheckInterval setStartupCheckInterval()
+     */
+    public static final int DEFAULT_STARTUP_CHECK_INTERVAL_SECONDS = 3;
+
+    /**
+     * Default maximum number of Linode deletions in progress at the same time ({@value #DEFAULT_MAX_CONCURRENT_DESTROYS}).
+     *
+     * @see #setMaxConcurrentDestroys setMaxConcurrentDestroys()
+     */
+    public static final int DEFAULT_MAX_CONCURRENT_DESTROYS = 8;
+
+    /**
+     * Default maximum number of attempts to delete a worker's Linode ({@value #DEFAULT_MAX_DESTROY_ATTEMPTS}).
+     *
+     * @see #setDestroyRetryPolicy setDestroyRetryPolicy()
+     */
+    public static final int DEFAULT_MAX_DESTROY_ATTEMPTS = 5;
+
     /**
      * The number of hex digits in randomly generated passwords ({@value #RANDOM_PASSWORD_DIGITS}).
      *
@@ -135,6 +218,7 @@ public class WorkerPool {
      */
     private static final int RANDOM_PASSWORD_DIGITS = 32;
 
+    private static final int HTTP_NOT_FOUND = 404;
     private static final int SSH_PORT = 22;
     private static final int SSH_CHECK_TIMEOUT_SECONDS = 5;
     private static final int CHECK_INTERVAL_SECONDS = 10;
@@ -175,16 +259,41 @@ public class WorkerPool {
     private List<String> standardSshFlags = Arrays.asList(new String[] {
       "-2xaT", "-oServerAliveInterval=10", "-oServerAliveCountMax=6", "-oTCPKeepAlive=yes"
     });
+    @GuardedBy("this")
+    private WorkerSpec headroomSpec;
+    @GuardedBy("this")
+    private int headroomWorkers = DEFAULT_HEADROOM_WORKERS;
+    @GuardedBy("this")
+    private double headroomFraction = DEFAULT_HEADROOM_FRACTION;
+    @GuardedBy("this")
+    private int headroomMaxWorkers = DEFAULT_HEADROOM_MAX_WORKERS;
+    @GuardedBy("this")
+    private double headroomMaxHourlyCost;
+    @GuardedBy("this")
+    private int maxConcurrentCreates = DEFAULT_MAX_CONCURRENT_CREATES;
+    @GuardedBy("this")
+    private int startupCheckInterval = DEFAULT_STARTUP_CHECK_INTERVAL_SECONDS;
+    @GuardedBy("this")
+    private int maxConcurrentDestroys = DEFAULT_MAX_CONCURRENT_DESTROYS;
+    @GuardedBy("this")
+    private LinodeApiRetryPolicy destroyRetryPolicy = WorkerPool.defaultDestroyRetryPolicy();
 
 // State
 
+    private volatile boolean started;                               // written while synchronized; config is fixed once true
     @GuardedBy("this")
-    private boolean started;
-    @GuardedBy("this")
-    private final HashSet<Worker> workers = new HashSet<>();
+    private boolean starting;                                       // start() is performing its first periodic check
+    private final ConcurrentHashMap<Integer, Worker> workers = new ConcurrentHashMap<>();   // by index; modify while synchronized
     @GuardedBy("this")
     private ScheduledFuture<?> periodicCheckFuture;
     private final SecureRandom random = new SecureRandom();
+    @GuardedBy("this")
+    private final HashSet<Integer> reservedIndexes = new HashSet<>();           // indexes of workers being created
+    @GuardedBy("this")
+    private BoundedExecutor<CreateTask> createExecutor;                         // created by start() from current config
+    private volatile DestroyPipeline destroyPipeline;                            // created by start() from current config
+    @GuardedBy("this")
+    private double headroomHourlyPrice = Double.NaN;                            // price of headroomSpec type, if known
 
 // Constructors
 
@@ -235,7 +344,7 @@ public class WorkerPool {
      * @throws IllegalStateException if this instance is already {@link #start}ed
      */
     public synchronized void setGroupName(final String groupName) {
-        if (this.started)
+        if (this.started || this.starting)
             throw new IllegalStateException("already started");
         if (groupName == null || groupName.isEmpty())
             throw new IllegalArgumentException("null or empty groupName");
@@ -266,7 +375,7 @@ public class WorkerPool {
     public synchronized void setMinWorkers(final int minWorkers) {
         if (minWorkers < 0)
             throw new IllegalArgumentException("minWorkers < 0");
-        if (this.started)
+        if (this.started || this.starting)
             throw new IllegalStateException("already started");
         this.minWorkers = minWorkers;
     }
@@ -296,7 +405,7 @@ public class WorkerPool {
     public synchronized void setMaxStartupTime(final int maxStartupTime) {
         if (maxStartupTime <= 0)
             throw new IllegalArgumentException("maxStartupTime <= 0");
-        if (this.started)
+        if (this.started || this.starting)
             throw new IllegalStateException("already started");
         this.maxStartupTime = maxStartupTime;
     }
@@ -326,7 +435,7 @@ public class WorkerPool {
     public synchronized void setMaxShutdownTime(final int maxShutdownTime) {
         if (maxShutdownTime <= 0)
             throw new IllegalArgumentException("maxShutdownTime <= 0");
-        if (this.started)
+        if (this.started || this.starting)
             throw new IllegalStateException("already started");
         this.maxShutdownTime = maxShutdownTime;
     }
@@ -357,7 +466,7 @@ public class WorkerPool {
     public synchronized void setMaxIdleTime(final int maxIdleTime) {
         if (maxIdleTime <= 0)
             throw new IllegalArgumentException("maxIdleTime <= 0");
-        if (this.started)
+        if (this.started || this.starting)
             throw new IllegalStateException("already started");
         this.maxIdleTime = maxIdleTime;
     }
@@ -372,7 +481,7 @@ public class WorkerPool {
      * @throws IllegalStateException if this instance is already {@link #start}ed
      */
     public synchronized void setRequestSender(final LinodeApiRequestSender sender) {
-        if (this.started)
+        if (this.started || this.starting)
             throw new IllegalStateException("already started");
         this.sender = sender;
     }
@@ -387,7 +496,7 @@ public class WorkerPool {
      * @throws IllegalStateException if this instance is already {@link #start}ed
      */
     public synchronized void setTaskExecutor(final AsyncTaskExecutor taskExecutor) {
-        if (this.started)
+        if (this.started || this.starting)
             throw new IllegalStateException("already started");
         this.taskExecutor = taskExecutor;
     }
@@ -402,7 +511,7 @@ public class WorkerPool {
      * @throws IllegalStateException if this instance is already {@link #start}ed
      */
     public synchronized void setTaskScheduler(final TaskScheduler taskScheduler) {
-        if (this.started)
+        if (this.started || this.starting)
             throw new IllegalStateException("already started");
         this.taskScheduler = taskScheduler;
     }
@@ -424,7 +533,7 @@ public class WorkerPool {
      * @throws IllegalStateException if this instance is already {@link #start}ed
      */
     public synchronized void setStandardRootPassword(final String standardRootPassword) {
-        if (this.started)
+        if (this.started || this.starting)
             throw new IllegalStateException("already started");
         this.standardRootPassword = standardRootPassword;
     }
@@ -453,13 +562,314 @@ public class WorkerPool {
      * @throws IllegalArgumentException if {@code standardSshFlags} is null
      */
     public synchronized void setStandardSshFlags(final List<String> standardSshFlags) {
-        if (this.started)
+        if (this.started || this.starting)
             throw new IllegalStateException("already started");
         if (standardSshFlags == null)
             throw new IllegalArgumentException("null standardSshFlags");
         this.standardSshFlags = new ArrayList<>(standardSshFlags);
     }
 
+    /**
+     * Get the specification for workers added automatically by the headroom policy.
+     *
+     * @return headroom worker specification, or null if the headroom policy is disabled
+     */
+    public synchronized WorkerSpec getHeadroomSpec() {
+        return this.headroomSpec != null ? new WorkerSpec(this.headroomSpec) : null;
+    }
+
+    /**
+     * Enable the headroom policy by configuring the specification for workers it adds.
+     *
+     * <p>
+     * When enabled, each periodic check counts the busy (with at least one {@link Process}) and idle
+     * {@link Worker.State#RUNNING} workers, plus the workers still starting up. If the idle and starting workers
+     * together fall short of the {@linkplain #getHeadroomTarget headroom target}, the difference is added via
+     * {@link #addWorkers addWorkers()}. Also, idle workers are not shutdown due to {@linkplain #setMaxIdleTime idle
+     * timeout} if that would leave fewer idle workers than the headroom target.
+     *
+     * <p>
+     * Default is null, i.e., the headroom policy is disabled.
+     *
+     * @param headroomSpec headroom worker specification, or null to disable the headroom policy
+     * @throws IllegalArgumentException if {@code headroomSpec} is {@linkplain WorkerSpec#validate invalid}
+     * @throws IllegalStateException if this instance is already {@link #start}ed
+     */
+    public synchronized void setHeadroomSpec(final WorkerSpec headroomSpec) {
+        if (this.started || this.starting)
+            throw new IllegalStateException("already started");
+        if (headroomSpec != null)
+            headroomSpec.validate();
+        this.headroomSpec = headroomSpec != null ? new WorkerSpec(headroomSpec) : null;
+        this.headroomHourlyPrice = Double.NaN;
+    }
+
+    /**
+     * Get the minimum number of idle workers kept available by the headroom policy.
+     *
+     * <p>
+     * Default is {@value #DEFAULT_HEADROOM_WORKERS}.
+     *
+     * @return minimum number of idle workers
+     */
+    public synchronized int getHeadroomWorkers() {
+        return this.headroomWorkers;
+    }
+
+    /**
+     * Set the minimum number of idle workers kept available by the headroom policy.
+     *
+     * @param headroomWorkers minimum number of idle workers
+     * @throws IllegalArgumentException if {@code headroomWorkers} is negative
+     * @throws IllegalStateException if this instance is already {@link #start}ed
+     */
+    public synchronized void setHeadroomWorkers(final int headroomWorkers) {
+        if (headroomWorkers < 0)
+            throw new IllegalArgumentException("headroomWorkers < 0");
+        if (this.started || this.starting)
+            throw new IllegalStateException("already started");
+        this.headroomWorkers = headroomWorkers;
+    }
+
+    /**
+     * Get the number of idle workers kept available by the headroom policy, as a fraction of the number of busy workers.
+     *
+     * <p>
+     * Default is {@value #DEFAULT_HEADROOM_FRACTION}.
+     *
+     * @return idle workers per busy worker
+     */
+    public synchronized double getHeadroomFraction() {
+        return this.headroomFraction;
+    }
+
+    /**
+     * Set the number of idle workers kept available by the headroom policy, as a fraction of the number of busy workers.
+     *
+     * <p>
+     * For example, with a fraction of 0.25 and 20 busy workers, the headroom policy keeps at least five idle workers.
+     * The larger of this and the {@linkplain #setHeadroomWorkers fixed headroom} applies.
+     *
+     * @param headroomFraction idle workers per busy worker
+     * @throws IllegalArgumentException if {@code headroomFraction} is negative or not finite
+     * @throws IllegalStateException if this instance is already {@link #start}ed
+     */
+    public synchronized void setHeadroomFraction(final double headroomFraction) {
+        if (!(headroomFraction >= 0) || Double.isInfinite(headroomFraction))
+            throw new IllegalArgumentException("invalid headroomFraction");
+        if (this.started || this.starting)
+            throw new IllegalStateException("already started");
+        this.headroomFraction = headroomFraction;
+    }
+
+    /**
+     * Get the maximum number of workers the headroom policy will grow the pool to.
+     *
+     * <p>
+     * Default is {@value #DEFAULT_HEADROOM_MAX_WORKERS}.
+     *
+     * @return maximum pool size for headroom replenishment
+     */
+    public synchronized int getHeadroomMaxWorkers() {
+        return this.headroomMaxWorkers;
+    }
+
+    /**
+     * Set the maximum number of workers the headroom policy will grow the pool to.
+     *
+     * <p>
+     * All workers other than those being destroyed count toward this limit, including those still starting up.
+     * Workers added explicitly via {@link #addWorker(WorkerSpec) addWorker()} and {@link #addWorkers addWorkers()}
+     * are not limited; they just leave less room for the headroom policy.
+     *
+     * @param headroomMaxWorkers maximum pool size for headroom replenishment
+     * @throws IllegalArgumentException if {@code headroomMaxWorkers} is negative
+     * @throws IllegalStateException if this instance is already {@link #start}ed
+     */
+    public synchronized void setHeadroomMaxWorkers(final int headroomMaxWorkers) {
+        if (headroomMaxWorkers < 0)
+            throw new IllegalArgumentException("headroomMaxWorkers < 0");
+        if (this.started || this.starting)
+            throw new IllegalStateException("already started");
+        this.headroomMaxWorkers = headroomMaxWorkers;
+    }
+
+    /**
+     * Get the maximum hourly cost the headroom policy will grow the pool to.
+     *
+     * @return maximum pool hourly cost for headroom replenishment, or zero for no limit
+     */
+    public synchronized double getHeadroomMaxHourlyCost() {
+        return this.headroomMaxHourlyCost;
+    }
+
+    /**
+     * Set the maximum hourly cost the headroom policy will grow the pool to.
+     *
+     * <p>
+     * The cost of the pool is estimated as the number of workers counted toward the {@linkplain #setHeadroomMaxWorkers
+     * maximum pool size}, times the hourly price of the {@linkplain #setHeadroomSpec headroom spec}'s Linode type.
+     * The price is looked up once, during a periodic check; until it is known, the headroom policy adds no workers.
+     *
+     * <p>
+     * Default is zero, i.e., no cost limit.
+     *
+     * @param headroomMaxHourlyCost maximum pool hourly cost for headroom replenishment, or zero for no limit
+     * @throws IllegalArgumentException if {@code headroomMaxHourlyCost} is negative or not finite
+     * @throws IllegalStateException if this instance is already {@link #start}ed
+     */
+    public synchronized void setHeadroomMaxHourlyCost(final double headroomMaxHourlyCost) {
+        if (!(headroomMaxHourlyCost >= 0) || Double.isInfinite(headroomMaxHourlyCost))
+            throw new IllegalArgumentException("invalid headroomMaxHourlyCost");
+        if (this.started || this.starting)
+            throw new IllegalStateException("already started");
+        this.headroomMaxHourlyCost = headroomMaxHourlyCost;
+    }
+
+    /**
+     * Get the maximum number of worker Linode creations that may be in progress at the same time.
+     *
+     * <p>
+     * Default is {@value #DEFAULT_MAX_CONCURRENT_CREATES}.
+     *
+     * @return maximum concurrent Linode creations
+     */
+    public synchronized int getMaxConcurrentCreates() {
+        return this.maxConcurrentCreates;
+    }
+
+    /**
+     * Set the maximum number of worker Linode creations that may be in progress at the same time.
+     *
+     * <p>
+     * This limits how many {@code createLinode} requests {@link #addWorkers addWorkers()} has outstanding at once;
+     * additional requests wait in a queue without occupying any {@linkplain #setTaskExecutor task executor} thread.
+     *
+     * @param maxConcurrentCreates maximum concurrent Linode creations
+     * @throws IllegalStateException if this instance is already {@link #start}ed
+     * @throws IllegalArgumentException if {@code maxConcurrentCreates} is zero or negative
+     */
+    public synchronized void setMaxConcurrentCreates(final int maxConcurrentCreates) {
+        if (maxConcurrentCreates <= 0)
+            throw new IllegalArgumentException("maxConcurrentCreates <= 0");
+        if (this.started || this.starting)
+            throw new IllegalStateException("already started");
+        this.maxConcurrentCreates = maxConcurrentCreates;
+    }
+
+    /**
+     * Get the interval between checks of a newly created worker's startup progress.
+     *
+     * <p>
+     * Default is {@value #DEFAULT_STARTUP_CHECK_INTERVAL_SECONDS} seconds.
+     *
+     * @return startup check interval in seconds
+     */
+    public synchronized int getStartupCheckInterval() {
+        return this.startupCheckInterval;
+    }
+
+    /**
+     * Set the interval between checks of a newly created worker's startup progress.
+     *
+     * <p>
+     * Workers created by this instance don't have to wait for the next periodic check to become {@link Worker.State#RUNNING}.
+     * Instead, their Linode's status is polled at this interval, and as soon as it is
+     * {@link org.dellroad.linode.apiv4.model.Linode.Status#RUNNING} and {@linkplain #checkSshConnectivity ssh is reachable},
+     * the worker transitions to {@link Worker.State#RUNNING}.
+     *
+     * @param startupCheckInterval startup check interval in seconds
+     * @throws IllegalStateException if this instance is already {@link #start}ed
+     * @throws IllegalArgumentException if {@code startupCheckInterval} is zero or negative
+     */
+    public synchronized void setStartupCheckInterval(final int startupCheckInterval) {
+        if (startupCheckInterval <= 0)
+            throw new IllegalArgumentException("startupCheckInterval <= 0");
+        if (this.started || this.starting)
+            throw new IllegalStateException("already started");
+        this.startupCheckInterval = startupCheckInterval;
+    }
+
+    /**
+     * Get the maximum number of worker Linode deletions that may be in progress at the same time.
+     *
+     * <p>
+     * Default is {@value #DEFAULT_MAX_CONCURRENT_DESTROYS}.
+     *
+     * @return maximum concurrent Linode deletions
+     */
+    public synchronized int getMaxConcurrentDestroys() {
+        return this.maxConcurrentDestroys;
+    }
+
+    /**
+     * Set the maximum number of worker Linode deletions that may be in progress at the same time.
+     *
+     * <p>
+     * Destroyed workers whose Linodes can't be deleted right away wait in a queue. Queued deletions don't occupy
+     * any {@linkplain #setTaskExecutor task executor} thread, so this setting, together with API latency, determines
+     * how long it takes to scale down a large pool.
+     *
+     * @param maxConcurrentDestroys maximum concurrent Linode deletions
+     * @throws IllegalStateException if this instance is already {@link #start}ed
+     * @throws IllegalArgumentException if {@code maxConcurrentDestroys} is zero or negative
+     */
+    public synchronized void setMaxConcurrentDestroys(final int maxConcurrentDestroys) {
+        if (maxConcurrentDestroys <= 0)
+            throw new IllegalArgumentException("maxConcurrentDestroys <= 0");
+        if (this.started || this.starting)
+            throw new IllegalStateException("already started");
+        this.maxConcurrentDestroys = maxConcurrentDestroys;
+    }
+
+    /**
+     * Get the policy for retrying worker Linode deletions that fail with a transient error.
+     *
+     * @return destroy retry policy, or null if failed deletions are not retried
+     */
+    public synchronized LinodeApiRetryPolicy getDestroyRetryPolicy() {
+        return this.destroyRetryPolicy;
+    }
+
+    /**
+     * Configure the policy for retrying worker Linode deletions that fail with a transient error.
+     *
+     * <p>
+     * Deletions are sent {@linkplain LinodeApiRequestSender#withoutRetries without} the {@link LinodeApiRequestSender}'s
+     * own retries, so this policy alone determines how many times a deletion is attempted. The wait between attempts
+     * is scheduled via the {@linkplain #setTaskScheduler task scheduler} rather than occupying a thread or a concurrent
+     * deletion slot. An error is retried if the policy considers it {@linkplain LinodeApiRetryPolicy#isRetryable
+     * retryable}; the wait is the {@code Retry-After} time of an HTTP 429 response, if any, otherwise the policy's
+     * {@linkplain LinodeApiRetryPolicy#getBackoff backoff}. The policy's {@linkplain LinodeApiRetryPolicy#getMaxAttempts
+     * maximum attempts} setting is used; its deadline is not.
+     *
+     * <p>
+     * A deletion that fails with HTTP 404 is considered successful, because the Linode is already gone.
+     * A worker whose Linode can't be deleted stays {@link Worker.State#DESTROYING} and eventually reverts to
+     * {@link Worker.State#UNMANAGED} after the {@linkplain #setMaxShutdownTime maximum shutdown time}.
+     *
+     * <p>
+     * By default, a {@link LinodeApiRetryPolicy} allowing {@value #DEFAULT_MAX_DESTROY_ATTEMPTS} attempts is used.
+     *
+     * @param destroyRetryPolicy destroy retry policy, or null to never retry
+     * @throws IllegalStateException if this instance is already {@link #start}ed
+     */
+    public synchronized void setDestroyRetryPolicy(final LinodeApiRetryPolicy destroyRetryPolicy) {
+        if (this.started || this.starting)
+            throw new IllegalStateException("already started");
+        this.destroyRetryPolicy = destroyRetryPolicy;
+    }
+
+    /**
+     * Get the number of worker Linode deletions currently queued, in progress, or waiting to be retried.
+     *
+     * @return number of pending Linode deletions
+     */
+    public int getNumPendingDestroys() {
+        final DestroyPipeline pipeline = this.destroyPipeline;
+        return pipeline != null ? pipeline.numPending.get() : 0;
+    }
+
 // Naming
 
     /**
@@ -550,19 +960,16 @@ public class WorkerPool {
      *
      * @return immutable snapshot of current worker set
      */
-    public synchronized Set<Worker> getWorkers() {
-        return Collections.unmodifiableSet(new HashSet<>(this.workers));
+    public Set<Worker> getWorkers() {
+        return Collections.unmodifiableSet(new HashSet<>(this.workers.values()));
     }
 
     /**
      * Add a new worker.
      *
      * <p>
-     * This method executes synchronously to create the Linode, blocking on network I/O if necessary.
-     *
-     * <p>
-     * If no {@linkplain #setStandardRootPassword standard root password} is configured, a random root
-     * password will be auto-generated via {@link #generateRandomPassword}.
+     * Equivalent to {@link #addWorker(WorkerSpec) addWorker}{@code (new }{@link WorkerSpec#WorkerSpec(String, String, String)
+     * WorkerSpec}{@code (regionId, typeId, imageId))}.
      *
      * @param regionId Linode region ID
      * @param typeId Linode type ID
@@ -571,19 +978,15 @@ public class WorkerPool {
      * @throws IllegalStateException if this instance is not {@link #start}ed
      * @throws org.springframework.web.client.RestClientException if an error occurs
      */
-    public synchronized Worker addWorker(String regionId, String typeId, String imageId) {
-        return this.addWorker(regionId, typeId, imageId, -1, -1, null, null);
+    public Worker addWorker(String regionId, String typeId, String imageId) {
+        return this.addWorker(new WorkerSpec(regionId, typeId, imageId));
     }
 
     /**
      * Add a new worker.
      *
      * <p>
-     * This method executes synchronously to create the Linode, blocking on network I/O if necessary.
-     *
-     * <p>
-     * If no {@linkplain #setStandardRootPassword standard root password} is configured, a random root
-     * password will be auto-generated via {@link #generateRandomPassword}.
+     * Equivalent to {@link #addWorker(WorkerSpec)} with a {@link WorkerSpec} built from the given parameters.
      *
      * @param regionId Linode region ID
      * @param typeId Linode type ID
@@ -596,63 +999,101 @@ public class WorkerPool {
      * @throws IllegalStateException if this instance is not {@link #start}ed
      * @throws org.springframework.web.client.RestClientException if an error occurs
      */
-    public synchronized Worker addWorker(String regionId, String typeId, String imageId, int backupId,
+    public Worker addWorker(String regionId, String typeId, String imageId, int backupId,
       int stackScriptId, Map<String, String> stackScriptData, List<String> authorizedKeys) {
+        final WorkerSpec spec = new WorkerSpec(regionId, typeId, imageId);
+        spec.setBackupId(backupId);
+        spec.setStackScriptId(stackScriptId);
+        spec.setStackScriptData(stackScriptData);
+        spec.setAuthorizedKeys(authorizedKeys);
+        return this.addWorker(spec);
+    }
+
+    /**
+     * Add a new worker.
+     *
+     * <p>
+     * This method executes synchronously to create the Linode, blocking on network I/O if necessary.
+     * However, the pool is not locked while the Linode is being created.
+     *
+     * <p>
+     * If no {@linkplain #setStandardRootPassword standard root password} is configured, a random root
+     * password will be auto-generated via {@link #generateRandomPassword}.
+     *
+     * @param spec new worker specification
+     * @return newly added worker, in state {@link Worker.State#CREATING}
+     * @throws IllegalStateException if this instance is not {@link #start}ed
+     * @throws IllegalArgumentException if {@code spec} is null or {@linkplain WorkerSpec#validate invalid}
+     * @throws org.springframework.web.client.RestClientException if an error occurs
+     */
+    public Worker addWorker(WorkerSpec spec) {
 
         // Sanity check
-        if (!this.started)
-            throw new IllegalStateException("not started");
-        if (regionId == null)
-            throw new IllegalArgumentException("null regionId");
-        if (typeId == null)
-            throw new IllegalArgumentException("null typeId");
-        if (backupId < -1)
-            throw new IllegalArgumentException("backupId < 0");
-        if (imageId != null && backupId != -1)
-            throw new IllegalArgumentException("both imageId and backupId provided");
-        if (imageId == null && backupId == -1)
-            throw new IllegalArgumentException("one of imageId and backupId must be provided");
-        if (stackScriptId < -1)
-            throw new IllegalArgumentException("stackScriptId < -1");
-
-        // Identify the first worker index that isn't already in use
-        final List<Integer> indexList = new ArrayList<>(this.buildWorkerMap().keySet());
-        Collections.sort(indexList);
-        int index = 0;
-        while (index < indexList.size() && indexList.get(index) == index)
-            index++;
-
-        // Get root password
-        final String rootPassword = this.standardRootPassword != null ?
-          this.standardRootPassword : this.generateRandomPassword();
-
-        // Create the linode
-        final CreateLinodeRequest request = new CreateLinodeRequest();
-        request.setLabel(this.getWorkerName(index));
-        request.setGroup(this.getGroupName());
-        request.setRootPassword(rootPassword);
-        request.setRegionId(regionId);
-        request.setTypeId(typeId);
-        request.setImageId(imageId);
-        if (backupId != -1)
-            request.setBackupId(backupId);
-        if (stackScriptId != -1) {
-            request.setStackScriptId(stackScriptId);
-            if (stackScriptData != null)
-                request.setStackScriptData(stackScriptData);
-        }
-        if (authorizedKeys != null)
-            request.setAuthorizedKeys(authorizedKeys.toArray(new String[authorizedKeys.size()]));
-        request.setBackupsEnabled(false);
-        request.setBooted(true);
-        this.log.info("creating new Linode for worker #{}: \"{}\"", index, request.getLabel());
-        final Linode linode = this.sender.createLinode(request);
-        final Worker worker = new Worker(this, index, linode, rootPassword, this.standardSshFlags, Worker.State.CREATING);
-        this.log.info("created Linode#{} as \"{}\" at {}", worker, linode.getId(), worker.getIpAddress());
-        this.workers.add(worker);
+        if (spec == null)
+            throw new IllegalArgumentException("null spec");
+        spec.validate();
+
+        // Reserve an index
+        final int index;
+        synchronized (this) {
+            if (!this.started)
+                throw new IllegalStateException("not started");
+            index = this.reserveIndexes(1).get(0);
+        }
+
+        // Create worker
+        return this.createWorker(index, spec);
+    }
+
+    /**
+     * Add multiple new workers in parallel.
+     *
+     * <p>
+     * This method does not block. Worker indexes are reserved immediately, and then the new Linodes are created
+     * in the background, at most {@linkplain #setMaxConcurrentCreates maxConcurrentCreates} at a time. Therefore,
+     * adding a burst of workers takes roughly one Linode creation round trip plus the Linode boot time, rather than
+     * the sum of all the creation round trips.
+     *
+     * <p>
+     * One future is returned for each new worker. Each future completes when the worker reaches
+     * {@link Worker.State#RUNNING} (see {@link Worker#whenRunning}), or exceptionally if its Linode can't be created
+     * or it fails to start up.
+     *
+     * <p>
+     * If no {@linkplain #setStandardRootPassword standard root password} is configured, a random root
+     * password will be auto-generated via {@link #generateRandomPassword} for each worker.
+     *
+     * @param count number of workers to add
+     * @param spec new worker specification
+     * @return futures that complete with each worker once it's running
+     * @throws IllegalStateException if this instance is not {@link #start}ed
+     * @throws IllegalArgumentException if {@code count} is negative
+     * @throws IllegalArgumentException if {@code spec} is null or {@linkplain WorkerSpec#validate invalid}
+     */
+    public List<CompletableFuture<Worker>> addWorkers(int count, WorkerSpec spec) {
+
+        // Sanity check
+        if (count < 0)
+            throw new IllegalArgumentException("count < 0");
+        if (spec == null)
+            throw new IllegalArgumentException("null spec");
+        spec.validate();
+        final WorkerSpec specCopy = new WorkerSpec(spec);
+
+        // Reserve indexes and queue creation tasks
+        final List<CompletableFuture<Worker>> futures = new ArrayList<>(count);
+        synchronized (this) {
+            if (!this.started)
+                throw new IllegalStateException("not started");
+            for (int index : this.reserveIndexes(count)) {
+                final CreateTask task = new CreateTask(index, specCopy);
+                this.createExecutor.submit(task);
+                futures.add(task.future.thenCompose(Worker::whenRunning));
+            }
+        }
 
         // Done
-        return worker;
+        return futures;
     }
 
 // Lifecycle
@@ -663,37 +1104,69 @@ public class WorkerPool {
      * <p>
      * Does nothing if already started.
      *
+     * <p>
+     * The initial query for pre-existing workers (and the price of the {@linkplain #setHeadroomSpec headroom} Linode type)
+     * is performed without this instance locked, so other threads are not blocked for its API round trips; however,
+     * the configuration may no longer be changed once this method has been invoked.
+     *
      * @throws IllegalStateException if no {@link LinodeApiRequestSender} is configured
      * @throws IllegalStateException if no {@link AsyncTaskExecutor} is configured
      * @throws IllegalStateException if no {@link TaskScheduler} is configured
      */
     @PostConstruct
-    public synchronized void start() {
+    public void start() {
 
-        // Sanity check
-        if (this.started)
-            return;
-        if (this.sender == null)
-            throw new IllegalStateException("no request sender configured");
-        if (this.taskExecutor == null)
-            throw new IllegalStateException("no AsyncTaskExecutor configured");
-        if (this.taskScheduler == null)
-            throw new IllegalStateException("no TaskScheduler configured");
-
-        // Perform the first periodic check
-        try {
-            this.doPeriodicCheck(true);
-        } catch (InterruptedException e) {
-            throw new RuntimeException("interrupted while querying Linode status", e);
+        // Sanity check, and create the creation executor and destroy pipeline
+        synchronized (this) {
+            while (this.starting) {                         // another thread is starting us; wait for it to finish
+                try {
+                    this.wait();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException("interrupted while waiting for another thread to start", e);
+                }
+            }
+            if (this.started)
+                return;
+            if (this.sender == null)
+                throw new IllegalStateException("no request sender configured");
+            if (this.taskExecutor == null)
+                throw new IllegalStateException("no AsyncTaskExecutor configured");
+            if (this.taskScheduler == null)
+                throw new IllegalStateException("no TaskScheduler configured");
+            this.createExecutor = new BoundedExecutor<>(this.taskExecutor, this.maxConcurrentCreates, CreateTask::abort);
+            this.destroyPipeline = new DestroyPipeline(this.sender, this.taskExecutor,
+              this.taskScheduler, this.maxConcurrentDestroys, this.destroyRetryPolicy);
+            this.starting = true;
         }
-        this.log.info("{}: found {} pre-existing worker(s): {}", this, this.workers.size(), this.workers);
+        try {
 
-        // Start regular periodic checks
-        this.periodicCheckFuture = this.taskScheduler.scheduleWithFixedDelay(this::periodicCheck,
-          Date.from(Instant.now().plus(CHECK_INTERVAL)), CHECK_INTERVAL.toMillis());
+            // Perform the first periodic check; it queries the API, so it must run without this instance locked
+            try {
+                this.doPeriodicCheck(true);
+            } catch (InterruptedException e) {
+                throw new RuntimeException("interrupted while querying Linode status", e);
+            }
 
-        // Done
-        this.started = true;
+            // Go live
+            synchronized (this) {
+                this.log.info("{}: found {} pre-existing worker(s): {}", this, this.workers.size(), this.workers.values());
+
+                // Start regular periodic checks
+                this.periodicCheckFuture = this.taskScheduler.scheduleWithFixedDelay(this::periodicCheck,
+                  Date.from(Instant.now().plus(CHECK_INTERVAL)), CHECK_INTERVAL.toMillis());
+
+                // Done
+                this.started = true;
+
+                // Establish headroom right away rather than waiting for the next periodic check
+                this.replenishHeadroom();
+            }
+        } finally {
+            synchronized (this) {
+                this.starting = false;
+                this.notifyAll();
+            }
+        }
     }
 
     /**
@@ -704,6 +1177,8 @@ public class WorkerPool {
      *
      * <p>
      * After this method is invoked, any remaining workers will have been moved to the {@link Worker.State#INVALID} state.
+     * Linode creations and deletions still waiting in their queues are discarded (their {@link #addWorkers addWorkers()}
+     * and {@link Worker#destroyAsync} futures complete exceptionally); those already in progress are allowed to finish.
      */
     @PreDestroy
     public synchronized void stop() {
@@ -718,8 +1193,13 @@ public class WorkerPool {
             this.periodicCheckFuture = null;
         }
 
+        // Discard queued Linode creations and deletions; those already in progress will complete on their own
+        for (CreateTask task : this.createExecutor.clearQueue())
+            task.abort(new IllegalStateException("worker pool stopped"));
+        this.destroyPipeline.discardQueued();
+
         // Done
-        for (Worker worker : this.workers)
+        for (Worker worker : this.workers.values())
             worker.setState(Worker.State.INVALID);
         this.workers.clear();
         this.started = false;
@@ -737,44 +1217,82 @@ public class WorkerPool {
         }
     }
 
-    @SuppressWarnings("fallthrough")
     private void doPeriodicCheck(boolean starting) throws InterruptedException {
+        final Object event = WorkerPoolEvents.beginPeriodicCheck();
+        boolean success = false;
+        try {
+            this.doPeriodicCheck(starting, event);
+            success = true;
+        } finally {
+            WorkerPoolEvents.endPeriodicCheck(event, this, starting, success);
+        }
+    }
+
+    @SuppressWarnings("fallthrough")
+    private void doPeriodicCheck(boolean starting, Object event) throws InterruptedException {
 
         // Check state and snapshot the objects we need
         LinodeApiRequestSender sender0;
         AsyncTaskExecutor taskExecutor0;
         final Filter filter;
+        final String priceTypeId;
         synchronized (this) {
             if (!starting && !this.started)                 // we're being shutdown, bail out
                 return;
             sender0 = this.sender;
             taskExecutor0 = this.taskExecutor;
             filter = this.getWorkerFilter();
+            priceTypeId = this.headroomSpec != null && this.headroomMaxHourlyCost > 0 && Double.isNaN(this.headroomHourlyPrice) ?
+              this.headroomSpec.getTypeId() : null;
         }
 
-        // Query for worker linodes - while not synchronized
-        final List<Linode> linodes = sender0.getLinodes(
-          LinodeApiRequestSender.AsyncExecutor.of(taskExecutor0), Integer.MAX_VALUE, filter);
+        // Look up the headroom worker price, if needed and not already known
+        double hourlyPrice = Double.NaN;
+        if (priceTypeId != null) {
+            try {
+                hourlyPrice = sender0.getType(priceTypeId).getPrice().getHourly();
+            } catch (RuntimeException e) {
+                this.log.warn(this + ": error looking up price of Linode type \"" + priceTypeId + "\" (ignoring)", e);
+            }
+        }
+
+        // Query for worker linodes - while not synchronized, and without delaying more urgent requests
+        final Instant queryTime = Instant.now();
+        final long queryStartTime = System.nanoTime();
+        final List<LinodeSummary> linodes;
+        final LinodeApiPriority.Scope scope = LinodeApiPriority.BACKGROUND.enter();
+        try {
+            linodes = sender0.getLinodeSummaries(LinodeApiRequestSender.AsyncExecutor.of(taskExecutor0), Integer.MAX_VALUE, filter);
+        } finally {
+            scope.close();
+        }
+        final long lockStartTime = System.nanoTime();
+        WorkerPoolEvents.linodesQueried(event, linodes.size(), lockStartTime - queryStartTime);
 
         // Process results
         synchronized (this) {
+            WorkerPoolEvents.poolLocked(event, System.nanoTime() - lockStartTime);
 
             // Check state again
             if (!starting && !this.started)                 // we're being shutdown, bail out
                 return;
+            if (!Double.isNaN(hourlyPrice) && this.headroomSpec != null && this.headroomSpec.getTypeId().equals(priceTypeId))
+                this.headroomHourlyPrice = hourlyPrice;
 
             // Inventory actual Linodes
-            final HashMap<Integer, Linode> linodeMap = new HashMap<>();
-            for (Linode linode : linodes) {
+            final HashMap<Integer, LinodeSummary> linodeMap = new HashMap<>();
+            for (LinodeSummary linode : linodes) {
                 final int index = this.getWorkerIndex(linode.getLabel());
                 if (index != -1)
                     linodeMap.put(index, linode);
             }
 
             // First, identify workers with no corresponding Linode, or whose Linode has been replaced
-            for (Iterator<Worker> i = this.workers.iterator(); i.hasNext(); ) {
+            for (Iterator<Worker> i = this.workers.values().iterator(); i.hasNext(); ) {
                 final Worker worker = i.next();
-                final Linode linode = linodeMap.get(worker.getIndex());
+                final LinodeSummary linode = linodeMap.get(worker.getIndex());
+                if (linode == null && this.isNewerThan(worker, queryTime))
+                    continue;
                 if (linode == null || linode.getId() != worker.getLinodeId()) {
                     this.log.info("{} (Linode#{}) has {}, removing worker and transitioning to {}", worker, worker.getLinodeId(),
                       linode != null ? "been replaced by Linode#" + linode.getId() : "disappeared", Worker.State.INVALID);
@@ -783,15 +1301,20 @@ public class WorkerPool {
                 }
             }
 
-            // Next, check the status of each worker's Linode
-            for (Worker worker : this.workers) {
-                final Linode linode = linodeMap.get(worker.getIndex());
-                switch (worker.getState()) {
+            // Next, check the status of each worker's Linode; worker state may change concurrently, so we only
+            // transition a worker if its state is still the one we observed and validated
+            for (Worker worker : this.workers.values()) {
+                final LinodeSummary linode = linodeMap.get(worker.getIndex());
+                if (linode == null)                                                 // created after our query
+                    continue;
+                final Worker.State state = worker.getState();
+                switch (state) {
                 case UNKNOWN:
                     final Worker.State newState = this.getWorkerStateForLinode(linode);
-                    this.log.info("initializing {} state to {} based on Linode#{} status {}",
-                      worker, newState, worker.getLinodeId(), linode.getStatus());
-                    worker.setState(newState);
+                    if (worker.compareAndSetState(state, newState)) {
+                        this.log.info("initialized {} state to {} based on Linode#{} status {}",
+                          worker, newState, worker.getLinodeId(), linode.getStatus());
+                    }
                     break;
                 case CREATING:
                     if (linode.getStatus().equals(Linode.Status.RUNNING)) {
@@ -803,40 +1326,40 @@ public class WorkerPool {
                     // FALLTHROUGH
                 case RUNNING:
                 case DESTROYING:
-                    if (!worker.getState().isValidStatus(linode.getStatus())) {
-                        this.log.info("{} Linode#{} has invalid status {} for worker state {} transitioning to {}",
-                          worker, worker.getLinodeId(), linode.getStatus(), worker.getState(), Worker.State.UNMANAGED);
-                        worker.setState(Worker.State.UNMANAGED);
+                    if (!state.isValidStatus(linode.getStatus()) && worker.compareAndSetState(state, Worker.State.UNMANAGED)) {
+                        this.log.info("{} Linode#{} had invalid status {} for worker state {}, transitioned to {}",
+                          worker, worker.getLinodeId(), linode.getStatus(), state, Worker.State.UNMANAGED);
                     }
                     break;
                 case UNMANAGED:
+                case INVALID:
                     break;
                 default:
-                    this.log.error("unexpected state {} for  {}", worker.getState(), worker);
+                    this.log.error("unexpected state {} for  {}", state, worker);
                     break;
                 }
             }
 
             // Next, deal with Linodes for which there is no corresponding worker
-            final Map<Integer, Worker> workerMap = this.buildWorkerMap();
-            for (Map.Entry<Integer, Linode> entry : linodeMap.entrySet()) {
+            for (Map.Entry<Integer, LinodeSummary> entry : linodeMap.entrySet()) {
                 final int index = entry.getKey();
-                final Linode linode = entry.getValue();
-                Worker worker = workerMap.get(index);
-                if (worker != null)
+                final LinodeSummary linode = entry.getValue();
+                if (this.workers.containsKey(index) || this.reservedIndexes.contains(index))
                     continue;
-                worker = new Worker(this, index, linode, this.standardRootPassword,
+                final Worker worker = new Worker(this, index, linode.getId(), linode.getIpv4()[0], this.standardRootPassword,
                   this.standardSshFlags, this.getWorkerStateForLinode(linode));
                 this.log.info("created {} in state {} based on the existence of Linode#{} in status {}",
                   worker, worker.getState(), worker.getLinodeId(), linode.getStatus());
-                this.workers.add(worker);
+                this.workers.put(index, worker);
             }
 
             // Check for stuck Linodes
             final Instant now = Instant.now();
-            for (Worker worker : this.workers) {
+            for (Worker worker : this.workers.values()) {
+                final Worker.State state = worker.getState();
+                final Instant lastStateChangeTime = worker.getLastStateChangeTime();
                 final int maxTime;
-                switch (worker.getState()) {
+                switch (state) {
                 case CREATING:
                     maxTime = this.maxStartupTime;
                     break;
@@ -846,17 +1369,17 @@ public class WorkerPool {
                 default:
                     continue;
                 }
-                final Instant lastStateChangeTime = worker.getLastStateChangeTime();
                 if (lastStateChangeTime.plus(Duration.ofSeconds(maxTime)).isAfter(now))
                     continue;
-                final Linode linode = linodeMap.get(worker.getIndex());
-                this.log.info("{} Linode#{} still has status {} after {}, reverting to {}", worker, worker.getLinodeId(),
-                  linode.getStatus(), Duration.between(lastStateChangeTime, now), Worker.State.UNMANAGED);
-                worker.setState(Worker.State.UNMANAGED);
+                if (!worker.compareAndSetState(state, lastStateChangeTime, Worker.State.UNMANAGED))
+                    continue;
+                final LinodeSummary linode = linodeMap.get(worker.getIndex());
+                this.log.info("{} Linode#{} still had status {} after {}, reverted to {}", worker, worker.getLinodeId(),
+                  linode != null ? linode.getStatus() : null, Duration.between(lastStateChangeTime, now), Worker.State.UNMANAGED);
             }
 
             // Check for worker processes that have exited and clean them up
-            for (Worker worker : this.workers) {
+            for (Worker worker : this.workers.values()) {
                 boolean idle = true;
                 for (Iterator<Process> i = worker.getProcessSet().iterator(); i.hasNext(); ) {
                     final Process process = i.next();
@@ -868,30 +1391,262 @@ public class WorkerPool {
                         this.log.debug("cleaning up {} process {} (exit value {})", worker, process, process.exitValue());
                     i.remove();
                 }
-                if (idle && worker.getState().equals(Worker.State.RUNNING) && worker.getIdleStartTime() == null)
-                    worker.setIdleStartTime(Instant.now());
+                if (idle)
+                    worker.markIdle(Instant.now());
+                else
+                    worker.clearIdle();                         // in case we marked it idle before its process was added
             }
 
-            // Shutdown workers that have idle timed out, until we reach minWorkers
+            // Shutdown workers that have idle timed out, until we reach minWorkers or would eat into the headroom
             int numRemainingWorkers = this.workers.size();
-            for (Worker worker : this.workers) {
-                if (numRemainingWorkers <= this.minWorkers)
+            int numSpareIdleWorkers = Integer.MAX_VALUE;
+            if (this.headroomSpec != null) {
+                final Census census = this.takeCensus();
+                numSpareIdleWorkers = census.idle - this.getHeadroomTarget(census.busy);
+            }
+            for (Worker worker : this.workers.values()) {
+                if (numRemainingWorkers <= this.minWorkers || numSpareIdleWorkers <= 0)
                     break;
-                if (!worker.getProcesses().isEmpty() || !worker.getState().equals(Worker.State.RUNNING))
-                    continue;
-                final Instant idleStartTime = worker.getIdleStartTime();
-                if (idleStartTime.plus(Duration.ofSeconds(this.maxIdleTime)).isAfter(now))
+                final Instant idleStartTime = worker.idleTimeout(now, Duration.ofSeconds(this.maxIdleTime));
+                if (idleStartTime == null)
                     continue;
                 this.log.info("{} has idle timed out after {}, destroying", worker, Duration.between(idleStartTime, now));
-                worker.setState(Worker.State.DESTROYING);
-                this.destroyAsync(worker);
+                this.destroyPipeline.enqueue(worker);
                 numRemainingWorkers--;
+                numSpareIdleWorkers--;
+            }
+
+            // Replenish headroom
+            if (!starting)
+                this.replenishHeadroom();
+        }
+    }
+
+// Headroom
+
+    /**
+     * Determine how many idle workers the headroom policy should keep available.
+     *
+     * <p>
+     * The implementation in {@link WorkerPool} returns the larger of the {@linkplain #setHeadroomWorkers fixed headroom}
+     * and the {@linkplain #setHeadroomFraction fractional headroom} times {@code numBusy}, rounded up.
+     * Subclasses may override, e.g., to vary the headroom by time of day.
+     *
+     * <p>
+     * This method is invoked with this instance locked.
+     *
+     * @param numBusy number of {@link Worker.State#RUNNING} workers with at least one {@link Process}
+     * @return desired number of idle workers
+     */
+    protected synchronized int getHeadroomTarget(int numBusy) {
+        return Math.max(this.headroomWorkers, (int)Math.ceil(this.headroomFraction * numBusy));
+    }
+
+    @GuardedBy("this")
+    private void replenishHeadroom() {
+
+        // Is headroom policy enabled?
+        if (this.headroomSpec == null || !this.started)
+            return;
+
+        // Determine shortfall
+        final Census census = this.takeCensus();
+        final int target = this.getHeadroomTarget(census.busy);
+        final int shortfall = target - census.idle - census.starting;
+        if (shortfall <= 0)
+            return;
+
+        // Apply limits
+        int maxWorkers = this.headroomMaxWorkers;
+        if (this.headroomMaxHourlyCost > 0) {
+            if (Double.isNaN(this.headroomHourlyPrice)) {
+                this.log.warn("{}: can't replenish headroom until price of Linode type \"{}\" is known",
+                  this, this.headroomSpec.getTypeId());
+                return;
+            }
+            if (this.headroomHourlyPrice > 0)
+                maxWorkers = (int)Math.min(maxWorkers, Math.floor(this.headroomMaxHourlyCost / this.headroomHourlyPrice));
+        }
+        final int count = Math.min(shortfall, maxWorkers - census.live);
+        if (count <= 0) {
+            if (this.log.isDebugEnabled()) {
+                this.log.debug("{}: headroom short by {} worker(s) but pool is at its limit of {} worker(s)",
+                  this, shortfall, maxWorkers);
             }
+            return;
         }
+
+        // Add workers
+        this.log.info("{}: adding {} worker(s) for headroom target of {} idle ({} busy, {} idle, {} starting)",
+          this, count, target, census.busy, census.idle, census.starting);
+        this.addWorkers(count, this.headroomSpec);
+    }
+
+    @GuardedBy("this")
+    private Census takeCensus() {
+        final Census census = new Census();
+        census.starting = this.reservedIndexes.size();
+        census.live = this.reservedIndexes.size();
+        for (Worker worker : this.workers.values()) {
+            switch (worker.getState()) {
+            case CREATING:
+                census.starting++;
+                census.live++;
+                break;
+            case RUNNING:
+                if (worker.getProcessSet().isEmpty())
+                    census.idle++;
+                else
+                    census.busy++;
+                census.live++;
+                break;
+            case UNKNOWN:
+            case UNMANAGED:
+                census.live++;
+                break;
+            default:
+                break;
+            }
+        }
+        return census;
     }
 
 // Internal methods
 
+    /**
+     * Reserve the given number of unused worker indexes, lowest first.
+     *
+     * @param count number of indexes
+     * @return reserved indexes
+     */
+    @GuardedBy("this")
+    private List<Integer> reserveIndexes(int count) {
+        final List<Integer> indexes = new ArrayList<>(count);
+        for (int index = 0; indexes.size() < count; index++) {
+            if (!this.workers.containsKey(index) && this.reservedIndexes.add(index))
+                indexes.add(index);
+        }
+        return indexes;
+    }
+
+    /**
+     * Create a worker's Linode using a previously reserved index and add the worker to the pool.
+     *
+     * <p>
+     * The pool is only locked before and after the Linode is created. The reservation is released in all cases.
+     *
+     * @param index reserved worker index
+     * @param spec new worker specification
+     * @return newly added worker
+     * @throws IllegalStateException if this instance is not {@link #start}ed
+     * @throws org.springframework.web.client.RestClientException if an error occurs
+     */
+    private Worker createWorker(int index, WorkerSpec spec) {
+        boolean added = false;
+        try {
+
+            // Snapshot the objects we need and build the request
+            final LinodeApiRequestSender sender0;
+            final List<String> sshFlags;
+            final String rootPassword;
+            final CreateLinodeRequest request = new CreateLinodeRequest();
+            synchronized (this) {
+                if (!this.started)
+                    throw new IllegalStateException("not started");
+                sender0 = this.sender;
+                sshFlags = this.standardSshFlags;
+                rootPassword = this.standardRootPassword != null ? this.standardRootPassword : this.generateRandomPassword();
+                request.setLabel(this.getWorkerName(index));
+                request.setGroup(this.getGroupName());
+            }
+            request.setRootPassword(rootPassword);
+            request.setRegionId(spec.getRegionId());
+            request.setTypeId(spec.getTypeId());
+            request.setImageId(spec.getImageId());
+            if (spec.getBackupId() != -1)
+                request.setBackupId(spec.getBackupId());
+            if (spec.getStackScriptId() != -1) {
+                request.setStackScriptId(spec.getStackScriptId());
+                if (spec.getStackScriptData() != null)
+                    request.setStackScriptData(spec.getStackScriptData());
+            }
+            if (spec.getAuthorizedKeys() != null)
+                request.setAuthorizedKeys(spec.getAuthorizedKeys().toArray(new String[spec.getAuthorizedKeys().size()]));
+            request.setBackupsEnabled(false);
+            request.setBooted(true);
+
+            // Create the linode - while not synchronized
+            this.log.info("creating new Linode for worker #{}: \"{}\"", index, request.getLabel());
+            final Linode linode = sender0.createLinode(request);
+
+            // Add the worker
+            final Worker worker = new Worker(this, index, linode.getId(), linode.getIpv4()[0],
+              rootPassword, sshFlags, Worker.State.CREATING);
+            synchronized (this) {
+                if (!this.started)
+                    throw new IllegalStateException("stopped while creating Linode#" + linode.getId());
+                this.workers.put(index, worker);
+                this.reservedIndexes.remove(index);
+                added = true;
+            }
+            this.log.info("created {} as Linode#{} at {}", worker, linode.getId(), worker.getIpAddress());
+
+            // Monitor its startup
+            this.scheduleStartupCheck(worker);
+            return worker;
+        } finally {
+            if (!added) {
+                synchronized (this) {
+                    this.reservedIndexes.remove(index);
+                }
+            }
+        }
+    }
+
+    // Determine whether the worker was created or last changed state after the given time
+    private boolean isNewerThan(Worker worker, Instant time) {
+        return worker.getLastStateChangeTime().isAfter(time);
+    }
+
+    private void scheduleStartupCheck(Worker worker) {
+        final TaskScheduler taskScheduler0;
+        final AsyncTaskExecutor taskExecutor0;
+        final int interval;
+        synchronized (this) {
+            if (!this.started)                                                          // we're being shutdown, bail out
+                return;
+            taskScheduler0 = this.taskScheduler;
+            taskExecutor0 = this.taskExecutor;
+            interval = this.startupCheckInterval;
+        }
+        taskScheduler0.schedule(() -> taskExecutor0.execute(() -> this.startupCheck(worker)),
+          Date.from(Instant.now().plusSeconds(interval)));
+    }
+
+    // Poll a new worker's Linode until it's running, then check ssh connectivity; invoked without locking
+    private void startupCheck(Worker worker) {
+        final Instant lastStateChangeTime = worker.getLastStateChangeTime();
+        if (!this.started || !worker.getState().equals(Worker.State.CREATING))
+            return;
+        final LinodeApiRequestSender sender0;
+        synchronized (this) {
+            sender0 = this.sender;
+        }
+        try {
+            final Linode.Status status = sender0.getLinode(worker.getLinodeId()).getStatus();
+            if (this.log.isDebugEnabled())
+                this.log.debug("{}: startup check for {}: Linode#{} is {}", this, worker, worker.getLinodeId(), status);
+            if (status.equals(Linode.Status.RUNNING) && this.checkSshConnectivity(worker, lastStateChangeTime))
+                return;
+        } catch (ThreadDeath t) {
+            throw t;
+        } catch (Throwable t) {
+            if (this.log.isDebugEnabled())
+                this.log.debug("{}: startup check failed for {}: {}", this, worker, t.toString());
+        }
+        this.scheduleStartupCheck(worker);
+    }
+
     /**
      * Schedule the specified worker for destruction.
      *
@@ -899,77 +1654,78 @@ public class WorkerPool {
      * @return true if successful, false if {@code worker} is already in state {@link Worker.State#DESTROYING},
      *  or is in state {@link Worker.State#INVALID}
      */
-    protected synchronized boolean destroy(Worker worker) {
+    protected boolean destroy(Worker worker) {
+        return this.destroyAsync(worker) != null;
+    }
+
+    /**
+     * Schedule the specified worker for destruction, returning a future that completes when its Linode has been deleted.
+     *
+     * <p>
+     * This method does not block: the worker transitions to {@link Worker.State#DESTROYING} immediately,
+     * and deletion of its Linode is queued to be performed in the background.
+     *
+     * <p>
+     * The returned future completes normally once the Linode has been deleted, or exceptionally if the deletion
+     * fails after any retries, or is discarded because this instance is {@link #stop}ped first.
+     *
+     * @param worker worker to destroy
+     * @return future completion of the Linode deletion, or null if {@code worker} is already in state
+     *  {@link Worker.State#DESTROYING}, or is in state {@link Worker.State#INVALID}
+     */
+    protected CompletableFuture<Void> destroyAsync(Worker worker) {
         if (!this.started)
-            return false;
-        if (!this.workers.contains(worker))
-            return false;
-        switch (worker.getState()) {
-        case UNKNOWN:
-        case CREATING:
-        case RUNNING:
-        case UNMANAGED:
-            this.log.info("destroying {} currently in state {}", worker, worker.getState());
-            worker.setState(Worker.State.DESTROYING);
-            this.destroyAsync(worker);
-            return true;
-        default:
-            return false;
-        }
+            return null;
+        if (this.workers.get(worker.getIndex()) != worker)
+            return null;
+        final Worker.State previousState = worker.transition(EnumSet.of(Worker.State.UNKNOWN,
+          Worker.State.CREATING, Worker.State.RUNNING, Worker.State.UNMANAGED), Worker.State.DESTROYING);
+        if (previousState == null)
+            return null;
+        this.log.info("destroying {} previously in state {}", worker, previousState);
+        return this.destroyPipeline.enqueue(worker);
     }
 
-    private void destroyAsync(Worker worker) {
-        assert Thread.holdsLock(this);
-        this.taskExecutor.execute(() -> {
-            synchronized (this) {
-                if (!this.started)                 // we're being shutdown, bail out
-                    return;
-                try {
-                    this.sender.deleteLinode(worker.getLinodeId());
-                } catch (ThreadDeath t) {
-                    throw t;
-                } catch (Throwable t) {
-                    this.log.warn(this + ": error destroying Linode#" + worker.getLinodeId() + " (ignoring)", t);
-                }
-            }
-        });
+    private static LinodeApiRetryPolicy defaultDestroyRetryPolicy() {
+        final LinodeApiRetryPolicy retryPolicy = new LinodeApiRetryPolicy();
+        retryPolicy.setMaxAttempts(DEFAULT_MAX_DESTROY_ATTEMPTS);
+        return retryPolicy;
     }
 
     private void checkSshConnectivityAsync(Worker worker) {
         assert Thread.holdsLock(this);
         final Instant lastStateChangeTime = worker.getLastStateChangeTime();
-        this.taskExecutor.execute(() -> {
-            synchronized (this) {
-                if (!this.started)                                                      // we're being shutdown, bail out
-                    return;
-                if (!worker.getState().equals(Worker.State.CREATING)
-                  || !worker.getLastStateChangeTime().equals(lastStateChangeTime))
-                    return;
-            }
-            if (this.log.isDebugEnabled())
-                this.log.debug("{}: performing ssh connectivity check for {}", this, worker);
-            try {
-                this.checkSshConnectivity(worker);
-            } catch (ThreadDeath t) {
-                throw t;
-            } catch (Throwable t) {
-                if (this.log.isDebugEnabled())
-                    this.log.debug("{}: ssh connectivity check failed for {}: {}", this, worker, t.toString());
-                return;
-            }
+        this.taskExecutor.execute(() -> this.checkSshConnectivity(worker, lastStateChangeTime));
+    }
+
+    // Check ssh connectivity for a CREATING worker and transition it to RUNNING if successful.
+    // Returns false if the check failed, true if it succeeded or the worker has moved on.
+    private boolean checkSshConnectivity(Worker worker, Instant lastStateChangeTime) {
+        if (!this.started)                                                              // we're being shutdown, bail out
+            return true;
+        if (!worker.getState().equals(Worker.State.CREATING)
+          || !worker.getLastStateChangeTime().equals(lastStateChangeTime))
+            return true;
+        if (this.log.isDebugEnabled())
+            this.log.debug("{}: performing ssh connectivity check for {}", this, worker);
+        try {
+            this.checkSshConnectivity(worker);
+        } catch (ThreadDeath t) {
+            throw t;
+        } catch (Throwable t) {
             if (this.log.isDebugEnabled())
-                this.log.debug("{}: ssh connectivity check for succeeded {}", this, worker);
-            synchronized (this) {
-                if (!this.started)                                                      // we're being shutdown, bail out
-                    return;
-                if (!worker.getState().equals(Worker.State.CREATING)
-                  || !worker.getLastStateChangeTime().equals(lastStateChangeTime))
-                    return;
-                this.log.info("{} Linode#{} ssh connectivity check succeeded, transitioning to {}",
-                  worker, worker.getLinodeId(), Worker.State.RUNNING);
-                worker.setState(Worker.State.RUNNING);
-            }
-        });
+                this.log.debug("{}: ssh connectivity check failed for {}: {}", this, worker, t.toString());
+            return false;
+        }
+        if (this.log.isDebugEnabled())
+            this.log.debug("{}: ssh connectivity check for succeeded {}", this, worker);
+        if (!this.started)                                                              // we're being shutdown, bail out
+            return true;
+        if (worker.compareAndSetState(Worker.State.CREATING, lastStateChangeTime, Worker.State.RUNNING)) {
+            this.log.info("{} Linode#{} ssh connectivity check succeeded, transitioned to {}",
+              worker, worker.getLinodeId(), Worker.State.RUNNING);
+        }
+        return true;
     }
 
     /**
@@ -993,7 +1749,7 @@ public class WorkerPool {
         }
     }
 
-    private Worker.State getWorkerStateForLinode(Linode linode) {
+    private Worker.State getWorkerStateForLinode(LinodeSummary linode) {
         switch (linode.getStatus()) {
         case BOOTING:
         case PROVISIONING:
@@ -1013,11 +1769,161 @@ public class WorkerPool {
         }
     }
 
-    private Map<Integer, Worker> buildWorkerMap() {
-        assert Thread.holdsLock(this);
-        final HashMap<Integer, Worker> workerMap = new HashMap<>();
-        for (Worker worker : this.workers)
-            workerMap.put(worker.getIndex(), worker);
-        return workerMap;
+// CreateTask
+
+    // Creates one worker for addWorkers()
+    private final class CreateTask implements Runnable {
+
+        final int index;
+        final WorkerSpec spec;
+        final CompletableFuture<Worker> future = new CompletableFuture<>();
+
+        CreateTask(int index, WorkerSpec spec) {
+            this.index = index;
+            this.spec = spec;
+        }
+
+        @Override
+        public void run() {
+            try {
+                this.future.complete(WorkerPool.this.createWorker(this.index, this.spec));
+            } catch (ThreadDeath t) {
+                throw t;
+            } catch (Throwable t) {
+                WorkerPool.this.log.warn(WorkerPool.this + ": error creating worker #" + this.index, t);
+                this.future.completeExceptionally(t);
+            }
+        }
+
+        // Give up without creating the worker
+        void abort(Throwable error) {
+            synchronized (WorkerPool.this) {
+                WorkerPool.this.reservedIndexes.remove(this.index);
+            }
+            this.future.completeExceptionally(error);
+        }
+    }
+
+// DestroyPipeline
+
+    // Deletes destroyed workers' Linodes in the background. Never locks the pool: all configuration is captured
+    // at construction, and the queue and counters are lock-free.
+    private final class DestroyPipeline {
+
+        private final LinodeApiRequestSender sender;
+        private final TaskScheduler taskScheduler;
+        private final LinodeApiRetryPolicy retryPolicy;
+        private final BoundedExecutor<DestroyRequest> executor;
+        private final AtomicInteger numPending = new AtomicInteger();
+
+        DestroyPipeline(LinodeApiRequestSender sender, AsyncTaskExecutor taskExecutor,
+          TaskScheduler taskScheduler, int maxConcurrent, LinodeApiRetryPolicy retryPolicy) {
+            this.sender = sender;
+            this.taskScheduler = taskScheduler;
+            this.retryPolicy = retryPolicy;
+            this.executor = new BoundedExecutor<>(taskExecutor, maxConcurrent, (request, e) -> {
+                WorkerPool.this.log.warn(WorkerPool.this + ": can't delete Linode#"
+                  + request.worker.getLinodeId() + " (ignoring)", e);
+                this.finish(request, e);
+            });
+        }
+
+        CompletableFuture<Void> enqueue(Worker worker) {
+            final DestroyRequest request = new DestroyRequest(worker);
+            this.numPending.incrementAndGet();
+            this.executor.submit(request);
+            return request.future;
+        }
+
+        void discardQueued() {
+            for (DestroyRequest request : this.executor.clearQueue())
+                this.finish(request, new IllegalStateException("worker pool stopped"));
+        }
+
+        private void perform(DestroyRequest request) {
+            final Worker worker = request.worker;
+            try {
+                if (!WorkerPool.this.started) {                                         // we're being shutdown, bail out
+                    this.finish(request, new IllegalStateException("worker pool stopped"));
+                    return;
+                }
+                request.attempts++;
+                try {
+                    this.sender.withoutRetries(() -> {
+                        this.sender.deleteLinode(worker.getLinodeId());
+                        return null;
+                    });
+                } catch (LinodeApiException e) {
+                    if (e.getStatusCode() != HTTP_NOT_FOUND)
+                        throw e;
+                    if (WorkerPool.this.log.isDebugEnabled())
+                        WorkerPool.this.log.debug("{}: Linode#{} for {} was already deleted",
+                          WorkerPool.this, worker.getLinodeId(), worker);
+                }
+                if (WorkerPool.this.log.isDebugEnabled())
+                    WorkerPool.this.log.debug("{}: deleted Linode#{} for {}", WorkerPool.this, worker.getLinodeId(), worker);
+                this.finish(request, null);
+            } catch (ThreadDeath t) {
+                throw t;
+            } catch (Throwable t) {
+                final long delay = this.getRetryDelay(t, request.attempts);
+                if (delay >= 0 && WorkerPool.this.started) {
+                    WorkerPool.this.log.info("{}: error deleting Linode#{} (attempt #{}), retrying in {}ms: {}",
+                      WorkerPool.this, worker.getLinodeId(), request.attempts, delay, t.toString());
+                    this.taskScheduler.schedule(() -> this.executor.submit(request), Date.from(Instant.now().plusMillis(delay)));
+                } else {
+                    WorkerPool.this.log.warn(WorkerPool.this + ": error deleting Linode#" + worker.getLinodeId() + " after "
+                      + request.attempts + " attempt(s) (ignoring)", t);
+                    this.finish(request, t);
+                }
+            }
+        }
+
+        // Returns -1 if we should give up
+        private long getRetryDelay(Throwable t, int attempts) {
+            if (this.retryPolicy == null || attempts >= this.retryPolicy.getMaxAttempts())
+                return -1;
+            if (!(t instanceof LinodeApiException))                                // the sender wraps all API errors
+                return -1;
+            final LinodeApiException e = (LinodeApiException)t;
+            if (!this.retryPolicy.isRetryable(e))
+                return -1;
+            return e.getRetryAfter() >= 0 ? e.getRetryAfter() : this.retryPolicy.getBackoff(attempts);
+        }
+
+        private void finish(DestroyRequest request, Throwable error) {
+            this.numPending.decrementAndGet();
+            if (error == null)
+                request.future.complete(null);
+            else
+                request.future.completeExceptionally(error);
+        }
+
+        private final class DestroyRequest implements Runnable {
+
+            final Worker worker;
+            final CompletableFuture<Void> future = new CompletableFuture<>();
+            int attempts;                                                       // only accessed by one task at a time
+
+            DestroyRequest(Worker worker) {
+                this.worker = worker;
+            }
+
+            @Override
+            public void run() {
+                DestroyPipeline.this.perform(this);
+            }
+        }
+    }
+
+// Census
+
+    // Worker counts for the headroom policy
+    private static final class Census {
+
+        int busy;                                                               // RUNNING with processes
+        int idle;                                                               // RUNNING without processes
+        int starting;                                                           // CREATING or reserved
+        int live;                                                               // everything but DESTROYING and INVALID
     }
 }
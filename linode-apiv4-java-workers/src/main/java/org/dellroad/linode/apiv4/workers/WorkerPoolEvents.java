@@ -0,0 +1,91 @@
+
+/*
+ * Copyright (C) 2017 Archie L. Cobbs. All rights reserved.
+ */
+
+package org.dellroad.linode.apiv4.workers;
+
+import java.time.Duration;
+
+/**
+ * Emits Java Flight Recorder events, if Flight Recorder is available.
+ *
+ * <p>
+ * Flight Recorder is not present in all Java 8 runtimes, so the event classes are only ever loaded after
+ * verifying that the {@code jdk.jfr} API exists. Events are passed around as opaque {@link Object}s, which
+ * are null when Flight Recorder is unavailable or the event type is not enabled in any recording.
+ */
+final class WorkerPoolEvents {
+
+    static final boolean AVAILABLE = WorkerPoolEvents.isFlightRecorderPresent();
+
+    private WorkerPoolEvents() {
+    }
+
+    /**
+     * Begin timing a periodic check.
+     *
+     * @return event, or null if not being recorded
+     */
+    static Object beginPeriodicCheck() {
+        return AVAILABLE ? PeriodicCheckEvent.start() : null;
+    }
+
+    /**
+     * Record the Linode query phase of a periodic check.
+     *
+     * @param event event from {@link #beginPeriodicCheck}, or null
+     * @param numLinodes number of worker Linodes found
+     * @param queryTime time spent querying, in nanoseconds
+     */
+    static void linodesQueried(Object event, int numLinodes, long queryTime) {
+        if (event != null)
+            PeriodicCheckEvent.queried(event, numLinodes, queryTime);
+    }
+
+    /**
+     * Record the time a periodic check spent waiting to re-acquire the pool lock after querying.
+     *
+     * @param event event from {@link #beginPeriodicCheck}, or null
+     * @param lockWaitTime time spent waiting, in nanoseconds
+     */
+    static void poolLocked(Object event, long lockWaitTime) {
+        if (event != null)
+            PeriodicCheckEvent.locked(event, lockWaitTime);
+    }
+
+    /**
+     * Finish timing a periodic check and commit the event.
+     *
+     * @param event event from {@link #beginPeriodicCheck}, or null
+     * @param pool worker pool
+     * @param starting true if this is the initial check performed by {@link WorkerPool#start}
+     * @param success true if the check completed, false if it threw an exception
+     */
+    static void endPeriodicCheck(Object event, WorkerPool pool, boolean starting, boolean success) {
+        if (event != null)
+            PeriodicCheckEvent.finish(event, pool, starting, success);
+    }
+
+    /**
+     * Record a worker state transition.
+     *
+     * @param worker worker
+     * @param oldState previous state
+     * @param newState new state
+     * @param timeInOldState time spent in {@code oldState}
+     */
+    static void workerStateChange(Worker worker, Worker.State oldState, Worker.State newState, Duration timeInOldState) {
+        if (AVAILABLE)
+            WorkerStateChangeEvent.emit(worker, oldState, newState, timeInOldState);
+    }
+
+    private static boolean isFlightRecorderPresent() {
+        try {
+            Class.forName("jdk.jfr.Event", false, WorkerPoolEvents.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+}
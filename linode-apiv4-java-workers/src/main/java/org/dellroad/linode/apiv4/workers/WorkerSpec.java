@@ -0,0 +1,180 @@
+
+/*
+ * Copyright (C) 2017 Archie L. Cobbs. All rights reserved.
+ */
+
+package org.dellroad.linode.apiv4.workers;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Specifies how to create new worker Linodes.
+ *
+ * <p>
+ * The {@linkplain #setRegionId region} and {@linkplain #setTypeId type} are required, as is exactly one of
+ * {@linkplain #setImageId image} and {@linkplain #setBackupId backup}.
+ *
+ * @see WorkerPool#addWorker(WorkerSpec)
+ * @see WorkerPool#addWorkers WorkerPool.addWorkers()
+ */
+public class WorkerSpec {
+
+    private String regionId;
+    private String typeId;
+    private String imageId;
+    private int backupId = -1;
+    private int stackScriptId = -1;
+    private Map<String, String> stackScriptData;
+    private List<String> authorizedKeys;
+
+// Constructors
+
+    /**
+     * Default constructor.
+     */
+    public WorkerSpec() {
+    }
+
+    /**
+     * Convenience constructor.
+     *
+     * @param regionId Linode region ID
+     * @param typeId Linode type ID
+     * @param imageId Linode image ID
+     */
+    public WorkerSpec(String regionId, String typeId, String imageId) {
+        this.regionId = regionId;
+        this.typeId = typeId;
+        this.imageId = imageId;
+    }
+
+    /**
+     * Copy constructor.
+     *
+     * @param spec specification to copy
+     * @throws IllegalArgumentException if {@code spec} is null
+     */
+    public WorkerSpec(WorkerSpec spec) {
+        if (spec == null)
+            throw new IllegalArgumentException("null spec");
+        this.regionId = spec.regionId;
+        this.typeId = spec.typeId;
+        this.imageId = spec.imageId;
+        this.backupId = spec.backupId;
+        this.stackScriptId = spec.stackScriptId;
+        this.stackScriptData = spec.stackScriptData != null ? new HashMap<>(spec.stackScriptData) : null;
+        this.authorizedKeys = spec.authorizedKeys != null ? new ArrayList<>(spec.authorizedKeys) : null;
+    }
+
+// Properties
+
+    public String getRegionId() {
+        return this.regionId;
+    }
+    public void setRegionId(final String regionId) {
+        this.regionId = regionId;
+    }
+
+    public String getTypeId() {
+        return this.typeId;
+    }
+    public void setTypeId(final String typeId) {
+        this.typeId = typeId;
+    }
+
+    /**
+     * Get the Linode image ID.
+     *
+     * @return image ID, or null for none (must be null if {@linkplain #getBackupId backup ID} is not -1)
+     */
+    public String getImageId() {
+        return this.imageId;
+    }
+    public void setImageId(final String imageId) {
+        this.imageId = imageId;
+    }
+
+    /**
+     * Get the Linode backup ID.
+     *
+     * @return backup ID, or -1 for none (must be -1 if {@linkplain #getImageId image ID} is not null)
+     */
+    public int getBackupId() {
+        return this.backupId;
+    }
+    public void setBackupId(final int backupId) {
+        this.backupId = backupId;
+    }
+
+    /**
+     * Get the StackScript ID.
+     *
+     * @return StackScript ID, or -1 for none
+     */
+    public int getStackScriptId() {
+        return this.stackScriptId;
+    }
+    public void setStackScriptId(final int stackScriptId) {
+        this.stackScriptId = stackScriptId;
+    }
+
+    /**
+     * Get the StackScript variable data.
+     *
+     * @return StackScript variable data, or null for none
+     */
+    public Map<String, String> getStackScriptData() {
+        return this.stackScriptData;
+    }
+    public void setStackScriptData(final Map<String, String> stackScriptData) {
+        this.stackScriptData = stackScriptData;
+    }
+
+    /**
+     * Get the SSH public keys to pre-install.
+     *
+     * @return authorized SSH public keys, or null for none
+     */
+    public List<String> getAuthorizedKeys() {
+        return this.authorizedKeys;
+    }
+    public void setAuthorizedKeys(final List<String> authorizedKeys) {
+        this.authorizedKeys = authorizedKeys;
+    }
+
+// Methods
+
+    /**
+     * Verify this specification is complete and consistent.
+     *
+     * @throws IllegalArgumentException if this specification is invalid
+     */
+    public void validate() {
+        if (this.regionId == null)
+            throw new IllegalArgumentException("null regionId");
+        if (this.typeId == null)
+            throw new IllegalArgumentException("null typeId");
+        if (this.backupId < -1)
+            throw new IllegalArgumentException("backupId < 0");
+        if (this.imageId != null && this.backupId != -1)
+            throw new IllegalArgumentException("both imageId and backupId provided");
+        if (this.imageId == null && this.backupId == -1)
+            throw new IllegalArgumentException("one of imageId and backupId must be provided");
+        if (this.stackScriptId < -1)
+            throw new IllegalArgumentException("stackScriptId < -1");
+    }
+
+    @Override
+    public String toString() {
+        return this.getClass().getSimpleName()
+          + "[region=" + this.regionId
+          + ",type=" + this.typeId
+          + (this.imageId != null ? ",image=" + this.imageId : "")
+          + (this.backupId != -1 ? ",backup=" + this.backupId : "")
+          + (this.stackScriptId != -1 ? ",stackScript=" + this.stackScriptId : "")
+          + "]";
+    }
+}
@@ -0,0 +1,57 @@
+
+/*
+ * Copyright (C) 2017 Archie L. Cobbs. All rights reserved.
+ */
+
+package org.dellroad.linode.apiv4.workers;
+
+import java.time.Duration;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight Recorder event for a {@link Worker} state transition.
+ *
+ * <p>
+ * Only loaded if {@link WorkerPoolEvents#AVAILABLE} is true.
+ */
+@Name("org.dellroad.linode.apiv4.workers.WorkerStateChange")
+@Label("Worker State Change")
+@Category({ "Linode API", "Worker Pool" })
+@Description("Transition of a worker pool worker from one state to another")
+final class WorkerStateChangeEvent extends Event {
+
+    @Label("Worker")
+    @Description("Worker Linode name")
+    String worker;
+
+    @Label("Linode ID")
+    int linodeId;
+
+    @Label("Old State")
+    String oldState;
+
+    @Label("New State")
+    String newState;
+
+    @Label("Time In Old State")
+    @Timespan(Timespan.MILLISECONDS)
+    long timeInOldState;
+
+    static void emit(Worker worker, Worker.State oldState, Worker.State newState, Duration timeInOldState) {
+        final WorkerStateChangeEvent event = new WorkerStateChangeEvent();
+        if (!event.shouldCommit())
+            return;
+        event.worker = worker.getName();
+        event.linodeId = worker.getLinodeId();
+        event.oldState = oldState.name();
+        event.newState = newState.name();
+        event.timeInOldState = timeInOldState.toMillis();
+        event.commit();
+    }
+}
@@ -0,0 +1,344 @@
+
+/*
+ * Copyright (C) 2017 Archie L. Cobbs. All rights reserved.
+ */
+
+package org.dellroad.linode.apiv4.workers;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.dellroad.linode.apiv4.mock.LatencyModel;
+import org.dellroad.linode.apiv4.mock.MockLinodeApiServer;
+import org.dellroad.linode.apiv4.spring.LinodeApiException;
+import org.dellroad.linode.apiv4.spring.LinodeApiRequestSender;
+import org.dellroad.linode.apiv4.spring.LinodeApiRetryPolicy;
+import org.springframework.context.support.ClassPathXmlApplicationContext;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class WorkerPoolTest {
+
+    private static final long CREATE_LATENCY = 300;
+    private static final long PROVISION_TIME = 1000;
+    private static final long DELETE_LATENCY = 200;
+
+    private final MockLinodeApiServer server = new MockLinodeApiServer(123);
+
+    private ClassPathXmlApplicationContext context;
+    private LinodeApiRequestSender sender;
+    private ThreadPoolTaskExecutor taskExecutor;
+    private ThreadPoolTaskScheduler taskScheduler;
+    private WorkerPool pool;
+
+    @BeforeClass
+    public void setup() throws Exception {
+        this.server.start();
+        this.context = new ClassPathXmlApplicationContext("/org/dellroad/linode/apiv4/spring/linodeApi.xml", this.getClass());
+        this.sender = this.context.getBean("linodeApiRequestSender", LinodeApiRequestSender.class);
+        this.sender.setBaseURI(this.server.getBaseURI());
+        this.taskExecutor = new ThreadPoolTaskExecutor();
+        this.taskExecutor.setCorePoolSize(16);
+        this.taskExecutor.afterPropertiesSet();
+        this.taskScheduler = new ThreadPoolTaskScheduler();
+        this.taskScheduler.setPoolSize(2);
+        this.taskScheduler.afterPropertiesSet();
+    }
+
+    @AfterClass
+    public void teardown() throws Exception {
+        this.taskScheduler.destroy();
+        this.taskExecutor.destroy();
+        this.context.close();
+        this.server.stop();
+    }
+
+    @BeforeMethod
+    public void startPool() {
+        this.server.clear();
+        this.server.setLatency(LatencyModel.NONE);
+        this.server.setServerErrorRate(0.0);
+        this.server.setProvisionTime(0);
+        this.pool = new WorkerPool("Pool-Test") {
+            @Override
+            protected void checkSshConnectivity(Worker worker) {
+                // assume ssh is reachable
+            }
+        };
+        this.pool.setRequestSender(this.sender);
+        this.pool.setTaskExecutor(this.taskExecutor);
+        this.pool.setTaskScheduler(this.taskScheduler);
+    }
+
+    @AfterMethod
+    public void stopPool() {
+        this.pool.stop();
+    }
+
+    @Test
+    public void testAddWorkers() throws Exception {
+        final int numWorkers = 16;
+        final WorkerSpec spec = new WorkerSpec("us-east", "g6-nanode-1", "linode/debian9");
+        this.pool.setMaxConcurrentCreates(8);
+        this.pool.setStartupCheckInterval(1);
+        this.pool.start();
+
+        // Add workers; this should not block
+        this.server.setLatency(LatencyModel.constant(CREATE_LATENCY));
+        this.server.setProvisionTime(PROVISION_TIME);
+        final long startTime = System.nanoTime();
+        final List<CompletableFuture<Worker>> futures = this.pool.addWorkers(numWorkers, spec);
+        assert this.millisSince(startTime) < CREATE_LATENCY : "addWorkers() blocked";
+        assert futures.size() == numWorkers;
+
+        // The pool lock must remain available while creations are in progress
+        final long lockStartTime = System.nanoTime();
+        this.pool.getMinWorkers();                                      // synchronized method
+        assert this.millisSince(lockStartTime) < CREATE_LATENCY : "pool locked during creations";
+
+        // Wait for all workers to be running; time should be governed by concurrency, not serialization
+        final HashSet<Integer> indexes = new HashSet<>();
+        for (CompletableFuture<Worker> future : futures) {
+            final Worker worker = future.get(30, TimeUnit.SECONDS);
+            assert worker.getState() == Worker.State.RUNNING : worker + " not " + Worker.State.RUNNING;
+            indexes.add(worker.getIndex());
+        }
+        final long elapsed = this.millisSince(startTime);
+        final long serialTime = numWorkers * CREATE_LATENCY;
+        assert elapsed < serialTime : "took " + elapsed + "ms to start " + numWorkers + " workers";
+        assert indexes.size() == numWorkers : "duplicate indexes " + indexes;
+        assert this.server.getNumLinodes() == numWorkers;
+        assert this.pool.getWorkers().size() == numWorkers;
+    }
+
+    @Test
+    public void testAddWorkersFailure() throws Exception {
+        final WorkerSpec spec = new WorkerSpec("us-east", "g6-nanode-1", "linode/debian9");
+        this.pool.start();
+
+        // Invalid spec
+        try {
+            this.pool.addWorkers(1, new WorkerSpec("us-east", "g6-nanode-1", null));
+            assert false : "expected exception";
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+
+        // All creations fail
+        this.server.setServerErrorRate(1.0);
+        for (CompletableFuture<Worker> future : this.pool.addWorkers(3, spec)) {
+            try {
+                future.get(30, TimeUnit.SECONDS);
+                assert false : "expected exception";
+            } catch (ExecutionException e) {
+                // expected
+            }
+        }
+        assert this.pool.getWorkers().isEmpty();
+
+        // Failed creations must release their indexes
+        this.server.setServerErrorRate(0.0);
+        assert this.pool.addWorker(spec).getIndex() == 0;
+    }
+
+    @Test
+    public void testConcurrentDestroy() throws Exception {
+        final int numWorkers = 24;
+        final int maxConcurrent = 8;
+        this.pool.setMaxConcurrentDestroys(maxConcurrent);
+        this.pool.start();
+        final List<Worker> workers = this.addWorkers(numWorkers);
+
+        // Destroy all workers; this should not block
+        this.server.setLatency(LatencyModel.constant(DELETE_LATENCY));
+        final long startTime = System.nanoTime();
+        final List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (Worker worker : workers)
+            futures.add(worker.destroyAsync());
+        assert this.millisSince(startTime) < DELETE_LATENCY : "destroyAsync() blocked";
+        for (Worker worker : workers)
+            assert worker.getState() == Worker.State.DESTROYING : worker + " not " + Worker.State.DESTROYING;
+        assert !workers.get(0).destroy() : "destroyed twice";
+        assert workers.get(0).destroyAsync().isCompletedExceptionally();
+
+        // The pool lock must remain available while deletions are in progress
+        assert this.pool.getNumPendingDestroys() > 0;
+        final long lockStartTime = System.nanoTime();
+        this.pool.getMinWorkers();                                      // synchronized method
+        assert this.millisSince(lockStartTime) < DELETE_LATENCY : "pool locked during deletions";
+
+        // Wait for completion; time should be governed by concurrency, not serialization
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[futures.size()])).get(30, TimeUnit.SECONDS);
+        final long elapsed = this.millisSince(startTime);
+        final long serialTime = numWorkers * DELETE_LATENCY;
+        assert elapsed < serialTime / 2 : "took " + elapsed + "ms to delete " + numWorkers + " Linodes";
+        assert this.server.getNumLinodes() == 0 : this.server.getNumLinodes() + " Linodes remain";
+        assert this.pool.getNumPendingDestroys() == 0;
+    }
+
+    @Test
+    public void testDestroyRetries() throws Exception {
+        final LinodeApiRetryPolicy retryPolicy = new LinodeApiRetryPolicy() {
+            @Override
+            public boolean isRetryable(LinodeApiException e) {
+                return e.getStatusCode() == 500 || super.isRetryable(e);       // mock server also injects 500's
+            }
+        };
+        retryPolicy.setMaxAttempts(20);
+        retryPolicy.setInitialBackoff(10);
+        retryPolicy.setMaxBackoff(50);
+        this.pool.setDestroyRetryPolicy(retryPolicy);
+        this.pool.start();
+        final List<Worker> workers = this.addWorkers(10);
+
+        // Half of all requests fail with a transient error
+        this.server.setServerErrorRate(0.5);
+        final long initialErrors = this.server.getInjectedErrorCount();
+        final List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (Worker worker : workers)
+            futures.add(worker.destroyAsync());
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[futures.size()])).get(30, TimeUnit.SECONDS);
+        assert this.server.getInjectedErrorCount() > initialErrors : "no errors were injected";
+        assert this.server.getNumLinodes() == 0 : this.server.getNumLinodes() + " Linodes remain";
+    }
+
+    @Test
+    public void testDestroyWithoutSenderRetries() throws Exception {
+        this.pool.setDestroyRetryPolicy(null);
+        this.pool.start();
+        final List<Worker> workers = this.addWorkers(8);
+
+        // All requests fail, mostly with errors the sender's (default) retry policy would retry
+        this.server.setServerErrorRate(1.0);
+        final long initialRequests = this.server.getRequestCount();
+        for (Worker worker : workers) {
+            try {
+                worker.destroyAsync().get(30, TimeUnit.SECONDS);
+                assert false : "expected exception";
+            } catch (ExecutionException e) {
+                // expected
+            }
+        }
+
+        // Only the pool's retry policy applies to deletions, so each was attempted exactly once
+        final long requests = this.server.getRequestCount() - initialRequests;
+        assert requests == workers.size() : requests + " requests to delete " + workers.size() + " Linodes";
+    }
+
+    @Test
+    public void testHeadroom() throws Exception {
+        final WorkerSpec spec = new WorkerSpec("us-east", "g6-nanode-1", "linode/debian9");
+        this.pool.setHeadroomSpec(spec);
+        this.pool.setHeadroomWorkers(3);
+        this.pool.setHeadroomMaxWorkers(4);
+        this.pool.setStartupCheckInterval(1);
+        this.pool.start();
+
+        // Headroom should be established on startup
+        final List<Worker> workers = this.waitForWorkers(3);
+        for (Worker worker : workers)
+            assert worker.whenRunning().get(30, TimeUnit.SECONDS) == worker;
+
+        // Put two workers to work; the next periodic check should replenish headroom up to the limit
+        workers.get(0).getProcessSet().add(new BusyProcess());
+        workers.get(1).getProcessSet().add(new BusyProcess());
+        this.waitForWorkers(4);
+        Thread.sleep(1000);
+        assert this.pool.getWorkers().size() == 4 : "headroom exceeded limit: " + this.pool.getWorkers();
+        assert this.server.getNumLinodes() == 4;
+    }
+
+    @Test
+    public void testStartDoesNotBlock() throws Exception {
+        this.pool.setHeadroomSpec(new WorkerSpec("us-east", "g6-nanode-1", "linode/debian9"));
+        this.pool.setHeadroomMaxHourlyCost(1.0);
+        this.server.setLatency(LatencyModel.constant(CREATE_LATENCY));
+
+        // Start the pool in the background; its first check queries the price of the headroom type and the Linode list
+        final CompletableFuture<Void> start = CompletableFuture.runAsync(this.pool::start, this.taskExecutor);
+        Thread.sleep(CREATE_LATENCY / 4);
+        assert !start.isDone() : "start() did not query the API";
+
+        // The pool lock must remain available while those queries are in progress
+        final long lockStartTime = System.nanoTime();
+        this.pool.getMinWorkers();                                      // synchronized method
+        assert this.millisSince(lockStartTime) < CREATE_LATENCY / 2 : "pool locked during start()";
+
+        // Configuration changes are not allowed once starting
+        try {
+            this.pool.setMinWorkers(1);
+            assert false : "expected exception";
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        start.get(30, TimeUnit.SECONDS);
+    }
+
+    private List<Worker> waitForWorkers(int count) throws InterruptedException {
+        final long startTime = System.nanoTime();
+        while (this.pool.getWorkers().size() < count) {
+            assert this.millisSince(startTime) < 30000 : "only " + this.pool.getWorkers().size() + " of " + count + " workers";
+            Thread.sleep(100);
+        }
+        return new ArrayList<>(this.pool.getWorkers());
+    }
+
+    private List<Worker> addWorkers(int count) {
+        final List<Worker> workers = new ArrayList<>(count);
+        for (int i = 0; i < count; i++)
+            workers.add(this.pool.addWorker("us-east", "g6-nanode-1", "linode/debian9"));
+        assert this.server.getNumLinodes() == count;
+        return workers;
+    }
+
+    private long millisSince(long startTime) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+    }
+
+// BusyProcess
+
+    private static class BusyProcess extends Process {
+
+        @Override
+        public OutputStream getOutputStream() {
+            return new ByteArrayOutputStream();
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            return new ByteArrayInputStream(new byte[0]);
+        }
+
+        @Override
+        public InputStream getErrorStream() {
+            return new ByteArrayInputStream(new byte[0]);
+        }
+
+        @Override
+        public int waitFor() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int exitValue() {
+            throw new IllegalThreadStateException();
+        }
+
+        @Override
+        public void destroy() {
+        }
+    }
+}
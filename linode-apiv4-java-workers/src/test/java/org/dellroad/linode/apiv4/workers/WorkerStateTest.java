@@ -0,0 +1,131 @@
+
+/*
+ * Copyright (C) 2017 Archie L. Cobbs. All rights reserved.
+ */
+
+package org.dellroad.linode.apiv4.workers;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.annotations.Test;
+
+public class WorkerStateTest {
+
+    private final WorkerPool pool = new WorkerPool("Worker-State-Test");
+
+    @Test
+    public void testTransitions() throws Exception {
+        final Worker worker = this.newWorker(Worker.State.UNKNOWN);
+        assert worker.getName().equals("Worker-State-Test-1");
+
+        // Managed/unmanaged
+        assert !worker.setManaged();
+        assert worker.setUnmanaged();
+        assert worker.getState() == Worker.State.UNMANAGED;
+        assert !worker.setUnmanaged();
+        assert worker.setManaged();
+        assert worker.getState() == Worker.State.UNKNOWN;
+
+        // Compare and set
+        assert !worker.compareAndSetState(Worker.State.RUNNING, Worker.State.DESTROYING);
+        final Instant changeTime = worker.getLastStateChangeTime();
+        Thread.sleep(5);
+        assert worker.compareAndSetState(Worker.State.UNKNOWN, Worker.State.CREATING);
+        assert !worker.compareAndSetState(Worker.State.CREATING, changeTime, Worker.State.RUNNING);
+        assert worker.compareAndSetState(Worker.State.CREATING, worker.getLastStateChangeTime(), Worker.State.RUNNING);
+        assert worker.getState() == Worker.State.RUNNING;
+
+        // Not running
+        worker.setState(Worker.State.INVALID);
+        assert !worker.setUnmanaged();
+        try {
+            worker.execute("root", "secret", null, Arrays.asList("true"));
+            assert false : "expected exception";
+        } catch (IllegalStateException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testIdleTimeout() throws Exception {
+        final Worker worker = this.newWorker(Worker.State.RUNNING);
+        final Duration maxIdleTime = Duration.ofMinutes(5);
+        final Instant idleStartTime = worker.getIdleStartTime();
+        assert idleStartTime != null;
+        assert worker.idleTimeout(Instant.now(), maxIdleTime) == null;
+        final Instant later = idleStartTime.plus(maxIdleTime).plusSeconds(1);
+        assert idleStartTime.equals(worker.idleTimeout(later, maxIdleTime));
+        assert worker.getState() == Worker.State.DESTROYING;
+        assert worker.idleTimeout(later, maxIdleTime) == null;
+        worker.markIdle(later);
+        assert worker.getIdleStartTime().equals(idleStartTime);
+    }
+
+    @Test
+    public void testIdleWhileBusy() throws Exception {
+        final Worker worker = this.newWorker(Worker.State.RUNNING);
+        final Duration maxIdleTime = Duration.ofMinutes(5);
+        final Instant start = worker.getIdleStartTime();
+
+        // The worker is put to work, but a periodic check marks it idle before its process is added
+        worker.clearIdle();
+        worker.markIdle(start);
+        final Process process = new ProcessBuilder("true").start();
+        worker.getProcessSet().add(process);
+        assert worker.getIdleStartTime() != null;
+
+        // The next periodic check finds the process alive
+        worker.clearIdle();
+        assert worker.getIdleStartTime() == null;
+
+        // After a long job finishes, the worker's idle time starts over
+        final Instant finish = start.plus(maxIdleTime).plusSeconds(1);
+        worker.getProcessSet().remove(process);
+        worker.markIdle(finish);
+        assert worker.idleTimeout(finish, maxIdleTime) == null;
+        assert worker.getState() == Worker.State.RUNNING;
+        process.waitFor();
+    }
+
+    @Test
+    public void testConcurrentTransitions() throws Exception {
+        final Worker worker = this.newWorker(Worker.State.RUNNING);
+        final AtomicInteger unmanaged = new AtomicInteger();
+        final AtomicInteger managed = new AtomicInteger();
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        final Thread[] threads = new Thread[8];
+        for (int i = 0; i < threads.length; i++) {
+            final boolean unmanage = i % 2 == 0;
+            threads[i] = new Thread(() -> {
+                try {
+                    startLatch.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int j = 0; j < 10000; j++) {
+                    if (unmanage ? worker.setUnmanaged() : worker.setManaged())
+                        (unmanage ? unmanaged : managed).incrementAndGet();
+                }
+            });
+            threads[i].start();
+        }
+        startLatch.countDown();
+        for (Thread thread : threads)
+            thread.join();
+
+        // Every successful transition must have been from the state the other kind of transition left behind
+        final int difference = unmanaged.get() - managed.get();
+        assert difference == 0 || difference == 1 : "unmanaged " + unmanaged + " managed " + managed;
+        final Worker.State expected = difference == 1 ? Worker.State.UNMANAGED : Worker.State.UNKNOWN;
+        assert worker.getState() == expected : "state " + worker.getState() + " != " + expected;
+    }
+
+    private Worker newWorker(Worker.State state) {
+        return new Worker(this.pool, 1, 12345, "127.0.0.1", "secret", Collections.<String>emptyList(), state);
+    }
+}